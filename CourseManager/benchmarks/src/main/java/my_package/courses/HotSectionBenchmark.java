@@ -0,0 +1,114 @@
+package my_package.courses;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import my_package.users.Student;
+
+/**
+ * Measures enroll/drop throughput on a single hot Course that is
+ * hammered by many threads, and checks that the Course is never filled
+ * past its capacity while it runs and that the roster matches the seat
+ * count once it stops.  The same workload is run against
+ * the lock-free Course and against the Course guarded by a single lock
+ * for comparison.
+ *
+ * Usage: HotSectionBenchmark [threads] [seconds] [capacity] [students]
+ */
+public class HotSectionBenchmark {
+
+	/**
+	 * Runs the benchmark.
+	 * @param args threads, seconds, capacity and number of students
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+		int studentCount = args.length > 3 ? Integer.parseInt(args[3]) : 2000;
+
+		Student [] students = new Student[studentCount];
+		for (int i = 0; i < studentCount; i++) {
+			students[i] = new Student("first", "last", "s" + i, "s" + i + "@ncsu.edu", "pw");
+		}
+
+		System.out.printf("threads=%d seconds=%d capacity=%d students=%d%n", threads, seconds, capacity, studentCount);
+		//Warm up both paths before measuring
+		run(new Course("CSC216", 3, capacity), students, threads, 1, false);
+		run(new Course("CSC216", 3, capacity), students, threads, 1, true);
+		report("lock-free", run(new Course("CSC216", 3, capacity), students, threads, seconds, false), seconds);
+		report("synchronized", run(new Course("CSC216", 3, capacity), students, threads, seconds, true), seconds);
+	}
+
+	/**
+	 * Prints the result of a run.
+	 * @param name name of the run
+	 * @param result operations and overbooking violations
+	 * @param seconds length of the run
+	 */
+	private static void report(String name, long [] result, int seconds) {
+		System.out.printf("%-12s %,14.0f ops/s  overbooked=%d%n", name, (double) result[0] / seconds, result[1]);
+	}
+
+	/**
+	 * Runs enroll/drop against the course from the given number of threads.
+	 * @param course hot course
+	 * @param students students to enroll
+	 * @param threads number of threads
+	 * @param seconds length of the run
+	 * @param locked true if every operation holds the course's lock
+	 * @return number of operations and number of capacity or roster violations
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static long [] run(Course course, Student [] students, int threads, int seconds, boolean locked)
+			throws InterruptedException {
+		LongAdder ops = new LongAdder();
+		LongAdder overbooked = new LongAdder();
+		AtomicBoolean running = new AtomicBoolean(true);
+		CountDownLatch start = new CountDownLatch(1);
+		Thread [] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				long n = 0;
+				while (running.get()) {
+					Student s = students[random.nextInt(students.length)];
+					if (locked) {
+						synchronized (course) {
+							if (!course.enroll(s)) {
+								course.drop(s);
+							}
+						}
+					} else if (!course.enroll(s)) {
+						course.drop(s);
+					}
+					if ((++n & 0xFF) == 0 && course.getOpenSeats() < 0) {
+						overbooked.increment();
+					}
+				}
+				ops.add(n);
+			});
+			workers[t].start();
+		}
+		start.countDown();
+		Thread.sleep(seconds * 1000L);
+		running.set(false);
+		for (Thread t : workers) {
+			t.join();
+		}
+		//Once every thread has stopped the roster must match the seat count
+		int enrolled = course.getEnrolledStudents().length;
+		if (enrolled > course.getCapacity() || enrolled != course.getCapacity() - course.getOpenSeats()) {
+			overbooked.increment();
+		}
+		return new long [] {ops.sum(), overbooked.sum()};
+	}
+}
@@ -0,0 +1,108 @@
+package my_package.courses;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import my_package.users.Student;
+
+/**
+ * Measures the time and the bytes allocated per read of a schedule and a
+ * roster, as a schedule page does, once by copying them with getCourses()
+ * and getEnrolledStudents() and once by iterating getCourseView() and
+ * getEnrolledView().  Allocation is measured with the HotSpot thread
+ * allocation counter where the JVM has one.
+ *
+ * Usage: ViewBenchmark [roster size] [reads] [rounds]
+ */
+public class ViewBenchmark {
+
+	/** Number of courses on the schedule */
+	private static final int SCHEDULE = 6;
+
+	/** Sink for the results so the reads are not optimized away */
+	private static int sink;
+
+	/**
+	 * Runs the benchmark.
+	 * @param args roster size, number of reads and number of rounds
+	 */
+	public static void main(String[] args) {
+		int rosterSize = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		int reads = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		Student student = new Student("first", "last", "s", "s@ncsu.edu", "pw");
+		for (int c = 0; c < SCHEDULE; c++) {
+			Course course = new Course("CSC" + (100 + c), 3, 10);
+			course.enroll(student);
+			student.addCourse(course);
+		}
+		Course course = new Course("CSC216", 3, rosterSize);
+		for (int i = 0; i < rosterSize; i++) {
+			course.enroll(new Student("first", "last", "s" + i, "s" + i + "@ncsu.edu", "pw"));
+		}
+
+		System.out.printf("roster=%d schedule=%d reads=%d rounds=%d%n", rosterSize, SCHEDULE, reads, rounds);
+		for (int round = 0; round < rounds; round++) {
+			long[] scheduleCopy = measure(reads, () -> {
+				for (Course c : student.getCourses()) {
+					sink += c.getCredits();
+				}
+			});
+			long[] scheduleView = measure(reads, () -> {
+				for (Course c : student.getCourseView()) {
+					sink += c.getCredits();
+				}
+			});
+			long[] rosterCopy = measure(reads / rosterSize, () -> {
+				for (Student s : course.getEnrolledStudents()) {
+					sink += s.getMaxCredits();
+				}
+			});
+			long[] rosterView = measure(reads / rosterSize, () -> {
+				for (Student s : course.getEnrolledView()) {
+					sink += s.getMaxCredits();
+				}
+			});
+			System.out.printf("schedule copy %6.1f ns %5d B   view %6.1f ns %5d B   "
+					+ "roster copy %8.1f ns %6d B   view %8.1f ns %6d B%n",
+					scheduleCopy[0] / (double) reads, scheduleCopy[1] / reads,
+					scheduleView[0] / (double) reads, scheduleView[1] / reads,
+					rosterCopy[0] / (double) (reads / rosterSize), rosterCopy[1] / (reads / rosterSize),
+					rosterView[0] / (double) (reads / rosterSize), rosterView[1] / (reads / rosterSize));
+		}
+		if (sink == 42) {
+			System.out.println();
+		}
+	}
+
+	/**
+	 * Runs a read the given number of times.
+	 * @param reads number of times to run the read
+	 * @param read read to run
+	 * @return nanoseconds taken and bytes allocated, or -1 bytes if the
+	 *         JVM cannot count them
+	 */
+	private static long[] measure(int reads, Runnable read) {
+		long before = allocatedBytes();
+		long begin = System.nanoTime();
+		for (int i = 0; i < reads; i++) {
+			read.run();
+		}
+		long time = System.nanoTime() - begin;
+		long after = allocatedBytes();
+		return new long[] {time, before < 0 ? -reads : after - before};
+	}
+
+	/**
+	 * Returns the bytes allocated by this thread so far.
+	 * @return bytes allocated, or -1 if the JVM cannot count them
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,244 @@
+package my_package.http;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import my_package.courses.Course;
+import my_package.manager.CourseManager;
+import my_package.users.Student;
+
+/**
+ * Measures CourseServer throughput.  Each client logs in as its own
+ * student and then, until the time is up, enrolls in and drops a course
+ * and lists the catalog every tenth round.  The clients and the server
+ * run in the same JVM over the loopback interface, so on a small machine
+ * they compete for the same CPUs.
+ *
+ * Usage: HttpServerBenchmark [clients] [seconds] [courses]
+ */
+public class HttpServerBenchmark {
+	/** Pulls the token out of a login response */
+	private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+
+	/**
+	 * Runs the benchmark.
+	 * @param args clients, seconds and number of courses
+	 * @throws Exception if the server cannot be started or a client fails
+	 */
+	public static void main(String[] args) throws Exception {
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int courseCount = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+		CourseManager manager = CourseManager.getInstance();
+		manager.clearData();
+		for (int c = 0; c < courseCount; c++) {
+			manager.addCourse(new Course("CSC" + (100 + c), 3, clients + 1));
+		}
+		String password = manager.getCredentialVerifier().hash("pw");
+		for (int i = 0; i < clients; i++) {
+			manager.addStudent(new Student("First" + i, "Last" + i, "s" + i, "s" + i + "@ncsu.edu", password, 18));
+		}
+
+		CourseServer server = new CourseServer(manager, new InetSocketAddress("127.0.0.1", 0));
+		server.start();
+
+		System.out.printf("clients=%d seconds=%d courses=%d executor=%s java=%s%n", clients, seconds, courseCount,
+				CourseServer.newExecutor().getClass().getSimpleName(), System.getProperty("java.version"));
+		//Warm up for a third of the time, then measure
+		run(server.getPort(), clients, Math.max(1, seconds / 3), courseCount, false);
+		run(server.getPort(), clients, seconds, courseCount, true);
+		server.stop(0);
+		manager.clearData();
+	}
+
+	/**
+	 * Runs the clients for the given time.
+	 * @param port server port
+	 * @param clients number of clients
+	 * @param seconds how long to run
+	 * @param courseCount number of courses
+	 * @param report true to print the results
+	 * @throws Exception if a client fails
+	 */
+	private static void run(int port, int clients, int seconds, int courseCount, boolean report) throws Exception {
+		AtomicLong requests = new AtomicLong();
+		long [][] latencies = new long[clients][];
+		Exception [] failure = new Exception[1];
+		CountDownLatch start = new CountDownLatch(1);
+		Thread [] workers = new Thread[clients];
+		long [] end = new long[1];
+		for (int t = 0; t < clients; t++) {
+			int id = t;
+			workers[t] = new Thread(() -> {
+				long [] times = new long[1 << 16];
+				int n = 0;
+				try (Connection http = new Connection(port)) {
+					String token = login(http, "s" + id);
+					start.await();
+					String course = "course=CSC" + (100 + id % courseCount);
+					for (int round = 0; System.nanoTime() < end[0]; round++) {
+						long begin = System.nanoTime();
+						http.request("POST", "/enroll", token, course);
+						http.request("POST", "/drop", token, course);
+						if (round % 10 == 0) {
+							http.request("GET", "/courses", null, null);
+						}
+						if (n < times.length) {
+							times[n++] = System.nanoTime() - begin;
+						}
+						requests.addAndGet(round % 10 == 0 ? 3 : 2);
+					}
+				} catch (Exception e) {
+					failure[0] = e;
+				}
+				latencies[id] = Arrays.copyOf(times, n);
+			});
+			workers[t].start();
+		}
+		Thread.sleep(500);
+		long begin = System.nanoTime();
+		end[0] = begin + seconds * 1_000_000_000L;
+		start.countDown();
+		for (Thread t : workers) {
+			t.join();
+		}
+		long elapsed = System.nanoTime() - begin;
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+		if (report) {
+			long [] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+			System.out.printf("requests/s     %,12.0f%n", requests.get() * 1e9 / elapsed);
+			System.out.printf("round p50      %,12.0f us (enroll, drop and every tenth round a listing)%n",
+					all[all.length / 2] / 1e3);
+			System.out.printf("round p99      %,12.0f us%n", all[(int) (all.length * 0.99)] / 1e3);
+		}
+	}
+
+	/**
+	 * Logs in and returns the session token.
+	 * @param http connection to the server
+	 * @param id student id
+	 * @return session token
+	 * @throws IOException if the request fails
+	 */
+	private static String login(Connection http, String id) throws IOException {
+		String body = http.request("POST", "/login", null, "id=" + id + "&password=pw");
+		Matcher m = TOKEN.matcher(body);
+		if (!m.find()) {
+			throw new IllegalStateException("Login failed: " + body);
+		}
+		return m.group(1);
+	}
+
+	/**
+	 * A kept-alive HTTP/1.1 connection to the server.  It is much cheaper
+	 * per request than java.net.http.HttpClient, which leaves more of the
+	 * CPU to the server when both run on the same machine.
+	 */
+	private static class Connection implements AutoCloseable {
+		/** Socket to the server */
+		private final Socket socket;
+		/** Buffered request stream */
+		private final OutputStream out;
+		/** Buffered response stream */
+		private final InputStream in;
+
+		/**
+		 * Connects to the server.
+		 * @param port server port on the loopback interface
+		 * @throws IOException if the connection fails
+		 */
+		Connection(int port) throws IOException {
+			socket = new Socket("127.0.0.1", port);
+			socket.setTcpNoDelay(true);
+			out = new BufferedOutputStream(socket.getOutputStream());
+			in = new BufferedInputStream(socket.getInputStream());
+		}
+
+		/**
+		 * Sends a request and returns the body of its 200 response.
+		 * @param method GET or POST
+		 * @param path request path
+		 * @param token session token, or null
+		 * @param form form encoded body, or null
+		 * @return response body
+		 * @throws IOException if the request fails or is not 200
+		 */
+		String request(String method, String path, String token, String form) throws IOException {
+			byte [] body = form == null ? new byte[0] : form.getBytes(StandardCharsets.UTF_8);
+			StringBuilder head = new StringBuilder();
+			head.append(method).append(' ').append(path).append(" HTTP/1.1\r\nHost: 127.0.0.1\r\n");
+			if (token != null) {
+				head.append("Authorization: Bearer ").append(token).append("\r\n");
+			}
+			if (form != null) {
+				head.append("Content-Type: application/x-www-form-urlencoded\r\nContent-Length: ")
+						.append(body.length).append("\r\n");
+			}
+			out.write(head.append("\r\n").toString().getBytes(StandardCharsets.US_ASCII));
+			out.write(body);
+			out.flush();
+
+			String status = readLine();
+			int length = 0;
+			for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+				if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+					length = Integer.parseInt(line.substring(15).trim());
+				}
+			}
+			byte [] response = new byte[length];
+			for (int n = 0; n < length; ) {
+				int read = in.read(response, n, length - n);
+				if (read < 0) {
+					throw new EOFException();
+				}
+				n += read;
+			}
+			String text = new String(response, StandardCharsets.UTF_8);
+			if (!status.startsWith("HTTP/1.1 200")) {
+				throw new IOException(status + " " + text);
+			}
+			return text;
+		}
+
+		/**
+		 * Reads a header line without its CRLF.
+		 * @return header line
+		 * @throws IOException if the connection is closed
+		 */
+		private String readLine() throws IOException {
+			StringBuilder line = new StringBuilder();
+			for (int c = in.read(); c != '\n'; c = in.read()) {
+				if (c < 0) {
+					throw new EOFException();
+				}
+				if (c != '\r') {
+					line.append((char) c);
+				}
+			}
+			return line.toString();
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.AutoCloseable#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			socket.close();
+		}
+	}
+}
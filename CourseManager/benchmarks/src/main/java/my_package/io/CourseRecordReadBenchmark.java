@@ -0,0 +1,90 @@
+package my_package.io;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+import my_package.courses.Course;
+
+/**
+ * Measures how long it takes to read a large course record file with the
+ * Scanner based reader that CourseRecordIO used to have and with
+ * CourseRecordIO.readCourseRecords(), and checks that both read the same
+ * Courses.  One line in ten has a format error.
+ *
+ * Usage: CourseRecordReadBenchmark [lines] [rounds]
+ */
+public class CourseRecordReadBenchmark {
+
+	/**
+	 * Runs the benchmark.
+	 * @param args number of lines and number of rounds
+	 * @throws IOException if the test file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		int lines = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		File file = File.createTempFile("course_records", ".txt");
+		file.deleteOnExit();
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(file))) {
+			for (int i = 0; i < lines; i++) {
+				if (i % 10 == 9) {
+					out.write("CSC" + i + ",A,3");
+				} else {
+					out.write("CSC" + i + "," + (1 + i % 4) + "," + (1 + i % 250));
+				}
+				out.newLine();
+			}
+		}
+
+		System.out.printf("lines=%d rounds=%d%n", lines, rounds);
+		for (int round = 0; round < rounds; round++) {
+			long begin = System.nanoTime();
+			List<Course> scanned = scannerRead(file.getPath());
+			long scannerTime = System.nanoTime() - begin;
+			begin = System.nanoTime();
+			List<Course> streamed = CourseRecordIO.readCourseRecords(file.getPath());
+			long readerTime = System.nanoTime() - begin;
+
+			if (!scanned.equals(streamed)) {
+				throw new IllegalStateException("Readers disagree");
+			}
+			System.out.printf("Scanner %8.1f ms   CourseRecordReader %8.1f ms   speedup %5.1fx%n",
+					scannerTime / 1e6, readerTime / 1e6, (double) scannerTime / readerTime);
+		}
+	}
+
+	/**
+	 * Reads the file the way CourseRecordIO.readCourseRecords() used to.
+	 * @param fileName name of file to read
+	 * @return Course records
+	 * @throws FileNotFoundException if the file doesn't exist
+	 */
+	private static List<Course> scannerRead(String fileName) throws FileNotFoundException {
+		List<Course> courses = new ArrayList<Course>();
+		Scanner fileScanner = new Scanner(new File(fileName));
+		while (fileScanner.hasNextLine()) {
+			Scanner lineScanner = new Scanner(fileScanner.nextLine());
+			try {
+				lineScanner.useDelimiter(",");
+				String name = lineScanner.next();
+				int credits = lineScanner.nextInt();
+				int capacity = lineScanner.nextInt();
+				courses.add(new Course(name, credits, capacity));
+			} catch (NoSuchElementException | IllegalArgumentException e) {
+				//ignore the line
+			} finally {
+				lineScanner.close();
+			}
+		}
+		fileScanner.close();
+		return courses;
+	}
+}
@@ -0,0 +1,124 @@
+package my_package.io;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import my_package.courses.Course;
+import my_package.manager.CourseManager;
+import my_package.manager.Sha256CredentialVerifier;
+import my_package.users.Student;
+
+/**
+ * JMH benchmarks for reading the record files with
+ * CourseRecordIO.readCourseRecords() and
+ * StudentRecordIO.readStudentRecords().  The files have the given number
+ * of students and one course for every STUDENTS_PER_COURSE students, and
+ * every student is enrolled in three courses.
+ *
+ * Reading student records enrolls the students in CourseManager's
+ * courses, so the courses are loaded again before each read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecordIOBenchmark {
+
+	/** Number of students for each course */
+	private static final int STUDENTS_PER_COURSE = 10;
+
+	/** Number of students in the student file */
+	@Param({"1000", "10000", "100000"})
+	public int students;
+
+	/** Course record file */
+	private File courseFile;
+	/** Student record file */
+	private File studentFile;
+
+	/**
+	 * Writes the record files.
+	 * @throws IOException if the files cannot be written
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		int courses = Math.max(10, students / STUDENTS_PER_COURSE);
+		courseFile = File.createTempFile("course_records", ".txt");
+		studentFile = File.createTempFile("student_records", ".txt");
+		try (PrintWriter out = new PrintWriter(courseFile)) {
+			for (int c = 0; c < courses; c++) {
+				out.println("CSC" + (100 + c) + "," + (1 + c % 4) + "," + STUDENTS_PER_COURSE * 4);
+			}
+		}
+		String password = new Sha256CredentialVerifier().hash("pw");
+		try (PrintWriter out = new PrintWriter(studentFile)) {
+			for (int i = 0; i < students; i++) {
+				out.print("First" + i + ",Last" + i + ",s" + i + ",s" + i + "@ncsu.edu," + password + ",18");
+				for (int k = 0; k < 3; k++) {
+					out.print(",CSC" + (100 + (i + k * 7) % courses));
+				}
+				out.println();
+			}
+		}
+	}
+
+	/**
+	 * Loads the courses into CourseManager before each student read.
+	 */
+	@Setup(Level.Invocation)
+	public void loadCourses() {
+		CourseManager manager = CourseManager.getInstance();
+		manager.clearData();
+		manager.loadCourses(courseFile.getPath());
+	}
+
+	/**
+	 * Deletes the record files.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		CourseManager.getInstance().clearData();
+		courseFile.delete();
+		studentFile.delete();
+	}
+
+	/**
+	 * Reads the course record file.
+	 * @return courses read
+	 * @throws FileNotFoundException if the file is missing
+	 */
+	@Benchmark
+	public List<Course> readCourseRecords() throws FileNotFoundException {
+		return CourseRecordIO.readCourseRecords(courseFile.getPath());
+	}
+
+	/**
+	 * Reads the student record file.
+	 * @return students read
+	 * @throws FileNotFoundException if the file is missing
+	 */
+	@Benchmark
+	public List<Student> readStudentRecords() throws FileNotFoundException {
+		return StudentRecordIO.readStudentRecords(studentFile.getPath());
+	}
+}
@@ -0,0 +1,86 @@
+package my_package.io;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import my_package.courses.Course;
+import my_package.manager.EnrollmentTransaction;
+import my_package.manager.Sha256CredentialVerifier;
+import my_package.users.Student;
+
+/**
+ * Measures how long it takes to save a large list of Students with the
+ * PrintWriter and toString() based writer that StudentRecordIO used to
+ * have and with StudentRecordIO.writeStudentRecords(), and checks that
+ * both write the same file.  Every student is enrolled in three of twenty
+ * courses.
+ *
+ * Usage: RecordWriteBenchmark [students] [rounds]
+ */
+public class RecordWriteBenchmark {
+
+	/**
+	 * Runs the benchmark.
+	 * @param args number of students and number of rounds
+	 * @throws IOException if the files cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		int studentCount = args.length > 0 ? Integer.parseInt(args[0]) : 60000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+		Course [] courses = new Course[20];
+		for (int c = 0; c < courses.length; c++) {
+			courses[c] = new Course("CSC" + (100 + c), 3, studentCount);
+		}
+		String password = new Sha256CredentialVerifier().hash("pw");
+		List<Student> students = new ArrayList<Student>();
+		for (int i = 0; i < studentCount; i++) {
+			Student s = new Student("First" + i, "Last" + i, "s" + i, "s" + i + "@ncsu.edu", password, 18);
+			for (int c = 0; c < 3; c++) {
+				EnrollmentTransaction.enroll(s, courses[(i + c * 7) % courses.length]);
+			}
+			students.add(s);
+		}
+
+		File printed = File.createTempFile("student_records", ".txt");
+		File written = File.createTempFile("student_records", ".txt");
+		printed.deleteOnExit();
+		written.deleteOnExit();
+		System.out.printf("students=%d rounds=%d%n", studentCount, rounds);
+		for (int round = 0; round < rounds; round++) {
+			long begin = System.nanoTime();
+			printWriterSave(printed.getPath(), students);
+			long printTime = System.nanoTime() - begin;
+			begin = System.nanoTime();
+			StudentRecordIO.writeStudentRecords(written.getPath(), students);
+			long writeTime = System.nanoTime() - begin;
+
+			if (!Arrays.equals(Files.readAllBytes(printed.toPath()), Files.readAllBytes(written.toPath()))) {
+				throw new IllegalStateException("Writers disagree");
+			}
+			System.out.printf("PrintWriter %8.1f ms   RecordWriter %8.1f ms   speedup %5.1fx%n",
+					printTime / 1e6, writeTime / 1e6, (double) printTime / writeTime);
+		}
+	}
+
+	/**
+	 * Saves the Students the way StudentRecordIO.writeStudentRecords() used
+	 * to.
+	 * @param fileName file to write
+	 * @param students Students to save
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void printWriterSave(String fileName, List<Student> students) throws IOException {
+		PrintWriter fileOut = new PrintWriter(new FileWriter(fileName));
+		for (Student s: students) {
+			fileOut.println(s.toString());
+		}
+		fileOut.close();
+	}
+}
@@ -0,0 +1,99 @@
+package my_package.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import my_package.courses.Course;
+import my_package.manager.CourseManager;
+import my_package.manager.EnrollmentTransaction;
+import my_package.manager.Sha256CredentialVerifier;
+import my_package.users.Student;
+
+/**
+ * Measures how long it takes to load the same data from the course and
+ * student record files and from a binary snapshot, and checks that both
+ * load the same rosters.  Every student is enrolled in three courses.
+ *
+ * Usage: SnapshotBenchmark [students] [courses] [rounds]
+ */
+public class SnapshotBenchmark {
+
+	/**
+	 * Runs the benchmark.
+	 * @param args number of students, number of courses and number of rounds
+	 * @throws IOException if the files cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		int studentCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int courseCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		List<Course> courses = new ArrayList<Course>();
+		for (int c = 0; c < courseCount; c++) {
+			courses.add(new Course("CSC" + (100 + c), 1 + c % 4, studentCount));
+		}
+		String password = new Sha256CredentialVerifier().hash("pw");
+		List<Student> students = new ArrayList<Student>();
+		for (int i = 0; i < studentCount; i++) {
+			Student s = new Student("First" + i % 1000, "Last" + i % 3000, "s" + i, "s" + i + "@ncsu.edu", password,
+					18);
+			for (int c = 0; c < 3; c++) {
+				EnrollmentTransaction.enroll(s, courses.get((i + c * 7) % courseCount));
+			}
+			students.add(s);
+		}
+
+		File courseFile = File.createTempFile("course_records", ".txt");
+		File studentFile = File.createTempFile("student_records", ".txt");
+		File snapshotFile = File.createTempFile("snapshot", ".bin");
+		courseFile.deleteOnExit();
+		studentFile.deleteOnExit();
+		snapshotFile.deleteOnExit();
+		CourseRecordIO.writeCourseRecords(courseFile.getPath(), courses);
+		StudentRecordIO.writeStudentRecords(studentFile.getPath(), students);
+		SnapshotIO.writeSnapshot(snapshotFile.getPath(), courses, students);
+		System.out.printf("students=%d courses=%d text=%,d bytes snapshot=%,d bytes%n", studentCount, courseCount,
+				courseFile.length() + studentFile.length(), snapshotFile.length());
+
+		CourseManager manager = CourseManager.getInstance();
+		for (int round = 0; round < rounds; round++) {
+			manager.clearData();
+			long begin = System.nanoTime();
+			manager.loadCourses(courseFile.getPath());
+			manager.loadStudents(studentFile.getPath());
+			long textTime = System.nanoTime() - begin;
+			List<String> expected = rosters(manager);
+
+			manager.clearData();
+			begin = System.nanoTime();
+			manager.loadSnapshot(snapshotFile.getPath());
+			long snapshotTime = System.nanoTime() - begin;
+
+			if (!expected.equals(rosters(manager))) {
+				throw new IllegalStateException("Loads disagree");
+			}
+			System.out.printf("record files %8.1f ms   snapshot %8.1f ms   speedup %5.1fx%n", textTime / 1e6,
+					snapshotTime / 1e6, (double) textTime / snapshotTime);
+		}
+		manager.clearData();
+	}
+
+	/**
+	 * Returns the ids on every roster.
+	 * @param manager loaded CourseManager
+	 * @return one line per Course
+	 */
+	private static List<String> rosters(CourseManager manager) {
+		List<String> rosters = new ArrayList<String>();
+		for (Course c : manager.listAllCourses()) {
+			StringBuilder sb = new StringBuilder(c.toString());
+			for (Student s : c.getEnrolledStudents()) {
+				sb.append(',').append(s.getId());
+			}
+			rosters.add(sb.toString());
+		}
+		return rosters;
+	}
+}
@@ -0,0 +1,111 @@
+package my_package.io;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import my_package.courses.Course;
+import my_package.manager.CourseManager;
+import my_package.manager.Sha256CredentialVerifier;
+import my_package.users.Student;
+
+/**
+ * Measures how long it takes to load a large student record file with
+ * the Scanner based reader, with StudentRecordLoader parsing each window
+ * as a single chunk on one thread, and with StudentRecordLoader parsing
+ * chunks in parallel on the common fork-join pool, and checks that all
+ * three load the same Students.  Every student asks for three of twenty
+ * courses, and the courses are large enough that every enrollment
+ * succeeds.
+ *
+ * Usage: StudentRecordLoadBenchmark [students] [rounds]
+ *
+ * Set java.util.concurrent.ForkJoinPool.common.parallelism to vary the
+ * number of parsing threads.
+ */
+public class StudentRecordLoadBenchmark {
+
+	/** Number of courses in the catalog */
+	private static final int COURSES = 20;
+
+	/**
+	 * Runs the benchmark.
+	 * @param args number of students and number of rounds
+	 * @throws IOException if the test file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		int studentCount = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		String password = new Sha256CredentialVerifier().hash("pw");
+		File file = File.createTempFile("student_records", ".txt");
+		file.deleteOnExit();
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(file))) {
+			for (int i = 0; i < studentCount; i++) {
+				out.write("First" + i + ",Last" + i + ",s" + i + ",s" + i + "@ncsu.edu," + password + ",18");
+				for (int c = 0; c < 3; c++) {
+					out.write(",CSC" + (100 + (i + c * 7) % COURSES));
+				}
+				out.newLine();
+			}
+		}
+
+		System.out.printf("students=%d rounds=%d bytes=%,d%n", studentCount, rounds, file.length());
+		for (int round = 0; round < rounds; round++) {
+			resetCourses(studentCount);
+			long begin = System.nanoTime();
+			List<Student> scanned = StudentRecordIO.scanStudentRecords(file.getPath(), Charset.defaultCharset());
+			long scannerTime = System.nanoTime() - begin;
+
+			resetCourses(studentCount);
+			begin = System.nanoTime();
+			List<Student> sequential = StudentRecordLoader.load(file.getPath(), Charset.defaultCharset(),
+					StudentRecordLoader.WINDOW_SIZE, Integer.MAX_VALUE);
+			long sequentialTime = System.nanoTime() - begin;
+
+			resetCourses(studentCount);
+			begin = System.nanoTime();
+			List<Student> parallel = StudentRecordLoader.load(file.getPath());
+			long parallelTime = System.nanoTime() - begin;
+
+			check(scanned, sequential, studentCount);
+			check(scanned, parallel, studentCount);
+			System.out.printf("Scanner %8.1f ms   one chunk %8.1f ms   parallel %8.1f ms   parallel speedup %4.1fx%n",
+					scannerTime / 1e6, sequentialTime / 1e6, parallelTime / 1e6, (double) sequentialTime / parallelTime);
+		}
+		CourseManager.getInstance().clearData();
+	}
+
+	/**
+	 * Checks that two loads read the same Students.
+	 * @param expected Students read by the Scanner
+	 * @param actual Students read by the loader
+	 * @param studentCount number of students in the file
+	 */
+	private static void check(List<Student> expected, List<Student> actual, int studentCount) {
+		if (expected.size() != studentCount || actual.size() != studentCount) {
+			throw new IllegalStateException("Loaders disagree");
+		}
+		for (int i = 0; i < studentCount; i++) {
+			if (!expected.get(i).deepEquals(actual.get(i))) {
+				throw new IllegalStateException("Loaders disagree on line " + i);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the catalog with empty Courses large enough for every
+	 * student.
+	 * @param capacity capacity of each Course
+	 */
+	private static void resetCourses(int capacity) {
+		CourseManager manager = CourseManager.getInstance();
+		manager.clearData();
+		for (int c = 0; c < COURSES; c++) {
+			manager.addCourse(new Course("CSC" + (100 + c), 3, capacity));
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package my_package.manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import my_package.courses.Course;
+import my_package.users.Student;
+import my_package.users.User;
+
+/**
+ * Measures block scheduling freshmen into cohorts with a journal set,
+ * once by adding each student to each course of their cohort with
+ * addUserToCourse() and once with addStudentsToCourses(), and checks that
+ * both fill the courses the same way.
+ *
+ * Usage: BatchEnrollmentBenchmark [students] [rounds]
+ */
+public class BatchEnrollmentBenchmark {
+
+	/** Number of cohorts */
+	private static final int COHORTS = 50;
+	/** Number of courses in each cohort's block */
+	private static final int BLOCK = 5;
+
+	/**
+	 * Runs the benchmark.
+	 * @param args number of students and number of rounds
+	 * @throws IOException if the test files cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		int studentCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		File courseFile = File.createTempFile("course_records", ".txt");
+		File studentFile = File.createTempFile("student_records", ".txt");
+		File journalFile = File.createTempFile("journal", ".txt");
+		courseFile.deleteOnExit();
+		studentFile.deleteOnExit();
+		journalFile.deleteOnExit();
+		try (PrintWriter out = new PrintWriter(courseFile)) {
+			for (int c = 0; c < COHORTS * BLOCK; c++) {
+				out.println("CSC" + (100 + c) + ",3," + (studentCount / COHORTS + 1));
+			}
+		}
+		String password = new Sha256CredentialVerifier().hash("pw");
+		try (PrintWriter out = new PrintWriter(studentFile)) {
+			for (int i = 0; i < studentCount; i++) {
+				out.println("First" + i + ",Last" + i + ",s" + i + ",s" + i + "@ncsu.edu," + password + ",18");
+			}
+		}
+
+		CourseManager manager = CourseManager.getInstance();
+		//The hashed passwords may not survive the platform charset, so let every login in
+		CredentialVerifier verifier = manager.getCredentialVerifier();
+		manager.setCredentialVerifier(new CredentialVerifier() {
+			@Override
+			public String hash(String password) {
+				return verifier.hash(password);
+			}
+
+			@Override
+			public boolean verify(User user, String password) {
+				return true;
+			}
+		});
+		System.out.printf("students=%d cohorts=%d block=%d rounds=%d%n", studentCount, COHORTS, BLOCK, rounds);
+		for (int round = 0; round < rounds; round++) {
+			load(manager, courseFile, studentFile, journalFile);
+			long begin = System.nanoTime();
+			for (int i = 0; i < studentCount; i++) {
+				Session session = manager.openSession("s" + i, "pw");
+				for (Course c : block(manager, i % COHORTS)) {
+					manager.addUserToCourse(session, c);
+				}
+				manager.closeSession(session);
+			}
+			long singleTime = System.nanoTime() - begin;
+			String single = describeCourses(manager);
+
+			load(manager, courseFile, studentFile, journalFile);
+			begin = System.nanoTime();
+			for (int cohort = 0; cohort < COHORTS; cohort++) {
+				String [] ids = new String[(studentCount - cohort + COHORTS - 1) / COHORTS];
+				for (int k = 0; k < ids.length; k++) {
+					ids[k] = "s" + (cohort + k * COHORTS);
+				}
+				manager.addStudentsToCourses(ids, block(manager, cohort));
+			}
+			long batchTime = System.nanoTime() - begin;
+			if (!single.equals(describeCourses(manager))) {
+				throw new IllegalStateException("Enrollments disagree");
+			}
+
+			System.out.printf("one at a time %8.1f ms   batch %8.1f ms   speedup %5.1fx%n",
+					singleTime / 1e6, batchTime / 1e6, (double) singleTime / batchTime);
+		}
+		manager.clearData();
+		manager.setCredentialVerifier(verifier);
+	}
+
+	/**
+	 * Loads the record files with an empty journal.
+	 * @param manager CourseManager to load
+	 * @param courseFile course record file
+	 * @param studentFile student record file
+	 * @param journalFile journal file
+	 * @throws IOException if the journal cannot be emptied
+	 */
+	private static void load(CourseManager manager, File courseFile, File studentFile, File journalFile)
+			throws IOException {
+		manager.clearData();
+		new PrintWriter(journalFile).close();
+		manager.loadCourses(courseFile.getPath());
+		manager.setJournalFile(journalFile.getPath(), Integer.MAX_VALUE);
+		manager.loadStudents(studentFile.getPath());
+	}
+
+	/**
+	 * Returns the courses in a cohort's block.
+	 * @param manager loaded CourseManager
+	 * @param cohort cohort number
+	 * @return courses in the block
+	 */
+	private static Course[] block(CourseManager manager, int cohort) {
+		Course [] block = new Course[BLOCK];
+		for (int c = 0; c < BLOCK; c++) {
+			block[c] = manager.getCourseByName("CSC" + (100 + cohort * BLOCK + c));
+		}
+		return block;
+	}
+
+	/**
+	 * Returns the number of students in each course as text.
+	 * @param manager loaded CourseManager
+	 * @return description of the courses
+	 */
+	private static String describeCourses(CourseManager manager) {
+		StringBuilder sb = new StringBuilder();
+		for (Course c : manager.listAllCourses()) {
+			sb.append(c).append(':');
+			for (Student s : c.getEnrolledStudents()) {
+				sb.append(s.getId()).append(' ');
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,130 @@
+package my_package.manager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import my_package.courses.Course;
+
+/**
+ * Measures catalog browsing throughput while a writer keeps adding
+ * courses, once by copying the catalog with listAllCourses() and once by
+ * reading getCourseCatalog(), and checks that every catalog read is a
+ * whole prefix of the courses in the order they were added.
+ *
+ * Usage: CatalogBrowseBenchmark [courses] [readers] [seconds] [rounds]
+ */
+public class CatalogBrowseBenchmark {
+
+	/**
+	 * Runs the benchmark.
+	 * @param args courses, reader threads, seconds and rounds
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int courseCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int readers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+		CourseManager manager = CourseManager.getInstance();
+		System.out.printf("courses=%d readers=%d seconds=%d rounds=%d%n", courseCount, readers, seconds, rounds);
+		for (int round = 0; round < rounds; round++) {
+			double copy = run(manager, courseCount, readers, seconds, false);
+			double snapshot = run(manager, courseCount, readers, seconds, true);
+			System.out.printf("listAllCourses %10.0f reads/s   getCourseCatalog %10.0f reads/s   speedup %5.1fx%n",
+					copy, snapshot, snapshot / copy);
+		}
+		manager.clearData();
+	}
+
+	/**
+	 * Browses the catalog from the reader threads while this thread adds
+	 * courses.
+	 * @param manager CourseManager to use
+	 * @param courseCount number of courses to start with
+	 * @param readers number of reader threads
+	 * @param seconds how long to run
+	 * @param useSnapshot true to read getCourseCatalog()
+	 * @return catalog reads per second
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static double run(CourseManager manager, int courseCount, int readers, int seconds,
+			boolean useSnapshot) throws InterruptedException {
+		manager.clearData();
+		for (int i = 0; i < courseCount; i++) {
+			manager.addCourse(new Course("C" + i, 3, 10));
+		}
+		AtomicBoolean stop = new AtomicBoolean();
+		LongAdder reads = new LongAdder();
+		Thread [] threads = new Thread[readers];
+		for (int t = 0; t < readers; t++) {
+			threads[t] = new Thread(() -> {
+				while (!stop.get()) {
+					if (useSnapshot) {
+						browseSnapshot(manager);
+					} else {
+						browseCopy(manager);
+					}
+					reads.increment();
+				}
+			});
+			threads[t].start();
+		}
+		long begin = System.nanoTime();
+		long end = begin + seconds * 1000000000L;
+		int added = courseCount;
+		while (System.nanoTime() < end) {
+			manager.addCourse(new Course("C" + added++, 3, 10));
+			Thread.sleep(1);
+		}
+		stop.set(true);
+		for (Thread t : threads) {
+			t.join();
+		}
+		return reads.sum() / ((System.nanoTime() - begin) / 1e9);
+	}
+
+	/**
+	 * Reads every course in a copy of the catalog.
+	 * @param manager CourseManager to browse
+	 */
+	private static void browseCopy(CourseManager manager) {
+		Course [] catalog = manager.listAllCourses();
+		int seats = 0;
+		for (int i = 0; i < catalog.length; i++) {
+			seats += catalog[i].getOpenSeats();
+		}
+		check(catalog[catalog.length - 1], catalog.length, seats);
+	}
+
+	/**
+	 * Reads every course in a snapshot of the catalog.
+	 * @param manager CourseManager to browse
+	 */
+	private static void browseSnapshot(CourseManager manager) {
+		List<Course> catalog = manager.getCourseCatalog();
+		int size = catalog.size();
+		int seats = 0;
+		for (int i = 0; i < size; i++) {
+			seats += catalog.get(i).getOpenSeats();
+		}
+		check(catalog.get(size - 1), size, seats);
+	}
+
+	/**
+	 * Checks that the last course read is the one added last before the
+	 * read.
+	 * @param last last course read
+	 * @param size number of courses read
+	 * @param seats open seats in the courses read
+	 */
+	private static void check(Course last, int size, int seats) {
+		if (!last.getName().equals("C" + (size - 1))) {
+			throw new IllegalStateException("Catalog read out of order");
+		}
+		if (seats < size) {
+			throw new IllegalStateException("Seats went missing");
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package my_package.manager;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import my_package.courses.Course;
+import my_package.users.Student;
+
+/**
+ * JMH benchmarks for the core CourseManager operations: logging in,
+ * looking up a course and adding and removing a course, against a
+ * catalog of the given number of courses with STUDENTS_PER_COURSE
+ * students for each course, every student enrolled in three courses.
+ *
+ * addUserToCourse and removeUserFromCourse undo the change before each
+ * call, so each call makes the same change.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EnrollmentBenchmark {
+
+	/** Number of students for each course in the catalog */
+	private static final int STUDENTS_PER_COURSE = 10;
+	/** Password of every student */
+	private static final String PASSWORD = "pw";
+
+	/** Number of courses in the catalog */
+	@Param({"100", "1000", "10000"})
+	public int courses;
+
+	/** CourseManager under test */
+	private CourseManager manager;
+	/** Names of the courses */
+	private String [] names;
+	/** Ids of the students */
+	private String [] ids;
+	/** Session of the student that adds and removes a course */
+	private Session session;
+	/** Course that is added and removed */
+	private Course target;
+	/** Next course name or student id to use */
+	private int next;
+
+	/**
+	 * Loads the catalog and logs in the student that adds and removes a
+	 * course.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		manager = CourseManager.getInstance();
+		manager.clearData();
+		names = new String[courses];
+		Course [] catalog = new Course[courses];
+		for (int c = 0; c < courses; c++) {
+			names[c] = "CSC" + (100 + c);
+			catalog[c] = new Course(names[c], 3, STUDENTS_PER_COURSE * 4);
+			manager.addCourse(catalog[c]);
+		}
+		String password = manager.getCredentialVerifier().hash(PASSWORD);
+		ids = new String[courses * STUDENTS_PER_COURSE];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = "s" + i;
+			Student s = new Student("First" + i, "Last" + i, ids[i], ids[i] + "@ncsu.edu", password, 12);
+			manager.addStudent(s);
+			for (int k = 0; k < 3; k++) {
+				EnrollmentTransaction.enroll(s, catalog[(i + k * 7) % courses]);
+			}
+		}
+		session = manager.openSession(ids[0], PASSWORD);
+		target = catalog[courses / 2];
+		manager.removeUserFromCourse(session, target);
+	}
+
+	/**
+	 * Clears the catalog.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		manager.clearData();
+	}
+
+	/**
+	 * Removes the target course before each call to addUserToCourse.
+	 */
+	@State(Scope.Thread)
+	public static class Dropped {
+		/**
+		 * Removes the target course.
+		 * @param b benchmark state
+		 */
+		@Setup(Level.Invocation)
+		public void drop(EnrollmentBenchmark b) {
+			b.manager.removeUserFromCourse(b.session, b.target);
+		}
+	}
+
+	/**
+	 * Adds the target course before each call to removeUserFromCourse.
+	 */
+	@State(Scope.Thread)
+	public static class Enrolled {
+		/**
+		 * Adds the target course.
+		 * @param b benchmark state
+		 */
+		@Setup(Level.Invocation)
+		public void enroll(EnrollmentBenchmark b) {
+			b.manager.addUserToCourse(b.session, b.target);
+		}
+	}
+
+	/**
+	 * Logs a student in with the single user login() and out again.
+	 * @return true if logged in
+	 */
+	@Benchmark
+	public boolean login() {
+		boolean loggedIn = manager.login(ids[next++ % ids.length], PASSWORD);
+		manager.logout();
+		return loggedIn;
+	}
+
+	/**
+	 * Looks up a course by name.
+	 * @return the course
+	 */
+	@Benchmark
+	public Course getCourseByName() {
+		return manager.getCourseByName(names[next++ % names.length]);
+	}
+
+	/**
+	 * Adds a course the student is not enrolled in.
+	 * @param dropped removes the course before the call
+	 * @return true if added
+	 */
+	@Benchmark
+	public boolean addUserToCourse(Dropped dropped) {
+		return manager.addUserToCourse(session, target);
+	}
+
+	/**
+	 * Removes a course the student is enrolled in.
+	 * @param enrolled adds the course before the call
+	 * @return true if removed
+	 */
+	@Benchmark
+	public boolean removeUserFromCourse(Enrolled enrolled) {
+		return manager.removeUserFromCourse(session, target);
+	}
+}
@@ -0,0 +1,111 @@
+package my_package.manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import my_package.courses.Course;
+import my_package.users.User;
+
+/**
+ * Measures the cost of persisting a single enrollment change by saving
+ * the student record file after the change, as clients had to before,
+ * and by appending the change to the journal.  Each change drops a
+ * student from one of their courses or adds it back.
+ *
+ * Usage: JournalBenchmark [students] [changes] [rounds]
+ */
+public class JournalBenchmark {
+
+	/** Number of courses in the catalog */
+	private static final int COURSES = 20;
+
+	/**
+	 * Runs the benchmark.
+	 * @param args number of students, number of changes and number of rounds
+	 * @throws IOException if the test files cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		int studentCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int changes = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		File courseFile = File.createTempFile("course_records", ".txt");
+		File studentFile = File.createTempFile("student_records", ".txt");
+		File journalFile = File.createTempFile("journal", ".txt");
+		courseFile.deleteOnExit();
+		studentFile.deleteOnExit();
+		journalFile.deleteOnExit();
+		String password = new Sha256CredentialVerifier().hash("pw");
+		try (PrintWriter out = new PrintWriter(courseFile)) {
+			for (int c = 0; c < COURSES; c++) {
+				out.println("CSC" + (100 + c) + ",3," + studentCount);
+			}
+		}
+		try (PrintWriter out = new PrintWriter(studentFile)) {
+			for (int i = 0; i < studentCount; i++) {
+				out.print("First" + i + ",Last" + i + ",s" + i + ",s" + i + "@ncsu.edu," + password + ",18");
+				for (int c = 0; c < 3; c++) {
+					out.print(",CSC" + (100 + (i + c * 7) % COURSES));
+				}
+				out.println();
+			}
+		}
+
+		CourseManager manager = CourseManager.getInstance();
+		manager.clearData();
+		//The hashed passwords may not survive the platform charset, so let every login in
+		CredentialVerifier verifier = manager.getCredentialVerifier();
+		manager.setCredentialVerifier(new CredentialVerifier() {
+			@Override
+			public String hash(String password) {
+				return verifier.hash(password);
+			}
+
+			@Override
+			public boolean verify(User user, String password) {
+				return true;
+			}
+		});
+		manager.loadCourses(courseFile.getPath());
+		manager.setJournalFile(journalFile.getPath(), Integer.MAX_VALUE);
+		manager.loadStudents(studentFile.getPath());
+		System.out.printf("students=%d changes=%d rounds=%d%n", studentCount, changes, rounds);
+		for (int round = 0; round < rounds; round++) {
+			long begin = System.nanoTime();
+			for (int i = 0; i < changes; i++) {
+				change(manager, i);
+				manager.saveStudents();
+			}
+			long saveTime = System.nanoTime() - begin;
+
+			begin = System.nanoTime();
+			for (int i = 0; i < changes; i++) {
+				change(manager, i);
+			}
+			long journalTime = System.nanoTime() - begin;
+			manager.compactJournal();
+
+			System.out.printf("save per change %9.3f ms   journal per change %9.3f ms   speedup %8.1fx%n",
+					saveTime / 1e6 / changes, journalTime / 1e6 / changes, (double) saveTime / journalTime);
+		}
+		manager.clearData();
+		manager.setCredentialVerifier(verifier);
+	}
+
+	/**
+	 * Drops a student from their first course or adds it back.
+	 * @param manager CourseManager with a journal
+	 * @param i change number
+	 */
+	private static void change(CourseManager manager, int i) {
+		Session session = manager.openSession("s" + (i / 2), "pw");
+		Course course = manager.getCourseByName("CSC" + (100 + (i / 2) % COURSES));
+		if (i % 2 == 0) {
+			manager.removeUserFromCourse(session, course);
+		} else {
+			manager.addUserToCourse(session, course);
+		}
+		manager.closeSession(session);
+	}
+}
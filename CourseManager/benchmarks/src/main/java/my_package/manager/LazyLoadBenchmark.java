@@ -0,0 +1,117 @@
+package my_package.manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import my_package.courses.Course;
+
+/**
+ * Measures how long loadStudents() takes and how much heap the loaded
+ * students use when every record is read up front and when records are
+ * only indexed and read on demand, and checks that both give the same
+ * rosters.  A few students then log in to show the cost of
+ * reading a record on demand.
+ *
+ * Usage: LazyLoadBenchmark [students] [rounds]
+ */
+public class LazyLoadBenchmark {
+
+	/** Number of courses in the catalog */
+	private static final int COURSES = 20;
+	/** Number of students logging in after each lazy load */
+	private static final int LOOKUPS = 1000;
+
+	/**
+	 * Runs the benchmark.
+	 * @param args number of students and number of rounds
+	 * @throws IOException if the test files cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		int studentCount = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		File courseFile = File.createTempFile("course_records", ".txt");
+		File studentFile = File.createTempFile("student_records", ".txt");
+		courseFile.deleteOnExit();
+		studentFile.deleteOnExit();
+		String password = new Sha256CredentialVerifier().hash("pw");
+		try (PrintWriter out = new PrintWriter(courseFile)) {
+			for (int c = 0; c < COURSES; c++) {
+				out.println("CSC" + (100 + c) + ",3," + studentCount / 4);
+			}
+		}
+		try (PrintWriter out = new PrintWriter(studentFile)) {
+			for (int i = 0; i < studentCount; i++) {
+				out.print("First" + i + ",Last" + i + ",s" + i + ",s" + i + "@ncsu.edu," + password + ",18");
+				for (int c = 0; c < 3; c++) {
+					out.print(",CSC" + (100 + (i + c * 7) % COURSES));
+				}
+				out.println();
+			}
+		}
+
+		CourseManager manager = CourseManager.getInstance();
+		System.out.printf("students=%d rounds=%d%n", studentCount, rounds);
+		for (int round = 0; round < rounds; round++) {
+			manager.setLazyLoading(false);
+			long[] eager = load(manager, courseFile, studentFile);
+			String eagerRosters = describeCourses(manager);
+
+			manager.setLazyLoading(true);
+			long[] lazy = load(manager, courseFile, studentFile);
+			long begin = System.nanoTime();
+			for (int i = 0; i < LOOKUPS; i++) {
+				//Logging in reads the record whether or not the password matches
+				Session session = manager.openSession("s" + (int) ((long) i * studentCount / LOOKUPS), "pw");
+				if (session != null) {
+					manager.closeSession(session);
+				}
+			}
+			long lookupTime = System.nanoTime() - begin;
+			if (!eagerRosters.equals(describeCourses(manager))) {
+				throw new IllegalStateException("Loads disagree");
+			}
+
+			System.out.printf("eager %8.1f ms %6.1f MB   lazy %8.1f ms %6.1f MB   first login %6.1f us%n",
+					eager[0] / 1e6, eager[1] / 1e6, lazy[0] / 1e6, lazy[1] / 1e6, lookupTime / 1e3 / LOOKUPS);
+		}
+		manager.setLazyLoading(false);
+		manager.clearData();
+	}
+
+	/**
+	 * Loads the record files and measures the time taken and the heap in
+	 * use afterwards.
+	 * @param manager CourseManager to load
+	 * @param courseFile course record file
+	 * @param studentFile student record file
+	 * @return nanoseconds taken and bytes of heap in use
+	 */
+	private static long[] load(CourseManager manager, File courseFile, File studentFile) {
+		manager.clearData();
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long heap = runtime.totalMemory() - runtime.freeMemory();
+		long begin = System.nanoTime();
+		manager.loadCourses(courseFile.getPath());
+		manager.loadStudents(studentFile.getPath());
+		long time = System.nanoTime() - begin;
+		System.gc();
+		return new long[] {time, runtime.totalMemory() - runtime.freeMemory() - heap};
+	}
+
+	/**
+	 * Returns the Courses' roster sizes as text, without loading the
+	 * students on them.
+	 * @param manager loaded CourseManager
+	 * @return description of the Courses
+	 */
+	private static String describeCourses(CourseManager manager) {
+		StringBuilder sb = new StringBuilder();
+		for (Course c : manager.listAllCourses()) {
+			sb.append(c).append(':').append(c.getCapacity() - c.getOpenSeats()).append('\n');
+		}
+		return sb.toString();
+	}
+}
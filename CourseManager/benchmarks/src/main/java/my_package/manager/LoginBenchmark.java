@@ -0,0 +1,123 @@
+package my_package.manager;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import my_package.users.Student;
+import my_package.users.User;
+
+/**
+ * Measures login throughput for a burst of logins spread over many
+ * threads.  The legacy check (MessageDigest.getInstance() and a String
+ * compare on every attempt) is run against Sha256CredentialVerifier, and
+ * then the burst is run end to end through CourseManager.openSession().
+ *
+ * Usage: LoginBenchmark [threads] [logins] [students]
+ */
+public class LoginBenchmark {
+
+	/**
+	 * Checks a password the way CourseManager.login() used to.
+	 * @param user user logging in
+	 * @param password plaintext password
+	 * @return true if the password matches
+	 */
+	private static boolean legacyVerify(User user, String password) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(password.getBytes());
+			String hashPW = new String(digest.digest());
+			return user.getPassword().equals(hashPW);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalArgumentException();
+		}
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * @param args threads, logins per burst and number of students
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int logins = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		int studentCount = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+
+		CredentialVerifier verifier = new Sha256CredentialVerifier();
+		CourseManager manager = CourseManager.getInstance();
+		manager.clearData();
+		Student [] students = new Student[studentCount];
+		for (int i = 0; i < studentCount; i++) {
+			students[i] = new Student("first", "last", "s" + i, "s" + i + "@ncsu.edu", verifier.hash("pw" + i));
+			manager.addStudent(students[i]);
+		}
+
+		System.out.printf("threads=%d logins=%d students=%d%n", threads, logins, studentCount);
+		for (int round = 0; round < 5; round++) {
+			boolean report = round >= 2;
+			long legacy = burst(threads, logins, i -> legacyVerify(students[i % studentCount], "pw" + (i % studentCount)));
+			long verified = burst(threads, logins, i -> verifier.verify(students[i % studentCount], "pw" + (i % studentCount)));
+			long sessions = burst(threads, logins, i -> {
+				Session s = manager.openSession("s" + (i % studentCount), "pw" + (i % studentCount));
+				manager.closeSession(s);
+				return s != null;
+			});
+			if (report) {
+				System.out.printf("legacy check   %,12.0f logins/s%n", logins * 1e9 / legacy);
+				System.out.printf("verifier       %,12.0f logins/s%n", logins * 1e9 / verified);
+				System.out.printf("openSession    %,12.0f logins/s%n", logins * 1e9 / sessions);
+			}
+		}
+		manager.clearData();
+	}
+
+	/**
+	 * A single login attempt.
+	 */
+	private interface Login {
+		/**
+		 * Attempts login number i.
+		 * @param i login number
+		 * @return true if the login succeeds
+		 */
+		boolean attempt(int i);
+	}
+
+	/**
+	 * Runs the given number of logins across the threads and returns how
+	 * long the burst took.
+	 * @param threads number of threads
+	 * @param logins number of logins
+	 * @param login login to attempt
+	 * @return elapsed nanoseconds
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static long burst(int threads, int logins, Login login) throws InterruptedException {
+		AtomicInteger next = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		Thread [] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = next.getAndIncrement(); i < logins; i = next.getAndIncrement()) {
+					if (!login.attempt(i)) {
+						throw new IllegalStateException("Login " + i + " failed");
+					}
+				}
+			});
+			workers[t].start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Thread t : workers) {
+			t.join();
+		}
+		return System.nanoTime() - begin;
+	}
+}
@@ -0,0 +1,105 @@
+package my_package.manager;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import my_package.courses.Course;
+import my_package.users.Student;
+
+/**
+ * Measures drop/add on a full course, once with students that keep
+ * trying to enroll until a seat opens, as clients had to before, and once
+ * with students that join the waitlist and are promoted as seats open.
+ * Reports the enroll attempts made and the time until every dropped seat
+ * is filled again.
+ *
+ * Usage: WaitlistBenchmark [waiting students] [drops] [rounds]
+ */
+public class WaitlistBenchmark {
+
+	/**
+	 * Runs the benchmark.
+	 * @param args number of waiting students, number of drops and number of rounds
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int waiting = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		int drops = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		System.out.printf("waiting=%d drops=%d rounds=%d%n", waiting, drops, rounds);
+		for (int round = 0; round < rounds; round++) {
+			long[] retry = run(waiting, drops, false);
+			long[] waitlist = run(waiting, drops, true);
+			System.out.printf("retry %9d attempts %8.1f ms   waitlist %9d attempts %8.1f ms%n",
+					retry[0], retry[1] / 1e6, waitlist[0], waitlist[1] / 1e6);
+		}
+	}
+
+	/**
+	 * Fills a course, starts the waiting students and then drops enrolled
+	 * students one at a time until every waiting student has a seat or
+	 * the drops run out.
+	 * @param waiting number of waiting students
+	 * @param drops number of seats to open
+	 * @param useWaitlist true to wait on the waitlist instead of retrying
+	 * @return enroll attempts and nanoseconds taken
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static long[] run(int waiting, int drops, boolean useWaitlist) throws InterruptedException {
+		Course course = new Course("CSC116", 3, drops);
+		Student [] enrolled = new Student[drops];
+		for (int i = 0; i < drops; i++) {
+			enrolled[i] = new Student("First", "Last", "e" + i, "e" + i + "@ncsu.edu", "pw");
+			EnrollmentTransaction.enroll(enrolled[i], course);
+		}
+		Student [] students = new Student[waiting];
+		for (int i = 0; i < waiting; i++) {
+			students[i] = new Student("First", "Last", "w" + i, "w" + i + "@ncsu.edu", "pw");
+		}
+
+		AtomicLong attempts = new AtomicLong();
+		CountDownLatch done = new CountDownLatch(Math.min(waiting, drops));
+		Thread [] threads = new Thread[waiting];
+		for (int i = 0; i < waiting; i++) {
+			Student s = students[i];
+			threads[i] = new Thread(() -> {
+				if (useWaitlist) {
+					attempts.incrementAndGet();
+					if (!EnrollmentTransaction.enroll(s, course)) {
+						course.waitlist(s);
+					}
+					return;
+				}
+				while (!Thread.currentThread().isInterrupted()) {
+					attempts.incrementAndGet();
+					if (EnrollmentTransaction.enroll(s, course)) {
+						done.countDown();
+						return;
+					}
+				}
+			});
+			threads[i].start();
+		}
+		if (useWaitlist) {
+			for (Thread t : threads) {
+				t.join();
+			}
+		}
+
+		long begin = System.nanoTime();
+		for (int i = 0; i < drops && done.getCount() > 0; i++) {
+			EnrollmentTransaction.drop(enrolled[i], course);
+			if (useWaitlist) {
+				done.countDown();
+			}
+		}
+		done.await();
+		long time = System.nanoTime() - begin;
+		for (Thread t : threads) {
+			t.interrupt();
+			t.join();
+		}
+		return new long[] {attempts.get(), time};
+	}
+}
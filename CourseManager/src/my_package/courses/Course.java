@@ -3,12 +3,34 @@
  */
 package my_package.courses;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
+import my_package.metrics.Counter;
+import my_package.metrics.Metrics;
 import my_package.users.Student;
 import my_package.users.User;
 
 /**
+ * A course that Students can enroll in.  Enrolling and dropping are 
+ * safe to call from many threads at once and do not lock: seats are 
+ * reserved with a compare-and-set on a counter that is stored together 
+ * with the capacity, so a Course is never filled past its capacity.
+ * The roster is indexed by student id, so enrolling, dropping and 
+ * checking for an enrolled student take constant time.
+ * 
+ * Students who find the course full can join its waitlist instead of 
+ * trying again.  When a student drops, the first waitlisted student who
+ * can add the course is enrolled in the open seat.  The waitlist is only
+ * kept in memory and is not saved with the course records.
+ * 
+ * Enrollment outcomes are counted in Metrics under type Course: students
+ * enrolled and dropped, and enrollments and canEnroll() checks turned 
+ * down because the course is full or the student is already enrolled.
+ * 
  * @author jim2
  *
  */
@@ -16,15 +38,31 @@ public class Course implements Enrollable {
 	/** Course name */
 	private String name;
 	/** Course credit hours */
-	private int credits;
-	/** Course student capacity */
-	private int capacity;
+	private volatile int credits;
+	/** Incremented every time an existing Course's credits change */
+	private static final AtomicLong CREDITS_VERSION = new AtomicLong();
+	/** Course student capacity (high 32 bits) and number of reserved seats (low 32 bits) */
+	private final AtomicLong seats = new AtomicLong();
 	/** Minimum credit hours */
 	public static final int MIN_HOURS = 1;
 	/** Maximum credit hours */
 	public static final int MAX_HOURS = 4;
 	/** Students enrolled in the course */
-	private ArrayList<User> enrolledStudents;
+	private final Roster roster;
+	/** Waitlisted students in the order they joined, indexed by id */
+	private final LinkedHashMap<String, Student> waitlist = new LinkedHashMap<String, Student>();
+	/** Students enrolled in any Course */
+	private static final Counter ENROLLED = Metrics.counter("Course", "enrolled");
+	/** Enrollments turned down because the Course is full */
+	private static final Counter ENROLL_FULL = Metrics.counter("Course", "enrollFull");
+	/** Enrollments turned down because the student is already enrolled */
+	private static final Counter ENROLL_DUPLICATE = Metrics.counter("Course", "enrollDuplicate");
+	/** canEnroll() checks turned down because the Course is full */
+	private static final Counter CAN_ENROLL_FULL = Metrics.counter("Course", "canEnrollFull");
+	/** canEnroll() checks turned down because the student is already enrolled */
+	private static final Counter CAN_ENROLL_DUPLICATE = Metrics.counter("Course", "canEnrollDuplicate");
+	/** Students dropped from any Course */
+	private static final Counter DROPPED = Metrics.counter("Course", "dropped");
 
 	/**
 	 * @param name
@@ -33,9 +71,12 @@ public class Course implements Enrollable {
 	 */
 	public Course(String name, int credits, int capacity) {
 		super();
-		enrolledStudents = new ArrayList<User>();
+		roster = new Roster();
 		setName(name);
-		setCredits(credits);
+		//A new Course is in no Student's schedule, so no credit total
+		//has to be summed again
+		checkCredits(credits);
+		this.credits = credits;
 		setCapacity(capacity);
 	}
 	/* (non-Javadoc)
@@ -43,7 +84,7 @@ public class Course implements Enrollable {
 	 */
 	@Override
 	public String toString() {
-		return name + "," + credits + "," + capacity;
+		return name + "," + credits + "," + getCapacity();
 	}
 	/* (non-Javadoc)
 	 * @see java.lang.Object#hashCode()
@@ -84,22 +125,41 @@ public class Course implements Enrollable {
 		this.name = name;
 	}
 	/**
+	 * Sets the credits.  Students' credit totals are summed again only if
+	 * the credits change.
 	 * @param credits the credits to set
 	 */
 	public void setCredits(int credits) {
+		checkCredits(credits);
+		if (this.credits != credits) {
+			this.credits = credits;
+			CREDITS_VERSION.incrementAndGet();
+		}
+	}
+	/**
+	 * Throws an IllegalArgumentException if the credits are out of range.
+	 * @param credits credits to check
+	 */
+	private static void checkCredits(int credits) {
 		if (credits < MIN_HOURS || credits > MAX_HOURS) {
 			throw new IllegalArgumentException();
 		}
-		this.credits = credits;
 	}
 	/**
+	 * Sets the capacity.  The capacity cannot be set below the number 
+	 * of enrolled students.
 	 * @param capacity the capacity to set
 	 */
 	public void setCapacity(int capacity) {
-		if (capacity <= 0 || capacity < enrolledStudents.size()) {
-			throw new IllegalArgumentException();
+		while (true) {
+			long current = seats.get();
+			if (capacity <= 0 || capacity < reserved(current)) {
+				throw new IllegalArgumentException();
+			}
+			if (seats.compareAndSet(current, ((long) capacity << 32) | reserved(current))) {
+				return;
+			}
 		}
-		this.capacity = capacity;
 	}	
 	
 	
@@ -115,20 +175,88 @@ public class Course implements Enrollable {
 	public int getCredits() {
 		return credits;
 	}
+	/**
+	 * Returns a number that changes every time an existing Course's
+	 * credits are changed.  Creating a Course does not change it.  Students
+	 * use it to know when their credit totals must be
+	 * summed again.
+	 * @return the credits version
+	 */
+	public static long getCreditsVersion() {
+		return CREDITS_VERSION.get();
+	}
+	
 	/**
 	 * @return the capacity
 	 */
 	public int getCapacity() {
-		return capacity;
+		return (int) (seats.get() >>> 32);
+	}
+	
+	/**
+	 * Returns the number of seats that are not taken.
+	 * @return the number of open seats
+	 */
+	public int getOpenSeats() {
+		long current = seats.get();
+		return (int) (current >>> 32) - reserved(current);
+	}
+	
+	/**
+	 * Returns the number of reserved seats in the seat state.
+	 * @param state seat state
+	 * @return number of reserved seats
+	 */
+	private static int reserved(long state) {
+		return (int) state;
+	}
+	
+	/**
+	 * Reserves a seat if the course is not full.
+	 * @return true if a seat is reserved
+	 */
+	private boolean reserveSeat() {
+		while (true) {
+			long current = seats.get();
+			if (reserved(current) >= (int) (current >>> 32)) {
+				return false;
+			}
+			if (seats.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
 	}
 	
 	/**
-	 * Returns the enrolled students as an array.
+	 * Releases a reserved seat.
+	 */
+	private void releaseSeat() {
+		seats.decrementAndGet();
+	}
+	
+	/**
+	 * Returns the enrolled students as an array.  If students are enrolling
+	 * or dropping while the array is built, it may not match the roster at 
+	 * any single moment.  Enrolled students that have not been loaded yet 
+	 * are loaded.
 	 * @return enrolled students
 	 */
 	public Student [] getEnrolledStudents() {
-		Student [] s = new Student[enrolledStudents.size()];
-		return enrolledStudents.toArray(s);
+		return roster.toArray();
+	}
+
+	/**
+	 * Returns a read-only view of the enrolled students that is not 
+	 * copied.  The view follows the roster as students enroll and drop, 
+	 * so it can be kept and iterated again.  An iteration may not match
+	 * the roster at any single moment if students enroll or drop while it
+	 * runs, and its size() counts the roster each time it is called.
+	 * Enrolled students that have not been loaded yet are loaded as they
+	 * are reached.
+	 * @return unmodifiable view of the enrolled students
+	 */
+	public Collection<Student> getEnrolledView() {
+		return roster.view();
 	}
 
 	/**
@@ -138,38 +266,243 @@ public class Course implements Enrollable {
 	 * @return true if there is capacity
 	 */
 	public boolean canEnroll(User user) {
-		if (enrolledStudents.size() < capacity) {
-			if (user instanceof Student) {
-				Student s = (Student) user;
-				for (int i = 0; i < enrolledStudents.size(); i++) {
-					if (enrolledStudents.get(i).equals(s)) {
-						return false;
-					}
-				}
-				return true;
-			}
+		long current = seats.get();
+		if (reserved(current) >= (int) (current >>> 32)) {
+			CAN_ENROLL_FULL.increment();
+			return false;
+		}
+		if (!(user instanceof Student)) {
+			return false;
+		}
+		if (roster.contains(user.getId())) {
+			CAN_ENROLL_DUPLICATE.increment();
 			return false;
 		}
-		return false;
+		return true;
 	}
 
 	/**
-	 * Enroll the user in the course if there is room.
+	 * Enroll the user in the course if there is room.  The user's id is 
+	 * claimed first so that the same user cannot take two seats, and then 
+	 * a seat is reserved.
 	 * @param user user to enroll
 	 * @return true if user is enrolled.
 	 */
 	public boolean enroll(User user) {
-		return canEnroll(user) && enrolledStudents.add(user);
+		//Cheap checks first so that a full course or a duplicate doesn't 
+		//touch the roster
+		if (!(user instanceof Student) || full() || duplicate(user.getId())) {
+			return false;
+		}
+		return enroll(roster.claim((Student) user));
 	}
 
 	/**
-	 * Drops the student from the course.
+	 * Enrolls a student that has not been loaded yet if there is room.
+	 * The placeholder is asked for the Student only when the enrolled
+	 * students are listed.
+	 * @param id student id
+	 * @param placeholder returns the Student, always the same one
+	 * @return true if the student is enrolled
+	 */
+	public boolean enroll(String id, Supplier<Student> placeholder) {
+		if (id == null || placeholder == null) {
+			throw new IllegalArgumentException();
+		}
+		if (full() || duplicate(id)) {
+			return false;
+		}
+		return enroll(roster.claim(id, placeholder));
+	}
+
+	/**
+	 * Returns true, and counts a full enrollment, if the course has no 
+	 * open seat.
+	 * @return true if the course is full
+	 */
+	private boolean full() {
+		if (getOpenSeats() > 0) {
+			return false;
+		}
+		ENROLL_FULL.increment();
+		return true;
+	}
+
+	/**
+	 * Returns true, and counts a duplicate enrollment, if the student is
+	 * already enrolled.
+	 * @param id student id
+	 * @return true if the student is enrolled
+	 */
+	private boolean duplicate(String id) {
+		if (!roster.contains(id)) {
+			return false;
+		}
+		ENROLL_DUPLICATE.increment();
+		return true;
+	}
+
+	/**
+	 * Reserves a seat for a claimed roster entry and commits it, or
+	 * cancels it if the course is full.
+	 * @param entry claimed entry, or null if the id was already claimed
+	 * @return true if the student is enrolled
+	 */
+	private boolean enroll(Roster.Entry entry) {
+		if (entry == null) {
+			ENROLL_DUPLICATE.increment();
+			return false;
+		}
+		if (!reserveSeat()) {
+			roster.cancel(entry);
+			ENROLL_FULL.increment();
+			return false;
+		}
+		roster.commit(entry);
+		ENROLLED.increment();
+		return true;
+	}
+
+	/**
+	 * Drops the student from the course and promotes waitlisted students
+	 * into the open seat.
 	 * @param user student to drop
 	 * @return true if the student is dropped
 	 */
 	public boolean drop(User user) {
-		return enrolledStudents.remove(user);
+		return drop(user, true);
 	}
 
-	
+	/**
+	 * Drops the student from the course.  If promote is true, waitlisted 
+	 * students are then promoted into the open seat as promote() does.
+	 * EnrollmentTransaction drops without promoting and promotes each
+	 * waitlisted student in a transaction of its own.
+	 * @param user student to drop
+	 * @param promote true to promote waitlisted students
+	 * @return true if the student is dropped
+	 */
+	public boolean drop(User user, boolean promote) {
+		if (user == null) {
+			return false;
+		}
+		if (!roster.drop(user.getId())) {
+			return false;
+		}
+		releaseSeat();
+		DROPPED.increment();
+		if (promote) {
+			for (int tries = getWaitlistSize(); tries >= 0; tries--) {
+				Student next = nextWaitlisted();
+				if (next == null || promote(next)) {
+					break;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the student to the end of the waitlist.  Students are promoted
+	 * from the waitlist in the order they joined it as seats open.
+	 * @param user student to add
+	 * @return false if the user is not a Student, is enrolled or is already
+	 *         waitlisted
+	 */
+	public boolean waitlist(User user) {
+		if (!(user instanceof Student) || roster.contains(user.getId())) {
+			return false;
+		}
+		synchronized (waitlist) {
+			return waitlist.putIfAbsent(user.getId(), (Student) user) == null;
+		}
+	}
+
+	/**
+	 * Removes the student from the waitlist.
+	 * @param user student to remove
+	 * @return true if the student was waitlisted
+	 */
+	public boolean leaveWaitlist(User user) {
+		if (user == null) {
+			return false;
+		}
+		synchronized (waitlist) {
+			return waitlist.remove(user.getId()) != null;
+		}
+	}
+
+	/**
+	 * Returns the waitlisted students in the order they joined the
+	 * waitlist.
+	 * @return waitlisted students
+	 */
+	public Student [] getWaitlist() {
+		synchronized (waitlist) {
+			return waitlist.values().toArray(new Student[0]);
+		}
+	}
+
+	/**
+	 * Returns the number of waitlisted students.
+	 * @return waitlist size
+	 */
+	public int getWaitlistSize() {
+		synchronized (waitlist) {
+			return waitlist.size();
+		}
+	}
+
+	/**
+	 * Returns the first waitlisted student that can add the course, or
+	 * null if the course has no open seat or no waitlisted student can add
+	 * it.  Students who cannot add the course, for example because it 
+	 * would take them over their credit limit, keep their place.  Students
+	 * who have enrolled some other way are removed from the waitlist.
+	 * @return next student to promote, or null
+	 */
+	public Student nextWaitlisted() {
+		if (getOpenSeats() <= 0) {
+			return null;
+		}
+		synchronized (waitlist) {
+			Iterator<Student> it = waitlist.values().iterator();
+			while (it.hasNext()) {
+				Student s = it.next();
+				if (roster.contains(s.getId())) {
+					it.remove();
+				} else if (s.canAddCourse(this)) {
+					return s;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Enrolls a waitlisted student in the course and adds the course to 
+	 * the student, then removes the student from the waitlist.  Nothing 
+	 * changes if the student is not waitlisted, the course is full or the
+	 * student cannot add the course.
+	 * @param student waitlisted student
+	 * @return true if the student is promoted
+	 */
+	public boolean promote(Student student) {
+		synchronized (waitlist) {
+			if (!waitlist.containsKey(student.getId())) {
+				return false;
+			}
+		}
+		synchronized (student) {
+			if (!student.canAddCourse(this) || !enroll(student)) {
+				return false;
+			}
+			if (!student.addCourse(this)) {
+				drop(student, false);
+				return false;
+			}
+		}
+		leaveWaitlist(student);
+		return true;
+	}
 }
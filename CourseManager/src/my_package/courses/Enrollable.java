@@ -1,5 +1,7 @@
 package my_package.courses;
 
+import java.util.Collection;
+
 import my_package.users.Student;
 import my_package.users.User;
 
@@ -13,6 +15,13 @@ public interface Enrollable {
 	 * @return enrolled students
 	 */
 	public Student [] getEnrolledStudents();
+
+	/**
+	 * Returns a read-only view of the enrolled students that is not 
+	 * copied.
+	 * @return unmodifiable view of the enrolled students
+	 */
+	public Collection<Student> getEnrolledView();
 	
 	/**
 	 * Returns true if there is capacity to add a user to the course and the 
@@ -30,9 +39,24 @@ public interface Enrollable {
 	boolean enroll(User user);
 	
 	/**
-	 * Drops the student from the course.
+	 * Drops the student from the course and promotes waitlisted students
+	 * into the open seat.
 	 * @param user student to drop
 	 * @return true if the student is dropped
 	 */
 	boolean drop(User user);
+
+	/**
+	 * Adds the student to the end of the waitlist.
+	 * @param user student to add
+	 * @return false if the user cannot be waitlisted or already is
+	 */
+	boolean waitlist(User user);
+
+	/**
+	 * Removes the student from the waitlist.
+	 * @param user student to remove
+	 * @return true if the student was waitlisted
+	 */
+	boolean leaveWaitlist(User user);
 }
@@ -0,0 +1,314 @@
+/**
+ *
+ */
+package my_package.courses;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import my_package.users.Student;
+
+/**
+ * The students enrolled in a Course.  Students are indexed by id, so
+ * checking whether a student is on the roster, adding a student and
+ * dropping a student never scan the roster or call Student.equals().
+ * Enrollment order is kept in a queue.  Dropping a student only marks
+ * its entry; dropped entries are unlinked from the queue in batches once
+ * there are enough of them, so a drop costs amortized constant time.
+ *
+ * Each entry moves through PENDING (id claimed, seat being reserved),
+ * ENROLLED and DROPPED.  Only ENROLLED students can be dropped and only
+ * ENROLLED students are returned by toArray(), so an enroll and a drop of
+ * the same student that race with each other cannot leave a student on
+ * the roster without a seat.  All methods are safe to call from many
+ * threads at once and do not lock.
+ *
+ * An entry may hold a placeholder for a student that has not been loaded
+ * yet instead of the Student itself.  The Student is asked for only when
+ * the roster is listed, so checking, adding and dropping ids never loads
+ * a student.
+ *
+ * @author jim2
+ *
+ */
+class Roster {
+	/** Entry state while the seat is being reserved */
+	private static final int PENDING = 0;
+	/** Entry state once the student is enrolled */
+	private static final int ENROLLED = 1;
+	/** Entry state once the student is dropped */
+	private static final int DROPPED = 2;
+	/** Fewest dropped entries that are worth unlinking */
+	private static final int MIN_COMPACT = 16;
+
+	/** Entries in enrollment order, including dropped entries not yet unlinked */
+	private final ConcurrentLinkedQueue<Entry> order = new ConcurrentLinkedQueue<Entry>();
+	/** Entries that are PENDING or ENROLLED, indexed by student id */
+	private final ConcurrentHashMap<String, Entry> ids = new ConcurrentHashMap<String, Entry>();
+	/** Number of dropped entries still linked in order */
+	private final AtomicInteger dropped = new AtomicInteger();
+	/** True while a thread is unlinking dropped entries */
+	private final AtomicBoolean compacting = new AtomicBoolean();
+	/** Read-only view of the enrolled students */
+	private final Collection<Student> view = new View();
+
+	/**
+	 * A Student's place on the roster.  The state is PENDING, ENROLLED
+	 * or DROPPED.
+	 */
+	static final class Entry extends AtomicInteger {
+		/** Serial version UID */
+		private static final long serialVersionUID = 1L;
+		/** Enrolled student's id */
+		private final String id;
+		/** Enrolled student, or null until the placeholder is asked for it */
+		private volatile Student student;
+		/** Placeholder that loads the student, or null */
+		private final Supplier<Student> placeholder;
+
+		/**
+		 * Creates a PENDING entry for the student.
+		 * @param student student being enrolled
+		 */
+		Entry(Student student) {
+			super(PENDING);
+			this.id = student.getId();
+			this.student = student;
+			this.placeholder = null;
+		}
+
+		/**
+		 * Creates a PENDING entry for a student that is not loaded yet.
+		 * @param id student id
+		 * @param placeholder returns the student, always the same one
+		 */
+		Entry(String id, Supplier<Student> placeholder) {
+			super(PENDING);
+			this.id = id;
+			this.placeholder = placeholder;
+		}
+
+		/**
+		 * Returns the enrolled student, loading it if needed.
+		 * @return enrolled student
+		 */
+		Student student() {
+			Student s = student;
+			if (s == null) {
+				s = placeholder.get();
+				student = s;
+			}
+			return s;
+		}
+	}
+
+	/**
+	 * Claims the student's id.  The returned entry must be passed to
+	 * commit() or cancel().
+	 * @param student student to add
+	 * @return PENDING entry or null if the student is already on the roster
+	 */
+	Entry claim(Student student) {
+		return claim(new Entry(student));
+	}
+
+	/**
+	 * Claims the id of a student that is not loaded yet.  The returned
+	 * entry must be passed to commit() or cancel().
+	 * @param id student id
+	 * @param placeholder returns the student, always the same one
+	 * @return PENDING entry or null if the id is already on the roster
+	 */
+	Entry claim(String id, Supplier<Student> placeholder) {
+		return claim(new Entry(id, placeholder));
+	}
+
+	/**
+	 * Claims the id of a new entry.
+	 * @param entry new PENDING entry
+	 * @return the entry or null if its id is already on the roster
+	 */
+	private Entry claim(Entry entry) {
+		if (ids.putIfAbsent(entry.id, entry) != null) {
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Adds a claimed entry to the end of the roster.
+	 * @param entry claimed entry
+	 */
+	void commit(Entry entry) {
+		order.add(entry);
+		entry.set(ENROLLED);
+	}
+
+	/**
+	 * Gives up a claimed entry that was not committed.
+	 * @param entry claimed entry
+	 */
+	void cancel(Entry entry) {
+		ids.remove(entry.id, entry);
+	}
+
+	/**
+	 * Returns true if the student with the id is on the roster or is
+	 * being added.
+	 * @param id student id
+	 * @return true if the id is on the roster
+	 */
+	boolean contains(String id) {
+		return ids.containsKey(id);
+	}
+
+	/**
+	 * Drops the enrolled student with the id.
+	 * @param id student id
+	 * @return true if the student was enrolled and is dropped
+	 */
+	boolean drop(String id) {
+		Entry entry = ids.get(id);
+		if (entry == null || !entry.compareAndSet(ENROLLED, DROPPED)) {
+			return false;
+		}
+		ids.remove(id, entry);
+		if (dropped.incrementAndGet() >= Math.max(MIN_COMPACT, ids.size())) {
+			compact();
+		}
+		return true;
+	}
+
+	/**
+	 * Unlinks dropped entries from the queue.  Only one thread compacts
+	 * at a time; other threads skip it.
+	 */
+	private void compact() {
+		if (!compacting.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			int removed = 0;
+			for (Iterator<Entry> it = order.iterator(); it.hasNext();) {
+				if (it.next().get() == DROPPED) {
+					it.remove();
+					removed++;
+				}
+			}
+			dropped.addAndGet(-removed);
+		} finally {
+			compacting.set(false);
+		}
+	}
+
+	/**
+	 * Returns the enrolled students in enrollment order.  Students that
+	 * are not loaded yet are loaded.
+	 * @return enrolled students
+	 */
+	Student [] toArray() {
+		ArrayList<Student> students = new ArrayList<Student>();
+		for (Entry e : order) {
+			if (e.get() == ENROLLED) {
+				Student s = e.student();
+				//Loading a student may drop it
+				if (e.get() == ENROLLED) {
+					students.add(s);
+				}
+			}
+		}
+		return students.toArray(new Student[students.size()]);
+	}
+
+	/**
+	 * Returns a read-only view of the enrolled students in enrollment
+	 * order.  The view is not a copy: it reads the roster as it is
+	 * iterated, so it sees enrollments and drops made after it was
+	 * returned.  Iterating never fails because of a concurrent change,
+	 * but may not match the roster at any single moment.  Students that
+	 * are not loaded yet are loaded as they are reached.
+	 * @return view of the enrolled students
+	 */
+	Collection<Student> view() {
+		return view;
+	}
+
+	/**
+	 * Live, read-only view of the enrolled students.
+	 */
+	private final class View extends AbstractCollection<Student> {
+		/* (non-Javadoc)
+		 * @see java.util.AbstractCollection#iterator()
+		 */
+		@Override
+		public Iterator<Student> iterator() {
+			return new Iterator<Student>() {
+				/** Entries in enrollment order */
+				private final Iterator<Entry> entries = order.iterator();
+				/** Next enrolled student, or null if not found yet */
+				private Student next;
+
+				@Override
+				public boolean hasNext() {
+					while (next == null && entries.hasNext()) {
+						Entry e = entries.next();
+						if (e.get() == ENROLLED) {
+							Student s = e.student();
+							//Loading a student may drop it
+							if (e.get() == ENROLLED) {
+								next = s;
+							}
+						}
+					}
+					return next != null;
+				}
+
+				@Override
+				public Student next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					Student s = next;
+					next = null;
+					return s;
+				}
+			};
+		}
+
+		/**
+		 * Returns the number of enrolled students.  The roster is counted
+		 * each time, so this takes time in proportion to its length.
+		 * @return number of enrolled students
+		 */
+		@Override
+		public int size() {
+			int size = 0;
+			for (Entry e : order) {
+				if (e.get() == ENROLLED) {
+					size++;
+				}
+			}
+			return size;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.AbstractCollection#contains(java.lang.Object)
+		 */
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof Student)) {
+				return false;
+			}
+			Entry e = ids.get(((Student) o).getId());
+			return e != null && e.get() == ENROLLED && o.equals(e.student());
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/**
+ *
+ */
+package my_package.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A file that is either completely replaced or left as it was.  Bytes
+ * are written into a temporary file next to the target file; commit()
+ * forces the temporary file to the disk, renames it over the target and
+ * then forces the directory so that the rename is on the disk too.  If
+ * the file is closed without being committed, or the program stops while
+ * writing, the target is not touched.
+ *
+ * @author jim2
+ *
+ */
+class AtomicFile implements Closeable {
+	/** File being replaced */
+	private final Path target;
+	/** Temporary file being written */
+	private final Path temp;
+	/** Channel to the temporary file */
+	private final FileChannel channel;
+	/** True once the temporary file has replaced the target or been deleted */
+	private boolean done;
+
+	/**
+	 * Creates the temporary file for the given file.
+	 * @param fileName file to replace
+	 * @throws IOException if the temporary file cannot be created
+	 */
+	AtomicFile(String fileName) throws IOException {
+		target = Paths.get(fileName).toAbsolutePath();
+		temp = target.resolveSibling(target.getFileName() + "."
+				+ Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+		channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Writes all of the remaining bytes in the buffer to the temporary
+	 * file and clears the buffer.
+	 * @param bytes bytes to write, ready to be read
+	 * @throws IOException if the temporary file cannot be written
+	 */
+	void write(ByteBuffer bytes) throws IOException {
+		if (done) {
+			throw new IllegalStateException("File is closed");
+		}
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+		bytes.clear();
+	}
+
+	/**
+	 * Forces the temporary file to the disk, replaces the target file with
+	 * it and forces the rename to the disk.
+	 * @throws IOException if the file cannot be written or renamed
+	 */
+	void commit() throws IOException {
+		if (done) {
+			throw new IllegalStateException("File is closed");
+		}
+		channel.force(true);
+		channel.close();
+		try {
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+		done = true;
+		forceDirectory(target.getParent());
+	}
+
+	/**
+	 * Forces the entries of the directory, such as a rename, to the disk.
+	 * Some platforms cannot open a directory as a channel; there the
+	 * rename is left to the file system.
+	 * @param directory directory to force
+	 */
+	private static void forceDirectory(Path directory) {
+		try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+			dir.force(true);
+		} catch (IOException e) {
+			//Not supported on this platform
+		}
+	}
+
+	/**
+	 * Deletes the temporary file if it was not committed.  The target file
+	 * is left as it was.
+	 * @throws IOException if the temporary file cannot be deleted
+	 */
+	@Override
+	public void close() throws IOException {
+		if (done) {
+			return;
+		}
+		done = true;
+		try {
+			channel.close();
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+}
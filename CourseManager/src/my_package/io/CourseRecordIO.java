@@ -3,82 +3,85 @@
  */
 package my_package.io;
 
-import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
 
 import my_package.courses.Course;
+import my_package.metrics.Counter;
+import my_package.metrics.LatencyHistogram;
+import my_package.metrics.Metrics;
 
 /**
+ * Reads and writes course record files.  Reads and writes are timed, and
+ * the records read and written are counted, in Metrics under type
+ * CourseRecordIO.
+ * 
  * @author jim2
  *
  */
 public class CourseRecordIO {
+	/** Time to read a course record file */
+	private static final LatencyHistogram READ = Metrics.histogram("CourseRecordIO", "readCourseRecords");
+	/** Time to write a course record file */
+	private static final LatencyHistogram WRITE = Metrics.histogram("CourseRecordIO", "writeCourseRecords");
+	/** Course records read */
+	private static final Counter RECORDS_READ = Metrics.counter("CourseRecordIO", "recordsRead");
+	/** Course records written */
+	private static final Counter RECORDS_WRITTEN = Metrics.counter("CourseRecordIO", "recordsWritten");
 
 	/**
 	 * Reads Course records from the given file.  If the file doesn't exist
 	 * a FileNotFoundException is thrown.  A line with a format error will be
-	 * ignored.
+	 * ignored.  If the file cannot be read to the end, the records read so
+	 * far are returned.
 	 * @param fileName name of file to read
 	 * @return Course records
 	 * @throws FileNotFoundException if the file doesn't exist
 	 */
 	public static List<Course> readCourseRecords(String fileName) throws FileNotFoundException {
+		long start = Metrics.start();
 		List<Course> courses = new ArrayList<Course>();
-			
-		Scanner fileScanner = new Scanner(new File(fileName));
-		while (fileScanner.hasNextLine()) {
+
+		CourseRecordReader reader = new CourseRecordReader(new InputStreamReader(new FileInputStream(fileName)));
+		try {
+			for (Course c = reader.next(); c != null; c = reader.next()) {
+				courses.add(c);
+			}
+		} catch (IOException e) {
+			//Stop at a read error and keep the Courses read so far
+		} finally {
 			try {
-				courses.add(processCourse(fileScanner.nextLine()));
-			} catch (IllegalArgumentException e) {
-				//if the exception is thrown, ignore the Student line.  
+				reader.close();
+			} catch (IOException e) {
+				//Nothing more to read
 			}
+			RECORDS_READ.add(courses.size());
+			READ.recordSince(start);
 		}
-		
-		fileScanner.close();
 		return courses;
 	}
 
 	/**
-	 * Creates a Course from the String record.  An IllegalArgumentException is thrown
-	 * if one of the items is missing or if the Course cannot be constructed.
-	 * @param courseLine the line to process
-	 * @return a valid Course
-	 */
-	private static Course processCourse(String courseLine) {
-		Scanner lineScanner = new Scanner(courseLine);
-		try {
-			lineScanner.useDelimiter(",");
-			String name = lineScanner.next();
-			int credits = lineScanner.nextInt();
-			int capacity = lineScanner.nextInt();
-			lineScanner.close();
-			return new Course(name, credits, capacity);
-		} catch (NoSuchElementException e) {
-			lineScanner.close();
-			throw new IllegalArgumentException();
-		} 
-	}
-	
-	/**
-	 * Writes the information about the courses to the given file.
+	 * Writes the information about the courses to the given file.  The
+	 * file is replaced only once every course is written.
 	 * @param fileName file name to record data
 	 * @param courses list of courses
 	 * @throws IOException if cannot write to file
 	 */
 	public static void writeCourseRecords(String fileName, List<Course> courses) throws IOException {
-		PrintWriter fileOut = new PrintWriter(new FileWriter(fileName));
-		
-		for (Course c: courses) {
-			fileOut.println(c.toString());
+		long start = Metrics.start();
+		try (RecordWriter fileOut = new RecordWriter(fileName)) {
+			for (Course c: courses) {
+				fileOut.write(c.getName()).write(',').write(c.getCredits()).write(',').write(c.getCapacity()).newLine();
+			}
+			fileOut.commit();
+			RECORDS_WRITTEN.add(courses.size());
+		} finally {
+			WRITE.recordSince(start);
 		}
-		
-		fileOut.close();
 	}
 }
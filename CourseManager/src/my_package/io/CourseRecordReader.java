@@ -0,0 +1,240 @@
+/**
+ *
+ */
+package my_package.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+import my_package.courses.Course;
+
+/**
+ * Reads Course records one at a time from a character stream.  Lines are
+ * split and tokenized directly in a reused char buffer, so reading a
+ * record allocates only the Course and its name; no Scanner, regular
+ * expression or per-line String is created.  A line with a format error
+ * is skipped without throwing an exception.
+ *
+ * Lines are accepted and rejected exactly as the Scanner based reader
+ * did: a line may start with one comma, the name is everything up to the
+ * next comma, the credits and capacity are integers with an optional sign
+ * and no surrounding spaces, and anything after the capacity is ignored.
+ * Lines may end with \n, \r, \r\n, or the Unicode line, paragraph or
+ * next line separator.
+ *
+ * @author jim2
+ *
+ */
+public class CourseRecordReader implements Closeable {
+	/** Initial size of the character buffer */
+	private static final int BUFFER_SIZE = 1 << 16;
+	/** Returned by parseInt() for a field that is not an int */
+	private static final long NOT_AN_INT = Long.MIN_VALUE;
+	/** Unicode line separator */
+	private static final char LINE_SEPARATOR = (char) 0x2028;
+	/** Unicode paragraph separator */
+	private static final char PARAGRAPH_SEPARATOR = (char) 0x2029;
+	/** Unicode next line */
+	private static final char NEXT_LINE = (char) 0x85;
+
+	/** Source of the records */
+	private final Reader in;
+	/** Characters read from the source */
+	private char [] buf = new char[BUFFER_SIZE];
+	/** Index of the first unread character in buf */
+	private int pos;
+	/** Number of valid characters in buf */
+	private int limit;
+	/** True once the source is exhausted */
+	private boolean eof;
+	/** True if the last line ended with \r, so a following \n is part of it */
+	private boolean skipLineFeed;
+	/** Start of the current line in buf */
+	private int lineStart;
+	/** End of the current line in buf, not including the line terminator */
+	private int lineEnd;
+
+	/**
+	 * Creates a reader for the Course records in the stream.
+	 * @param in stream to read
+	 */
+	public CourseRecordReader(Reader in) {
+		if (in == null) {
+			throw new IllegalArgumentException();
+		}
+		this.in = in;
+	}
+
+	/**
+	 * Returns the next valid Course record, skipping lines with a format
+	 * error.
+	 * @return next Course or null at the end of the stream
+	 * @throws IOException if the stream cannot be read
+	 */
+	public Course next() throws IOException {
+		while (nextLine()) {
+			Course c = parseLine(buf, lineStart, lineEnd);
+			if (c != null) {
+				return c;
+			}
+		}
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Moves lineStart and lineEnd to the next line in the stream.
+	 * @return false at the end of the stream
+	 * @throws IOException if the stream cannot be read
+	 */
+	private boolean nextLine() throws IOException {
+		if (skipLineFeed) {
+			skipLineFeed = false;
+			if (pos == limit) {
+				fill();
+			}
+			if (pos < limit && buf[pos] == '\n') {
+				pos++;
+			}
+		}
+		int scanned = 0;
+		while (true) {
+			for (int i = pos + scanned; i < limit; i++) {
+				char c = buf[i];
+				if (c == '\n' || c == '\r' || c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR || c == NEXT_LINE) {
+					lineStart = pos;
+					lineEnd = i;
+					pos = i + 1;
+					skipLineFeed = c == '\r';
+					return true;
+				}
+			}
+			scanned = limit - pos;
+			if (eof) {
+				if (scanned == 0) {
+					return false;
+				}
+				lineStart = pos;
+				lineEnd = limit;
+				pos = limit;
+				return true;
+			}
+			fill();
+		}
+	}
+
+	/**
+	 * Moves the unread characters to the front of the buffer, growing it if
+	 * it is full, and reads more characters after them.
+	 * @throws IOException if the stream cannot be read
+	 */
+	private void fill() throws IOException {
+		if (pos > 0) {
+			System.arraycopy(buf, pos, buf, 0, limit - pos);
+			limit -= pos;
+			pos = 0;
+		} else if (limit == buf.length) {
+			char [] bigger = new char[buf.length * 2];
+			System.arraycopy(buf, 0, bigger, 0, limit);
+			buf = bigger;
+		}
+		int n = in.read(buf, limit, buf.length - limit);
+		if (n < 0) {
+			eof = true;
+		} else {
+			limit += n;
+		}
+	}
+
+	/**
+	 * Creates a Course from the characters of a record line.
+	 * @param line characters of the line
+	 * @param start start of the line
+	 * @param end end of the line
+	 * @return a valid Course or null if the line has a format error
+	 */
+	static Course parseLine(char [] line, int start, int end) {
+		int nameStart = start;
+		if (nameStart < end && line[nameStart] == ',') {
+			nameStart++;
+		}
+		int nameEnd = indexOfComma(line, nameStart, end);
+		if (nameEnd == nameStart || nameEnd == end) {
+			return null;
+		}
+		int creditsEnd = indexOfComma(line, nameEnd + 1, end);
+		long credits = parseInt(line, nameEnd + 1, creditsEnd);
+		if (credits < Course.MIN_HOURS || credits > Course.MAX_HOURS || creditsEnd == end) {
+			return null;
+		}
+		long capacity = parseInt(line, creditsEnd + 1, indexOfComma(line, creditsEnd + 1, end));
+		if (capacity <= 0) {
+			return null;
+		}
+		return new Course(new String(line, nameStart, nameEnd - nameStart), (int) credits, (int) capacity);
+	}
+
+	/**
+	 * Returns the index of the first comma in the range, or end if there
+	 * is none.
+	 * @param line characters to search
+	 * @param from start of the range
+	 * @param end end of the range
+	 * @return index of the comma or end
+	 */
+	private static int indexOfComma(char [] line, int from, int end) {
+		for (int i = from; i < end; i++) {
+			if (line[i] == ',') {
+				return i;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * Parses an int field.  The field is an optional + or - followed by one
+	 * or more decimal digits and must fit in an int.
+	 * @param line characters of the line
+	 * @param from start of the field
+	 * @param to end of the field
+	 * @return value of the field or NOT_AN_INT
+	 */
+	static long parseInt(char [] line, int from, int to) {
+		int i = from;
+		boolean negative = false;
+		if (i < to && (line[i] == '+' || line[i] == '-')) {
+			negative = line[i] == '-';
+			i++;
+		}
+		if (i == to) {
+			return NOT_AN_INT;
+		}
+		long value = 0;
+		for (; i < to; i++) {
+			char c = line[i];
+			int digit = c - '0';
+			if (digit < 0 || digit > 9) {
+				digit = Character.digit(c, 10);
+				if (digit < 0) {
+					return NOT_AN_INT;
+				}
+			}
+			value = value * 10 + digit;
+			if (value > (long) Integer.MAX_VALUE + 1) {
+				return NOT_AN_INT;
+			}
+		}
+		if (negative) {
+			return -value;
+		}
+		return value > Integer.MAX_VALUE ? NOT_AN_INT : value;
+	}
+}
@@ -0,0 +1,336 @@
+/**
+ *
+ */
+package my_package.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import my_package.courses.Course;
+import my_package.metrics.LatencyHistogram;
+import my_package.metrics.Metrics;
+import my_package.users.User;
+
+/**
+ * An append-only journal of the changes made since the record files were
+ * last written.  Each change is appended to the end of the journal as one
+ * line, so recording a change costs the same however many Courses and
+ * Students there are.  compact() writes the record files and empties the
+ * journal, and replay() applies the journal to data loaded from the
+ * record files.
+ *
+ * Lines are UTF-8 and have one of these forms:
+ * <pre>
+ * C,course name,credits,capacity    a Course was created
+ * P,course name,capacity            a Course's capacity was changed
+ * A,student id,course name          a Student was enrolled in a Course
+ * D,student id,course name          a Student was dropped from a Course
+ * </pre>
+ * A line that cannot be read is ignored, and a last line that was cut
+ * off because the program stopped while writing it is removed when the
+ * journal is next opened.  Each line is handed to
+ * the operating system as soon as it is appended, so the journal survives
+ * the program stopping but is only forced to the disk when it is
+ * compacted.
+ *
+ * Replaying a change that has already been made has no effect, so a
+ * journal that was not emptied because the program stopped during
+ * compact() can be replayed over the new record files.
+ *
+ * Appends are timed in Metrics under type EnrollmentJournal.
+ *
+ * @author jim2
+ *
+ */
+public class EnrollmentJournal implements Closeable {
+	/** Course created */
+	static final char COURSE = 'C';
+	/** Course capacity changed */
+	static final char CAPACITY = 'P';
+	/** Student enrolled */
+	static final char ADD = 'A';
+	/** Student dropped */
+	static final char DROP = 'D';
+	/** Line terminator */
+	private static final byte LINE_FEED = '\n';
+	/** Number of bytes read at a time when the journal is opened */
+	private static final int BLOCK_SIZE = 1 << 16;
+	/** Time to write appended lines */
+	private static final LatencyHistogram APPEND = Metrics.histogram("EnrollmentJournal", "append");
+
+	/** Journal file */
+	private final Path path;
+	/** Channel to the journal file, positioned at its end */
+	private final FileChannel channel;
+	/** Number of lines in the journal since it was last emptied */
+	private int size;
+
+	/**
+	 * Receives the changes read from a journal by replay().
+	 */
+	public interface Replayer {
+		/**
+		 * Creates a Course.
+		 * @param name course name
+		 * @param credits course credit hours
+		 * @param capacity course capacity
+		 */
+		void courseCreated(String name, int credits, int capacity);
+
+		/**
+		 * Changes a Course's capacity.
+		 * @param name course name
+		 * @param capacity new capacity
+		 */
+		void capacityChanged(String name, int capacity);
+
+		/**
+		 * Enrolls a Student in a Course.
+		 * @param id student id
+		 * @param name course name
+		 */
+		void enrolled(String id, String name);
+
+		/**
+		 * Drops a Student from a Course.
+		 * @param id student id
+		 * @param name course name
+		 */
+		void dropped(String id, String name);
+	}
+
+	/**
+	 * Opens the given journal file, creating it if it does not exist.
+	 * Changes are appended after the ones already in the file, and the
+	 * lines already in the file are counted in size() so that a journal
+	 * reopened after a restart is still compacted on time.  If the last
+	 * line was cut off, it is removed first so that it cannot run into
+	 * the next change appended.
+	 * @param fileName journal file
+	 * @throws IOException if the file cannot be opened
+	 */
+	public EnrollmentJournal(String fileName) throws IOException {
+		path = Paths.get(fileName);
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		long length = channel.size();
+		//End of the last complete line
+		long end = 0;
+		ByteBuffer block = ByteBuffer.allocate((int) Math.min(BLOCK_SIZE, Math.max(length, 1)));
+		for (long start = 0; start < length; start += block.limit()) {
+			block.clear().limit((int) Math.min(block.capacity(), length - start));
+			while (block.hasRemaining()) {
+				if (channel.read(block, start + block.position()) < 0) {
+					throw new IOException("Journal changed while it was opened");
+				}
+			}
+			for (int i = 0; i < block.limit(); i++) {
+				if (block.get(i) == LINE_FEED) {
+					size++;
+					end = start + i + 1;
+				}
+			}
+		}
+		if (end < length) {
+			channel.truncate(end);
+		}
+		channel.position(end);
+	}
+
+	/**
+	 * Records that a Course was created.
+	 * @param course new Course
+	 * @throws IOException if the journal cannot be written
+	 */
+	public void courseCreated(Course course) throws IOException {
+		append(COURSE + "," + course.getName() + "," + course.getCredits() + "," + course.getCapacity());
+	}
+
+	/**
+	 * Records that a Course's capacity was changed.
+	 * @param course changed Course
+	 * @throws IOException if the journal cannot be written
+	 */
+	public void capacityChanged(Course course) throws IOException {
+		append(CAPACITY + "," + course.getName() + "," + course.getCapacity());
+	}
+
+	/**
+	 * Records that a Student was enrolled in a Course.
+	 * @param user enrolled Student
+	 * @param course Course enrolled in
+	 * @throws IOException if the journal cannot be written
+	 */
+	public void enrolled(User user, Course course) throws IOException {
+		append(ADD + "," + user.getId() + "," + course.getName());
+	}
+
+	/**
+	 * Records that a Student was enrolled in each of the Courses, with a
+	 * single write.
+	 * @param user enrolled Student
+	 * @param courses Courses enrolled in
+	 * @throws IOException if the journal cannot be written
+	 */
+	public void enrolled(User user, List<Course> courses) throws IOException {
+		StringBuilder lines = new StringBuilder();
+		for (Course course : courses) {
+			if (lines.length() > 0) {
+				lines.append((char) LINE_FEED);
+			}
+			lines.append(ADD).append(',').append(user.getId()).append(',').append(course.getName());
+		}
+		append(lines.toString(), courses.size());
+	}
+
+	/**
+	 * Records that a Student was dropped from a Course.
+	 * @param user dropped Student
+	 * @param course Course dropped
+	 * @throws IOException if the journal cannot be written
+	 */
+	public void dropped(User user, Course course) throws IOException {
+		append(DROP + "," + user.getId() + "," + course.getName());
+	}
+
+	/**
+	 * Appends a line to the journal with a single write.
+	 * @param line line to append, without a line terminator
+	 * @throws IOException if the journal cannot be written
+	 */
+	private void append(String line) throws IOException {
+		append(line, 1);
+	}
+
+	/**
+	 * Appends lines to the journal with a single write.  If the write
+	 * fails, whatever part of it reached the file is removed.
+	 * @param lines lines to append, without a last line terminator
+	 * @param count number of lines
+	 * @throws IOException if the journal cannot be written
+	 */
+	private synchronized void append(String lines, int count) throws IOException {
+		if (count == 0) {
+			return;
+		}
+		long start = Metrics.start();
+		ByteBuffer bytes = ByteBuffer.wrap((lines + (char) LINE_FEED).getBytes(StandardCharsets.UTF_8));
+		long end = channel.position();
+		try {
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+		} catch (IOException e) {
+			//Remove a partly written line so the next one cannot run into it
+			try {
+				channel.truncate(end);
+				channel.position(end);
+			} catch (IOException ignored) {
+				//The cut-off line is removed when the journal is next opened
+			}
+			throw e;
+		}
+		size += count;
+		APPEND.recordSince(start);
+	}
+
+	/**
+	 * Returns the number of lines in the journal since it was last
+	 * emptied, including the lines that were in the file when it was
+	 * opened.
+	 * @return number of lines
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Writes the record files and then empties the journal.  No changes
+	 * can be appended while the record files are written, so every change
+	 * in the journal is either in the record files or still in the journal.
+	 * A change that holds this journal's monitor from when it is made
+	 * until it is appended cannot be saved without its line.
+	 * @param save writes the record files
+	 * @throws IOException if the journal cannot be emptied
+	 */
+	public synchronized void compact(Runnable save) throws IOException {
+		save.run();
+		channel.truncate(0);
+		channel.force(true);
+		size = 0;
+	}
+
+	/**
+	 * Reads the journal from the start and hands each change to the
+	 * Replayer in the order the changes were made.  A last line with no
+	 * line terminator was cut off while it was written and is ignored.
+	 * @param replayer Replayer to apply the changes
+	 * @throws IOException if the journal cannot be read
+	 */
+	public synchronized void replay(Replayer replayer) throws IOException {
+		byte [] bytes = Files.readAllBytes(path);
+		int start = 0;
+		for (int i = 0; i < bytes.length; i++) {
+			if (bytes[i] == LINE_FEED) {
+				replayLine(new String(bytes, start, i - start, StandardCharsets.UTF_8), replayer);
+				start = i + 1;
+			}
+		}
+	}
+
+	/**
+	 * Hands one journal line to the Replayer.  A line with a format
+	 * error is ignored.
+	 * @param line journal line
+	 * @param replayer Replayer to apply the change
+	 */
+	static void replayLine(String line, Replayer replayer) {
+		String [] fields = line.split(",", -1);
+		char kind = fields[0].length() == 1 ? fields[0].charAt(0) : 0;
+		try {
+			switch (kind) {
+			case COURSE:
+				if (fields.length == 4) {
+					replayer.courseCreated(fields[1], Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+				}
+				break;
+			case CAPACITY:
+				if (fields.length == 3) {
+					replayer.capacityChanged(fields[1], Integer.parseInt(fields[2]));
+				}
+				break;
+			case ADD:
+				if (fields.length == 3) {
+					replayer.enrolled(fields[1], fields[2]);
+				}
+				break;
+			case DROP:
+				if (fields.length == 3) {
+					replayer.dropped(fields[1], fields[2]);
+				}
+				break;
+			default:
+				break;
+			}
+		} catch (IllegalArgumentException e) {
+			//Skip the line
+		}
+	}
+
+	/**
+	 * Closes the journal.  Changes already appended are kept.
+	 * @throws IOException if the journal cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
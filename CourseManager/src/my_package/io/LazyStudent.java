@@ -0,0 +1,146 @@
+/**
+ *
+ */
+package my_package.io;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import my_package.courses.Course;
+import my_package.users.Student;
+
+/**
+ * A placeholder for a Student record that has not been loaded yet.  It
+ * knows where the record is in the student file, the Student's id and
+ * credit limit, and the Courses the Student was enrolled in when the file
+ * was indexed.  The rest of the record is read from the file the first
+ * time get() is called.
+ *
+ * The Courses hold this placeholder on their rosters until then, so their
+ * seats are taken and their rosters are complete without loading the
+ * Student.  The file must not change until the placeholder is loaded;
+ * CourseManager loads every Student before it saves the student records.
+ *
+ * @author jim2
+ *
+ */
+public final class LazyStudent implements Supplier<Student> {
+	/** Loader that indexed the record */
+	private final StudentRecordLoader loader;
+	/** Student record file */
+	private final String fileName;
+	/** Offset of the record in the file */
+	private final long offset;
+	/** Length of the record in bytes */
+	private final int length;
+	/** Student id */
+	private final String id;
+	/** Student credit limit */
+	private final int maxCredits;
+	/** Courses enrolled in while indexing; null once loaded */
+	private Course [] courses = new Course[4];
+	/** Number of Courses enrolled in while indexing */
+	private int courseCount;
+	/** Credits of the Courses enrolled in while indexing */
+	private int credits;
+	/** Student once loaded */
+	private Student student;
+
+	/**
+	 * Creates a placeholder for a record.
+	 * @param loader loader that indexed the record
+	 * @param fileName student record file
+	 * @param offset offset of the record in the file
+	 * @param length length of the record in bytes
+	 * @param id student id
+	 * @param maxCredits student credit limit
+	 */
+	LazyStudent(StudentRecordLoader loader, String fileName, long offset, int length, String id, int maxCredits) {
+		this.loader = loader;
+		this.fileName = fileName;
+		this.offset = offset;
+		this.length = length;
+		this.id = id;
+		this.maxCredits = maxCredits;
+	}
+
+	/**
+	 * Creates a placeholder for a Student that is already loaded.
+	 * @param student loaded Student
+	 */
+	LazyStudent(Student student) {
+		this(null, null, 0, 0, student.getId(), student.getMaxCredits());
+		this.student = student;
+		this.courses = null;
+	}
+
+	/**
+	 * Returns the Student's id.
+	 * @return student id
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Returns true if the Student has been loaded.
+	 * @return true if loaded
+	 */
+	public synchronized boolean isLoaded() {
+		return student != null;
+	}
+
+	/**
+	 * Enrolls the Student in the Course while indexing, making the same
+	 * checks as EnrollmentTransaction.enroll() would for the loaded
+	 * Student.
+	 * @param course Course to enroll in
+	 * @return true if enrolled
+	 */
+	synchronized boolean enroll(Course course) {
+		if (credits + course.getCredits() > maxCredits) {
+			return false;
+		}
+		for (int i = 0; i < courseCount; i++) {
+			if (courses[i].equals(course)) {
+				return false;
+			}
+		}
+		if (!course.enroll(id, this)) {
+			return false;
+		}
+		if (courseCount == courses.length) {
+			courses = Arrays.copyOf(courses, courseCount * 2);
+		}
+		courses[courseCount++] = course;
+		credits += course.getCredits();
+		return true;
+	}
+
+	/**
+	 * Returns the Student, reading its record the first time.  The
+	 * Student's courses are the Courses it was enrolled in while indexing.
+	 * If a Course can no longer be added, for example because its credits
+	 * have changed, the Student is dropped from it.  An
+	 * IllegalArgumentException is thrown if the record cannot be read or
+	 * has changed.
+	 * @return the Student
+	 */
+	@Override
+	public synchronized Student get() {
+		if (student == null) {
+			Student s = loader.loadRecord(fileName, offset, length);
+			if (!id.equals(s.getId()) || maxCredits != s.getMaxCredits()) {
+				throw new IllegalArgumentException("Student records have changed.");
+			}
+			for (int i = 0; i < courseCount; i++) {
+				if (!s.addCourse(courses[i])) {
+					courses[i].drop(s, false);
+				}
+			}
+			student = s;
+			courses = null;
+		}
+		return student;
+	}
+}
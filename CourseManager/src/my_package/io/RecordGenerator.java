@@ -0,0 +1,463 @@
+/**
+ *
+ */
+package my_package.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+
+import my_package.courses.Course;
+import my_package.users.Student;
+
+/**
+ * Writes synthetic course and student record files of any size for
+ * testing the loaders at scale.  The same seed always writes the same
+ * files.  Students are written one line at a time, so memory use depends
+ * on the number of courses but not on the number of students.
+ *
+ * Courses are named like CSC216-001 and mostly carry 3 credits.  Their
+ * capacities range from seminars of 10 seats to lectures of 400.  Each
+ * course has a popularity drawn from a Zipf-like distribution over a
+ * random ranking, so a few courses are in high demand.
+ *
+ * Students mostly have a limit of 18 credits, with some part-time
+ * students below that.  A registered student wants 2 to 6 courses, picked
+ * by popularity.  Just enough students are registered for about fill of
+ * all the seats to be wanted; the rest have no courses yet, as on the
+ * morning of registration day.  An enrollment is only written if it
+ * would succeed on load: the course has an open seat, the student is not
+ * already in it and it fits in the student's credit limit.  Hot courses
+ * therefore fill early in the file.
+ *
+ * Every student has the same password.  Its SHA-256 digest is written as
+ * raw bytes, so reading the file with the platform charset gives the
+ * same String that Sha256CredentialVerifier computes and the students can
+ * log in.
+ *
+ * @author jim2
+ *
+ */
+public class RecordGenerator {
+	/** Size of the write buffer */
+	private static final int BUFFER_SIZE = 1 << 16;
+	/** Line separator, as written by RecordWriter */
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+	/** Course numbers per department and section */
+	private static final int NUMBERS = 700;
+	/** Lowest course number */
+	private static final int FIRST_NUMBER = 100;
+	/** Exponent of the course popularity distribution */
+	private static final double POPULARITY_EXPONENT = 0.8;
+	/** Fewest courses a registered student wants */
+	private static final int MIN_COURSES = 2;
+	/** Most courses a registered student wants */
+	private static final int MAX_COURSES = 6;
+	/** Tries to find an open course for each enrollment a student wants */
+	private static final int TRIES = 8;
+	/** Department prefixes */
+	private static final String [] DEPARTMENTS = {"CSC", "MA", "ST", "PY", "CH", "BIO", "ECE", "MAE", "CE",
+			"ISE", "ENG", "HI", "PSY", "SOC", "EC", "BUS", "ACC", "FL", "COM", "ARC", "GEO", "MEA", "PHI",
+			"REL", "MUS", "ART", "ANT", "NR", "FOR", "TE"};
+	/** First names */
+	private static final String [] FIRST_NAMES = {"Zahir", "Cassandra", "Shannon", "Demetrius", "Raymond",
+			"Emerald", "Lane", "Griffith", "Althea", "Dylan", "Maria", "James", "Priya", "Wei", "Fatima",
+			"Carlos", "Aisha", "Noah", "Olivia", "Liam", "Emma", "Mateo", "Sofia", "Ethan", "Mia", "Lucas",
+			"Amara", "Kenji", "Yara", "Diego", "Hana", "Omar", "Grace", "Ivan", "Leila", "Samuel"};
+	/** Last names */
+	private static final String [] LAST_NAMES = {"King", "Schwartz", "Hansen", "Austin", "Williams", "Frost",
+			"Berg", "Stone", "Hernandez", "Smith", "Johnson", "Lee", "Patel", "Nguyen", "Garcia", "Kim",
+			"Brown", "Chen", "Lopez", "Wilson", "Martin", "Singh", "Okafor", "Tanaka", "Rossi", "Ali",
+			"Novak", "Murphy", "Cohen", "Silva", "Park", "Ivanova", "Moreno", "Haddad", "Walker", "Young"};
+
+	/** Seed of the files */
+	private final long seed;
+	/** Number of courses */
+	private int courseCount = 20000;
+	/** Number of students */
+	private int studentCount = 1000000;
+	/** Share of all seats to fill */
+	private double fill = 0.85;
+	/** Password of every student */
+	private String password = "pw";
+
+	/**
+	 * Creates a generator for the given seed.
+	 * @param seed seed of the files
+	 */
+	public RecordGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @param courseCount the number of courses to set
+	 */
+	public void setCourseCount(int courseCount) {
+		if (courseCount < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.courseCount = courseCount;
+	}
+
+	/**
+	 * @param studentCount the number of students to set
+	 */
+	public void setStudentCount(int studentCount) {
+		if (studentCount < 0) {
+			throw new IllegalArgumentException();
+		}
+		this.studentCount = studentCount;
+	}
+
+	/**
+	 * Sets the share of all seats the students want.  Fewer seats are
+	 * taken when students cannot find open courses that fit their credit
+	 * limits.
+	 * @param fill share of seats, from 0 to 1
+	 */
+	public void setFill(double fill) {
+		if (fill < 0 || fill > 1) {
+			throw new IllegalArgumentException();
+		}
+		this.fill = fill;
+	}
+
+	/**
+	 * Sets the password of every student.  An IllegalArgumentException is
+	 * thrown if the password's digest cannot be written in a record.
+	 * @param password the password to set
+	 */
+	public void setPassword(String password) {
+		if (password == null || password.isEmpty()) {
+			throw new IllegalArgumentException();
+		}
+		digest(password);
+		this.password = password;
+	}
+
+	/**
+	 * Writes the course records.
+	 * @param fileName course record file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeCourseRecords(String fileName) throws IOException {
+		Courses courses = new Courses();
+		try (Output out = new Output(fileName)) {
+			for (int c = 0; c < courseCount; c++) {
+				out.write(courses.names[c]).write(',').write(courses.credits[c]).write(',')
+						.write(courses.capacities[c]).newLine();
+			}
+			out.commit();
+		}
+	}
+
+	/**
+	 * Writes the student records.  The courses they are enrolled in are the
+	 * ones writeCourseRecords() writes with the same seed and settings.
+	 * @param fileName student record file
+	 * @return number of enrollments written
+	 * @throws IOException if the file cannot be written
+	 */
+	public long writeStudentRecords(String fileName) throws IOException {
+		Courses courses = new Courses();
+		byte [] hash = digest(password);
+		Random random = new Random(seed + 1);
+		int [] open = courses.capacities.clone();
+		long seats = 0;
+		for (int capacity : open) {
+			seats += capacity;
+		}
+		//Share of students who have registered, so that about fill of the
+		//seats are wanted
+		double registered = studentCount == 0 ? 0
+				: Math.min(1, fill * seats / studentCount / ((MIN_COURSES + MAX_COURSES) / 2.0));
+		int [] picked = new int[MAX_COURSES];
+		long enrollments = 0;
+
+		try (Output out = new Output(fileName)) {
+			for (int s = 0; s < studentCount; s++) {
+				String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+				String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+				String id = (first.charAt(0) + last).toLowerCase() + s;
+				int maxCredits = maxCredits(random);
+				out.write(first).write(',').write(last).write(',').write(id).write(',').write(id)
+						.write("@ncsu.edu,").write(hash).write(',').write(maxCredits);
+
+				int want = random.nextDouble() < registered
+						? MIN_COURSES + random.nextInt(MAX_COURSES - MIN_COURSES + 1) : 0;
+				int n = 0;
+				int credits = 0;
+				for (int t = 0; t < want * TRIES && n < want; t++) {
+					int c = courses.pick(random);
+					if (open[c] == 0 || credits + courses.credits[c] > maxCredits || contains(picked, n, c)) {
+						continue;
+					}
+					open[c]--;
+					credits += courses.credits[c];
+					picked[n++] = c;
+					out.write(',').write(courses.names[c]);
+				}
+				enrollments += n;
+				out.newLine();
+			}
+			out.commit();
+		}
+		return enrollments;
+	}
+
+	/**
+	 * Returns a student's credit limit: mostly a full load, sometimes part
+	 * time.
+	 * @param random source of choices
+	 * @return credit limit
+	 */
+	private static int maxCredits(Random random) {
+		int r = random.nextInt(100);
+		if (r < 80) {
+			return Student.MAX_CREDITS;
+		}
+		return r < 95 ? 12 + random.nextInt(Student.MAX_CREDITS - 12) : 6 + random.nextInt(6);
+	}
+
+	/**
+	 * Returns true if the first n picked courses include the course.
+	 * @param picked picked courses
+	 * @param n number of picked courses
+	 * @param course course to look for
+	 * @return true if picked
+	 */
+	private static boolean contains(int [] picked, int n, int course) {
+		for (int i = 0; i < n; i++) {
+			if (picked[i] == course) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the SHA-256 digest of a password encoded with the platform
+	 * charset, as Sha256CredentialVerifier computes it.  An
+	 * IllegalArgumentException is thrown if the digest has a byte that
+	 * would end a field or a line when the record is read.  Byte 0x85 is
+	 * a line break to Scanner in ISO-8859-1.
+	 * @param password password to digest
+	 * @return digest
+	 */
+	static byte [] digest(String password) {
+		byte [] hash;
+		try {
+			hash = MessageDigest.getInstance("SHA-256").digest(password.getBytes());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+		for (byte b : hash) {
+			if (b == ',' || b == '\n' || b == '\r' || b == (byte) 0x85) {
+				throw new IllegalArgumentException("Password digest cannot be written in a record");
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * The generated courses.  They are made again from the seed for each
+	 * file, so the two files can be written by separate runs.
+	 */
+	private class Courses {
+		/** Course names */
+		private final String [] names = new String[courseCount];
+		/** Course credits */
+		private final int [] credits = new int[courseCount];
+		/** Course capacities */
+		private final int [] capacities = new int[courseCount];
+		/** Running total of the popularity of each course */
+		private final double [] popularity = new double[courseCount];
+
+		/**
+		 * Generates the courses.
+		 */
+		Courses() {
+			Random random = new Random(seed);
+			for (int c = 0; c < courseCount; c++) {
+				int rest = c / DEPARTMENTS.length;
+				names[c] = String.format("%s%03d-%03d", DEPARTMENTS[c % DEPARTMENTS.length],
+						FIRST_NUMBER + rest % NUMBERS, 1 + rest / NUMBERS);
+				int r = random.nextInt(100);
+				credits[c] = r < 8 ? Course.MIN_HOURS : r < 15 ? 2 : r < 85 ? 3 : Course.MAX_HOURS;
+				r = random.nextInt(100);
+				capacities[c] = r < 20 ? 10 + random.nextInt(15) : r < 75 ? 25 + random.nextInt(36)
+						: r < 95 ? 61 + random.nextInt(90) : 151 + random.nextInt(250);
+			}
+			//Shuffle the popularity ranks so the hot courses are spread out
+			int [] rank = new int[courseCount];
+			for (int c = 0; c < courseCount; c++) {
+				rank[c] = c;
+			}
+			for (int c = courseCount - 1; c > 0; c--) {
+				int other = random.nextInt(c + 1);
+				int t = rank[c];
+				rank[c] = rank[other];
+				rank[other] = t;
+			}
+			double total = 0;
+			for (int c = 0; c < courseCount; c++) {
+				total += 1 / Math.pow(rank[c] + 1, POPULARITY_EXPONENT);
+				popularity[c] = total;
+			}
+		}
+
+		/**
+		 * Picks a course with a chance in proportion to its popularity.
+		 * @param random source of choices
+		 * @return course index
+		 */
+		int pick(Random random) {
+			double target = random.nextDouble() * popularity[courseCount - 1];
+			int c = Arrays.binarySearch(popularity, target);
+			return Math.min(c < 0 ? -c - 1 : c, courseCount - 1);
+		}
+	}
+
+	/**
+	 * Writes ASCII text and raw bytes to an AtomicFile through a buffer.
+	 */
+	private static class Output implements Closeable {
+		/** File being written */
+		private final AtomicFile file;
+		/** Bytes not yet written */
+		private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+
+		/**
+		 * Opens the file.
+		 * @param fileName file to replace
+		 * @throws IOException if the file cannot be created
+		 */
+		Output(String fileName) throws IOException {
+			file = new AtomicFile(fileName);
+		}
+
+		/**
+		 * Writes a byte.
+		 * @param b byte to write
+		 * @return this Output
+		 * @throws IOException if the file cannot be written
+		 */
+		Output write(byte b) throws IOException {
+			if (!bytes.hasRemaining()) {
+				drain();
+			}
+			bytes.put(b);
+			return this;
+		}
+
+		/**
+		 * Writes raw bytes.
+		 * @param b bytes to write
+		 * @return this Output
+		 * @throws IOException if the file cannot be written
+		 */
+		Output write(byte [] b) throws IOException {
+			for (byte x : b) {
+				write(x);
+			}
+			return this;
+		}
+
+		/**
+		 * Writes an ASCII character.
+		 * @param c character to write
+		 * @return this Output
+		 * @throws IOException if the file cannot be written
+		 */
+		Output write(char c) throws IOException {
+			return write((byte) c);
+		}
+
+		/**
+		 * Writes ASCII text.
+		 * @param s text to write
+		 * @return this Output
+		 * @throws IOException if the file cannot be written
+		 */
+		Output write(String s) throws IOException {
+			for (int i = 0; i < s.length(); i++) {
+				write((byte) s.charAt(i));
+			}
+			return this;
+		}
+
+		/**
+		 * Writes a number in decimal.
+		 * @param n number to write
+		 * @return this Output
+		 * @throws IOException if the file cannot be written
+		 */
+		Output write(int n) throws IOException {
+			return write(Integer.toString(n));
+		}
+
+		/**
+		 * Ends a line.
+		 * @return this Output
+		 * @throws IOException if the file cannot be written
+		 */
+		Output newLine() throws IOException {
+			return write(LINE_SEPARATOR);
+		}
+
+		/**
+		 * Writes the buffered bytes to the file.
+		 * @throws IOException if the file cannot be written
+		 */
+		private void drain() throws IOException {
+			bytes.flip();
+			file.write(bytes);
+		}
+
+		/**
+		 * Writes the rest of the bytes and replaces the target file.
+		 * @throws IOException if the file cannot be written
+		 */
+		void commit() throws IOException {
+			drain();
+			file.commit();
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.Closeable#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			file.close();
+		}
+	}
+
+	/**
+	 * Writes a course and a student record file.
+	 * Usage: RecordGenerator courseFile studentFile [students] [courses] [seed]
+	 * @param args file names, number of students and courses, and seed
+	 * @throws IOException if a file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: RecordGenerator courseFile studentFile [students] [courses] [seed]");
+			System.exit(2);
+		}
+		RecordGenerator generator = new RecordGenerator(args.length > 4 ? Long.parseLong(args[4]) : 1);
+		if (args.length > 2) {
+			generator.setStudentCount(Integer.parseInt(args[2]));
+		}
+		if (args.length > 3) {
+			generator.setCourseCount(Integer.parseInt(args[3]));
+		}
+		long start = System.nanoTime();
+		generator.writeCourseRecords(args[0]);
+		long enrollments = generator.writeStudentRecords(args[1]);
+		System.out.printf("%d courses, %d students, %d enrollments in %.1f s%n", generator.courseCount,
+				generator.studentCount, enrollments, (System.nanoTime() - start) / 1e9);
+	}
+}
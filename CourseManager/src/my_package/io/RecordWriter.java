@@ -0,0 +1,190 @@
+/**
+ *
+ */
+package my_package.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writes a record file so that it is either completely replaced or left
+ * as it was.  Records are written into an AtomicFile: commit() flushes
+ * the records to the disk and then renames them over the target.  If the
+ * writer is closed without being committed, or the program stops while
+ * writing, the target is not touched.
+ *
+ * Fields are copied straight into a large char buffer and ints are
+ * formatted in place, so writing a record does not build any Strings.
+ * Characters are encoded with the platform charset, replacing characters
+ * it cannot encode, the same as FileWriter.
+ *
+ * @author jim2
+ *
+ */
+public class RecordWriter implements Closeable {
+	/** Size of the char and byte buffers */
+	private static final int BUFFER_SIZE = 1 << 16;
+	/** Line separator written by newLine() */
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+	/** Longest int written as text, Integer.MIN_VALUE */
+	private static final int MAX_INT_LENGTH = 11;
+
+	/** File being written */
+	private final AtomicFile file;
+	/** Platform charset encoder */
+	private final CharsetEncoder encoder;
+	/** Characters not yet encoded */
+	private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+	/** Encoded bytes not yet written */
+	private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	/**
+	 * Creates a writer that will replace the given file.
+	 * @param fileName file to replace
+	 * @throws IOException if the temporary file cannot be created
+	 */
+	public RecordWriter(String fileName) throws IOException {
+		file = new AtomicFile(fileName);
+		encoder = Charset.defaultCharset().newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Writes a String.
+	 * @param s String to write
+	 * @return this writer
+	 * @throws IOException if the temporary file cannot be written
+	 */
+	public RecordWriter write(String s) throws IOException {
+		int length = s.length();
+		int from = 0;
+		while (from < length) {
+			if (!chars.hasRemaining()) {
+				encode(false);
+			}
+			int to = Math.min(length, from + chars.remaining());
+			s.getChars(from, to, chars.array(), chars.position());
+			chars.position(chars.position() + to - from);
+			from = to;
+		}
+		return this;
+	}
+
+	/**
+	 * Writes a character.
+	 * @param c character to write
+	 * @return this writer
+	 * @throws IOException if the temporary file cannot be written
+	 */
+	public RecordWriter write(char c) throws IOException {
+		if (!chars.hasRemaining()) {
+			encode(false);
+		}
+		chars.put(c);
+		return this;
+	}
+
+	/**
+	 * Writes an int as decimal text.
+	 * @param n int to write
+	 * @return this writer
+	 * @throws IOException if the temporary file cannot be written
+	 */
+	public RecordWriter write(int n) throws IOException {
+		if (chars.remaining() < MAX_INT_LENGTH) {
+			encode(false);
+		}
+		char [] a = chars.array();
+		int start = chars.position();
+		//Work with the negative value so Integer.MIN_VALUE needs no special case
+		int v = n;
+		if (v < 0) {
+			a[start++] = '-';
+		} else {
+			v = -v;
+		}
+		int end = start;
+		do {
+			a[end++] = (char) ('0' - v % 10);
+			v /= 10;
+		} while (v != 0);
+		for (int i = start, j = end - 1; i < j; i++, j--) {
+			char t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+		chars.position(end);
+		return this;
+	}
+
+	/**
+	 * Ends the current line.
+	 * @return this writer
+	 * @throws IOException if the temporary file cannot be written
+	 */
+	public RecordWriter newLine() throws IOException {
+		return write(LINE_SEPARATOR);
+	}
+
+	/**
+	 * Encodes the buffered characters and writes out the bytes.  An
+	 * unpaired high surrogate at the end of the buffer is kept until the
+	 * rest of the pair is written.
+	 * @param endOfInput true if no more characters will be written
+	 * @throws IOException if the temporary file cannot be written
+	 */
+	private void encode(boolean endOfInput) throws IOException {
+		chars.flip();
+		while (true) {
+			CoderResult result = encoder.encode(chars, bytes, endOfInput);
+			if (result.isOverflow()) {
+				drain();
+			} else {
+				break;
+			}
+		}
+		if (endOfInput) {
+			while (encoder.flush(bytes).isOverflow()) {
+				drain();
+			}
+		}
+		chars.compact();
+		drain();
+	}
+
+	/**
+	 * Writes the encoded bytes to the temporary file.
+	 * @throws IOException if the temporary file cannot be written
+	 */
+	private void drain() throws IOException {
+		bytes.flip();
+		file.write(bytes);
+	}
+
+	/**
+	 * Writes out everything written so far, forces it to the disk and
+	 * replaces the target file with it.
+	 * @throws IOException if the file cannot be written or renamed
+	 */
+	public void commit() throws IOException {
+		encode(true);
+		file.commit();
+	}
+
+	/**
+	 * Deletes the temporary file if the writer was not committed.  The
+	 * target file is left as it was.
+	 * @throws IOException if the temporary file cannot be deleted
+	 */
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
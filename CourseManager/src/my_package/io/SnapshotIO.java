@@ -0,0 +1,393 @@
+/**
+ *
+ */
+package my_package.io;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import my_package.courses.Course;
+import my_package.manager.EnrollmentTransaction;
+import my_package.metrics.LatencyHistogram;
+import my_package.metrics.Metrics;
+import my_package.users.Student;
+
+/**
+ * Reads and writes a binary snapshot of all Courses and Students.  A
+ * snapshot is written and read in one pass and is read from a
+ * memory-mapped file, so loading it needs no text parsing.
+ *
+ * All numbers are big-endian ints.  A snapshot is laid out as:
+ * <pre>
+ * magic "CMSS", version
+ * string count, then each string as either its length and its UTF-16
+ *     chars, or minus its length and its ISO-8859-1 bytes
+ * course count, then each course as name, credits, capacity
+ * student count, then each student as first name, last name, id, email,
+ *     password, max credits, course count and that many course numbers
+ * </pre>
+ * Names, emails and passwords are stored once in the string table and
+ * referred to by their index, and a student's courses are the indexes of
+ * the courses in the course list.  Strings whose characters all fit in
+ * ISO-8859-1 are stored one byte per character and the rest as UTF-16,
+ * so every String, including a password hash decoded with any charset,
+ * reads back exactly.
+ *
+ * Students are enrolled in their Courses in snapshot order as they are
+ * read, the same way StudentRecordIO enrolls them from the student file,
+ * so a snapshot loads the same rosters as the record files it matches.
+ *
+ * Reads and writes are timed in Metrics under type SnapshotIO.
+ *
+ * @author jim2
+ *
+ */
+public class SnapshotIO {
+	/** First four bytes of a snapshot, "CMSS" */
+	static final int MAGIC = 0x434D5353;
+	/** Format version written by writeSnapshot() */
+	static final int VERSION = 1;
+	/** Size of the write buffer */
+	private static final int BUFFER_SIZE = 1 << 16;
+	/** Time to read a snapshot */
+	private static final LatencyHistogram READ = Metrics.histogram("SnapshotIO", "readSnapshot");
+	/** Time to write a snapshot */
+	private static final LatencyHistogram WRITE = Metrics.histogram("SnapshotIO", "writeSnapshot");
+
+	/**
+	 * SnapshotIO only has static methods.
+	 */
+	private SnapshotIO() {
+	}
+
+	/**
+	 * The Courses and Students read from a snapshot.
+	 */
+	public static final class Snapshot {
+		/** Courses in snapshot order */
+		private final List<Course> courses;
+		/** Students in snapshot order */
+		private final List<Student> students;
+
+		/**
+		 * Creates a snapshot.
+		 * @param courses Courses in snapshot order
+		 * @param students Students in snapshot order
+		 */
+		Snapshot(List<Course> courses, List<Student> students) {
+			this.courses = Collections.unmodifiableList(courses);
+			this.students = Collections.unmodifiableList(students);
+		}
+
+		/**
+		 * Returns the Courses.
+		 * @return Courses in snapshot order
+		 */
+		public List<Course> getCourses() {
+			return courses;
+		}
+
+		/**
+		 * Returns the Students, already enrolled in their Courses.
+		 * @return Students in snapshot order
+		 */
+		public List<Student> getStudents() {
+			return students;
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the Courses and Students to the given file.
+	 * The file is replaced only once the whole snapshot is written.  A
+	 * Student's courses that are not in the list of Courses are left out.
+	 * @param fileName file to write
+	 * @param courses Courses to write
+	 * @param students Students to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void writeSnapshot(String fileName, List<Course> courses, List<Student> students)
+			throws IOException {
+		long start = Metrics.start();
+		try {
+			write(fileName, courses, students);
+		} finally {
+			WRITE.recordSince(start);
+		}
+	}
+
+	/**
+	 * Writes a snapshot as writeSnapshot() does.
+	 * @param fileName file to write
+	 * @param courses Courses to write
+	 * @param students Students to write
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void write(String fileName, List<Course> courses, List<Student> students)
+			throws IOException {
+		//Read each Student's mutable fields together, as writeStudentRecords() does
+		int [] maxCredits = new int[students.size()];
+		Course [][] studentCourses = new Course[students.size()][];
+		for (int i = 0; i < students.size(); i++) {
+			Student s = students.get(i);
+			synchronized (s) {
+				maxCredits[i] = s.getMaxCredits();
+				studentCourses[i] = s.getCourses();
+			}
+		}
+
+		Map<String, Integer> strings = new HashMap<String, Integer>();
+		List<String> table = new ArrayList<String>();
+		Map<String, Integer> courseIndex = new HashMap<String, Integer>();
+		for (int i = 0; i < courses.size(); i++) {
+			courseIndex.put(courses.get(i).getName(), i);
+			intern(courses.get(i).getName(), strings, table);
+		}
+		for (Student s : students) {
+			intern(s.getFirstName(), strings, table);
+			intern(s.getLastName(), strings, table);
+			intern(s.getId(), strings, table);
+			intern(s.getEmail(), strings, table);
+			intern(s.getPassword(), strings, table);
+		}
+
+		try (AtomicFile file = new AtomicFile(fileName)) {
+			ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			putInt(file, buf, MAGIC);
+			putInt(file, buf, VERSION);
+
+			putInt(file, buf, table.size());
+			for (String s : table) {
+				putString(file, buf, s);
+			}
+
+			putInt(file, buf, courses.size());
+			for (Course c : courses) {
+				putInt(file, buf, strings.get(c.getName()));
+				putInt(file, buf, c.getCredits());
+				putInt(file, buf, c.getCapacity());
+			}
+
+			putInt(file, buf, students.size());
+			for (int i = 0; i < students.size(); i++) {
+				Student s = students.get(i);
+				putInt(file, buf, strings.get(s.getFirstName()));
+				putInt(file, buf, strings.get(s.getLastName()));
+				putInt(file, buf, strings.get(s.getId()));
+				putInt(file, buf, strings.get(s.getEmail()));
+				putInt(file, buf, strings.get(s.getPassword()));
+				putInt(file, buf, maxCredits[i]);
+				int count = 0;
+				for (Course c : studentCourses[i]) {
+					if (courseIndex.get(c.getName()) != null) {
+						count++;
+					}
+				}
+				putInt(file, buf, count);
+				for (Course c : studentCourses[i]) {
+					Integer index = courseIndex.get(c.getName());
+					if (index != null) {
+						putInt(file, buf, index);
+					}
+				}
+			}
+			flush(file, buf);
+			file.commit();
+		}
+	}
+
+	/**
+	 * Adds the String to the string table if it is not already there.
+	 * @param s String to add
+	 * @param strings index of each String in the table
+	 * @param table string table
+	 */
+	private static void intern(String s, Map<String, Integer> strings, List<String> table) {
+		if (!strings.containsKey(s)) {
+			strings.put(s, table.size());
+			table.add(s);
+		}
+	}
+
+	/**
+	 * Puts an int in the buffer, first writing out the buffer if it is
+	 * full.
+	 * @param file file being written
+	 * @param buf write buffer
+	 * @param n int to put
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void putInt(AtomicFile file, ByteBuffer buf, int n) throws IOException {
+		if (buf.remaining() < Integer.BYTES) {
+			flush(file, buf);
+		}
+		buf.putInt(n);
+	}
+
+	/**
+	 * Puts a String in the buffer, writing out the buffer as it fills.
+	 * @param file file being written
+	 * @param buf write buffer
+	 * @param s String to put
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void putString(AtomicFile file, ByteBuffer buf, String s) throws IOException {
+		int length = s.length();
+		boolean latin1 = true;
+		for (int i = 0; latin1 && i < length; i++) {
+			latin1 = s.charAt(i) <= 0xFF;
+		}
+		putInt(file, buf, latin1 ? -length : length);
+		for (int i = 0; i < length; i++) {
+			if (buf.remaining() < Character.BYTES) {
+				flush(file, buf);
+			}
+			if (latin1) {
+				buf.put((byte) s.charAt(i));
+			} else {
+				buf.putChar(s.charAt(i));
+			}
+		}
+	}
+
+	/**
+	 * Writes out the buffer.
+	 * @param file file being written
+	 * @param buf write buffer
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void flush(AtomicFile file, ByteBuffer buf) throws IOException {
+		buf.flip();
+		file.write(buf);
+	}
+
+	/**
+	 * Reads a snapshot from the given file.  The Students are enrolled in
+	 * the snapshot's Courses as they are read.  An IllegalArgumentException
+	 * is thrown if the file is not a snapshot, is a version this class
+	 * cannot read or is damaged.
+	 * @param fileName file to read
+	 * @return Courses and Students in the snapshot
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Snapshot readSnapshot(String fileName) throws IOException {
+		long start = Metrics.start();
+		try {
+			return read(fileName);
+		} finally {
+			READ.recordSince(start);
+		}
+	}
+
+	/**
+	 * Reads a snapshot as readSnapshot() does.
+	 * @param fileName file to read
+	 * @return Courses and Students in the snapshot
+	 * @throws IOException if the file cannot be read
+	 */
+	private static Snapshot read(String fileName) throws IOException {
+		ByteBuffer buf;
+		try (FileInputStream in = new FileInputStream(fileName)) {
+			FileChannel channel = in.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Snapshot is too large");
+			}
+			buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		try {
+			if (buf.getInt() != MAGIC) {
+				throw new IllegalArgumentException("Not a snapshot");
+			}
+			int version = buf.getInt();
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported snapshot version " + version);
+			}
+
+			String [] table = new String[count(buf, Integer.BYTES)];
+			byte [] bytes = new byte[64];
+			char [] chars = new char[64];
+			for (int i = 0; i < table.length; i++) {
+				int length = buf.getInt();
+				if (length < 0) {
+					length = -length;
+					checkRemaining(buf, length, 1);
+					if (bytes.length < length) {
+						bytes = new byte[Math.max(length, bytes.length * 2)];
+					}
+					buf.get(bytes, 0, length);
+					table[i] = new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+				} else {
+					checkRemaining(buf, length, Character.BYTES);
+					if (chars.length < length) {
+						chars = new char[Math.max(length, chars.length * 2)];
+					}
+					for (int c = 0; c < length; c++) {
+						chars[c] = buf.getChar();
+					}
+					table[i] = new String(chars, 0, length);
+				}
+			}
+
+			Course [] courses = new Course[count(buf, 3 * Integer.BYTES)];
+			for (int i = 0; i < courses.length; i++) {
+				courses[i] = new Course(table[buf.getInt()], buf.getInt(), buf.getInt());
+			}
+
+			Student [] students = new Student[count(buf, 7 * Integer.BYTES)];
+			for (int i = 0; i < students.length; i++) {
+				Student s = new Student(table[buf.getInt()], table[buf.getInt()], table[buf.getInt()],
+						table[buf.getInt()], table[buf.getInt()], buf.getInt());
+				for (int c = count(buf, Integer.BYTES); c > 0; c--) {
+					EnrollmentTransaction.enroll(s, courses[buf.getInt()]);
+				}
+				students[i] = s;
+			}
+			if (buf.hasRemaining()) {
+				throw new IllegalArgumentException("Snapshot has trailing data");
+			}
+
+			List<Course> courseList = new ArrayList<Course>(courses.length);
+			Collections.addAll(courseList, courses);
+			List<Student> studentList = new ArrayList<Student>(students.length);
+			Collections.addAll(studentList, students);
+			return new Snapshot(courseList, studentList);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Snapshot is damaged");
+		}
+	}
+
+	/**
+	 * Reads a count of items and checks that the rest of the snapshot is
+	 * large enough to hold them, so a damaged count cannot cause a huge
+	 * allocation.
+	 * @param buf snapshot
+	 * @param itemSize smallest size of an item in bytes
+	 * @return count
+	 */
+	private static int count(ByteBuffer buf, int itemSize) {
+		int count = buf.getInt();
+		checkRemaining(buf, count, itemSize);
+		return count;
+	}
+
+	/**
+	 * Checks that the rest of the snapshot is large enough to hold the
+	 * given number of items.
+	 * @param buf snapshot
+	 * @param count number of items
+	 * @param itemSize smallest size of an item in bytes
+	 */
+	private static void checkRemaining(ByteBuffer buf, int count, int itemSize) {
+		if (count < 0 || (long) count * itemSize > buf.remaining()) {
+			throw new IllegalArgumentException("Snapshot is damaged");
+		}
+	}
+}
@@ -1,11 +1,9 @@
 package my_package.io;
 
-import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -13,22 +11,106 @@ import java.util.Scanner;
 
 import my_package.courses.Course;
 import my_package.manager.CourseManager;
+import my_package.manager.EnrollmentTransaction;
+import my_package.metrics.Counter;
+import my_package.metrics.LatencyHistogram;
+import my_package.metrics.Metrics;
 import my_package.users.Student;
 
+/**
+ * Reads, indexes and writes student record files.  Each is timed, and the
+ * records read, indexed and written are counted, in Metrics under type
+ * StudentRecordIO.
+ * 
+ * @author jim2
+ *
+ */
 public class StudentRecordIO {
+	/** Time to read a student record file */
+	private static final LatencyHistogram READ = Metrics.histogram("StudentRecordIO", "readStudentRecords");
+	/** Time to index a student record file */
+	private static final LatencyHistogram INDEX = Metrics.histogram("StudentRecordIO", "indexStudentRecords");
+	/** Time to write a student record file */
+	private static final LatencyHistogram WRITE = Metrics.histogram("StudentRecordIO", "writeStudentRecords");
+	/** Student records read or indexed */
+	private static final Counter RECORDS_READ = Metrics.counter("StudentRecordIO", "recordsRead");
+	/** Student records written */
+	private static final Counter RECORDS_WRITTEN = Metrics.counter("StudentRecordIO", "recordsWritten");
 
 	/**
 	 * Reads Student records from the given file.  If the file doesn't exist
 	 * a FileNotFoundException is thrown.  A line with a format error will be
-	 * ignored.
+	 * ignored.  The file is memory-mapped by StudentRecordLoader when the
+	 * platform charset allows it.
 	 * @param fileName name of file to read
 	 * @return Student records
 	 * @throws FileNotFoundException if the file doesn't exist
 	 */
 	public static List<Student> readStudentRecords(String fileName) throws FileNotFoundException {
+		long start = Metrics.start();
+		try {
+			Charset charset = Charset.defaultCharset();
+			List<Student> students = StudentRecordLoader.canLoad(charset) 
+					? StudentRecordLoader.load(fileName) : scanStudentRecords(fileName, charset);
+			RECORDS_READ.add(students.size());
+			return students;
+		} finally {
+			READ.recordSince(start);
+		}
+	}
+
+	/**
+	 * Indexes Student records in the given file without loading them.  Each
+	 * record's Student is enrolled in its Courses and is read from the file
+	 * the first time its LazyStudent is asked for it.  If the platform
+	 * charset cannot be indexed, the records are loaded as by
+	 * readStudentRecords() and returned as LazyStudents that are already
+	 * loaded.  If the file doesn't exist a FileNotFoundException is thrown.
+	 * @param fileName name of file to index
+	 * @return placeholders for the Student records
+	 * @throws FileNotFoundException if the file doesn't exist
+	 */
+	public static List<LazyStudent> indexStudentRecords(String fileName) throws FileNotFoundException {
+		long start = Metrics.start();
+		try {
+			List<LazyStudent> students = index(fileName);
+			RECORDS_READ.add(students.size());
+			return students;
+		} finally {
+			INDEX.recordSince(start);
+		}
+	}
+
+	/**
+	 * Indexes Student records in the given file as indexStudentRecords()
+	 * does.
+	 * @param fileName name of file to index
+	 * @return placeholders for the Student records
+	 * @throws FileNotFoundException if the file doesn't exist
+	 */
+	private static List<LazyStudent> index(String fileName) throws FileNotFoundException {
+		Charset charset = Charset.defaultCharset();
+		if (StudentRecordLoader.canLoad(charset)) {
+			return StudentRecordLoader.index(fileName);
+		}
+		List<LazyStudent> students = new ArrayList<LazyStudent>();
+		for (Student s : scanStudentRecords(fileName, charset)) {
+			students.add(new LazyStudent(s));
+		}
+		return students;
+	}
+
+	/**
+	 * Reads Student records from the given file with a Scanner.
+	 * @param fileName name of file to read
+	 * @param charset charset of the file
+	 * @return Student records
+	 * @throws FileNotFoundException if the file doesn't exist
+	 */
+	static List<Student> scanStudentRecords(String fileName, Charset charset) throws FileNotFoundException {
 		List<Student> students = new ArrayList<Student>();
 			
-		Scanner fileScanner = new Scanner(new FileInputStream(fileName));
+		Scanner fileScanner = new Scanner(new FileInputStream(fileName), charset.name());
 		while (fileScanner.hasNextLine()) {
 			try {
 				students.add(processStudent(fileScanner.nextLine()));
@@ -64,10 +146,7 @@ public class StudentRecordIO {
 					throw new NoSuchElementException();
 				}
 				
-				if (s.canAddCourse(c) && c.canEnroll(s)) {
-					s.addCourse(c);
-					c.enroll(s);
-				}
+				EnrollmentTransaction.enroll(s, c);
 			} 
 			lineScanner.close();
 			return s;
@@ -78,19 +157,37 @@ public class StudentRecordIO {
 	}
 	
 	/**
-	 * Writes the information about the courses to the given file.
+	 * Writes the information about the students to the given file.  The
+	 * file is replaced only once every student is written.  A Student's
+	 * credit limit and courses are read together while the Student is
+	 * locked, so its record is consistent.
 	 * @param fileName file name to record data
-	 * @param courses list of courses
+	 * @param students list of students
 	 * @throws IOException if cannot write to file
 	 */
 	public static void writeStudentRecords(String fileName, List<Student> students) throws IOException {
-		PrintWriter fileOut = new PrintWriter(new FileWriter(fileName));
-		
-		for (Student s: students) {
-			fileOut.println(s.toString());
+		long start = Metrics.start();
+		try (RecordWriter fileOut = new RecordWriter(fileName)) {
+			for (Student s: students) {
+				int maxCredits;
+				Course [] courses;
+				synchronized (s) {
+					maxCredits = s.getMaxCredits();
+					courses = s.getCourses();
+				}
+				fileOut.write(s.getFirstName()).write(',').write(s.getLastName()).write(',')
+						.write(s.getId()).write(',').write(s.getEmail()).write(',')
+						.write(s.getPassword()).write(',').write(maxCredits);
+				for (Course c : courses) {
+					fileOut.write(',').write(c.getName());
+				}
+				fileOut.newLine();
+			}
+			fileOut.commit();
+			RECORDS_WRITTEN.add(students.size());
+		} finally {
+			WRITE.recordSince(start);
 		}
-		
-		fileOut.close();
 	}
 
 }
@@ -0,0 +1,848 @@
+/**
+ *
+ */
+package my_package.io;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import my_package.courses.Course;
+import my_package.manager.CourseManager;
+import my_package.manager.EnrollmentTransaction;
+import my_package.users.Student;
+
+/**
+ * Loads Student records from a memory-mapped file.  The file is mapped a
+ * window at a time; each window ends at a line boundary and a line cut
+ * off by the end of a window starts the next one, so files larger than
+ * a single mapping can be loaded.  Lines are split and tokenized on the
+ * mapped bytes.  Only the fields a Student keeps are turned into
+ * Strings: the credit limit is parsed from a reused char array and
+ * course names are matched against the encoded names of the catalog's
+ * Courses.
+ *
+ * Each window is loaded in two phases.  First the window is cut into
+ * chunks at line boundaries and the chunks are parsed in parallel on the
+ * common fork-join pool.  Parsing creates each line's Student and looks
+ * up its Courses but does not enroll it; parsing does not change any
+ * shared state, so the chunks can be parsed in any order.  Then the
+ * parsed lines are linked one at a time in file order: each Student is
+ * enrolled in its Courses and added to the list.  Because enrollments
+ * are made in the same order as a sequential read, every Course fills up
+ * with the same Students.
+ *
+ * The loader can also index a file instead of loading it.  Indexing
+ * parses and checks every line the same way but keeps only each valid
+ * line's offset, id and credit limit in a LazyStudent, and enrolls the
+ * LazyStudent in its Courses in file order, so the Courses fill up with
+ * the same students without any Student being created.
+ *
+ * Records are read exactly as StudentRecordIO's Scanner based reader
+ * read them with the same charset, including a Student's enrollments
+ * being made in file order as each course name is read.  Splitting lines
+ * on bytes only works when a comma and the line terminators can be
+ * recognized without decoding the rest of the line, so only single byte
+ * charsets and UTF-8 are supported; see canLoad().
+ *
+ * @author jim2
+ *
+ */
+public class StudentRecordLoader {
+	/** Bytes mapped at a time */
+	static final int WINDOW_SIZE = 64 << 20;
+	/** Bytes parsed by one fork-join task */
+	static final int CHUNK_SIZE = 1 << 20;
+
+	/** Byte that is not a comma or the start of a line terminator */
+	private static final byte OTHER = 0;
+	/** Byte that is a comma */
+	private static final byte COMMA = 1;
+	/** Byte that is a line feed */
+	private static final byte LINE_FEED = 2;
+	/** Byte that is a carriage return, which may be followed by a line feed */
+	private static final byte CARRIAGE_RETURN = 3;
+	/** UTF-8 lead byte of a multi-byte line terminator */
+	private static final byte TERMINATOR_LEAD = 4;
+	/** Course list of a line without course names */
+	private static final Course [] NO_COURSES = new Course[0];
+
+	/** Charset of the file */
+	private final Charset charset;
+	/** Kind of each byte value */
+	private final byte [] kinds = new byte[256];
+	/** Decoded character for each byte in a single byte charset, or null for UTF-8 */
+	private final char [] byteToChar;
+	/** Catalog Courses by encoded name */
+	private final CourseTable courses;
+	/** File being indexed, or null if the file is being loaded */
+	private final String indexedFileName;
+
+	/**
+	 * Creates a loader for the charset.
+	 * @param charset charset of the file; canLoad(charset) must be true
+	 * @param indexedFileName file to index, or null to load the file
+	 */
+	private StudentRecordLoader(Charset charset, String indexedFileName) {
+		this.charset = charset;
+		this.indexedFileName = indexedFileName;
+		if (isSingleByte(charset)) {
+			byteToChar = new char[256];
+			for (int b = 0; b < 256; b++) {
+				//Decode the same way InputStreamReader does
+				String s = new String(new byte [] {(byte) b}, charset);
+				byteToChar[b] = s.length() == 1 ? s.charAt(0) : '\uFFFD';
+				kinds[b] = kindOf(byteToChar[b]);
+			}
+		} else {
+			byteToChar = null;
+			for (int b = 0; b < 128; b++) {
+				kinds[b] = kindOf((char) b);
+			}
+			kinds[0xC2] = TERMINATOR_LEAD;
+			kinds[0xE2] = TERMINATOR_LEAD;
+		}
+		courses = new CourseTable(CourseManager.getInstance().listAllCourses(), charset);
+	}
+
+	/**
+	 * Returns true if files in the charset can be loaded.
+	 * @param charset charset of the file
+	 * @return true for UTF-8 and single byte charsets
+	 */
+	public static boolean canLoad(Charset charset) {
+		return StandardCharsets.UTF_8.equals(charset) || isSingleByte(charset);
+	}
+
+	/**
+	 * Returns true if every character of the charset is one byte.
+	 * @param charset charset to check
+	 * @return true for a single byte charset
+	 */
+	private static boolean isSingleByte(Charset charset) {
+		return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0f
+				&& charset.newDecoder().maxCharsPerByte() == 1.0f;
+	}
+
+	/**
+	 * Returns the kind of a decoded character.
+	 * @param c decoded character
+	 * @return byte kind
+	 */
+	private static byte kindOf(char c) {
+		switch (c) {
+		case ',':
+			return COMMA;
+		case '\r':
+			return CARRIAGE_RETURN;
+		case '\n':
+		case '\u0085':
+		case '\u2028':
+		case '\u2029':
+			return LINE_FEED;
+		default:
+			return OTHER;
+		}
+	}
+
+	/**
+	 * Loads the Student records in the file, which is in the platform
+	 * charset.  If the file doesn't exist a FileNotFoundException is
+	 * thrown.  A line with a format error will be ignored.  If the file
+	 * cannot be read to the end, the records read so far are returned.
+	 * @param fileName name of file to read
+	 * @return Student records
+	 * @throws FileNotFoundException if the file doesn't exist
+	 */
+	public static List<Student> load(String fileName) throws FileNotFoundException {
+		return load(fileName, Charset.defaultCharset(), WINDOW_SIZE, CHUNK_SIZE);
+	}
+
+	/**
+	 * Loads the Student records in the file.
+	 * @param fileName name of file to read
+	 * @param charset charset of the file
+	 * @param windowSize bytes to map at a time
+	 * @param chunkSize bytes to parse in one task
+	 * @return Student records
+	 * @throws FileNotFoundException if the file doesn't exist
+	 */
+	static List<Student> load(String fileName, Charset charset, int windowSize, int chunkSize)
+			throws FileNotFoundException {
+		if (!canLoad(charset)) {
+			throw new IllegalArgumentException("Unsupported charset " + charset);
+		}
+		List<Student> students = new ArrayList<Student>();
+		new StudentRecordLoader(charset, null).read(fileName, windowSize, chunkSize, students, null);
+		return students;
+	}
+
+	/**
+	 * Indexes the Student records in the file, which is in the platform
+	 * charset, and enrolls them in their Courses without loading them.
+	 * Returns a LazyStudent for each record that load() would return, in
+	 * the same order.  The Students of records that load() would enroll
+	 * but not return are loaded right away.  If the file doesn't exist a
+	 * FileNotFoundException is thrown.
+	 * @param fileName name of file to index
+	 * @return placeholders for the Student records
+	 * @throws FileNotFoundException if the file doesn't exist
+	 */
+	public static List<LazyStudent> index(String fileName) throws FileNotFoundException {
+		return index(fileName, Charset.defaultCharset(), WINDOW_SIZE, CHUNK_SIZE);
+	}
+
+	/**
+	 * Indexes the Student records in the file.
+	 * @param fileName name of file to index
+	 * @param charset charset of the file
+	 * @param windowSize bytes to map at a time
+	 * @param chunkSize bytes to parse in one task
+	 * @return placeholders for the Student records
+	 * @throws FileNotFoundException if the file doesn't exist
+	 */
+	static List<LazyStudent> index(String fileName, Charset charset, int windowSize, int chunkSize)
+			throws FileNotFoundException {
+		if (!canLoad(charset)) {
+			throw new IllegalArgumentException("Unsupported charset " + charset);
+		}
+		List<LazyStudent> students = new ArrayList<LazyStudent>();
+		new StudentRecordLoader(charset, fileName).read(fileName, windowSize, chunkSize, null, students);
+		return students;
+	}
+
+	/**
+	 * Reads the file a window at a time, loading or indexing the records.
+	 * If the file cannot be read to the end, the records read so far are
+	 * kept.
+	 * @param fileName name of file to read
+	 * @param windowSize bytes to map at a time
+	 * @param chunkSize bytes to parse in one task
+	 * @param students list to add loaded Students to, or null when indexing
+	 * @param lazyStudents list to add LazyStudents to, or null when loading
+	 * @throws FileNotFoundException if the file doesn't exist
+	 */
+	private void read(String fileName, int windowSize, int chunkSize, List<Student> students,
+			List<LazyStudent> lazyStudents) throws FileNotFoundException {
+		FileInputStream in = new FileInputStream(fileName);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			long offset = 0;
+			int window = windowSize;
+			while (offset < size) {
+				int length = (int) Math.min(window, size - offset);
+				boolean last = offset + length == size;
+				ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+				int end = last ? length : lastLineStart(buf, length);
+				if (end > 0) {
+					link(parse(buf, offset, end, chunkSize), students, lazyStudents);
+					offset += end;
+					window = windowSize;
+				} else if (window < Integer.MAX_VALUE) {
+					//No line ends in this window, so map a bigger one
+					window = (int) Math.min(window * 2L, Integer.MAX_VALUE);
+				} else {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			//Stop at a read error and keep the Students read so far
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				//Nothing more to read
+			}
+		}
+	}
+
+	/**
+	 * Reads one record that was indexed and creates its Student.  The
+	 * Student is not enrolled in any Course.  An IllegalArgumentException
+	 * is thrown if the record cannot be read or is no longer valid.
+	 * @param fileName student record file
+	 * @param offset offset of the record
+	 * @param length length of the record in bytes
+	 * @return the record's Student
+	 */
+	Student loadRecord(String fileName, long offset, int length) {
+		ByteBuffer buf = ByteBuffer.allocate(length);
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			while (buf.hasRemaining()) {
+				if (channel.read(buf, offset + buf.position()) < 0) {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+		buf.flip();
+		List<ParsedStudent> parsed = new ChunkParser(buf, offset, false).parse(0, buf.limit());
+		if (parsed.size() != 1) {
+			throw new IllegalArgumentException("Student records have changed.");
+		}
+		return parsed.get(0).student;
+	}
+
+	/**
+	 * Returns true if a line ends just before offset q.  Only the bytes
+	 * before q and the byte at q are examined, so this can be called at
+	 * any offset, even one in the middle of a character.
+	 * @param buf mapped bytes
+	 * @param q offset to check; greater than 0
+	 * @param limit number of bytes in buf
+	 * @return true if q is the start of a line
+	 */
+	private boolean isLineStart(ByteBuffer buf, int q, int limit) {
+		byte b = buf.get(q - 1);
+		byte kind = kinds[b & 0xFF];
+		if (kind == LINE_FEED) {
+			return true;
+		}
+		if (kind == CARRIAGE_RETURN) {
+			//Unless the next byte is known, the \r may be part of \r\n
+			return q < limit && !isLineFeed(buf.get(q));
+		}
+		if (byteToChar != null) {
+			return false;
+		}
+		//UTF-8 lead bytes are never continuation bytes, so a C2 or E2 is
+		//always the start of the terminator
+		if (b == (byte) 0x85) {
+			return q >= 2 && buf.get(q - 2) == (byte) 0xC2;
+		}
+		if (b == (byte) 0xA8 || b == (byte) 0xA9) {
+			return q >= 3 && buf.get(q - 2) == (byte) 0x80 && buf.get(q - 3) == (byte) 0xE2;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the offset of the start of the last line in the buffer that
+	 * may not be complete.
+	 * @param buf mapped bytes
+	 * @param limit number of bytes in buf
+	 * @return offset after the last complete line, or 0 if there is none
+	 */
+	private int lastLineStart(ByteBuffer buf, int limit) {
+		for (int q = limit; q > 0; q--) {
+			if (isLineStart(buf, q, limit)) {
+				return q;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Parses the complete lines in the buffer in parallel.
+	 * @param buf mapped bytes
+	 * @param base offset of the buffer in the file
+	 * @param end offset after the last complete line
+	 * @param chunkSize bytes to parse in one task
+	 * @return parsed lines in file order
+	 */
+	private List<ParsedStudent> parse(ByteBuffer buf, long base, int end, int chunkSize) {
+		//Cut the buffer into chunks that start at line boundaries
+		List<Integer> bounds = new ArrayList<Integer>();
+		bounds.add(0);
+		for (int p = chunkSize; p < end; p += chunkSize) {
+			while (p < end && !isLineStart(buf, p, end)) {
+				p++;
+			}
+			if (p < end) {
+				bounds.add(p);
+			}
+		}
+		bounds.add(end);
+
+		List<List<ParsedStudent>> chunks = new ArrayList<List<ParsedStudent>>();
+		for (int i = 1; i < bounds.size(); i++) {
+			chunks.add(null);
+		}
+		ForkJoinPool.commonPool().invoke(new ParseTask(buf, base, bounds, chunks, 0, chunks.size()));
+
+		List<ParsedStudent> parsed = new ArrayList<ParsedStudent>();
+		for (List<ParsedStudent> chunk : chunks) {
+			parsed.addAll(chunk);
+		}
+		return parsed;
+	}
+
+	/**
+	 * Enrolls the parsed Students in their Courses in file order and adds
+	 * the Students to the list.  As with a sequential read, a line with an
+	 * unknown course name keeps the enrollments made before the name but
+	 * its Student is not added.
+	 * @param parsed parsed lines in file order
+	 * @param students list to add loaded Students to, or null when indexing
+	 * @param lazyStudents list to add LazyStudents to, or null when loading
+	 */
+	private void link(List<ParsedStudent> parsed, List<Student> students, List<LazyStudent> lazyStudents) {
+		for (ParsedStudent p : parsed) {
+			boolean valid = true;
+			for (Course c : p.courses) {
+				if (c == null) {
+					valid = false;
+					break;
+				}
+				if (p.student != null) {
+					EnrollmentTransaction.enroll(p.student, c);
+				} else {
+					p.lazyStudent.enroll(c);
+				}
+			}
+			if (!valid) {
+				if (p.lazyStudent != null) {
+					//Only the rosters can reach this Student, so read it now
+					//while the file is sure to be the one that was indexed
+					p.lazyStudent.get();
+				}
+			} else if (p.student != null) {
+				students.add(p.student);
+			} else {
+				lazyStudents.add(p.lazyStudent);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the byte decodes to a line feed.
+	 * @param b byte to check
+	 * @return true for a line feed
+	 */
+	private boolean isLineFeed(byte b) {
+		return byteToChar == null ? b == '\n' : byteToChar[b & 0xFF] == '\n';
+	}
+
+	/**
+	 * A parsed line: its Student or LazyStudent and its Courses in file
+	 * order.  A null Course stands for a course name that is not in the
+	 * catalog and is always the last one.
+	 */
+	private static final class ParsedStudent {
+		/** Student on the line, or null when indexing */
+		private final Student student;
+		/** Placeholder for the Student on the line, or null when loading */
+		private final LazyStudent lazyStudent;
+		/** Courses on the line */
+		private final Course [] courses;
+
+		/**
+		 * Creates a parsed line.
+		 * @param student Student on the line, or null
+		 * @param lazyStudent placeholder for the Student, or null
+		 * @param courses Courses on the line
+		 */
+		ParsedStudent(Student student, LazyStudent lazyStudent, Course [] courses) {
+			this.student = student;
+			this.lazyStudent = lazyStudent;
+			this.courses = courses;
+		}
+	}
+
+	/**
+	 * Parses a range of chunks, splitting the range in half until a single
+	 * chunk is left.
+	 */
+	private final class ParseTask extends RecursiveAction {
+		/** Serial version UID */
+		private static final long serialVersionUID = 1L;
+		/** Mapped bytes */
+		private final ByteBuffer buf;
+		/** Offset of the mapped bytes in the file */
+		private final long base;
+		/** Chunk boundaries; chunk i is bounds[i] to bounds[i + 1] */
+		private final List<Integer> bounds;
+		/** Parsed lines of each chunk */
+		private final List<List<ParsedStudent>> chunks;
+		/** First chunk to parse */
+		private final int lo;
+		/** Chunk after the last chunk to parse */
+		private final int hi;
+
+		/**
+		 * Creates a task for chunks lo to hi.
+		 * @param buf mapped bytes
+		 * @param base offset of the mapped bytes in the file
+		 * @param bounds chunk boundaries
+		 * @param chunks parsed lines of each chunk
+		 * @param lo first chunk to parse
+		 * @param hi chunk after the last chunk to parse
+		 */
+		ParseTask(ByteBuffer buf, long base, List<Integer> bounds, List<List<ParsedStudent>> chunks, int lo, int hi) {
+			this.buf = buf;
+			this.base = base;
+			this.bounds = bounds;
+			this.chunks = chunks;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (hi - lo == 1) {
+				chunks.set(lo, new ChunkParser(buf, base, indexedFileName != null).parse(bounds.get(lo), bounds.get(hi)));
+			} else {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new ParseTask(buf, base, bounds, chunks, lo, mid),
+						new ParseTask(buf, base, bounds, chunks, mid, hi));
+			}
+		}
+	}
+
+	/**
+	 * Parses the lines of one chunk.  Each task has its own parser, so the
+	 * scratch arrays and decoder are never shared between threads.
+	 */
+	private final class ChunkParser {
+		/** Mapped bytes */
+		private final ByteBuffer buf;
+		/** Offset of the mapped bytes in the file */
+		private final long base;
+		/** True to create LazyStudents instead of Students */
+		private final boolean indexing;
+		/** UTF-8 decoder for fields with non-ASCII bytes, or null for a single byte charset */
+		private final CharsetDecoder decoder;
+		/** Decoded characters of the current field */
+		private char [] chars = new char[256];
+		/** Offsets of the commas in the current line */
+		private int [] commas = new int[16];
+		/** Number of commas in the current line */
+		private int commaCount;
+		/** Parsed lines */
+		private final List<ParsedStudent> parsed = new ArrayList<ParsedStudent>();
+
+		/**
+		 * Creates a parser for the mapped bytes.
+		 * @param buf mapped bytes
+		 * @param base offset of the mapped bytes in the file
+		 * @param indexing true to create LazyStudents instead of Students
+		 */
+		ChunkParser(ByteBuffer buf, long base, boolean indexing) {
+			this.buf = buf;
+			this.base = base;
+			this.indexing = indexing;
+			if (byteToChar == null) {
+				decoder = charset.newDecoder()
+						.onMalformedInput(CodingErrorAction.REPLACE)
+						.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			} else {
+				decoder = null;
+			}
+		}
+
+		/**
+		 * Parses the lines from start to end.  start is the start of a line
+		 * and end is the start of a line or the end of the file.
+		 * @param start offset of the first line
+		 * @param end offset after the last line
+		 * @return parsed lines
+		 */
+		List<ParsedStudent> parse(int start, int end) {
+			int lineStart = start;
+			commaCount = 0;
+			for (int i = start; i < end; i++) {
+				byte kind = kinds[buf.get(i) & 0xFF];
+				if (kind == OTHER) {
+					continue;
+				}
+				if (kind == COMMA) {
+					if (commaCount == commas.length) {
+						int [] bigger = new int[commas.length * 2];
+						System.arraycopy(commas, 0, bigger, 0, commaCount);
+						commas = bigger;
+					}
+					commas[commaCount++] = i;
+					continue;
+				}
+				int terminator = terminatorLength(i, end, kind);
+				if (terminator > 0) {
+					parseLine(lineStart, i);
+					commaCount = 0;
+					i += terminator - 1;
+					lineStart = i + 1;
+				}
+			}
+			if (lineStart < end) {
+				parseLine(lineStart, end);
+			}
+			return parsed;
+		}
+
+		/**
+		 * Returns the length of the line terminator that starts at i.
+		 * @param i offset of the byte
+		 * @param end offset after the last line
+		 * @param kind kind of the byte at i
+		 * @return length of the terminator or 0 if there is none
+		 */
+		private int terminatorLength(int i, int end, byte kind) {
+			if (kind == LINE_FEED) {
+				return 1;
+			}
+			if (kind == CARRIAGE_RETURN) {
+				return i + 1 < end && isLineFeed(buf.get(i + 1)) ? 2 : 1;
+			}
+			//UTF-8 next line is C2 85; line and paragraph separators are E2 80 A8 and E2 80 A9
+			if (buf.get(i) == (byte) 0xC2) {
+				return i + 2 <= end && buf.get(i + 1) == (byte) 0x85 ? 2 : 0;
+			}
+			if (i + 3 > end) {
+				return 0;
+			}
+			byte last = buf.get(i + 2);
+			return buf.get(i + 1) == (byte) 0x80 && (last == (byte) 0xA8 || last == (byte) 0xA9) ? 3 : 0;
+		}
+
+		/**
+		 * Creates a Student or LazyStudent from the line, which starts at
+		 * start and whose commas are in commas, and looks up its Courses.  A
+		 * line with a format error is ignored.
+		 * @param start offset of the line
+		 * @param end offset of the line terminator
+		 */
+		private void parseLine(int start, int end) {
+			long recordOffset = base + start;
+			int recordLength = end - start;
+			//Like the Scanner, skip one comma at the start of the line and
+			//one at the end
+			int first = 0;
+			int last = commaCount;
+			if (last > 0 && commas[0] == start) {
+				start++;
+				first++;
+			}
+			if (last > first && commas[last - 1] == end - 1) {
+				end--;
+				last--;
+			}
+			//Fields are separated by commas[first..last)
+			if (start == end || last - first < 5) {
+				return;
+			}
+			int fieldEnd = first + 5 < last ? commas[first + 5] : end;
+			long maxCredits = CourseRecordReader.parseInt(chars, 0, decodeChars(commas[first + 4] + 1, fieldEnd));
+			if (maxCredits < 0 || maxCredits > Student.MAX_CREDITS) {
+				return;
+			}
+			Student s = null;
+			LazyStudent lazyStudent = null;
+			if (indexing) {
+				//Make the Student constructor's checks without keeping the
+				//fields; a field decodes to at least one char per byte
+				String id = decode(commas[first + 1] + 1, commas[first + 2]);
+				if (commas[first] == start || commas[first + 1] == commas[first] + 1 || id.length() == 0
+						|| !isEmail(commas[first + 2] + 1, commas[first + 3])
+						|| commas[first + 4] == commas[first + 3] + 1) {
+					return;
+				}
+				lazyStudent = new LazyStudent(StudentRecordLoader.this, indexedFileName, recordOffset, recordLength,
+						id, (int) maxCredits);
+			} else {
+				String firstName = decode(start, commas[first]);
+				String lastName = decode(commas[first] + 1, commas[first + 1]);
+				String id = decode(commas[first + 1] + 1, commas[first + 2]);
+				String email = decode(commas[first + 2] + 1, commas[first + 3]);
+				String password = decode(commas[first + 3] + 1, commas[first + 4]);
+				try {
+					s = new Student(firstName, lastName, id, email, password, (int) maxCredits);
+				} catch (IllegalArgumentException e) {
+					return;
+				}
+			}
+			Course [] lineCourses = NO_COURSES;
+			int count = 0;
+			for (int c = first + 5; c < last; c++) {
+				int nameEnd = c + 1 < last ? commas[c + 1] : end;
+				Course course = courses.get(buf, commas[c] + 1, nameEnd);
+				if (course == null) {
+					course = CourseManager.getInstance().getCourseByName(decode(commas[c] + 1, nameEnd));
+				}
+				if (lineCourses == NO_COURSES) {
+					lineCourses = new Course[last - c];
+				}
+				lineCourses[count++] = course;
+				if (course == null) {
+					//Names after an unknown name are never looked at
+					break;
+				}
+			}
+			if (count < lineCourses.length) {
+				Course [] trimmed = new Course[count];
+				System.arraycopy(lineCourses, 0, trimmed, 0, count);
+				lineCourses = trimmed;
+			}
+			parsed.add(new ParsedStudent(s, lazyStudent, lineCourses));
+		}
+
+		/**
+		 * Returns true if the field passes User.setEmail()'s checks: it has
+		 * an '@' and a '.' after the first '@'.
+		 * @param from offset of the field
+		 * @param to offset after the field
+		 * @return true for a valid email
+		 */
+		private boolean isEmail(int from, int to) {
+			int length = decodeChars(from, to);
+			int at = -1;
+			int dot = -1;
+			for (int i = 0; i < length; i++) {
+				if (chars[i] == '@' && at == -1) {
+					at = i;
+				} else if (chars[i] == '.') {
+					dot = i;
+				}
+			}
+			return at != -1 && dot > at;
+		}
+
+		/**
+		 * Decodes the bytes into a String.
+		 * @param from offset of the first byte
+		 * @param to offset after the last byte
+		 * @return decoded String
+		 */
+		private String decode(int from, int to) {
+			return new String(chars, 0, decodeChars(from, to));
+		}
+
+		/**
+		 * Decodes the bytes into the chars array.
+		 * @param from offset of the first byte
+		 * @param to offset after the last byte
+		 * @return number of chars
+		 */
+		private int decodeChars(int from, int to) {
+			int length = to - from;
+			if (chars.length < length) {
+				chars = new char[Math.max(length, chars.length * 2)];
+			}
+			if (byteToChar != null) {
+				for (int i = 0; i < length; i++) {
+					chars[i] = byteToChar[buf.get(from + i) & 0xFF];
+				}
+				return length;
+			}
+			for (int i = 0; i < length; i++) {
+				byte b = buf.get(from + i);
+				if (b < 0) {
+					//Not ASCII; a UTF-8 field never has more chars than bytes
+					ByteBuffer in = buf.duplicate();
+					in.limit(to);
+					in.position(from);
+					CharBuffer out = CharBuffer.wrap(chars);
+					decoder.reset();
+					decoder.decode(in, out, true);
+					decoder.flush(out);
+					return out.position();
+				}
+				chars[i] = (char) b;
+			}
+			return length;
+		}
+	}
+
+	/**
+	 * Courses found by the bytes of their encoded names.  Only names that
+	 * decode back to themselves are included, so a match is always the
+	 * Course that CourseManager.getCourseByName() would return.
+	 */
+	private static final class CourseTable {
+		/** Encoded names; open addressing */
+		private final byte [][] names;
+		/** Courses for the names */
+		private final Course [] values;
+
+		/**
+		 * Creates a table of the Courses.
+		 * @param catalog Courses to include
+		 * @param charset charset of the names
+		 */
+		CourseTable(Course [] catalog, Charset charset) {
+			int size = 16;
+			while (size < catalog.length * 2) {
+				size *= 2;
+			}
+			names = new byte[size][];
+			values = new Course[size];
+			for (Course c : catalog) {
+				byte [] name = c.getName().getBytes(charset);
+				if (!new String(name, charset).equals(c.getName())) {
+					continue;
+				}
+				int slot = hash(ByteBuffer.wrap(name), 0, name.length) & (size - 1);
+				while (names[slot] != null) {
+					slot = (slot + 1) & (size - 1);
+				}
+				names[slot] = name;
+				values[slot] = c;
+			}
+		}
+
+		/**
+		 * Returns the Course whose encoded name is the bytes.
+		 * @param buf bytes of the name
+		 * @param from offset of the first byte
+		 * @param to offset after the last byte
+		 * @return Course or null if the name is not in the table
+		 */
+		Course get(ByteBuffer buf, int from, int to) {
+			int mask = names.length - 1;
+			for (int slot = hash(buf, from, to) & mask; names[slot] != null; slot = (slot + 1) & mask) {
+				byte [] name = names[slot];
+				if (name.length == to - from && matches(name, buf, from)) {
+					return values[slot];
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Returns true if the bytes at from are the name.
+		 * @param name encoded name
+		 * @param buf bytes to compare
+		 * @param from offset of the first byte
+		 * @return true if they are the same
+		 */
+		private static boolean matches(byte [] name, ByteBuffer buf, int from) {
+			for (int i = 0; i < name.length; i++) {
+				if (name[i] != buf.get(from + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Hashes the bytes.
+		 * @param buf bytes to hash
+		 * @param from offset of the first byte
+		 * @param to offset after the last byte
+		 * @return hash
+		 */
+		private static int hash(ByteBuffer buf, int from, int to) {
+			int h = 0;
+			for (int i = from; i < to; i++) {
+				h = 31 * h + buf.get(i);
+			}
+			return h ^ (h >>> 16);
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/**
+ *
+ */
+package my_package.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import my_package.load.RegistrationLoad.Operation;
+import my_package.metrics.LatencyHistogram;
+
+/**
+ * The results of a RegistrationLoad run: how many operations of each kind
+ * were made and how long they took, how the adds and drops turned out,
+ * and every overbooking or consistency violation that was found during
+ * or after the run.
+ *
+ * @author jim2
+ *
+ */
+public class LoadReport {
+	/** Most violation messages that are kept */
+	static final int MAX_MESSAGES = 100;
+
+	/** Number of clients */
+	private final int clients;
+	/** Time from the start of the run until the last client finished */
+	private final long elapsedNanos;
+	/** Latencies of each kind of operation */
+	private final Map<Operation, LatencyHistogram> latencies;
+	/** Adds that enrolled the student */
+	private final long added;
+	/** Drops that removed the course */
+	private final long dropped;
+	/** Logins with an unknown id or a wrong password */
+	private final long failedLogins;
+	/** Number of violations found */
+	private final long violationCount;
+	/** Messages for the first MAX_MESSAGES violations */
+	private final List<String> violations;
+
+	/**
+	 * Creates a report.
+	 * @param clients number of clients
+	 * @param elapsedNanos time the run took
+	 * @param latencies latencies of each kind of operation
+	 * @param added adds that enrolled the student
+	 * @param dropped drops that removed the course
+	 * @param failedLogins failed logins
+	 * @param violationCount number of violations found
+	 * @param violations messages for the first violations
+	 */
+	LoadReport(int clients, long elapsedNanos, Map<Operation, LatencyHistogram> latencies, long added,
+			long dropped, long failedLogins, long violationCount, List<String> violations) {
+		this.clients = clients;
+		this.elapsedNanos = elapsedNanos;
+		this.latencies = new EnumMap<Operation, LatencyHistogram>(latencies);
+		this.added = added;
+		this.dropped = dropped;
+		this.failedLogins = failedLogins;
+		this.violationCount = violationCount;
+		this.violations = Collections.unmodifiableList(new ArrayList<String>(violations));
+	}
+
+	/**
+	 * @return the number of clients
+	 */
+	public int getClients() {
+		return clients;
+	}
+
+	/**
+	 * @return the time the run took in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the number of operations of the given kind.
+	 * @param operation kind of operation
+	 * @return number of operations
+	 */
+	public long getCount(Operation operation) {
+		return latencies.get(operation).getCount();
+	}
+
+	/**
+	 * Returns the total number of operations.
+	 * @return number of operations
+	 */
+	public long getOperations() {
+		long total = 0;
+		for (LatencyHistogram h : latencies.values()) {
+			total += h.getCount();
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the operations completed per second over the whole run.
+	 * @return operations per second
+	 */
+	public double getThroughput() {
+		return elapsedNanos == 0 ? 0 : getOperations() * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * Returns the latencies of the given kind of operation.
+	 * @param operation kind of operation
+	 * @return latency histogram
+	 */
+	public LatencyHistogram getLatency(Operation operation) {
+		return latencies.get(operation);
+	}
+
+	/**
+	 * @return the adds that enrolled the student
+	 */
+	public long getAdded() {
+		return added;
+	}
+
+	/**
+	 * @return the drops that removed the course
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @return the logins with an unknown id or a wrong password
+	 */
+	public long getFailedLogins() {
+		return failedLogins;
+	}
+
+	/**
+	 * @return the number of violations found
+	 */
+	public long getViolationCount() {
+		return violationCount;
+	}
+
+	/**
+	 * Returns messages for the first violations found, at most
+	 * MAX_MESSAGES of them.
+	 * @return violation messages
+	 */
+	public List<String> getViolations() {
+		return violations;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		s.append(String.format("clients=%d operations=%d elapsed=%.2fs throughput=%,.0f ops/s%n", clients,
+				getOperations(), elapsedNanos / 1e9, getThroughput()));
+		s.append(String.format("%-8s %10s %10s %10s %10s %10s%n", "op", "count", "p50 us", "p99 us",
+				"p99.9 us", "max us"));
+		for (Map.Entry<Operation, LatencyHistogram> e : latencies.entrySet()) {
+			LatencyHistogram h = e.getValue();
+			s.append(String.format("%-8s %10d %10.1f %10.1f %10.1f %10.1f%n", e.getKey(), h.getCount(),
+					h.getP50() / 1e3, h.getP99() / 1e3, h.getP999() / 1e3, h.getMax() / 1e3));
+		}
+		s.append(String.format("added=%d dropped=%d failedLogins=%d violations=%d%n", added, dropped,
+				failedLogins, violationCount));
+		for (String v : violations) {
+			s.append("  ").append(v).append(String.format("%n"));
+		}
+		return s.toString();
+	}
+}
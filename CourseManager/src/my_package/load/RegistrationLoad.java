@@ -0,0 +1,705 @@
+/**
+ *
+ */
+package my_package.load;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import my_package.courses.Course;
+import my_package.io.EnrollmentJournal;
+import my_package.manager.CourseManager;
+import my_package.manager.Session;
+import my_package.metrics.LatencyHistogram;
+import my_package.users.Student;
+import my_package.users.User;
+
+/**
+ * Drives a CourseManager in the same JVM the way registration day does:
+ * many clients at once, each logging in, browsing the catalog, adding
+ * and dropping courses, with much of the demand on a few hot sections.
+ * It reports throughput, latency percentiles for each kind of operation
+ * and any overbooking or inconsistency it sees.
+ *
+ * Each client owns the students whose index in the id list is equal to
+ * the client's number modulo the number of clients, and no other client
+ * acts for them.  A client can therefore keep a model of its students'
+ * schedules and check every add and drop against it.  After the run,
+ * every course is checked to be within its capacity and every roster
+ * and schedule are checked to agree with each other and with the
+ * models.
+ *
+ * The operations a client makes come from a Random seeded with the seed
+ * and the client's number, so a run can be repeated.  Which adds succeed
+ * depends on how the clients interleave.
+ *
+ * A journal written by CourseManager can also be replayed as load.  Each
+ * student's adds and drops are made in journal order by the client the
+ * student's id hashes to.
+ *
+ * Usage: RegistrationLoad [name=value ...] with the names
+ * <ul>
+ * <li>clients, operations (per client), seed</li>
+ * <li>mix: percent of logins, browses, adds and drops, as 10,40,35,15</li>
+ * <li>hot (number of hot courses) and hotShare (share of adds to them)</li>
+ * <li>courses and students to generate, or courseFile, studentFile and
+ *     password to load</li>
+ * <li>replay: journal to replay instead of generating operations</li>
+ * </ul>
+ *
+ * @author jim2
+ *
+ */
+public class RegistrationLoad {
+	/** Password of generated students */
+	static final String PASSWORD = "pw";
+	/** Number of courses a browse reads */
+	static final int PAGE_SIZE = 20;
+
+	/**
+	 * The kinds of operation a client makes.
+	 */
+	public enum Operation {
+		/** openSession() as one of the client's students */
+		LOGIN,
+		/** Reads a page of the catalog */
+		BROWSE,
+		/** addUserToCourse() */
+		ADD,
+		/** removeUserFromCourse() */
+		DROP
+	}
+
+	/** CourseManager under load */
+	private final CourseManager manager;
+	/** Ids of the students the clients log in as */
+	private final String [] ids;
+	/** Password of every student */
+	private final String password;
+	/** Number of clients */
+	private int clients = 16;
+	/** Operations made by each client */
+	private int operations = 1000;
+	/** Percent of operations of each kind */
+	private int [] mix = {10, 40, 35, 15};
+	/** Number of hot courses */
+	private int hotCourses = 5;
+	/** Share of adds that go to the hot courses */
+	private double hotShare = 0.5;
+	/** Seed for the clients' Randoms */
+	private long seed = 1;
+
+	/** Latencies of each kind of operation in the current run */
+	private Map<Operation, LatencyHistogram> latencies;
+	/** Adds that enrolled the student */
+	private final AtomicLong added = new AtomicLong();
+	/** Drops that removed the course */
+	private final AtomicLong dropped = new AtomicLong();
+	/** Failed logins */
+	private final AtomicLong failedLogins = new AtomicLong();
+	/** Number of violations found */
+	private final AtomicLong violationCount = new AtomicLong();
+	/** Messages for the first violations found */
+	private final List<String> violations = new ArrayList<String>();
+
+	/**
+	 * Creates a RegistrationLoad for the given students, who must all have
+	 * the given password.
+	 * @param manager CourseManager to drive
+	 * @param ids ids of the students to log in as
+	 * @param password password of the students
+	 */
+	public RegistrationLoad(CourseManager manager, List<String> ids, String password) {
+		if (manager == null || ids == null || ids.isEmpty() || password == null) {
+			throw new IllegalArgumentException();
+		}
+		this.manager = manager;
+		this.ids = ids.toArray(new String[ids.size()]);
+		this.password = password;
+	}
+
+	/**
+	 * @param clients the number of clients to set
+	 */
+	public void setClients(int clients) {
+		if (clients < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.clients = clients;
+	}
+
+	/**
+	 * @param operations the number of operations each client makes
+	 */
+	public void setOperations(int operations) {
+		if (operations < 0) {
+			throw new IllegalArgumentException();
+		}
+		this.operations = operations;
+	}
+
+	/**
+	 * Sets the percent of operations of each kind.  The percents must not
+	 * be negative and must add up to 100.
+	 * @param login percent of logins
+	 * @param browse percent of catalog browses
+	 * @param add percent of adds
+	 * @param drop percent of drops
+	 */
+	public void setMix(int login, int browse, int add, int drop) {
+		if (login < 0 || browse < 0 || add < 0 || drop < 0 || login + browse + add + drop != 100) {
+			throw new IllegalArgumentException();
+		}
+		this.mix = new int[] {login, browse, add, drop};
+	}
+
+	/**
+	 * Sets how skewed the demand for courses is.  The hot courses are
+	 * picked at random from the catalog when a run starts.
+	 * @param hotCourses number of hot courses
+	 * @param hotShare share of adds that go to the hot courses, from 0 to 1
+	 */
+	public void setHotCourses(int hotCourses, double hotShare) {
+		if (hotCourses < 0 || hotShare < 0 || hotShare > 1) {
+			throw new IllegalArgumentException();
+		}
+		this.hotCourses = hotCourses;
+		this.hotShare = hotShare;
+	}
+
+	/**
+	 * @param seed the seed for the clients' operations
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Runs the clients until each has made its operations, then checks
+	 * the CourseManager.
+	 * @return report of the run
+	 */
+	public LoadReport run() {
+		List<Course> catalog = manager.getCourseCatalog();
+		if (catalog.isEmpty()) {
+			throw new IllegalArgumentException("No courses");
+		}
+		Course [] courses = catalog.toArray(new Course[catalog.size()]);
+		Course [] hot = new Course[Math.min(hotCourses, courses.length)];
+		List<Course> shuffled = new ArrayList<Course>(catalog);
+		Collections.shuffle(shuffled, new Random(seed));
+		for (int i = 0; i < hot.length; i++) {
+			hot[i] = shuffled.get(i);
+		}
+
+		Client [] workers = new Client[clients];
+		for (int c = 0; c < clients; c++) {
+			List<String> own = new ArrayList<String>();
+			for (int i = c; i < ids.length; i += clients) {
+				own.add(ids[i]);
+			}
+			workers[c] = new Client(c, own, courses, hot, null);
+		}
+		return run(workers);
+	}
+
+	/**
+	 * Replays the adds and drops in a journal as load.  Courses created in
+	 * the journal are added to the CourseManager first if it does not have
+	 * them.  Capacity changes are not replayed, so a replay against the
+	 * files the journal started from can turn away adds that first
+	 * succeeded after a capacity was raised.  The journal is opened the way
+	 * CourseManager opens it, so a cut-off last line is trimmed.
+	 * @param journalFile journal to replay
+	 * @return report of the run
+	 */
+	public LoadReport replay(String journalFile) {
+		Map<String, List<String []>> scripts = new LinkedHashMap<String, List<String []>>();
+		try (EnrollmentJournal journal = new EnrollmentJournal(journalFile)) {
+			journal.replay(new EnrollmentJournal.Replayer() {
+				@Override
+				public void courseCreated(String name, int credits, int capacity) {
+					if (manager.getCourseByName(name) == null) {
+						manager.addCourse(new Course(name, credits, capacity));
+					}
+				}
+
+				@Override
+				public void capacityChanged(String name, int capacity) {
+					//Not replayed
+				}
+
+				@Override
+				public void enrolled(String id, String name) {
+					script(scripts, id).add(new String[] {"A", name});
+				}
+
+				@Override
+				public void dropped(String id, String name) {
+					script(scripts, id).add(new String[] {"D", name});
+				}
+			});
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+		List<Course> catalog = manager.getCourseCatalog();
+		Course [] courses = catalog.toArray(new Course[catalog.size()]);
+
+		List<List<String>> own = new ArrayList<List<String>>();
+		for (int c = 0; c < clients; c++) {
+			own.add(new ArrayList<String>());
+		}
+		for (String id : scripts.keySet()) {
+			own.get((id.hashCode() & Integer.MAX_VALUE) % clients).add(id);
+		}
+		Client [] workers = new Client[clients];
+		for (int c = 0; c < clients; c++) {
+			workers[c] = new Client(c, own.get(c), courses, new Course[0], scripts);
+		}
+		return run(workers);
+	}
+
+	/**
+	 * Returns a student's list of journaled changes, creating it if needed.
+	 * @param scripts changes of each student
+	 * @param id student id
+	 * @return student's changes
+	 */
+	private static List<String []> script(Map<String, List<String []>> scripts, String id) {
+		List<String []> script = scripts.get(id);
+		if (script == null) {
+			script = new ArrayList<String []>();
+			scripts.put(id, script);
+		}
+		return script;
+	}
+
+	/**
+	 * Starts the clients together, waits for them to finish and checks
+	 * the CourseManager.
+	 * @param workers clients to run
+	 * @return report of the run
+	 */
+	private LoadReport run(Client [] workers) {
+		latencies = new EnumMap<Operation, LatencyHistogram>(Operation.class);
+		for (Operation op : Operation.values()) {
+			latencies.put(op, new LatencyHistogram());
+		}
+		added.set(0);
+		dropped.set(0);
+		failedLogins.set(0);
+		violationCount.set(0);
+		synchronized (violations) {
+			violations.clear();
+		}
+
+		CountDownLatch start = new CountDownLatch(1);
+		Thread [] threads = new Thread[workers.length];
+		RuntimeException [] failure = new RuntimeException[1];
+		for (int c = 0; c < workers.length; c++) {
+			Client client = workers[c];
+			threads[c] = new Thread(() -> {
+				try {
+					start.await();
+					client.run();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (RuntimeException e) {
+					failure[0] = e;
+				}
+			}, "load-client-" + c);
+			threads[c].start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		try {
+			for (Thread t : threads) {
+				t.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		long elapsed = System.nanoTime() - begin;
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+
+		check(workers);
+		synchronized (violations) {
+			return new LoadReport(workers.length, elapsed, latencies, added.get(), dropped.get(),
+					failedLogins.get(), violationCount.get(), violations);
+		}
+	}
+
+	/**
+	 * Checks that no course is over capacity, that every roster and
+	 * schedule agree, that no student is over their credit limit and that
+	 * each client's students have the schedules its model expects.
+	 * @param workers clients that ran
+	 */
+	private void check(Client [] workers) {
+		for (Course c : manager.getCourseCatalog()) {
+			Student [] enrolled = c.getEnrolledStudents();
+			if (enrolled.length > c.getCapacity()) {
+				violation(c.getName() + " has " + enrolled.length + " students for " + c.getCapacity() + " seats");
+			}
+			if (c.getOpenSeats() < 0) {
+				violation(c.getName() + " has " + c.getOpenSeats() + " open seats");
+			}
+			if (c.getOpenSeats() != c.getCapacity() - enrolled.length) {
+				violation(c.getName() + " has " + c.getOpenSeats() + " open seats but " + enrolled.length
+						+ " of " + c.getCapacity() + " taken");
+			}
+			for (Student s : enrolled) {
+				if (!s.getCourseView().contains(c)) {
+					violation(s.getId() + " is on the " + c.getName() + " roster but not enrolled in it");
+				}
+			}
+		}
+		for (Client client : workers) {
+			for (Map.Entry<Student, Set<Course>> e : client.model.entrySet()) {
+				Student s = e.getKey();
+				for (Course c : s.getCourseView()) {
+					if (!c.getEnrolledView().contains(s)) {
+						violation(s.getId() + " is enrolled in " + c.getName() + " but not on its roster");
+					}
+				}
+				if (s.getCurrentCredits() > s.getMaxCredits()) {
+					violation(s.getId() + " has " + s.getCurrentCredits() + " of " + s.getMaxCredits() + " credits");
+				}
+				if (!e.getValue().equals(new HashSet<Course>(s.getCourseView()))) {
+					violation(s.getId() + " is enrolled in " + s.getCourseView() + " but expected " + e.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts a violation and keeps its message if there are not too many.
+	 * @param message what was wrong
+	 */
+	private void violation(String message) {
+		violationCount.incrementAndGet();
+		synchronized (violations) {
+			if (violations.size() < LoadReport.MAX_MESSAGES) {
+				violations.add(message);
+			}
+		}
+	}
+
+	/**
+	 * One client.  It is logged in as one of its students at a time and
+	 * keeps a model of the schedule of each of its students it has logged
+	 * in as.
+	 */
+	private class Client implements Runnable {
+		/** Makes the client's choices */
+		private final Random random;
+		/** Ids of the client's students */
+		private final List<String> own;
+		/** Catalog when the run started */
+		private final Course [] courses;
+		/** Hot courses */
+		private final Course [] hot;
+		/** Journaled changes of each student, or null to generate operations */
+		private final Map<String, List<String []>> scripts;
+		/** Expected courses of each student the client has logged in as */
+		private final Map<Student, Set<Course>> model = new HashMap<Student, Set<Course>>();
+		/** Current Session, or null */
+		private Session session;
+		/** Expected courses of the current Session's student */
+		private Set<Course> schedule;
+
+		/**
+		 * Creates a client.
+		 * @param number client number
+		 * @param own ids of the client's students
+		 * @param courses catalog
+		 * @param hot hot courses
+		 * @param scripts journaled changes, or null
+		 */
+		Client(int number, List<String> own, Course [] courses, Course [] hot, Map<String, List<String []>> scripts) {
+			this.random = new Random(seed * 31 + number);
+			this.own = own;
+			this.courses = courses;
+			this.hot = hot;
+			this.scripts = scripts;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			try {
+				if (scripts == null) {
+					generate();
+				} else {
+					replay();
+				}
+			} finally {
+				manager.closeSession(session);
+			}
+		}
+
+		/**
+		 * Makes the configured number of operations in the configured mix.
+		 * Adds and drops log in first if the client is not logged in.
+		 */
+		private void generate() {
+			for (int i = 0; i < operations; i++) {
+				int pick = random.nextInt(100);
+				Operation op = Operation.DROP;
+				for (int k = 0, sum = 0; k < mix.length; k++) {
+					sum += mix[k];
+					if (pick < sum) {
+						op = Operation.values()[k];
+						break;
+					}
+				}
+				if (op == Operation.BROWSE || own.isEmpty()) {
+					browse();
+				} else if (op == Operation.LOGIN || session == null) {
+					login(own.get(random.nextInt(own.size())));
+				} else if (op == Operation.ADD) {
+					add(random.nextDouble() < hotShare && hot.length > 0
+							? hot[random.nextInt(hot.length)] : courses[random.nextInt(courses.length)]);
+				} else if (!schedule.isEmpty()) {
+					List<Course> enrolled = new ArrayList<Course>(schedule);
+					drop(enrolled.get(random.nextInt(enrolled.size())));
+				} else {
+					drop(courses[random.nextInt(courses.length)]);
+				}
+			}
+		}
+
+		/**
+		 * Makes each of the client's students' journaled changes in order,
+		 * logging in as the student first.  The changes of a student who
+		 * cannot log in are skipped.
+		 */
+		private void replay() {
+			for (String id : own) {
+				if (!login(id)) {
+					continue;
+				}
+				for (String [] change : scripts.get(id)) {
+					Course c = manager.getCourseByName(change[1]);
+					if (c == null) {
+						//Not in the files or the journal, so it cannot be replayed
+						continue;
+					}
+					if ("A".equals(change[0])) {
+						add(c);
+					} else {
+						drop(c);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Logs in as a student, closing the current Session.
+		 * @param id student id
+		 * @return true if logged in
+		 */
+		private boolean login(String id) {
+			manager.closeSession(session);
+			long start = System.nanoTime();
+			session = manager.openSession(id, password);
+			latencies.get(Operation.LOGIN).recordSince(start);
+			if (session == null) {
+				failedLogins.incrementAndGet();
+				schedule = null;
+				return false;
+			}
+			User user = session.getUser();
+			schedule = model.get(user);
+			if (schedule == null) {
+				schedule = new HashSet<Course>(user.getCourseView());
+				model.put((Student) user, schedule);
+			}
+			return true;
+		}
+
+		/**
+		 * Reads a page of the catalog starting at a random course and checks
+		 * that no course shows a negative number of open seats.
+		 */
+		private void browse() {
+			long start = System.nanoTime();
+			List<Course> catalog = manager.getCourseCatalog();
+			int first = random.nextInt(catalog.size());
+			for (int i = first; i < Math.min(first + PAGE_SIZE, catalog.size()); i++) {
+				int seats = catalog.get(i).getOpenSeats();
+				if (seats < 0) {
+					violation(catalog.get(i).getName() + " showed " + seats + " open seats");
+				}
+			}
+			latencies.get(Operation.BROWSE).recordSince(start);
+		}
+
+		/**
+		 * Adds the current student to a course and checks the result
+		 * against the model.
+		 * @param c course to add
+		 */
+		private void add(Course c) {
+			long start = System.nanoTime();
+			boolean result = manager.addUserToCourse(session, c);
+			latencies.get(Operation.ADD).recordSince(start);
+			if (result) {
+				added.incrementAndGet();
+				if (!schedule.add(c)) {
+					violation(session.getUser().getId() + " was added to " + c.getName() + " twice");
+				}
+			}
+		}
+
+		/**
+		 * Drops a course for the current student and checks the result
+		 * against the model.
+		 * @param c course to drop
+		 */
+		private void drop(Course c) {
+			long start = System.nanoTime();
+			boolean result = manager.removeUserFromCourse(session, c);
+			latencies.get(Operation.DROP).recordSince(start);
+			if (result) {
+				dropped.incrementAndGet();
+			}
+			if (result != schedule.remove(c)) {
+				violation(session.getUser().getId() + (result ? " dropped " : " could not drop ") + c.getName()
+						+ " but was " + (result ? "not " : "") + "enrolled in it");
+			}
+		}
+	}
+
+	/**
+	 * Reads the student ids from a student records file.
+	 * @param fileName student records file
+	 * @return ids in file order
+	 * @throws IOException if the file cannot be read
+	 */
+	static List<String> readIds(String fileName) throws IOException {
+		List<String> result = new ArrayList<String>();
+		try (BufferedReader in = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.ISO_8859_1)) {
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				String [] fields = line.split(",", 4);
+				if (fields.length > 3) {
+					result.add(fields[2]);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Fills the CourseManager with generated courses and students.  The
+	 * courses have 1 to 4 credits and 10 to 150 seats, and every student
+	 * has the password PASSWORD.
+	 * @param manager CourseManager to fill
+	 * @param courseCount number of courses
+	 * @param studentCount number of students
+	 * @param seed seed for the credits and capacities
+	 * @return student ids
+	 */
+	static List<String> generate(CourseManager manager, int courseCount, int studentCount, long seed) {
+		Random random = new Random(seed);
+		for (int c = 0; c < courseCount; c++) {
+			manager.addCourse(new Course(String.format("CSC%04d", c), Course.MIN_HOURS
+					+ random.nextInt(Course.MAX_HOURS - Course.MIN_HOURS + 1), 10 + random.nextInt(141)));
+		}
+		String hash = manager.getCredentialVerifier().hash(PASSWORD);
+		List<String> result = new ArrayList<String>();
+		for (int s = 0; s < studentCount; s++) {
+			String id = "s" + s;
+			manager.addStudent(new Student("First" + s, "Last" + s, id, id + "@ncsu.edu", hash, Student.MAX_CREDITS));
+			result.add(id);
+		}
+		return result;
+	}
+
+	/**
+	 * Runs a load and prints the report.  Exits with status 1 if any
+	 * violation is found.
+	 * @param args name=value settings, see the class comment
+	 * @throws IOException if the student file cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		Map<String, String> options = new HashMap<String, String>();
+		for (String a : args) {
+			int eq = a.indexOf('=');
+			if (eq < 0) {
+				throw new IllegalArgumentException("Expected name=value: " + a);
+			}
+			options.put(a.substring(0, eq), a.substring(eq + 1));
+		}
+		long seed = Long.parseLong(option(options, "seed", "1"));
+
+		CourseManager manager = CourseManager.getInstance();
+		manager.clearData();
+		List<String> ids;
+		String password;
+		if (options.containsKey("studentFile")) {
+			manager.loadCourses(option(options, "courseFile", null));
+			manager.loadStudents(options.get("studentFile"));
+			ids = readIds(options.get("studentFile"));
+			password = option(options, "password", PASSWORD);
+		} else {
+			ids = generate(manager, Integer.parseInt(option(options, "courses", "200")),
+					Integer.parseInt(option(options, "students", "10000")), seed);
+			password = PASSWORD;
+		}
+
+		RegistrationLoad load = new RegistrationLoad(manager, ids, password);
+		load.setClients(Integer.parseInt(option(options, "clients", "16")));
+		load.setOperations(Integer.parseInt(option(options, "operations", "10000")));
+		String [] mix = option(options, "mix", "10,40,35,15").split(",");
+		if (mix.length != 4) {
+			throw new IllegalArgumentException("mix needs four percents");
+		}
+		load.setMix(Integer.parseInt(mix[0]), Integer.parseInt(mix[1]), Integer.parseInt(mix[2]),
+				Integer.parseInt(mix[3]));
+		load.setHotCourses(Integer.parseInt(option(options, "hot", "5")),
+				Double.parseDouble(option(options, "hotShare", "0.5")));
+		load.setSeed(seed);
+
+		LoadReport report = options.containsKey("replay") ? load.replay(options.get("replay")) : load.run();
+		System.out.print(report);
+		if (report.getViolationCount() > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Returns a setting or its default.
+	 * @param options settings
+	 * @param name setting name
+	 * @param value default, or null if the setting is required
+	 * @return setting
+	 */
+	private static String option(Map<String, String> options, String name, String value) {
+		String result = options.getOrDefault(name, value);
+		if (result == null) {
+			throw new IllegalArgumentException("Missing " + name);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,311 @@
+/**
+ *
+ */
+package my_package.manager;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * An insertion-ordered collection of items that are indexed by a unique
+ * String key (e.g., a Course's name or a Student's id).  Lookups and
+ * duplicate detection go through the index, so both are constant time
+ * instead of a scan over every item in the catalog.
+ *
+ * A Catalog is safe to use from multiple threads.  Lookups by key do not
+ * lock, so many threads can look up items while another thread is adding
+ * to the catalog.
+ *
+ * Readers list the catalog through snapshot(), an immutable list that is
+ * returned without locking or copying.  Writers lock, change the catalog
+ * and then publish a new snapshot with a single volatile write, so a
+ * reader sees either all of a change or none of it.  Items are appended
+ * to an array that is shared with earlier snapshots, each of which only
+ * reads the slots that were filled when it was published, so adding an
+ * item takes amortized constant time.  Removing or clearing copies the
+ * slots into a new array.
+ *
+ * The key of an item is read once when the item is added.  Changing
+ * the key of an item that is already in the catalog will not update
+ * the index.
+ *
+ * An item can be added as a placeholder that creates the item the first
+ * time it is looked up or listed.  Until then only its key is known.
+ *
+ * @author jim2
+ *
+ * @param <E> type of item stored in the catalog
+ */
+public class Catalog<E> {
+	/** Items or Placeholders in the catalog indexed by key */
+	private ConcurrentHashMap<String, Object> index;
+	/**
+	 * Items or Placeholders in insertion order, followed by free slots.
+	 * Slots below the snapshot size are never changed.  Guarded by this.
+	 */
+	private Object [] slots;
+	/** Items in the catalog when it was last changed */
+	private volatile Snapshot<E> snapshot;
+	/** Number of slots in a new slot array */
+	private static final int INITIAL_SLOTS = 16;
+	/** Function that returns the key of an item */
+	private Function<? super E, String> keyFunction;
+
+	/**
+	 * Creates an empty catalog that indexes items using the given
+	 * key function.
+	 * @param keyFunction function that returns the unique key of an item
+	 */
+	public Catalog(Function<? super E, String> keyFunction) {
+		if (keyFunction == null) {
+			throw new IllegalArgumentException();
+		}
+		this.keyFunction = keyFunction;
+		index = new ConcurrentHashMap<String, Object>();
+		slots = new Object[INITIAL_SLOTS];
+		snapshot = new Snapshot<E>(slots, 0);
+	}
+
+	/**
+	 * An immutable list of the items in a catalog at one moment.  It
+	 * reads the first size slots of an array that no writer changes.
+	 * @param <E> type of the items
+	 */
+	private static final class Snapshot<E> extends AbstractList<E> implements RandomAccess {
+		/** Slot array shared with the catalog */
+		private final Object [] slots;
+		/** Number of slots in the snapshot */
+		private final int size;
+
+		/**
+		 * Creates a snapshot of the first size slots.
+		 * @param slots slot array
+		 * @param size number of slots in the snapshot
+		 */
+		Snapshot(Object[] slots, int size) {
+			this.slots = slots;
+			this.size = size;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.AbstractList#get(int)
+		 */
+		@Override
+		public E get(int i) {
+			if (i < 0 || i >= size) {
+				throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+			}
+			return resolve(slots[i]);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.AbstractCollection#size()
+		 */
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	/**
+	 * An item that is created the first time it is needed.
+	 * @param <E> type of the item
+	 */
+	private static final class Placeholder<E> {
+		/** Creates the item */
+		private final Supplier<? extends E> supplier;
+		/** Item once it is created */
+		private E item;
+
+		/**
+		 * Creates a placeholder.
+		 * @param supplier creates the item
+		 */
+		Placeholder(Supplier<? extends E> supplier) {
+			this.supplier = supplier;
+		}
+
+		/**
+		 * Returns the item, creating it the first time.
+		 * @return the item
+		 */
+		synchronized E get() {
+			if (item == null) {
+				item = supplier.get();
+			}
+			return item;
+		}
+	}
+
+	/**
+	 * Returns the item in an index or list slot, creating it if the slot
+	 * holds a Placeholder.
+	 * @param slot item or Placeholder, or null
+	 * @return the item or null
+	 */
+	@SuppressWarnings("unchecked")
+	private static <E> E resolve(Object slot) {
+		if (slot instanceof Placeholder) {
+			return ((Placeholder<E>) slot).get();
+		}
+		return (E) slot;
+	}
+
+	/**
+	 * Adds the item to the end of the catalog if there is not already
+	 * an item with the same key.
+	 * @param item item to add
+	 * @return true if the item is added
+	 */
+	public synchronized boolean add(E item) {
+		if (item == null) {
+			throw new IllegalArgumentException();
+		}
+		if (index.putIfAbsent(keyFunction.apply(item), item) != null) {
+			return false;
+		}
+		append(item);
+		return true;
+	}
+
+	/**
+	 * Adds a placeholder for an item to the end of the catalog if there
+	 * is not already an item with the same key.  The supplier is called
+	 * once, the first time the item is looked up or listed, and must
+	 * return an item with the given key.
+	 * @param key key of the item
+	 * @param supplier creates the item
+	 * @return true if the placeholder is added
+	 */
+	public synchronized boolean addPlaceholder(String key, Supplier<? extends E> supplier) {
+		if (key == null || supplier == null) {
+			throw new IllegalArgumentException();
+		}
+		Placeholder<E> placeholder = new Placeholder<E>(supplier);
+		if (index.putIfAbsent(key, placeholder) != null) {
+			return false;
+		}
+		append(placeholder);
+		return true;
+	}
+
+	/**
+	 * Appends an item or Placeholder and publishes a new snapshot.  The
+	 * slot array is only replaced when it is full, so earlier snapshots
+	 * keep sharing it.  Called with the lock held.
+	 * @param slot item or Placeholder
+	 */
+	private void append(Object slot) {
+		int size = snapshot.size;
+		if (size == slots.length) {
+			slots = Arrays.copyOf(slots, size * 2);
+		}
+		slots[size] = slot;
+		snapshot = new Snapshot<E>(slots, size + 1);
+	}
+
+	/**
+	 * Returns the item with the given key or null if there is no
+	 * such item in the catalog.  An item added as a placeholder is
+	 * created if it has not been yet.
+	 * @param key key of the item
+	 * @return item with the key
+	 */
+	public E get(String key) {
+		if (key == null) {
+			return null;
+		}
+		return resolve(index.get(key));
+	}
+
+	/**
+	 * Returns true if there is an item with the given key in the catalog.
+	 * @param key key of the item
+	 * @return true if the key is in the catalog
+	 */
+	public boolean containsKey(String key) {
+		return key != null && index.containsKey(key);
+	}
+
+	/**
+	 * Removes the item with the given key from the catalog.
+	 * @param key key of the item to remove
+	 * @return the removed item or null if there was no such item
+	 */
+	public synchronized E remove(String key) {
+		if (key == null) {
+			return null;
+		}
+		Object slot = index.remove(key);
+		if (slot != null) {
+			//Earlier snapshots still read the old array, so copy it
+			int size = snapshot.size;
+			Object [] copy = new Object[Math.max(INITIAL_SLOTS, slots.length)];
+			int j = 0;
+			for (int i = 0; i < size; i++) {
+				if (slots[i] != slot) {
+					copy[j++] = slots[i];
+				}
+			}
+			slots = copy;
+			snapshot = new Snapshot<E>(slots, j);
+		}
+		return resolve(slot);
+	}
+
+	/**
+	 * Returns the number of items in the catalog.
+	 * @return number of items
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Removes all items from the catalog.
+	 */
+	public synchronized void clear() {
+		index.clear();
+		slots = new Object[INITIAL_SLOTS];
+		snapshot = new Snapshot<E>(slots, 0);
+	}
+
+	/**
+	 * Returns an immutable list of the items in insertion order, as they
+	 * were after the last change to the catalog.  Getting the list takes
+	 * constant time and does not lock or copy, and the list never changes,
+	 * so it can be read by many threads while the catalog is changed.
+	 * Items added as placeholders are created as the list reaches them.
+	 * @return snapshot of the items in the catalog
+	 */
+	public List<E> snapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Returns an unmodifiable copy of the items in insertion order.  Items
+	 * added as placeholders are created if they have not been yet.
+	 * @return items in the catalog
+	 */
+	public List<E> values() {
+		return Collections.unmodifiableList(new ArrayList<E>(snapshot));
+	}
+
+	/**
+	 * Returns the items in insertion order as an array.  The given array
+	 * is used if it is large enough, as in Collection.toArray(T[]).
+	 * Items added as placeholders are created if they have not been yet.
+	 * @param a array to store the items in
+	 * @return items in the catalog
+	 */
+	public E[] toArray(E[] a) {
+		return snapshot.toArray(a);
+	}
+}
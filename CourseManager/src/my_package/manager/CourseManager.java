@@ -5,37 +5,116 @@ package my_package.manager;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import my_package.courses.Course;
 import my_package.io.CourseRecordIO;
+import my_package.io.EnrollmentJournal;
+import my_package.io.LazyStudent;
+import my_package.io.SnapshotIO;
+import my_package.io.SnapshotIO.Snapshot;
 import my_package.io.StudentRecordIO;
+import my_package.metrics.Counter;
+import my_package.metrics.LatencyHistogram;
+import my_package.metrics.Metrics;
+import my_package.metrics.PhaseEvent;
 import my_package.users.Student;
 import my_package.users.User;
 
 /**
+ * Manages the Courses and Students in the system.  Any number of
+ * Users may be logged in at the same time, each through their own
+ * Session, and the Session methods may be called from many threads
+ * at once.
+ * 
+ * The methods that work with a single current user (login(), logout(),
+ * getCurrentUser() and the Session-less course methods) are kept for 
+ * existing clients and are implemented on top of a single shared Session.
+ * 
+ * When a journal file is set, every enrollment, drop, new Course and 
+ * capacity change is appended to the journal instead of rewriting the 
+ * record files.  The journal is replayed by loadStudents() and is 
+ * compacted into the record files once it holds enough changes.
+ * 
+ * Students can wait for a seat in a full Course on its waitlist.  
+ * Waitlisted Students are enrolled as seats open and their enrollments
+ * are journaled, but the waitlists themselves are not saved.
+ * 
+ * With lazy loading on, loadStudents() only indexes the student file and
+ * enrolls each record in its Courses.  A Student is read from the file 
+ * the first time it logs in, is looked up or is listed on a roster.
+ * 
+ * Logins, adds, drops and loading and saving the record files are timed
+ * in Metrics under type CourseManager, and failed logins are counted.
+ * Each phase of loading and saving is also recorded as a PhaseEvent for
+ * Java Flight Recorder.
+ * 
  * @author jim2
  *
  */
 public class CourseManager {
-	/** List of all Courses in the system */
-	private ArrayList<Course> courses;
-	/** List of all Students in the system */
-	private ArrayList<Student> students;
-	/** Currently logged in User */
-	private User currentUser;
+	/** All Courses in the system, indexed by name */
+	private Catalog<Course> courses;
+	/** All Students in the system, indexed by id */
+	private Catalog<Student> students;
+	/** Open sessions, indexed by token */
+	private ConcurrentHashMap<String, Session> sessions;
+	/** Session of the current user for the single user methods */
+	private volatile Session currentSession;
 	/** Course records file name */
 	private String courseFileName;
 	/** Student records file name */
 	private String studentFileName;
-	/** Hashing algorithm */
-	private static final String HASH_ALGORITHM = "SHA-256";
-	
-	/** CourseManager singleton instance */
-	private static CourseManager manager;
+	/** Checks passwords on login */
+	private volatile CredentialVerifier credentialVerifier;
+	/** Journal of changes since the record files were written, or null */
+	private volatile EnrollmentJournal journal;
+	/** Number of journaled changes that starts a compaction */
+	private volatile int compactionSize;
+	/** Default number of journaled changes that starts a compaction */
+	public static final int DEFAULT_COMPACTION_SIZE = 10000;
+	/** True if loadStudents() indexes the student file instead of loading it */
+	private volatile boolean lazyLoading;
+	/** Message used when an operation needs a logged in user */
+	private static final String NOT_LOGGED_IN = "User is not logged in.";
+	/** Number of random bytes in a Session token */
+	private static final int TOKEN_BYTES = 16;
+	/** Time to open a Session */
+	private static final LatencyHistogram LOGIN = Metrics.histogram("CourseManager", "login");
+	/** Logins with an unknown id or a wrong password */
+	private static final Counter LOGIN_FAILED = Metrics.counter("CourseManager", "loginFailed");
+	/** Time to add a Course to a User */
+	private static final LatencyHistogram ADD_USER_TO_COURSE = Metrics.histogram("CourseManager", "addUserToCourse");
+	/** Time to remove a Course from a User */
+	private static final LatencyHistogram REMOVE_USER_FROM_COURSE = 
+			Metrics.histogram("CourseManager", "removeUserFromCourse");
+	/** Time to load the course records */
+	private static final LatencyHistogram LOAD_COURSES = Metrics.histogram("CourseManager", "loadCourses");
+	/** Time to load the student records and replay the journal */
+	private static final LatencyHistogram LOAD_STUDENTS = Metrics.histogram("CourseManager", "loadStudents");
+	/** Time to save the course records */
+	private static final LatencyHistogram SAVE_COURSES = Metrics.histogram("CourseManager", "saveCourses");
+	/** Time to save the student records */
+	private static final LatencyHistogram SAVE_STUDENTS = Metrics.histogram("CourseManager", "saveStudents");
+	/** Time to compact the journal into the record files */
+	private static final LatencyHistogram COMPACT_JOURNAL = Metrics.histogram("CourseManager", "compactJournal");
+	/** 
+	 * Per-thread source of Session tokens.  The shared SecureRandom behind
+	 * UUID.randomUUID() is locked on every call, so each thread seeds its 
+	 * own generator once instead.
+	 */
+	private static final ThreadLocal<SecureRandom> TOKEN_RANDOM = ThreadLocal.withInitial(() -> {
+		try {
+			return SecureRandom.getInstance("SHA1PRNG");
+		} catch (NoSuchAlgorithmException e) {
+			return new SecureRandom();
+		}
+	});
 
 	/**
 	 * Constructor for CourseManager.  It's private so that it can
@@ -44,8 +123,21 @@ public class CourseManager {
 	 * very easy to work with the CourseManager throughout the system.
 	 */
 	private CourseManager() {
-		courses = new ArrayList<Course>();
-		students = new ArrayList<Student>();
+		courses = new Catalog<Course>(Course::getName);
+		students = new Catalog<Student>(Student::getId);
+		sessions = new ConcurrentHashMap<String, Session>();
+		credentialVerifier = new Sha256CredentialVerifier();
+	}
+
+	/**
+	 * Holds the CourseManager singleton.  The JVM creates the instance 
+	 * the first time getInstance() is called and guarantees that it is 
+	 * created exactly once, even when many threads call getInstance() 
+	 * at the same time.
+	 */
+	private static class InstanceHolder {
+		/** CourseManager singleton instance */
+		private static final CourseManager INSTANCE = new CourseManager();
 	}
 
 	/**
@@ -54,10 +146,261 @@ public class CourseManager {
 	 * @return singleton instance
 	 */
 	public static CourseManager getInstance() {
-		if (manager == null) {
-			manager = new CourseManager();
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * Opens a new Session for the user with the given id and password.
+	 * A user may have more than one open Session.
+	 * @param id user's id
+	 * @param password user's password
+	 * @return the new Session or null if the id or password is incorrect
+	 */
+	public Session openSession(String id, String password) {
+		long start = Metrics.start();
+		try {
+			Student s = students.get(id);
+			if (s == null || !credentialVerifier.verify(s, password)) {
+				LOGIN_FAILED.increment();
+				return null;
+			}
+			Session session = new Session(newToken(), s);
+			sessions.put(session.getToken(), session);
+			return session;
+		} finally {
+			LOGIN.recordSince(start);
+		}
+	}
+
+	/**
+	 * Returns a new random Session token.
+	 * @return Session token
+	 */
+	private static String newToken() {
+		byte [] bytes = new byte[TOKEN_BYTES];
+		TOKEN_RANDOM.get().nextBytes(bytes);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+
+	/**
+	 * Closes the given Session.  Closing a Session that is already
+	 * closed does nothing.
+	 * @param session Session to close
+	 */
+	public void closeSession(Session session) {
+		if (session != null) {
+			sessions.remove(session.getToken(), session);
+		}
+	}
+
+	/**
+	 * Returns the open Session with the given token or null if there 
+	 * is no such Session.
+	 * @param token Session token
+	 * @return open Session with the token
+	 */
+	public Session getSession(String token) {
+		if (token == null) {
+			return null;
+		}
+		return sessions.get(token);
+	}
+
+	/**
+	 * Returns the number of open Sessions.
+	 * @return number of open Sessions
+	 */
+	public int getSessionCount() {
+		return sessions.size();
+	}
+
+	/**
+	 * Returns the CredentialVerifier used to check passwords on login.
+	 * @return the credentialVerifier
+	 */
+	public CredentialVerifier getCredentialVerifier() {
+		return credentialVerifier;
+	}
+
+	/**
+	 * Sets the CredentialVerifier used to check passwords on login.
+	 * @param credentialVerifier the credentialVerifier to set
+	 */
+	public void setCredentialVerifier(CredentialVerifier credentialVerifier) {
+		if (credentialVerifier == null) {
+			throw new IllegalArgumentException();
+		}
+		this.credentialVerifier = credentialVerifier;
+	}
+
+	/**
+	 * Returns the User for the Session.  An IllegalArgumentException is
+	 * thrown if the Session is null or has been closed.
+	 * @param session Session to check
+	 * @return Session's User
+	 */
+	private User getSessionUser(Session session) {
+		if (session == null || sessions.get(session.getToken()) != session) {
+			throw new IllegalArgumentException(NOT_LOGGED_IN);
+		}
+		return session.getUser();
+	}
+
+	/**
+	 * Returns a list of all Courses associated with the Session's User.
+	 * @param session logged in User's Session
+	 * @return list of User's courses
+	 */
+	public Course[] listUserCourses(Session session) {
+		return getSessionUser(session).getCourses();
+	}
+
+	/**
+	 * Returns the Session User's courses as a read-only list that is not
+	 * copied.  See User.getCourseView().
+	 * @param session logged in User's Session
+	 * @return unmodifiable list of User's courses
+	 */
+	public List<Course> getUserCourseView(Session session) {
+		return getSessionUser(session).getCourseView();
+	}
+
+	/**
+	 * Returns true if the Course is added to the Session User's
+	 * list of courses.
+	 * @param session logged in User's Session
+	 * @param course Course to add
+	 * @return true if added to the User
+	 */
+	public boolean addUserToCourse(Session session, Course course) {
+		User user = getSessionUser(session);
+		if (!(user instanceof Student)) {
+			return false;
 		}
-		return manager;
+		long start = Metrics.start();
+		EnrollmentJournal j = journal;
+		boolean added;
+		try {
+			added = EnrollmentTransaction.enroll((Student) user, course, j);
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		} finally {
+			ADD_USER_TO_COURSE.recordSince(start);
+		}
+		compactIfFull(j);
+		return added;
+	}
+
+	/**
+	 * Returns true if the Course is removed from the Session User's
+	 * list of courses.
+	 * @param session logged in User's Session
+	 * @param course Course to remove
+	 * @return true if removed from the User
+	 */
+	public boolean removeUserFromCourse(Session session, Course course) {
+		User user = getSessionUser(session);
+		long start = Metrics.start();
+		EnrollmentJournal j = journal;
+		boolean removed;
+		try {
+			removed = EnrollmentTransaction.drop(user, course, j);
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		} finally {
+			REMOVE_USER_FROM_COURSE.recordSince(start);
+		}
+		compactIfFull(j);
+		return removed;
+	}
+
+	/**
+	 * Adds the Session's User to the end of the Course's waitlist.  When
+	 * a seat opens, the first waitlisted Student who can add the Course is
+	 * enrolled in it, so a Student who finds a Course full can wait for a
+	 * seat instead of trying to add it again and again.
+	 * @param session logged in User's Session
+	 * @param course Course to wait for
+	 * @return true if added to the waitlist
+	 */
+	public boolean addUserToWaitlist(Session session, Course course) {
+		User user = getSessionUser(session);
+		if (course == null) {
+			throw new IllegalArgumentException();
+		}
+		if (!course.waitlist(user)) {
+			return false;
+		}
+		//A seat may have opened before the User joined
+		EnrollmentJournal j = journal;
+		try {
+			EnrollmentTransaction.promote(course, j);
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+		compactIfFull(j);
+		return true;
+	}
+
+	/**
+	 * Removes the Session's User from the Course's waitlist.
+	 * @param session logged in User's Session
+	 * @param course Course to stop waiting for
+	 * @return true if removed from the waitlist
+	 */
+	public boolean removeUserFromWaitlist(Session session, Course course) {
+		User user = getSessionUser(session);
+		if (course == null) {
+			throw new IllegalArgumentException();
+		}
+		return course.leaveWaitlist(user);
+	}
+
+	/**
+	 * Enrolls the Student with the given id in each of the Courses it can
+	 * add and that has room, in order, checking the whole batch in one
+	 * pass.  This is meant for administrators and bulk registration, so no
+	 * Session is needed.  A null Course is NO_SUCH_COURSE, and every
+	 * result is NO_SUCH_STUDENT if there is no Student with the id.
+	 * @param id student id
+	 * @param courses Courses to enroll in
+	 * @return result for each Course, in the same order as the Courses
+	 */
+	public EnrollmentResult[] addStudentToCourses(String id, Course... courses) {
+		return addStudentsToCourses(new String[] {id}, courses)[0];
+	}
+
+	/**
+	 * Enrolls each of the Students with the given ids in each of the
+	 * Courses, as addStudentToCourses(String, Course...) does.  Students
+	 * are enrolled one after another in the order of the ids, and the
+	 * journal is checked for compaction once at the end of the batch.
+	 * @param ids student ids
+	 * @param courses Courses to enroll each Student in
+	 * @return results for each Student, in the same order as the ids, and
+	 *         for each Course, in the same order as the Courses
+	 */
+	public EnrollmentResult[][] addStudentsToCourses(String[] ids, Course[] courses) {
+		if (ids == null || courses == null) {
+			throw new IllegalArgumentException();
+		}
+		EnrollmentJournal j = journal;
+		EnrollmentResult [][] results = new EnrollmentResult[ids.length][];
+		try {
+			for (int i = 0; i < ids.length; i++) {
+				Student student = ids[i] == null ? null : students.get(ids[i]);
+				if (student == null) {
+					results[i] = new EnrollmentResult[courses.length];
+					Arrays.fill(results[i], EnrollmentResult.NO_SUCH_STUDENT);
+				} else {
+					results[i] = EnrollmentTransaction.enrollAll(student, courses, j);
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+		compactIfFull(j);
+		return results;
 	}
 
 	/**
@@ -66,34 +409,20 @@ public class CourseManager {
 	 * @param password user's password
 	 * @return true if user is logged in
 	 */
-	public boolean login(String id, String password) {
-		if (currentUser != null) {
+	public synchronized boolean login(String id, String password) {
+		if (currentSession != null) {
 			return false;
 		}
-		for (Student s: students) {
-			if (s.getId().equals(id)) {
-				try {
-					MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
-					digest.update(password.getBytes());
-					String hashPW = new String(digest.digest());
-					if (s.getPassword().equals(hashPW)) {
-						currentUser = s;
-						return true;
-					}
-					return false;
-				} catch (NoSuchAlgorithmException e) {
-					throw new IllegalArgumentException();
-				}	
-			}
-		}
-		return false;
+		currentSession = openSession(id, password);
+		return currentSession != null;
 	}
 	
 	/**
 	 * Log current user out of the system.
 	 */
-	public void logout() {
-		currentUser = null;
+	public synchronized void logout() {
+		closeSession(currentSession);
+		currentSession = null;
 	}
 	
 	/**
@@ -102,7 +431,8 @@ public class CourseManager {
 	 * @return logged in user
 	 */
 	public User getCurrentUser() {
-		return currentUser;
+		Session session = currentSession;
+		return session == null ? null : session.getUser();
 	}
 	
 	/**
@@ -110,10 +440,7 @@ public class CourseManager {
 	 * @return list of User's courses
 	 */
 	public Course[] listUserCourses() {
-		if (currentUser == null) {
-			throw new IllegalArgumentException("User is not logged in.");
-		}
-		return currentUser.getCourses();
+		return listUserCourses(currentSession);
 	}
 
 	/**
@@ -121,8 +448,19 @@ public class CourseManager {
 	 * @return list of all Courses
 	 */
 	public Course[] listAllCourses() {
-		Course [] allCourses = new Course[courses.size()];
-		return courses.toArray(allCourses);
+		return courses.toArray(new Course[0]);
+	}
+
+	/**
+	 * Returns an immutable list of all Courses in the system as they were
+	 * after the last Course was added.  The list is returned without 
+	 * locking or copying and never changes, so browsing the catalog never
+	 * waits for a writer or sees a change half made.  The Courses in it
+	 * are the live Courses, so their seats and rosters are current.
+	 * @return snapshot of all Courses
+	 */
+	public List<Course> getCourseCatalog() {
+		return courses.snapshot();
 	}
 	
 	/**
@@ -132,18 +470,7 @@ public class CourseManager {
 	 * @return true if added to the User
 	 */
 	public boolean addUserToCourse(Course course) {
-		if (currentUser == null) {
-			throw new IllegalArgumentException("User is not logged in.");
-		}
-		if (currentUser.canAddCourse(course) && currentUser instanceof Student) {
-			Student s = (Student)currentUser;
-			if (course.canEnroll(s)) {
-				currentUser.addCourse(course);
-				course.enroll(s);
-				return true;
-			}
-		}
-		return false;
+		return addUserToCourse(currentSession, course);
 	}
 	
 	/**
@@ -153,23 +480,106 @@ public class CourseManager {
 	 * @return true if removed from the User
 	 */
 	public boolean removeUserFromCourse(Course course) {
-		if (currentUser == null) {
-			throw new IllegalArgumentException("User is not logged in.");
-		}
-		course.drop(currentUser);
-		return currentUser.removeCourse(course);
+		return removeUserFromCourse(currentSession, course);
 	}
 	
 	/**
 	 * Clears all course and student data from the Course manager 
-	 * without saving.
+	 * without saving.  All Sessions are closed, and the journal is
+	 * closed and no longer used.
 	 */
-	public void clearData() {
-		courses = new ArrayList<Course>();
-		students = new ArrayList<Student>();
-		currentUser = null;
+	public synchronized void clearData() {
+		courses.clear();
+		students.clear();
+		sessions.clear();
+		currentSession = null;
 		courseFileName = null;
 		studentFileName = null;
+		EnrollmentJournal j = journal;
+		journal = null;
+		if (j != null) {
+			try {
+				j.close();
+			} catch (IOException e) {
+				throw new IllegalArgumentException(e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Starts journaling changes to the given file, compacting the journal
+	 * after DEFAULT_COMPACTION_SIZE changes.  See 
+	 * setJournalFile(String, int).
+	 * @param fileName journal file
+	 */
+	public void setJournalFile(String fileName) {
+		setJournalFile(fileName, DEFAULT_COMPACTION_SIZE);
+	}
+
+	/**
+	 * Starts journaling changes to the given file.  Changes already in
+	 * the file are kept and are replayed by the next loadStudents(), so
+	 * the journal file should be set after loadCourses() and before
+	 * loadStudents().  Once the journal holds compactionSize changes, the
+	 * record files are written and the journal is emptied.
+	 * @param fileName journal file
+	 * @param compactionSize number of changes that starts a compaction
+	 */
+	public synchronized void setJournalFile(String fileName, int compactionSize) {
+		if (fileName == null || compactionSize <= 0) {
+			throw new IllegalArgumentException();
+		}
+		EnrollmentJournal opened;
+		try {
+			opened = new EnrollmentJournal(fileName);
+			if (journal != null) {
+				journal.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+		this.compactionSize = compactionSize;
+		journal = opened;
+	}
+
+	/**
+	 * Writes the record files and empties the journal.  An 
+	 * IllegalArgumentException is thrown if there is no journal or the
+	 * courses and students were not loaded from record files.
+	 */
+	public void compactJournal() {
+		EnrollmentJournal j = journal;
+		if (j == null || courseFileName == null || studentFileName == null) {
+			throw new IllegalArgumentException("Nothing to compact.");
+		}
+		long start = Metrics.start();
+		try {
+			j.compact(() -> {
+				saveCourses();
+				saveStudents();
+			});
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		} finally {
+			COMPACT_JOURNAL.recordSince(start);
+		}
+	}
+
+	/**
+	 * Compacts the journal if it holds enough changes and there are 
+	 * record files to compact it into.
+	 * @param j journal the change was recorded in, or null
+	 */
+	private void compactIfFull(EnrollmentJournal j) {
+		if (j == null || j.size() < compactionSize || courseFileName == null || studentFileName == null) {
+			return;
+		}
+		synchronized (j) {
+			//Another thread may have compacted while this one waited
+			if (j == journal && j.size() >= compactionSize) {
+				compactJournal();
+			}
+		}
 	}
 	
 	/**
@@ -178,75 +588,244 @@ public class CourseManager {
 	 */
 	public void loadCourses(String fileName) {
 		this.courseFileName = fileName;
+		long start = Metrics.start();
 		try {
+			PhaseEvent phase = PhaseEvent.start("loadCourses", "readCourseRecords", fileName);
 			List<Course> coursesFromFile = CourseRecordIO.readCourseRecords(courseFileName);
+			phase.commit(coursesFromFile.size());
+			phase = PhaseEvent.start("loadCourses", "addCourses", fileName);
 			for (Course c : coursesFromFile) {
-				addCourse(c);
+				courses.add(c);
 			}
+			phase.commit(coursesFromFile.size());
 		} catch (FileNotFoundException e) {
 			throw new IllegalArgumentException(e.getMessage());
+		} finally {
+			LOAD_COURSES.recordSince(start);
 		}
 	}
 
 	/**
-	 * Adds a course to the list of courses. 
+	 * Adds a course to the list of courses.  A course with the same name
+	 * as a course already in the system is not added.
 	 * @param course Course to add
 	 */
 	public void addCourse(Course course) {
-		for (Course c: courses) {
-			if (c.equals(course)) {
+		EnrollmentJournal j = journal;
+		if (j == null) {
+			courses.add(course);
+			return;
+		}
+		//Journal the Course before anyone can enroll in it
+		synchronized (j) {
+			if (courses.containsKey(course.getName())) {
 				return;
 			}
+			try {
+				j.courseCreated(course);
+			} catch (IOException e) {
+				throw new IllegalArgumentException(e.getMessage());
+			}
+			courses.add(course);
+		}
+		compactIfFull(j);
+	}
+
+	/**
+	 * Changes the capacity of a Course and journals the change.  The
+	 * capacity cannot be set below the number of enrolled students.
+	 * @param course Course to change
+	 * @param capacity new capacity
+	 */
+	public void setCourseCapacity(Course course, int capacity) {
+		if (course == null) {
+			throw new IllegalArgumentException();
+		}
+		EnrollmentJournal j = journal;
+		try {
+			EnrollmentTransaction.setCapacity(course, capacity, j);
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage());
 		}
-		courses.add(course);
+		compactIfFull(j);
 	}
 	
 	/**
 	 * Writes the list of Courses to the courseFileName.
 	 */
 	public void saveCourses() {
+		long start = Metrics.start();
 		try {
-			CourseRecordIO.writeCourseRecords(courseFileName, courses);
+			PhaseEvent phase = PhaseEvent.start("saveCourses", "copyCourses", courseFileName);
+			List<Course> values = courses.values();
+			phase.commit(values.size());
+			phase = PhaseEvent.start("saveCourses", "writeCourseRecords", courseFileName);
+			CourseRecordIO.writeCourseRecords(courseFileName, values);
+			phase.commit(values.size());
 		} catch (IOException e) {
 			throw new IllegalArgumentException(e.getMessage());
+		} finally {
+			SAVE_COURSES.recordSince(start);
 		}
 	}
 
+	/**
+	 * Returns the Course with the given name or null if there is
+	 * no such Course.
+	 * @param name name of the Course
+	 * @return Course with the name
+	 */
 	public Course getCourseByName(String name) {
-	    for(Course c : courses) {
-	        if(c.getName().equals(name)) {
-	            return c;
-	        }
-	    }
-	    return null;
+		return courses.get(name);
 	}
 	
 	/**
-	 * Loads the list of Students from the given file.
+	 * Returns true if loadStudents() indexes the student file instead of
+	 * loading every Student.
+	 * @return true if lazy loading is on
+	 */
+	public boolean isLazyLoading() {
+		return lazyLoading;
+	}
+
+	/**
+	 * Sets whether loadStudents() indexes the student file instead of
+	 * loading every Student.  Lazily loaded Students are read from the
+	 * student file when they are first needed, so the file must not be
+	 * changed by anything but saveStudents(), which loads every Student
+	 * before writing.
+	 * @param lazyLoading true to turn lazy loading on
+	 */
+	public void setLazyLoading(boolean lazyLoading) {
+		this.lazyLoading = lazyLoading;
+	}
+
+	/**
+	 * Loads the list of Students from the given file and then replays the
+	 * journal, if there is one, over the loaded data.  With lazy loading
+	 * on, the Students are indexed and enrolled but not read until they
+	 * are needed.
 	 * @param fileName name of file containing students
 	 */
 	public void loadStudents(String fileName) {
 		this.studentFileName = fileName;
+		long start = Metrics.start();
+		try {
+			readStudents();
+		} finally {
+			LOAD_STUDENTS.recordSince(start);
+		}
+	}
+
+	/**
+	 * Loads or indexes the Students in the studentFileName and replays the
+	 * journal.
+	 */
+	private void readStudents() {
 		try {
-			List<Student> studentsFromFile = StudentRecordIO.readStudentRecords(studentFileName);
-			for (Student s : studentsFromFile) {
-				addStudent(s);
+			if (lazyLoading) {
+				PhaseEvent phase = PhaseEvent.start("loadStudents", "indexStudentRecords", studentFileName);
+				List<LazyStudent> studentsFromFile = StudentRecordIO.indexStudentRecords(studentFileName);
+				phase.commit(studentsFromFile.size());
+				phase = PhaseEvent.start("loadStudents", "addPlaceholders", studentFileName);
+				for (LazyStudent s : studentsFromFile) {
+					if (!students.addPlaceholder(s.getId(), s)) {
+						//A duplicate id is only on the rosters, so read it 
+						//before the file can be saved over
+						s.get();
+					}
+				}
+				phase.commit(studentsFromFile.size());
+			} else {
+				PhaseEvent phase = PhaseEvent.start("loadStudents", "readStudentRecords", studentFileName);
+				List<Student> studentsFromFile = StudentRecordIO.readStudentRecords(studentFileName);
+				phase.commit(studentsFromFile.size());
+				phase = PhaseEvent.start("loadStudents", "addStudents", studentFileName);
+				for (Student s : studentsFromFile) {
+					addStudent(s);
+				}
+				phase.commit(studentsFromFile.size());
 			}
 		} catch (FileNotFoundException e) {
 			throw new IllegalArgumentException(e.getMessage());
 		}
+		EnrollmentJournal j = journal;
+		if (j != null) {
+			PhaseEvent phase = PhaseEvent.start("loadStudents", "replayJournal", null);
+			JournalReplayer replayer = new JournalReplayer();
+			try {
+				j.replay(replayer);
+			} catch (IOException e) {
+				throw new IllegalArgumentException(e.getMessage());
+			}
+			phase.commit(replayer.changes);
+		}
+	}
+
+	/**
+	 * Applies journaled changes without journaling them again.  Changes
+	 * to Courses or Students that are not in the system are skipped.
+	 */
+	private class JournalReplayer implements EnrollmentJournal.Replayer {
+		/** Number of changes handed to the replayer */
+		private int changes;
+
+		/* (non-Javadoc)
+		 * @see my_package.io.EnrollmentJournal.Replayer#courseCreated(java.lang.String, int, int)
+		 */
+		@Override
+		public void courseCreated(String name, int credits, int capacity) {
+			changes++;
+			if (!courses.containsKey(name)) {
+				courses.add(new Course(name, credits, capacity));
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see my_package.io.EnrollmentJournal.Replayer#capacityChanged(java.lang.String, int)
+		 */
+		@Override
+		public void capacityChanged(String name, int capacity) {
+			changes++;
+			Course c = courses.get(name);
+			if (c != null) {
+				c.setCapacity(capacity);
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see my_package.io.EnrollmentJournal.Replayer#enrolled(java.lang.String, java.lang.String)
+		 */
+		@Override
+		public void enrolled(String id, String name) {
+			changes++;
+			Student s = students.get(id);
+			Course c = courses.get(name);
+			if (s != null && c != null) {
+				EnrollmentTransaction.enroll(s, c);
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see my_package.io.EnrollmentJournal.Replayer#dropped(java.lang.String, java.lang.String)
+		 */
+		@Override
+		public void dropped(String id, String name) {
+			changes++;
+			Student s = students.get(id);
+			Course c = courses.get(name);
+			if (s != null && c != null) {
+				EnrollmentTransaction.drop(s, c);
+			}
+		}
 	}
 	
 	/**
-	 * Adds a student to the list of students. 
+	 * Adds a student to the list of students.  A student with the same
+	 * id as a student already in the system is not added.
 	 * @param student Student to add
 	 */
 	public void addStudent(Student student) {
-		for (Student s: students) {
-			if (s.equals(student)) {
-				return;
-			}
-		}
 		students.add(student);
 	}
 	
@@ -254,10 +833,65 @@ public class CourseManager {
 	 * Writes the list of Students to the studentFileName.
 	 */
 	public void saveStudents() {
+		long start = Metrics.start();
+		try {
+			PhaseEvent phase = PhaseEvent.start("saveStudents", "copyStudents", studentFileName);
+			List<Student> values = students.values();
+			phase.commit(values.size());
+			phase = PhaseEvent.start("saveStudents", "writeStudentRecords", studentFileName);
+			StudentRecordIO.writeStudentRecords(studentFileName, values);
+			phase.commit(values.size());
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		} finally {
+			SAVE_STUDENTS.recordSince(start);
+		}
+	}
+
+	/**
+	 * Writes all Courses and Students to a binary snapshot file.  See
+	 * SnapshotIO for the format.
+	 * @param fileName snapshot file to write
+	 */
+	public void saveSnapshot(String fileName) {
+		try {
+			PhaseEvent phase = PhaseEvent.start("saveSnapshot", "copyCatalogs", fileName);
+			List<Course> courseValues = courses.values();
+			List<Student> studentValues = students.values();
+			phase.commit(courseValues.size() + studentValues.size());
+			phase = PhaseEvent.start("saveSnapshot", "writeSnapshot", fileName);
+			SnapshotIO.writeSnapshot(fileName, courseValues, studentValues);
+			phase.commit(courseValues.size() + studentValues.size());
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Replaces all course and student data with the data in a binary
+	 * snapshot file.  As with clearData(), all Sessions are closed and the
+	 * course and student record file names are cleared.
+	 * @param fileName snapshot file to read
+	 */
+	public synchronized void loadSnapshot(String fileName) {
+		PhaseEvent phase = PhaseEvent.start("loadSnapshot", "readSnapshot", fileName);
+		Snapshot snapshot;
 		try {
-			StudentRecordIO.writeStudentRecords(studentFileName, students);
+			snapshot = SnapshotIO.readSnapshot(fileName);
 		} catch (IOException e) {
 			throw new IllegalArgumentException(e.getMessage());
 		}
+		phase.commit(snapshot.getCourses().size() + snapshot.getStudents().size());
+		clearData();
+		phase = PhaseEvent.start("loadSnapshot", "addCourses", fileName);
+		for (Course c : snapshot.getCourses()) {
+			courses.add(c);
+		}
+		phase.commit(snapshot.getCourses().size());
+		phase = PhaseEvent.start("loadSnapshot", "addStudents", fileName);
+		for (Student s : snapshot.getStudents()) {
+			addStudent(s);
+		}
+		phase.commit(snapshot.getStudents().size());
 	}
 }
@@ -0,0 +1,37 @@
+/**
+ *
+ */
+package my_package.manager;
+
+import my_package.users.User;
+
+/**
+ * Checks a plaintext password against a User's stored password hash.
+ * The CourseManager uses a CredentialVerifier for every login, so a
+ * different hashing scheme can be plugged in with 
+ * CourseManager.setCredentialVerifier().
+ *
+ * Implementations must be safe to call from many threads at once.
+ *
+ * @author jim2
+ *
+ */
+public interface CredentialVerifier {
+
+	/**
+	 * Returns the hashed form of the plaintext password, as it is stored
+	 * in User.getPassword().
+	 * @param password plaintext password
+	 * @return hashed password
+	 */
+	String hash(String password);
+
+	/**
+	 * Returns true if the plaintext password matches the User's stored
+	 * password hash.
+	 * @param user user logging in
+	 * @param password plaintext password
+	 * @return true if the password matches
+	 */
+	boolean verify(User user, String password);
+}
@@ -0,0 +1,26 @@
+/**
+ *
+ */
+package my_package.manager;
+
+/**
+ * The outcome of enrolling one Student in one Course in a batch
+ * enrollment.
+ *
+ * @author jim2
+ *
+ */
+public enum EnrollmentResult {
+	/** The Student was enrolled in the Course */
+	ENROLLED,
+	/** The Student was already enrolled in the Course */
+	ALREADY_ENROLLED,
+	/** The Course would take the Student over their credit limit */
+	OVER_CREDIT_LIMIT,
+	/** The Course has no open seats */
+	COURSE_FULL,
+	/** There is no such Course */
+	NO_SUCH_COURSE,
+	/** There is no Student with the id */
+	NO_SUCH_STUDENT
+}
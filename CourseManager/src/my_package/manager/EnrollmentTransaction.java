@@ -0,0 +1,478 @@
+/**
+ *
+ */
+package my_package.manager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import my_package.courses.Course;
+import my_package.io.EnrollmentJournal;
+import my_package.metrics.EnrollmentEvent;
+import my_package.users.Student;
+import my_package.users.User;
+
+/**
+ * Enrolls Students in and drops Students from Courses so that both the
+ * Student's course list and the Course's roster change together.  A
+ * transaction holds the locks for both the Student and the Course while
+ * it checks and changes them, and undoes the Course side if the Student
+ * side cannot be changed.  Other transactions on the same Student or
+ * Course wait, so the two sides are never seen out of step by another
+ * transaction and no reconciliation is needed afterwards.
+ *
+ * Locks are taken from a fixed table of lock stripes chosen by each
+ * object's identity hash.  The stripes are always locked in index order,
+ * so two transactions can never wait on each other.  A batch enrollment
+ * locks the Student and all of its Courses the same way.
+ *
+ * A change can be recorded in an EnrollmentJournal before the locks are
+ * released, so the journal has the changes to any one Student or Course
+ * in the order they were made.  No other transaction sees a change until
+ * it is in the journal: if the journal cannot be written, the change is
+ * undone before the locks are released and the IOException is thrown.
+ * The journal's monitor is held from the change until it is journaled or
+ * undone, so a compaction, which holds the same monitor, saves either
+ * the change and its journal line or neither.  A Student promoted from a
+ * Course's waitlist is enrolled and journaled in a transaction of its
+ * own.
+ *
+ * Every enrollment, drop and promotion is recorded as an EnrollmentEvent
+ * for Java Flight Recorder, with its outcome.
+ *
+ * @author jim2
+ *
+ */
+public class EnrollmentTransaction {
+	/** Number of lock stripes; a power of two */
+	private static final int STRIPES = 1024;
+	/** Lock stripes */
+	private static final ReentrantLock [] LOCKS = new ReentrantLock[STRIPES];
+	/** Outcome of a drop that removed the Course from the User */
+	private static final String DROPPED = "DROPPED";
+	/** Outcome of a drop from a Course the User was not enrolled in */
+	private static final String NOT_ENROLLED = "NOT_ENROLLED";
+	/** Outcome of a promotion that another change got to first */
+	private static final String NOT_PROMOTED = "NOT_PROMOTED";
+
+	static {
+		for (int i = 0; i < STRIPES; i++) {
+			LOCKS[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * EnrollmentTransaction only has static methods.
+	 */
+	private EnrollmentTransaction() {
+	}
+
+	/**
+	 * Returns the index of the lock stripe for the given object.
+	 * @param o object to lock
+	 * @return stripe index
+	 */
+	static int stripe(Object o) {
+		int h = System.identityHashCode(o);
+		return (h ^ (h >>> 16)) & (STRIPES - 1);
+	}
+
+	/**
+	 * Locks the stripes for the Student and the Course in index order.
+	 * @param user user to lock
+	 * @param course course to lock
+	 */
+	private static void lock(User user, Course course) {
+		int a = stripe(user);
+		int b = stripe(course);
+		LOCKS[Math.min(a, b)].lock();
+		if (a != b) {
+			LOCKS[Math.max(a, b)].lock();
+		}
+	}
+
+	/**
+	 * Unlocks the stripes locked by lock(user, course).
+	 * @param user user to unlock
+	 * @param course course to unlock
+	 */
+	private static void unlock(User user, Course course) {
+		int a = stripe(user);
+		int b = stripe(course);
+		if (a != b) {
+			LOCKS[Math.max(a, b)].unlock();
+		}
+		LOCKS[Math.min(a, b)].unlock();
+	}
+
+	/**
+	 * Enrolls the Student in the Course if the Student can add the Course
+	 * and the Course has room for the Student.  Either both the Student and
+	 * the Course are changed or neither is.
+	 * @param student Student to enroll
+	 * @param course Course to enroll in
+	 * @return true if the Student is enrolled
+	 */
+	public static boolean enroll(Student student, Course course) {
+		try {
+			return enroll(student, course, null);
+		} catch (IOException e) {
+			//Not reached without a journal
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Enrolls the Student in the Course and records the enrollment in the
+	 * journal while the Student and the Course are still locked, so the
+	 * journal has the changes to each Student and Course in the order they
+	 * were made.  If the journal cannot be written the enrollment is undone
+	 * before a compaction can save it.
+	 * @param student Student to enroll
+	 * @param course Course to enroll in
+	 * @param journal journal to record the enrollment in, or null
+	 * @return true if the Student is enrolled
+	 * @throws IOException if the journal cannot be written
+	 */
+	static boolean enroll(Student student, Course course, EnrollmentJournal journal) throws IOException {
+		if (student == null || course == null) {
+			throw new IllegalArgumentException();
+		}
+		EnrollmentEvent event = new EnrollmentEvent();
+		event.begin();
+		EnrollmentResult result;
+		lock(student, course);
+		try {
+			if (journal == null) {
+				result = add(student, course);
+			} else {
+				synchronized (journal) {
+					result = add(student, course);
+					if (result == EnrollmentResult.ENROLLED) {
+						try {
+							journal.enrolled(student, course);
+						} catch (IOException e) {
+							undoEnroll(student, course);
+							throw e;
+						}
+					}
+				}
+			}
+		} finally {
+			unlock(student, course);
+		}
+		event.commit(EnrollmentEvent.ENROLL, student.getId(), course.getName(), result.name());
+		return result == EnrollmentResult.ENROLLED;
+	}
+
+	/**
+	 * Enrolls the locked Student in the locked Course if the Student can
+	 * add the Course and the Course has room, and returns why not if it
+	 * cannot.
+	 * @param student Student to enroll
+	 * @param course Course to enroll in
+	 * @return ENROLLED, or why the Student was not enrolled
+	 */
+	private static EnrollmentResult add(Student student, Course course) {
+		if (!student.canAddCourse(course)) {
+			return student.getCourseView().contains(course) ? EnrollmentResult.ALREADY_ENROLLED
+					: EnrollmentResult.OVER_CREDIT_LIMIT;
+		}
+		if (!course.enroll(student)) {
+			return course.getOpenSeats() > 0 ? EnrollmentResult.ALREADY_ENROLLED : EnrollmentResult.COURSE_FULL;
+		}
+		if (!student.addCourse(course)) {
+			course.drop(student, false);
+			return EnrollmentResult.OVER_CREDIT_LIMIT;
+		}
+		return EnrollmentResult.ENROLLED;
+	}
+
+	/**
+	 * Undoes the enrollment of the locked Student in the locked Course
+	 * after the journal could not be written.  The seat is released
+	 * without promoting anyone, since it was never seen to be taken.
+	 * @param student enrolled Student
+	 * @param course Course enrolled in
+	 */
+	private static void undoEnroll(Student student, Course course) {
+		course.drop(student, false);
+		student.removeCourse(course);
+	}
+
+	/**
+	 * Enrolls the Student in each of the Courses that the Student can add
+	 * and that has room, in order, and records the enrollments in the
+	 * journal with a single write.  The Student and all of the Courses are
+	 * locked once for the whole batch, and the Student's credits and
+	 * courses are read once and kept up to date as the batch is checked,
+	 * instead of being read again for every Course.  If the journal cannot
+	 * be written every enrollment in the batch is undone before a
+	 * compaction can save it.
+	 * @param student Student to enroll
+	 * @param courses Courses to enroll in; a null Course is NO_SUCH_COURSE
+	 * @param journal journal to record the enrollments in, or null
+	 * @return result for each Course, in the same order as the Courses
+	 * @throws IOException if the journal cannot be written
+	 */
+	static EnrollmentResult[] enrollAll(Student student, Course[] courses, EnrollmentJournal journal)
+			throws IOException {
+		if (student == null || courses == null) {
+			throw new IllegalArgumentException();
+		}
+		int [] stripes = stripes(student, courses);
+		for (int i = 0; i < stripes.length; i++) {
+			LOCKS[stripes[i]].lock();
+		}
+		try {
+			List<Course> added = new ArrayList<Course>(courses.length);
+			if (journal == null) {
+				return addAll(student, courses, added);
+			}
+			synchronized (journal) {
+				EnrollmentResult [] results = addAll(student, courses, added);
+				if (!added.isEmpty()) {
+					try {
+						journal.enrolled(student, added);
+					} catch (IOException e) {
+						for (Course course : added) {
+							undoEnroll(student, course);
+						}
+						throw e;
+					}
+				}
+				return results;
+			}
+		} finally {
+			for (int i = stripes.length - 1; i >= 0; i--) {
+				LOCKS[stripes[i]].unlock();
+			}
+		}
+	}
+
+	/**
+	 * Enrolls the locked Student in each of the locked Courses that the
+	 * Student can add and that has room, in order.
+	 * @param student Student to enroll
+	 * @param courses Courses to enroll in; a null Course is NO_SUCH_COURSE
+	 * @param added receives the Courses the Student is enrolled in
+	 * @return result for each Course, in the same order as the Courses
+	 */
+	private static EnrollmentResult[] addAll(Student student, Course[] courses, List<Course> added) {
+		EnrollmentResult [] results = new EnrollmentResult[courses.length];
+		Set<Course> enrolled = new HashSet<Course>(Arrays.asList(student.getCourses()));
+		int credits = student.getCurrentCredits();
+		int maxCredits = student.getMaxCredits();
+		for (int i = 0; i < courses.length; i++) {
+			EnrollmentEvent event = new EnrollmentEvent();
+			event.begin();
+			Course course = courses[i];
+			if (course == null) {
+				results[i] = EnrollmentResult.NO_SUCH_COURSE;
+			} else if (enrolled.contains(course)) {
+				results[i] = EnrollmentResult.ALREADY_ENROLLED;
+			} else if (credits + course.getCredits() > maxCredits) {
+				results[i] = EnrollmentResult.OVER_CREDIT_LIMIT;
+			} else if (!course.enroll(student)) {
+				results[i] = course.getOpenSeats() > 0 ? EnrollmentResult.ALREADY_ENROLLED
+						: EnrollmentResult.COURSE_FULL;
+			} else if (!student.addCourse(course)) {
+				course.drop(student, false);
+				results[i] = EnrollmentResult.OVER_CREDIT_LIMIT;
+			} else {
+				enrolled.add(course);
+				added.add(course);
+				credits += course.getCredits();
+				results[i] = EnrollmentResult.ENROLLED;
+			}
+			event.commit(EnrollmentEvent.ENROLL, student.getId(), course == null ? null : course.getName(),
+					results[i].name());
+		}
+		return results;
+	}
+
+	/**
+	 * Returns the distinct lock stripes for the Student and the Courses in
+	 * index order.
+	 * @param student Student to lock
+	 * @param courses Courses to lock; null Courses are skipped
+	 * @return stripe indexes in increasing order
+	 */
+	private static int[] stripes(Student student, Course[] courses) {
+		int [] stripes = new int[courses.length + 1];
+		int count = 0;
+		stripes[count++] = stripe(student);
+		for (Course c : courses) {
+			if (c != null) {
+				stripes[count++] = stripe(c);
+			}
+		}
+		Arrays.sort(stripes, 0, count);
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (distinct == 0 || stripes[distinct - 1] != stripes[i]) {
+				stripes[distinct++] = stripes[i];
+			}
+		}
+		return Arrays.copyOf(stripes, distinct);
+	}
+
+	/**
+	 * Drops the User from the Course and removes the Course from the
+	 * User's courses.
+	 * @param user User to drop
+	 * @param course Course to drop
+	 * @return true if the Course is removed from the User
+	 */
+	public static boolean drop(User user, Course course) {
+		try {
+			return drop(user, course, null);
+		} catch (IOException e) {
+			//Not reached without a journal
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Drops the User from the Course and records the drop in the journal
+	 * while the User and the Course are locked.  If the journal cannot be
+	 * written the User is enrolled again before a compaction can save the
+	 * drop.  Waitlisted Students are then promoted into the open seat.
+	 * @param user User to drop
+	 * @param course Course to drop
+	 * @param journal journal to record the drop and promotions in, or null
+	 * @return true if the Course is removed from the User
+	 * @throws IOException if the journal cannot be written
+	 */
+	static boolean drop(User user, Course course, EnrollmentJournal journal) throws IOException {
+		if (user == null || course == null) {
+			throw new IllegalArgumentException();
+		}
+		EnrollmentEvent event = new EnrollmentEvent();
+		event.begin();
+		boolean opened;
+		boolean dropped;
+		lock(user, course);
+		try {
+			if (journal == null) {
+				opened = course.drop(user, false);
+				dropped = user.removeCourse(course);
+			} else {
+				synchronized (journal) {
+					opened = course.drop(user, false);
+					dropped = user.removeCourse(course);
+					if (dropped) {
+						try {
+							journal.dropped(user, course);
+						} catch (IOException e) {
+							//The seat was not offered to anyone, so it is still open
+							course.enroll(user);
+							user.addCourse(course);
+							throw e;
+						}
+					}
+				}
+			}
+		} finally {
+			unlock(user, course);
+		}
+		event.commit(EnrollmentEvent.DROP, user.getId(), course.getName(), dropped ? DROPPED : NOT_ENROLLED);
+		if (opened) {
+			promote(course, journal);
+		}
+		return dropped;
+	}
+
+	/**
+	 * Promotes waitlisted Students into the Course's open seats, in
+	 * waitlist order.  Each promotion is a transaction of its own that
+	 * locks the Student and the Course like enroll() does, so it is 
+	 * journaled in order with the Student's other changes.  If the journal
+	 * cannot be written the promotion is undone and the Student goes back
+	 * to the end of the waitlist.
+	 * @param course Course with open seats
+	 * @param journal journal to record the promotions in, or null
+	 * @return number of Students promoted
+	 * @throws IOException if the journal cannot be written
+	 */
+	static int promote(Course course, EnrollmentJournal journal) throws IOException {
+		int promoted = 0;
+		//Bound the attempts in case other threads keep changing the waitlist
+		for (int tries = course.getWaitlistSize(); tries >= 0; tries--) {
+			Student next = course.nextWaitlisted();
+			if (next == null) {
+				break;
+			}
+			EnrollmentEvent event = new EnrollmentEvent();
+			event.begin();
+			boolean enrolled;
+			lock(next, course);
+			try {
+				if (journal == null) {
+					enrolled = course.promote(next);
+				} else {
+					synchronized (journal) {
+						enrolled = course.promote(next);
+						if (enrolled) {
+							try {
+								journal.enrolled(next, course);
+							} catch (IOException e) {
+								undoEnroll(next, course);
+								course.waitlist(next);
+								throw e;
+							}
+						}
+					}
+				}
+				if (enrolled) {
+					promoted++;
+				}
+			} finally {
+				unlock(next, course);
+			}
+			event.commit(EnrollmentEvent.PROMOTE, next.getId(), course.getName(),
+					enrolled ? EnrollmentResult.ENROLLED.name() : NOT_PROMOTED);
+		}
+		return promoted;
+	}
+
+	/**
+	 * Changes the Course's capacity and records the change in the journal
+	 * while the Course is locked, so the change is ordered with the
+	 * enrollments in the Course.  If the journal cannot be written the old
+	 * capacity is put back.  Waitlisted Students are then promoted into
+	 * any new seats.
+	 * @param course Course to change
+	 * @param capacity new capacity
+	 * @param journal journal to record the change in, or null
+	 * @throws IOException if the journal cannot be written
+	 */
+	static void setCapacity(Course course, int capacity, EnrollmentJournal journal) throws IOException {
+		ReentrantLock lock = LOCKS[stripe(course)];
+		lock.lock();
+		try {
+			if (journal == null) {
+				course.setCapacity(capacity);
+			} else {
+				synchronized (journal) {
+					int old = course.getCapacity();
+					course.setCapacity(capacity);
+					try {
+						journal.capacityChanged(course);
+					} catch (IOException e) {
+						course.setCapacity(old);
+						throw e;
+					}
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+		promote(course, journal);
+	}
+}
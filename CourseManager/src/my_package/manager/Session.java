@@ -0,0 +1,47 @@
+/**
+ *
+ */
+package my_package.manager;
+
+import my_package.users.User;
+
+/**
+ * A logged in User's session with the CourseManager.  A session is
+ * created by CourseManager.openSession() and is identified by a random
+ * token that can be handed to a client and used later to find the
+ * session again with CourseManager.getSession().
+ *
+ * @author jim2
+ *
+ */
+public class Session {
+	/** Token that identifies the session */
+	private final String token;
+	/** User that owns the session */
+	private final User user;
+
+	/**
+	 * Creates a session for the given user.  Sessions are only created
+	 * by the CourseManager.
+	 * @param token token that identifies the session
+	 * @param user logged in user
+	 */
+	Session(String token, User user) {
+		this.token = token;
+		this.user = user;
+	}
+
+	/**
+	 * @return the token
+	 */
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * @return the user
+	 */
+	public User getUser() {
+		return user;
+	}
+}
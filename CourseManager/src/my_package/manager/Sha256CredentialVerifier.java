@@ -0,0 +1,200 @@
+/**
+ *
+ */
+package my_package.manager;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import my_package.users.User;
+
+/**
+ * Verifies passwords that are stored as a SHA-256 digest turned into a
+ * String with the platform charset, i.e.
+ * new String(digest.digest(password.getBytes())).  This is the format
+ * used by the student record files.
+ *
+ * Each thread keeps its own MessageDigest, decoder and buffers, so a
+ * login does not look up a MessageDigest provider or build intermediate
+ * Strings.  The computed digest is decoded into a reused char array and
+ * compared to the stored hash in time that does not depend on where
+ * they differ.  The comparison is done on the decoded characters rather
+ * than on re-encoded bytes: decoding replaces bytes the charset cannot
+ * map, and encoding those replacements again can make two different
+ * digests look the same.
+ *
+ * @author jim2
+ *
+ */
+public class Sha256CredentialVerifier implements CredentialVerifier {
+	/** Hashing algorithm */
+	private static final String HASH_ALGORITHM = "SHA-256";
+	/** Length of a SHA-256 digest in bytes */
+	private static final int HASH_LENGTH = 32;
+	/** Per-thread hashing state */
+	private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+	/**
+	 * MessageDigest, decoder and buffers owned by a single thread.
+	 */
+	private static final class State {
+		/** SHA-256 digest */
+		private final MessageDigest digest;
+		/** Platform charset */
+		private final Charset charset;
+		/** Platform charset decoder */
+		private final CharsetDecoder decoder;
+		/** Decoded character for each byte, or null if the charset is not a single byte charset */
+		private final char [] byteToChar;
+		/** True if ASCII characters encode to their own value in the platform charset */
+		private final boolean asciiCompatible;
+		/** Encoded plaintext password */
+		private byte [] input = new byte[64];
+		/** Digest output */
+		private final byte [] hash = new byte[HASH_LENGTH];
+		/** Digest output decoded with the platform charset */
+		private final CharBuffer hashChars;
+
+		/**
+		 * Creates the state for the current thread.
+		 */
+		State() {
+			try {
+				digest = MessageDigest.getInstance(HASH_ALGORITHM);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalArgumentException(e.getMessage());
+			}
+			charset = Charset.defaultCharset();
+			//Use the same replacement behavior as new String(byte[])
+			decoder = charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			hashChars = CharBuffer.allocate((int) Math.ceil(HASH_LENGTH * decoder.maxCharsPerByte()));
+
+			//In a single byte charset every byte decodes on its own, so
+			//the digest can be decoded with a table
+			if (charset.newEncoder().maxBytesPerChar() == 1.0f && decoder.maxCharsPerByte() == 1.0f) {
+				byteToChar = new char[256];
+				for (int b = 0; b < 256; b++) {
+					String s = new String(new byte [] {(byte) b}, charset);
+					byteToChar[b] = s.length() == 1 ? s.charAt(0) : '\uFFFD';
+				}
+			} else {
+				byteToChar = null;
+			}
+
+			char [] ascii = new char[128];
+			for (int c = 0; c < ascii.length; c++) {
+				ascii[c] = (char) c;
+			}
+			byte [] encoded = new String(ascii).getBytes(charset);
+			boolean compatible = encoded.length == ascii.length;
+			for (int c = 0; compatible && c < ascii.length; c++) {
+				compatible = encoded[c] == c;
+			}
+			asciiCompatible = compatible;
+		}
+
+		/**
+		 * Hashes the plaintext password into the hash array.
+		 * @param password plaintext password
+		 */
+		private void digest(String password) {
+			int length = password.length();
+			boolean ascii = asciiCompatible;
+			if (ascii) {
+				if (input.length < length) {
+					input = new byte[Math.max(length, input.length * 2)];
+				}
+				for (int i = 0; i < length; i++) {
+					char c = password.charAt(i);
+					if (c >= 0x80) {
+						ascii = false;
+						break;
+					}
+					input[i] = (byte) c;
+				}
+			}
+			if (ascii) {
+				digest.update(input, 0, length);
+			} else {
+				digest.update(password.getBytes(charset));
+			}
+			try {
+				digest.digest(hash, 0, HASH_LENGTH);
+			} catch (DigestException e) {
+				throw new IllegalArgumentException(e.getMessage());
+			}
+		}
+
+		/**
+		 * Decodes the hash array with the platform charset into hashChars.
+		 */
+		private void decodeHash() {
+			hashChars.clear();
+			if (byteToChar != null) {
+				for (int i = 0; i < HASH_LENGTH; i++) {
+					hashChars.put(byteToChar[hash[i] & 0xFF]);
+				}
+			} else {
+				decoder.reset();
+				decoder.decode(ByteBuffer.wrap(hash), hashChars, true);
+				decoder.flush(hashChars);
+			}
+			hashChars.flip();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see my_package.manager.CredentialVerifier#hash(java.lang.String)
+	 */
+	@Override
+	public String hash(String password) {
+		if (password == null) {
+			throw new IllegalArgumentException();
+		}
+		State state = STATE.get();
+		state.digest(password);
+		state.decodeHash();
+		return state.hashChars.toString();
+	}
+
+	/* (non-Javadoc)
+	 * @see my_package.manager.CredentialVerifier#verify(my_package.users.User, java.lang.String)
+	 */
+	@Override
+	public boolean verify(User user, String password) {
+		if (user == null || password == null) {
+			return false;
+		}
+		State state = STATE.get();
+		state.digest(password);
+		state.decodeHash();
+		return isEqual(state.hashChars.array(), state.hashChars.limit(), user.getPassword());
+	}
+
+	/**
+	 * Returns true if the first length characters of the array are the
+	 * same as the characters of the String.  Every one of the length
+	 * characters is examined no matter where the two differ.
+	 * @param chars characters to compare
+	 * @param length number of characters to compare
+	 * @param s String to compare to
+	 * @return true if the characters are the same
+	 */
+	static boolean isEqual(char [] chars, int length, String s) {
+		int sLength = s.length();
+		int diff = length ^ sLength;
+		for (int i = 0; i < length; i++) {
+			char other = i < sLength ? s.charAt(i) : 0;
+			diff |= chars[i] ^ other;
+		}
+		return diff == 0;
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ *
+ */
+package my_package.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events, such as enrollments rejected because a Course is full.
+ * Counting is safe from many threads at once and does not contend: each
+ * thread adds to its own cell of a LongAdder.  Nothing is counted while
+ * Metrics are disabled, so a disabled Counter costs a volatile read.
+ *
+ * Counters are created with Metrics.counter().
+ *
+ * @author jim2
+ *
+ */
+public class Counter implements CounterMBean {
+	/** Number of events */
+	private final LongAdder count = new LongAdder();
+
+	/**
+	 * Creates a Counter.  Only Metrics creates Counters, so each one is
+	 * registered under its name.
+	 */
+	Counter() {
+		//Created by Metrics.counter()
+	}
+
+	/**
+	 * Counts one event if Metrics are enabled.
+	 */
+	public void increment() {
+		if (Metrics.isEnabled()) {
+			count.increment();
+		}
+	}
+
+	/**
+	 * Counts the given number of events if Metrics are enabled.
+	 * @param events number of events
+	 */
+	public void add(long events) {
+		if (Metrics.isEnabled()) {
+			count.add(events);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see my_package.metrics.CounterMBean#getCount()
+	 */
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see my_package.metrics.CounterMBean#reset()
+	 */
+	@Override
+	public void reset() {
+		count.reset();
+	}
+}
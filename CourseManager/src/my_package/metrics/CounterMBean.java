@@ -0,0 +1,25 @@
+/**
+ *
+ */
+package my_package.metrics;
+
+/**
+ * Management interface of a Counter, as seen through JMX.
+ *
+ * @author jim2
+ *
+ */
+public interface CounterMBean {
+
+	/**
+	 * Returns the number of events counted since the Counter was created
+	 * or last reset.
+	 * @return number of events
+	 */
+	long getCount();
+
+	/**
+	 * Sets the count back to zero.
+	 */
+	void reset();
+}
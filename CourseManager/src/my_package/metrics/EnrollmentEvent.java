@@ -0,0 +1,68 @@
+/**
+ *
+ */
+package my_package.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for one enrollment, drop or waitlist 
+ * promotion of a Student in a Course, with how it turned out.  The event
+ * lasts from before the Student and Course are locked until they are 
+ * unlocked, so it includes any time spent waiting for the locks.
+ *
+ * A caller creates the event, calls begin() and then commit() with the
+ * outcome.  Nothing is recorded, and the JIT compiler removes the event,
+ * when no recording has the event enabled.
+ *
+ * @author jim2
+ *
+ */
+@Name("my_package.Enrollment")
+@Label("Enrollment")
+@Category({"CourseManager"})
+@Description("A Student enrolled in, dropped or was promoted into a Course")
+public class EnrollmentEvent extends Event {
+	/** A Student enrolling in a Course */
+	public static final String ENROLL = "enroll";
+	/** A Student dropping a Course */
+	public static final String DROP = "drop";
+	/** A waitlisted Student being enrolled in an open seat */
+	public static final String PROMOTE = "promote";
+
+	/** Student id */
+	@Label("Student")
+	String student;
+	/** Course name */
+	@Label("Course")
+	String course;
+	/** ENROLL, DROP or PROMOTE */
+	@Label("Action")
+	String action;
+	/** How the enrollment turned out, e.g. ENROLLED or COURSE_FULL */
+	@Label("Outcome")
+	String outcome;
+
+	/**
+	 * Ends the event and records it if a recording has it enabled and it
+	 * lasted long enough for the recording's threshold.
+	 * @param action ENROLL, DROP or PROMOTE
+	 * @param student Student id
+	 * @param course Course name
+	 * @param outcome how it turned out
+	 */
+	public void commit(String action, String student, String course, String outcome) {
+		end();
+		if (shouldCommit()) {
+			this.action = action;
+			this.student = student;
+			this.course = course;
+			this.outcome = outcome;
+			commit();
+		}
+	}
+}
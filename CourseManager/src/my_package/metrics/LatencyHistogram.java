@@ -0,0 +1,212 @@
+/**
+ *
+ */
+package my_package.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records how long an operation takes, in nanoseconds, in a fixed set of
+ * buckets so that percentiles can be read without keeping every time.
+ * Each power of two is split into SUB_BUCKETS buckets of equal width, so
+ * a percentile is off by at most 1/SUB_BUCKETS of its value.  Recording
+ * a time finds its bucket with a few shifts and increments one counter,
+ * and never allocates or locks.
+ *
+ * A caller takes a start time with Metrics.start() and passes it to
+ * recordSince() when the operation ends.  While Metrics are disabled the
+ * start time is 0 and nothing is recorded, so a disabled histogram costs
+ * a volatile read.
+ *
+ * Histograms that are published over JMX are created with
+ * Metrics.histogram().  Tools that keep their own histograms, such as
+ * the load generator, create them directly.
+ *
+ * @author jim2
+ *
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+	/** Bits of each time below its highest bit that pick its bucket */
+	private static final int SUB_BITS = 3;
+	/** Number of buckets for each power of two */
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	/** Number of buckets, enough for any positive long */
+	static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+	/** Number of times in each bucket */
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	/** Number of recorded times */
+	private final LongAdder count = new LongAdder();
+	/** Sum of the recorded times */
+	private final LongAdder sum = new LongAdder();
+	/** Longest recorded time */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Creates an empty LatencyHistogram that is not published.
+	 */
+	public LatencyHistogram() {
+		//Empty buckets
+	}
+
+	/**
+	 * Records the time since the given start time if it is not 0.
+	 * @param start System.nanoTime() when the operation started, or 0
+	 *        from Metrics.start() if Metrics are disabled
+	 */
+	public void recordSince(long start) {
+		if (start != 0) {
+			record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Records a time.  Negative times are recorded as 0.
+	 * @param nanos time in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		buckets.incrementAndGet(bucket(nanos));
+		count.increment();
+		sum.add(nanos);
+		long longest = max.get();
+		while (nanos > longest && !max.compareAndSet(longest, nanos)) {
+			longest = max.get();
+		}
+	}
+
+	/**
+	 * Returns the bucket of a time.  Times below SUB_BUCKETS each have a
+	 * bucket of their own.
+	 * @param nanos time, not negative
+	 * @return bucket index
+	 */
+	static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+		int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos) - SUB_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * Returns the smallest time in a bucket.
+	 * @param bucket bucket index
+	 * @return smallest time in the bucket
+	 */
+	static long lowestIn(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+	}
+
+	/**
+	 * Returns the time that the given percent of the recorded times are at
+	 * or below.  The time returned is the largest time in the bucket the
+	 * percentile falls in, but no more than the longest recorded time.
+	 * Times recorded while the percentile is computed may or may not be
+	 * counted.
+	 * @param percent percent of the recorded times, from 0 to 100
+	 * @return percentile, or 0 if no times are recorded
+	 */
+	public long percentile(double percent) {
+		if (percent < 0 || percent > 100) {
+			throw new IllegalArgumentException();
+		}
+		long [] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(total * percent / 100));
+		long longest = max.get();
+		long seen = 0;
+		for (int i = 0; i < BUCKETS - 1; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(lowestIn(i + 1) - 1, longest);
+			}
+		}
+		return longest;
+	}
+
+	/* (non-Javadoc)
+	 * @see my_package.metrics.LatencyHistogramMBean#getCount()
+	 */
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see my_package.metrics.LatencyHistogramMBean#getMean()
+	 */
+	@Override
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double) sum.sum() / n;
+	}
+
+	/* (non-Javadoc)
+	 * @see my_package.metrics.LatencyHistogramMBean#getMax()
+	 */
+	@Override
+	public long getMax() {
+		return max.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see my_package.metrics.LatencyHistogramMBean#getP50()
+	 */
+	@Override
+	public long getP50() {
+		return percentile(50);
+	}
+
+	/* (non-Javadoc)
+	 * @see my_package.metrics.LatencyHistogramMBean#getP90()
+	 */
+	@Override
+	public long getP90() {
+		return percentile(90);
+	}
+
+	/* (non-Javadoc)
+	 * @see my_package.metrics.LatencyHistogramMBean#getP99()
+	 */
+	@Override
+	public long getP99() {
+		return percentile(99);
+	}
+
+	/* (non-Javadoc)
+	 * @see my_package.metrics.LatencyHistogramMBean#getP999()
+	 */
+	@Override
+	public long getP999() {
+		return percentile(99.9);
+	}
+
+	/**
+	 * Discards all recorded times.  Times recorded while the histogram is
+	 * reset may be partly kept.
+	 */
+	@Override
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+}
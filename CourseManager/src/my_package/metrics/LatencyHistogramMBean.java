@@ -0,0 +1,62 @@
+/**
+ *
+ */
+package my_package.metrics;
+
+/**
+ * Management interface of a LatencyHistogram, as seen through JMX.  All
+ * times are in nanoseconds, and percentiles are accurate to within
+ * 12.5% of the value.
+ *
+ * @author jim2
+ *
+ */
+public interface LatencyHistogramMBean {
+
+	/**
+	 * Returns the number of recorded times.
+	 * @return number of recorded times
+	 */
+	long getCount();
+
+	/**
+	 * Returns the mean of the recorded times.
+	 * @return mean time
+	 */
+	double getMean();
+
+	/**
+	 * Returns the longest recorded time.
+	 * @return longest time
+	 */
+	long getMax();
+
+	/**
+	 * Returns the median of the recorded times.
+	 * @return 50th percentile
+	 */
+	long getP50();
+
+	/**
+	 * Returns the 90th percentile of the recorded times.
+	 * @return 90th percentile
+	 */
+	long getP90();
+
+	/**
+	 * Returns the 99th percentile of the recorded times.
+	 * @return 99th percentile
+	 */
+	long getP99();
+
+	/**
+	 * Returns the 99.9th percentile of the recorded times.
+	 * @return 99.9th percentile
+	 */
+	long getP999();
+
+	/**
+	 * Discards all recorded times.
+	 */
+	void reset();
+}
@@ -0,0 +1,168 @@
+/**
+ *
+ */
+package my_package.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Creates the Counters and LatencyHistograms that CourseManager, Course
+ * and the record I/O classes keep, and publishes them as MBeans.  Each
+ * metric is named by the class it measures and what it measures, and is
+ * registered as DOMAIN:type=&lt;class&gt;,name=&lt;name&gt;, e.g.
+ * my_package:type=CourseManager,name=login.
+ *
+ * Metrics are disabled until setEnabled(true) is called or the JVM is
+ * started with -Dmy_package.metrics=true.  While disabled nothing is
+ * recorded and no MBeans are registered, so the only cost on an
+ * instrumented path is a read of the enabled flag.  Enabling registers
+ * every metric created so far and every metric created afterwards.
+ * Disabling stops recording and keeps the values and MBeans.
+ *
+ * @author jim2
+ *
+ */
+public final class Metrics {
+	/** JMX domain of the MBeans */
+	public static final String DOMAIN = "my_package";
+	/** System property that enables Metrics when set to true */
+	public static final String ENABLED_PROPERTY = "my_package.metrics";
+	/** True while times and events are recorded */
+	private static volatile boolean enabled;
+	/** True once the metrics are registered as MBeans */
+	private static boolean registered;
+	/** All metrics, indexed by ObjectName */
+	private static final Map<String, Object> METRICS = new ConcurrentHashMap<String, Object>();
+
+	static {
+		if (Boolean.getBoolean(ENABLED_PROPERTY)) {
+			setEnabled(true);
+		}
+	}
+
+	/**
+	 * Metrics only has static methods.
+	 */
+	private Metrics() {
+		//Not created
+	}
+
+	/**
+	 * Returns true if times and events are recorded.
+	 * @return true if enabled
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Starts or stops recording.  The first time Metrics are enabled, every
+	 * metric is registered with the platform MBeanServer.
+	 * @param enabled true to record times and events
+	 */
+	public static synchronized void setEnabled(boolean enabled) {
+		if (enabled && !registered) {
+			for (Map.Entry<String, Object> e : METRICS.entrySet()) {
+				register(e.getKey(), e.getValue());
+			}
+			registered = true;
+		}
+		Metrics.enabled = enabled;
+	}
+
+	/**
+	 * Returns the start time to pass to LatencyHistogram.recordSince(), or
+	 * 0 if Metrics are disabled.
+	 * @return System.nanoTime(), or 0 if disabled
+	 */
+	public static long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Returns the Counter with the given type and name, creating it the
+	 * first time it is asked for.
+	 * @param type simple name of the measured class
+	 * @param name what the Counter counts
+	 * @return the Counter
+	 */
+	public static Counter counter(String type, String name) {
+		return (Counter) get(type, name, true);
+	}
+
+	/**
+	 * Returns the LatencyHistogram with the given type and name, creating
+	 * it the first time it is asked for.
+	 * @param type simple name of the measured class
+	 * @param name what the histogram times
+	 * @return the LatencyHistogram
+	 */
+	public static LatencyHistogram histogram(String type, String name) {
+		return (LatencyHistogram) get(type, name, false);
+	}
+
+	/**
+	 * Returns the metric with the given type and name, creating it if there
+	 * is none.  An IllegalArgumentException is thrown if the name is taken
+	 * by the other kind of metric.
+	 * @param type simple name of the measured class
+	 * @param name name of the metric
+	 * @param counter true for a Counter, false for a LatencyHistogram
+	 * @return the metric
+	 */
+	private static synchronized Object get(String type, String name, boolean counter) {
+		if (type == null || name == null) {
+			throw new IllegalArgumentException();
+		}
+		String objectName = DOMAIN + ":type=" + type + ",name=" + name;
+		Object metric = METRICS.get(objectName);
+		if (metric == null) {
+			metric = counter ? new Counter() : new LatencyHistogram();
+			if (registered) {
+				register(objectName, metric);
+			}
+			METRICS.put(objectName, metric);
+		} else if (metric instanceof Counter != counter) {
+			throw new IllegalArgumentException(objectName + " is already used.");
+		}
+		return metric;
+	}
+
+	/**
+	 * Registers a metric with the platform MBeanServer.  A metric that is
+	 * already registered, for example by another class loader, is left as
+	 * it is.
+	 * @param objectName ObjectName of the metric
+	 * @param metric metric to register
+	 */
+	private static void register(String objectName, Object metric) {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.registerMBean(metric, new ObjectName(objectName));
+		} catch (InstanceAlreadyExistsException e) {
+			//Keep the registered metric
+		} catch (JMException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Sets every Counter back to zero and discards every recorded time.
+	 */
+	public static void reset() {
+		for (Object metric : METRICS.values()) {
+			if (metric instanceof Counter) {
+				((Counter) metric).reset();
+			} else {
+				((LatencyHistogram) metric).reset();
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/**
+ *
+ */
+package my_package.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for one phase of loading or saving the
+ * record files, such as parsing the student file or adding the parsed
+ * Students to the catalog.  Enrollments made while a file is parsed are
+ * recorded as EnrollmentEvents inside the parsing phase, so a recording
+ * shows how much of the phase was spent enrolling.
+ *
+ * A phase is started with start() and ended with commit().  Nothing is
+ * recorded, and the JIT compiler removes the event, when no recording 
+ * has the event enabled.
+ *
+ * @author jim2
+ *
+ */
+@Name("my_package.Phase")
+@Label("Load or Save Phase")
+@Category({"CourseManager"})
+@Description("One phase of loading or saving course and student records")
+public class PhaseEvent extends Event {
+	/** Operation the phase belongs to, e.g. loadStudents */
+	@Label("Operation")
+	String operation;
+	/** Phase of the operation, e.g. readStudentRecords */
+	@Label("Phase")
+	String phase;
+	/** File read or written */
+	@Label("File")
+	String file;
+	/** Number of records handled in the phase */
+	@Label("Records")
+	long records;
+
+	/**
+	 * Creates and begins a phase event.
+	 * @param operation operation the phase belongs to
+	 * @param phase phase of the operation
+	 * @param file file read or written, or null
+	 * @return the begun event
+	 */
+	public static PhaseEvent start(String operation, String phase, String file) {
+		PhaseEvent event = new PhaseEvent();
+		event.operation = operation;
+		event.phase = phase;
+		event.file = file;
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the phase and records it if a recording has it enabled and it
+	 * lasted long enough for the recording's threshold.
+	 * @param records number of records handled in the phase
+	 */
+	public void commit(long records) {
+		end();
+		if (shouldCommit()) {
+			this.records = records;
+			commit();
+		}
+	}
+}
@@ -4,19 +4,33 @@
 package my_package.users;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.stream.Collectors;
 
 import my_package.courses.Course;
 
 /**
+ * A Student that can enroll in Courses.  A Student's methods are 
+ * synchronized so that a Student can be read and changed from more than 
+ * one thread.  Use my_package.manager.EnrollmentTransaction to change a
+ * Student and a Course together.
+ * 
  * @author jim2
  *
  */
 public class Student extends User {
 	/** Courses enrolled in */
 	private ArrayList<Course> courses;
+	/** Unmodifiable copy of courses, replaced whenever courses changes */
+	private volatile List<Course> courseView = Collections.emptyList();
 	/** Maximum number of credits student is eligible to enroll in */
 	private int maxCredits;
+	/** Sum of the credits of the courses */
+	private int currentCredits;
+	/** Course.getCreditsVersion() when currentCredits was last summed */
+	private long creditsVersion;
 	/** Maximum number of credits any student can enroll in */
 	public static final int MAX_CREDITS = 18;
 	
@@ -48,25 +62,38 @@ public class Student extends User {
 
 	
 	/**
-	 * 
+	 * Returns the number of credits the student is enrolled in.  The total
+	 * is kept up to date as courses are added and removed, and is only 
+	 * summed again if some Course's credits have changed since the last
+	 * time it was summed.
+	 * @return the current credits
 	 */
-	public int getCurrentCredits() {
-		return courses.stream()
-				.mapToInt(Course::getCredits)
-				.sum();
+	public synchronized int getCurrentCredits() {
+		//Read the version before the credits so that a change made while 
+		//summing is seen on the next call
+		long version = Course.getCreditsVersion();
+		if (version != creditsVersion) {
+			int sum = 0;
+			for (int i = 0; i < courses.size(); i++) {
+				sum += courses.get(i).getCredits();
+			}
+			currentCredits = sum;
+			creditsVersion = version;
+		}
+		return currentCredits;
 	}
 	
 	/**
 	 * @return the maxCredits
 	 */
-	public int getMaxCredits() {
+	public synchronized int getMaxCredits() {
 		return maxCredits;
 	}
 
 	/**
 	 * @param maxCredits the maxCredits to set
 	 */
-	public void setMaxCredits(int maxCredits) {
+	public synchronized void setMaxCredits(int maxCredits) {
 		if (maxCredits < 0 || maxCredits > MAX_CREDITS || maxCredits < getCurrentCredits()) {
 			throw new IllegalArgumentException();
 		}
@@ -77,7 +104,7 @@ public class Student extends User {
 	 * @see my_package.users.User#canAddCourse(my_package.users.Course)
 	 */
 	@Override
-	public boolean canAddCourse(Course c) {
+	public synchronized boolean canAddCourse(Course c) {
 		return (getCurrentCredits() + c.getCredits() <= maxCredits) && (courses.contains(c)==false);
 	}
 
@@ -85,9 +112,11 @@ public class Student extends User {
 	 * @see my_package.users.User#addCourse(my_package.users.Course)
 	 */
 	@Override
-	public boolean addCourse(Course c) {
+	public synchronized boolean addCourse(Course c) {
 		if (canAddCourse(c)) {
 			if (courses.add(c)) {
+				currentCredits += c.getCredits();
+				updateCourseView();
 				return true;
 			}
 		}
@@ -98,58 +127,68 @@ public class Student extends User {
 	 * @see my_package.users.User#removeCourse(my_package.users.Course)
 	 */
 	@Override
-	public boolean removeCourse(Course c) {
-		return courses.remove(c);
+	public synchronized boolean removeCourse(Course c) {
+		int idx = courses.indexOf(c);
+		if (idx == -1) {
+			return false;
+		}
+		getCurrentCredits();
+		currentCredits -= courses.remove(idx).getCredits();
+		updateCourseView();
+		return true;
+	}
+
+	/**
+	 * Replaces the course view with a copy of the courses.  Called with 
+	 * the lock held whenever the courses change.
+	 */
+	private void updateCourseView() {
+		courseView = Collections.unmodifiableList(Arrays.asList(courses.toArray(new Course[courses.size()])));
 	}
 
 	/* (non-Javadoc)
 	 * @see my_package.users.User#getCourses()
 	 */
 	@Override
-	public Course[] getCourses() {
+	public synchronized Course[] getCourses() {
 		Course [] c = new Course[courses.size()];
 		return courses.toArray(c);
 	}
 
-	/* (non-Javadoc)
-	 * @see java.lang.Object#hashCode()
+	/**
+	 * Returns the courses as a read-only list without copying or locking.
+	 * Courses are rarely added or removed compared with how often they 
+	 * are listed, so the list is copied when the courses change instead.
+	 * @return unmodifiable list of courses
 	 */
 	@Override
-	public int hashCode() {
-		final int prime = 31;
-		int result = super.hashCode();
-		result = prime * result + ((courses == null) ? 0 : courses.hashCode());
-		result = prime * result + maxCredits;
-		return result;
+	public List<Course> getCourseView() {
+		return courseView;
 	}
 
-	/* (non-Javadoc)
-	 * @see java.lang.Object#equals(java.lang.Object)
+	/**
+	 * Returns true if the other user is a Student with the same fields,
+	 * maximum credits and courses, in the same order.
+	 * @param other user to compare
+	 * @return true if every field is equal
 	 */
 	@Override
-	public boolean equals(Object obj) {
-		if (this == obj)
+	public boolean deepEquals(User other) {
+		if (this == other)
 			return true;
-		if (!super.equals(obj))
-			return false;
-		if (getClass() != obj.getClass())
+		if (!super.deepEquals(other))
 			return false;
-		Student other = (Student) obj;
-		if (courses == null) {
-			if (other.courses != null)
-				return false;
-		} else if (!courses.equals(other.courses))
+		Student s = (Student) other;
+		if (getMaxCredits() != s.getMaxCredits())
 			return false;
-		if (maxCredits != other.maxCredits)
-			return false;
-		return true;
+		return Arrays.equals(getCourses(), s.getCourses());
 	}
 
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
 	@Override
-	public String toString() {
+	public synchronized String toString() {
 		String result = super.toString() + "," + maxCredits;
 		if (courses.size() > 0) {
 			result += ","  
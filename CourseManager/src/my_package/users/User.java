@@ -3,6 +3,8 @@
  */
 package my_package.users;
 
+import java.util.List;
+
 import my_package.courses.Course;
 
 /**
@@ -126,23 +128,25 @@ public abstract class User {
 				+ "," + password;
 	}
 
-	/* (non-Javadoc)
-	 * @see java.lang.Object#hashCode()
+	/**
+	 * Returns a hash code based on the user's id.  The id can't change
+	 * once the user is created, so the hash code never changes and
+	 * users can be used as keys in hash based collections.
+	 * @return hash code
 	 */
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((email == null) ? 0 : email.hashCode());
-		result = prime * result + ((firstName == null) ? 0 : firstName.hashCode());
 		result = prime * result + ((id == null) ? 0 : id.hashCode());
-		result = prime * result + ((lastName == null) ? 0 : lastName.hashCode());
-		result = prime * result + ((password == null) ? 0 : password.hashCode());
 		return result;
 	}
 
-	/* (non-Javadoc)
-	 * @see java.lang.Object#equals(java.lang.Object)
+	/**
+	 * Returns true if the other object is the same kind of user with the
+	 * same id.  Use deepEquals() to compare every field.
+	 * @param obj object to compare
+	 * @return true if the object is the same user
 	 */
 	@Override
 	public boolean equals(Object obj) {
@@ -153,6 +157,27 @@ public abstract class User {
 		if (getClass() != obj.getClass())
 			return false;
 		User other = (User) obj;
+		if (id == null) {
+			if (other.id != null)
+				return false;
+		} else if (!id.equals(other.id))
+			return false;
+		return true;
+	}
+
+	/**
+	 * Returns true if the other user is the same kind of user and all of 
+	 * the user's fields are equal.
+	 * @param other user to compare
+	 * @return true if every field is equal
+	 */
+	public boolean deepEquals(User other) {
+		if (this == other)
+			return true;
+		if (other == null)
+			return false;
+		if (getClass() != other.getClass())
+			return false;
 		if (email == null) {
 			if (other.email != null)
 				return false;
@@ -209,6 +234,14 @@ public abstract class User {
 	 * @return user's courses
 	 */
 	public abstract Course[] getCourses();
+
+	/**
+	 * Returns the user's courses as a read-only list that is not copied.
+	 * The list does not change; it is replaced each time a course is 
+	 * added or removed, so call this again to see later changes.
+	 * @return unmodifiable list of the user's courses
+	 */
+	public abstract List<Course> getCourseView();
 	
 	/**
 	 * @return the firstName
@@ -0,0 +1,153 @@
+package my_package.courses;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import org.junit.Test;
+
+import my_package.users.Student;
+
+/**
+ * Tests that Course keeps its capacity and roster consistent when
+ * enroll() and drop() are called from many threads at once.
+ */
+public class ConcurrentCourseTest {
+
+	/** Number of threads used by each test */
+	private static final int THREADS = 8;
+
+	/**
+	 * Creates students with ids s0 through s(count - 1).
+	 * @param count number of students
+	 * @return students
+	 */
+	private Student [] createStudents(int count) {
+		Student [] students = new Student[count];
+		for (int i = 0; i < count; i++) {
+			students[i] = new Student("first", "last", "s" + i, "first_last@ncsu.edu", "pw");
+		}
+		return students;
+	}
+
+	/**
+	 * Starts the given number of threads running the task and waits for
+	 * them to finish.
+	 * @param task task to run on each thread, given the thread's number
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private void runThreads(IntConsumer task) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		Thread [] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			final int n = t;
+			threads[t] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				task.accept(n);
+			});
+			threads[t].start();
+		}
+		start.countDown();
+		for (Thread t : threads) {
+			t.join();
+		}
+	}
+
+	/**
+	 * Tests that many threads enrolling at once fill the course exactly
+	 * to capacity.
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	@Test
+	public void testConcurrentEnroll() throws InterruptedException {
+		Course c = new Course("CSC216", 3, 10);
+		Student [] students = createStudents(200);
+		AtomicInteger enrolled = new AtomicInteger();
+
+		runThreads(t -> {
+			for (int i = t; i < students.length; i += THREADS) {
+				if (c.enroll(students[i])) {
+					enrolled.incrementAndGet();
+				}
+			}
+		});
+
+		assertEquals(10, enrolled.get());
+		assertEquals(10, c.getEnrolledStudents().length);
+		assertFalse(c.canEnroll(students[0]));
+	}
+
+	/**
+	 * Tests that a single student enrolling from many threads at once
+	 * only takes one seat.
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	@Test
+	public void testConcurrentDuplicateEnroll() throws InterruptedException {
+		Course c = new Course("CSC216", 3, 10);
+		Student s = createStudents(1)[0];
+		AtomicInteger enrolled = new AtomicInteger();
+
+		runThreads(t -> {
+			if (c.enroll(s)) {
+				enrolled.incrementAndGet();
+			}
+		});
+
+		assertEquals(1, enrolled.get());
+		assertEquals(1, c.getEnrolledStudents().length);
+	}
+
+	/**
+	 * Tests that enrolling and dropping from many threads never fills
+	 * the course past capacity and leaves the roster consistent.
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	@Test
+	public void testConcurrentEnrollDrop() throws InterruptedException {
+		Course c = new Course("CSC216", 3, 5);
+		Student [] students = createStudents(40);
+		AtomicInteger overbooked = new AtomicInteger();
+
+		runThreads(t -> {
+			//Each thread works on its own students so that a student is
+			//never enrolled and dropped at the same time
+			for (int round = 0; round < 2000; round++) {
+				Student s = students[t + THREADS * (round % (students.length / THREADS))];
+				if (!c.enroll(s)) {
+					c.drop(s);
+				}
+				if (c.getOpenSeats() < 0) {
+					overbooked.incrementAndGet();
+				}
+			}
+		});
+
+		assertEquals(0, overbooked.get());
+		Student [] roster = c.getEnrolledStudents();
+		assertTrue(roster.length <= 5);
+		assertEquals(c.getCapacity() - c.getOpenSeats(), roster.length);
+		HashSet<String> ids = new HashSet<String>();
+		for (Student s : roster) {
+			assertTrue(ids.add(s.getId()));
+			assertFalse(c.canEnroll(s));
+		}
+
+		//Dropping everyone frees every seat
+		for (Student s : roster) {
+			assertTrue(c.drop(s));
+		}
+		assertEquals(0, c.getEnrolledStudents().length);
+		for (int i = 0; i < 5; i++) {
+			assertTrue(c.enroll(students[i]));
+		}
+		assertFalse(c.enroll(students[5]));
+	}
+}
@@ -5,6 +5,9 @@ import static org.junit.Assert.*;
 import org.junit.Test;
 
 import my_package.courses.Course;
+import my_package.metrics.Counter;
+import my_package.metrics.Metrics;
+import my_package.users.Student;
 
 /**
  * Tests for Course. 
@@ -164,6 +167,29 @@ public class CourseTest {
 		assertEquals(10, c.getCapacity());
 	}
 	
+	/**
+	 * Tests that only a real change to an existing Course's credits
+	 * changes the credits version, so creating Courses does not make
+	 * every Student sum its credits again.
+	 */
+	@Test
+	public void testCreditsVersion() {
+		long version = Course.getCreditsVersion();
+		Course c = new Course("CSC216", 3, 10);
+		new Course("CSC226", 4, 10);
+		assertEquals(version, Course.getCreditsVersion());
+		c.setCredits(3);
+		assertEquals(version, Course.getCreditsVersion());
+		c.setCredits(4);
+		assertTrue(Course.getCreditsVersion() != version);
+		try {
+			new Course("CSC316", Course.MAX_HOURS + 1, 10);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+	}
+
 	/**
 	 * Test setCapacity() after a valid course object is created.
 	 */
@@ -206,5 +232,141 @@ public class CourseTest {
 		assertNotEquals(c1.hashCode(), c4.hashCode());
 	}
 
-}
 
+	/**
+	 * Tests enrolling students that are not loaded yet.
+	 */
+	@Test
+	public void testEnrollPlaceholder() {
+		Course c = new Course("CSC216", 3, 2);
+		Student s1 = new Student("Zahir", "King", "zking", "orci.Donec@ametmassaQuisque.com", "pw", 15);
+		Student s2 = new Student("Lane", "Berg", "lberg", "sociis@non.org", "pw", 14);
+		int [] loads = new int[1];
+		assertTrue(c.enroll("zking", () -> {
+			loads[0]++;
+			return s1;
+		}));
+		assertFalse(c.enroll("zking", () -> s1));
+		assertFalse(c.enroll(s1));
+		assertFalse(c.canEnroll(s1));
+		assertTrue(c.enroll(s2));
+		assertFalse(c.enroll("ahicks", () -> s1));
+		assertEquals(0, c.getOpenSeats());
+		assertEquals(0, loads[0]);
+
+		Student [] roster = c.getEnrolledStudents();
+		assertArrayEquals(new Student[] {s1, s2}, roster);
+		c.getEnrolledStudents();
+		assertEquals(1, loads[0]);
+
+		assertTrue(c.drop(s1));
+		assertEquals(1, c.getOpenSeats());
+		try {
+			c.enroll(null, () -> s1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(1, c.getOpenSeats());
+		}
+	}
+
+	/**
+	 * Tests that dropping a student promotes the first waitlisted student
+	 * who can add the course.
+	 */
+	@Test
+	public void testWaitlist() {
+		Course c = new Course("CSC216", 3, 1);
+		Student s1 = new Student("Zahir", "King", "zking", "orci.Donec@ametmassaQuisque.com", "pw", 15);
+		Student s2 = new Student("Lane", "Berg", "lberg", "sociis@non.org", "pw", 2);
+		Student s3 = new Student("Emerald", "Frost", "efrost", "adipiscing@acipsumPhasellus.ca", "pw", 3);
+		Student s4 = new Student("Griffith", "Stone", "gstone", "porta@magnamalesuadavel.net", "pw", 17);
+		assertTrue(c.enroll(s1));
+		assertTrue(s1.addCourse(c));
+		assertFalse(c.waitlist(s1));
+		assertNull(c.nextWaitlisted());
+		assertTrue(c.waitlist(s2));
+		assertTrue(c.waitlist(s3));
+		assertTrue(c.waitlist(s4));
+		assertFalse(c.waitlist(s3));
+		assertArrayEquals(new Student[] {s2, s3, s4}, c.getWaitlist());
+		//Full
+		assertNull(c.nextWaitlisted());
+		assertFalse(c.promote(s3));
+
+		//s2 cannot add the course and keeps its place
+		assertTrue(c.drop(s1));
+		assertTrue(s1.removeCourse(c));
+		assertArrayEquals(new Student[] {s3}, c.getEnrolledStudents());
+		assertArrayEquals(new Course[] {c}, s3.getCourses());
+		assertArrayEquals(new Student[] {s2, s4}, c.getWaitlist());
+
+		assertTrue(c.leaveWaitlist(s2));
+		assertFalse(c.leaveWaitlist(s2));
+		assertFalse(c.leaveWaitlist(null));
+		assertEquals(1, c.getWaitlistSize());
+
+		//Dropping without promoting leaves the seat open
+		assertTrue(c.drop(s3, false));
+		assertTrue(s3.removeCourse(c));
+		assertEquals(1, c.getOpenSeats());
+		assertSame(s4, c.nextWaitlisted());
+		assertFalse(c.promote(s1));
+		assertTrue(c.promote(s4));
+		assertArrayEquals(new Student[] {s4}, c.getEnrolledStudents());
+		assertEquals(0, c.getWaitlistSize());
+
+		//A waitlisted student who enrolls some other way is removed
+		c.setCapacity(3);
+		assertTrue(c.waitlist(s1));
+		assertTrue(c.enroll(s1));
+		assertNull(c.nextWaitlisted());
+		assertEquals(0, c.getWaitlistSize());
+	}
+
+	/**
+	 * Tests that enrollment outcomes are counted only while Metrics are
+	 * enabled, and that full courses and duplicates are counted apart.
+	 */
+	@Test
+	public void testMetrics() {
+		Counter enrolled = Metrics.counter("Course", "enrolled");
+		Counter full = Metrics.counter("Course", "enrollFull");
+		Counter duplicate = Metrics.counter("Course", "enrollDuplicate");
+		Counter canEnrollFull = Metrics.counter("Course", "canEnrollFull");
+		Counter canEnrollDuplicate = Metrics.counter("Course", "canEnrollDuplicate");
+		Counter dropped = Metrics.counter("Course", "dropped");
+		Course c = new Course("CSC216", 3, 2);
+		Student s1 = new Student("Zahir", "King", "zking", "orci.Donec@ametmassaQuisque.com", "pw", 15);
+		Student s2 = new Student("Lane", "Berg", "lberg", "sociis@non.org", "pw", 15);
+		Student s3 = new Student("Emerald", "Frost", "efrost", "adipiscing@acipsumPhasellus.ca", "pw", 15);
+
+		Metrics.setEnabled(true);
+		try {
+			Metrics.reset();
+			assertTrue(c.canEnroll(s1));
+			assertTrue(c.enroll(s1));
+			//Duplicates
+			assertFalse(c.canEnroll(s1));
+			assertFalse(c.enroll(s1));
+			assertTrue(c.enroll(s2));
+			//Full
+			assertFalse(c.canEnroll(s3));
+			assertFalse(c.enroll(s3));
+			assertTrue(c.drop(s1));
+			assertFalse(c.drop(s1));
+			assertEquals(2, enrolled.getCount());
+			assertEquals(1, full.getCount());
+			assertEquals(1, duplicate.getCount());
+			assertEquals(1, canEnrollFull.getCount());
+			assertEquals(1, canEnrollDuplicate.getCount());
+			assertEquals(1, dropped.getCount());
+		} finally {
+			Metrics.setEnabled(false);
+		}
+
+		assertTrue(c.enroll(s1));
+		assertFalse(c.enroll(s1));
+		assertEquals(2, enrolled.getCount());
+		assertEquals(1, duplicate.getCount());
+	}
+}
@@ -0,0 +1,124 @@
+package my_package.courses;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import my_package.users.Student;
+
+/**
+ * Tests the Roster class.
+ */
+public class RosterTest {
+
+	/**
+	 * Creates a student with the given id.
+	 * @param id student id
+	 * @return student
+	 */
+	private Student student(String id) {
+		return new Student("first", "last", id, "first_last@ncsu.edu", "pw");
+	}
+
+	/**
+	 * Tests claiming, committing and cancelling entries.
+	 */
+	@Test
+	public void testClaim() {
+		Roster roster = new Roster();
+		Student s1 = student("s1");
+		Roster.Entry e1 = roster.claim(s1);
+		assertNotNull(e1);
+		assertTrue(roster.contains("s1"));
+		//A claimed but uncommitted entry is not enrolled
+		assertEquals(0, roster.toArray().length);
+		assertFalse(roster.drop("s1"));
+		//The same id can't be claimed twice, even by another object
+		assertNull(roster.claim(student("s1")));
+
+		roster.commit(e1);
+		assertEquals(1, roster.toArray().length);
+		assertSame(s1, roster.toArray()[0]);
+
+		Roster.Entry e2 = roster.claim(student("s2"));
+		roster.cancel(e2);
+		assertFalse(roster.contains("s2"));
+		assertEquals(1, roster.toArray().length);
+	}
+
+	/**
+	 * Tests that drops keep the enrollment order of the remaining
+	 * students, including after dropped entries are unlinked.
+	 */
+	@Test
+	public void testDropOrder() {
+		Roster roster = new Roster();
+		for (int i = 0; i < 100; i++) {
+			roster.commit(roster.claim(student("s" + i)));
+		}
+		//Drop every even student
+		for (int i = 0; i < 100; i += 2) {
+			assertTrue(roster.drop("s" + i));
+			assertFalse(roster.drop("s" + i));
+			assertFalse(roster.contains("s" + i));
+		}
+		Student [] students = roster.toArray();
+		assertEquals(50, students.length);
+		for (int i = 0; i < students.length; i++) {
+			assertEquals("s" + (2 * i + 1), students[i].getId());
+		}
+
+		//A dropped student re-enrolls at the end
+		roster.commit(roster.claim(student("s0")));
+		students = roster.toArray();
+		assertEquals(51, students.length);
+		assertEquals("s1", students[0].getId());
+		assertEquals("s0", students[50].getId());
+	}
+
+	/**
+	 * Tests that the view follows the roster without being copied.
+	 */
+	@Test
+	public void testView() {
+		Roster roster = new Roster();
+		Collection<Student> view = roster.view();
+		assertTrue(view.isEmpty());
+		Student s1 = student("s1");
+		Student s2 = student("s2");
+		roster.commit(roster.claim(s1));
+		Roster.Entry pending = roster.claim(s2);
+		assertEquals(1, view.size());
+		assertFalse(view.contains(s2));
+
+		roster.commit(pending);
+		assertEquals(Arrays.asList(s1, s2), new ArrayList<Student>(view));
+		assertTrue(view.contains(s2));
+		assertFalse(view.contains(student("s3")));
+
+		Iterator<Student> it = view.iterator();
+		assertSame(s1, it.next());
+		//Drops made while iterating are seen
+		assertTrue(roster.drop("s2"));
+		assertFalse(it.hasNext());
+		try {
+			it.next();
+			fail();
+		} catch (NoSuchElementException e) {
+			assertEquals(1, view.size());
+		}
+		try {
+			view.remove(s1);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			assertTrue(roster.contains("s1"));
+		}
+		assertSame(view, roster.view());
+	}
+}
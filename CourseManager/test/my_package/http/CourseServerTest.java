@@ -0,0 +1,217 @@
+package my_package.http;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import my_package.courses.Course;
+import my_package.manager.CourseManager;
+import my_package.users.Student;
+
+/**
+ * Tests the CourseServer class against a running server on a free port.
+ */
+public class CourseServerTest {
+
+	/** Server under test */
+	private CourseServer server;
+	/** HTTP client */
+	private HttpClient http;
+	/** Server URL */
+	private String base;
+
+	/**
+	 * Loads two Courses and two Students and starts the server.
+	 * @throws IOException if the server cannot be started
+	 */
+	@Before
+	public void setUp() throws IOException {
+		CourseManager manager = CourseManager.getInstance();
+		manager.clearData();
+		manager.addCourse(new Course("CSC216", 3, 1));
+		manager.addCourse(new Course("CSC226", 4, 10));
+		String password = manager.getCredentialVerifier().hash("pw");
+		manager.addStudent(new Student("Zahir", "King", "zking", "orci.Donec@ametmassaQuisque.com", password, 15));
+		manager.addStudent(new Student("Lane", "Berg", "lberg", "sociis@non.org", password, 15));
+
+		server = new CourseServer(manager, new InetSocketAddress("127.0.0.1", 0));
+		server.start();
+		base = "http://127.0.0.1:" + server.getPort();
+		http = HttpClient.newHttpClient();
+	}
+
+	/**
+	 * Stops the server and clears the CourseManager.
+	 */
+	@After
+	public void tearDown() {
+		server.stop(0);
+		CourseManager.getInstance().clearData();
+	}
+
+	/**
+	 * Tests logging in, listing, enrolling, dropping and logging out.
+	 * @throws Exception if a request fails
+	 */
+	@Test
+	public void testRegistration() throws Exception {
+		HttpResponse<String> r = post("/login", null, "id=zking&password=wrong");
+		assertEquals(401, r.statusCode());
+		r = post("/login", null, "id=zking&password=pw");
+		assertEquals(200, r.statusCode());
+		assertEquals("application/json; charset=utf-8", r.headers().firstValue("Content-Type").get());
+		String token = token(r.body());
+		String other = token(post("/login", null, "id=lberg&password=pw").body());
+
+		r = get("/courses", null);
+		assertEquals(200, r.statusCode());
+		assertEquals("[{\"name\":\"CSC216\",\"credits\":3,\"capacity\":1,\"openSeats\":1},"
+				+ "{\"name\":\"CSC226\",\"credits\":4,\"capacity\":10,\"openSeats\":10}]", r.body());
+		assertEquals("[]", get("/courses/mine", token).body());
+
+		r = post("/enroll", token, "course=CSC216");
+		assertEquals(200, r.statusCode());
+		assertEquals("{\"course\":\"CSC216\",\"enrolled\":true}", r.body());
+		assertEquals("{\"course\":\"CSC216\",\"enrolled\":false}", post("/enroll", other, "course=CSC216").body());
+		assertEquals("[{\"name\":\"CSC216\",\"credits\":3,\"capacity\":1,\"openSeats\":0}]",
+				get("/courses/mine", token).body());
+
+		r = post("/drop", token, "course=CSC216");
+		assertEquals("{\"course\":\"CSC216\",\"dropped\":true}", r.body());
+		assertEquals("{\"course\":\"CSC216\",\"dropped\":false}", post("/drop", token, "course=CSC216").body());
+		assertEquals("[]", get("/courses/mine", token).body());
+
+		assertEquals(204, post("/logout", token, "").statusCode());
+		assertEquals(401, post("/logout", token, "").statusCode());
+		assertEquals(401, post("/enroll", token, "course=CSC216").statusCode());
+		assertEquals(1, CourseManager.getInstance().getSessionCount());
+	}
+
+	/**
+	 * Tests the error responses.
+	 * @throws Exception if a request fails
+	 */
+	@Test
+	public void testErrors() throws Exception {
+		String token = token(post("/login", null, "id=zking&password=pw").body());
+
+		HttpResponse<String> r = post("/enroll", token, "course=CSC999");
+		assertEquals(404, r.statusCode());
+		assertEquals("{\"error\":\"No such course\"}", r.body());
+		r = post("/enroll", token, "");
+		assertEquals(400, r.statusCode());
+		assertEquals("{\"error\":\"Missing course\"}", r.body());
+		assertEquals(400, post("/login", null, "id=zking").statusCode());
+		assertEquals(400, post("/enroll", token, "course=%zz").statusCode());
+
+		assertEquals(401, get("/courses/mine", null).statusCode());
+		assertEquals(401, get("/courses/mine", "not-a-token").statusCode());
+		assertEquals(401, post("/drop", null, "course=CSC216").statusCode());
+
+		r = get("/enroll", token);
+		assertEquals(405, r.statusCode());
+		assertEquals("POST", r.headers().firstValue("Allow").get());
+		assertEquals(405, post("/courses", null, "").statusCode());
+		assertEquals(404, get("/courses/CSC216", null).statusCode());
+		assertEquals(404, get("/", null).statusCode());
+	}
+
+	/**
+	 * Tests reading form fields.
+	 */
+	@Test
+	public void testParseForm() {
+		Map<String, String> form = CourseServer.parseForm("id=z+king&password=p%26w&id=other&flag&&empty=");
+		assertEquals("z king", form.get("id"));
+		assertEquals("p&w", form.get("password"));
+		assertEquals("", form.get("flag"));
+		assertEquals("", form.get("empty"));
+		assertEquals(4, form.size());
+		assertTrue(CourseServer.parseForm("").isEmpty());
+		try {
+			CourseServer.parseForm("id=%4");
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+	}
+
+	/**
+	 * Tests writing JSON.
+	 */
+	@Test
+	public void testJson() {
+		assertEquals("\"a\\\"b\\\\c\\u000ad\"", CourseServer.quote("a\"b\\c\nd"));
+		assertEquals("[]", CourseServer.courses(Arrays.asList()));
+		assertEquals("[{\"name\":\"CSC116\",\"credits\":3,\"capacity\":7,\"openSeats\":7}]",
+				CourseServer.courses(Arrays.asList(new Course("CSC116", 3, 7))));
+	}
+
+	/**
+	 * Tests that requests are handled on virtual threads when the JVM has
+	 * them.
+	 */
+	@Test
+	public void testExecutor() {
+		boolean virtual = Runtime.version().feature() >= 21;
+		String name = CourseServer.newExecutor().getClass().getSimpleName();
+		assertEquals(virtual, "ThreadPerTaskExecutor".equals(name));
+	}
+
+	/**
+	 * Returns the token in a login response.
+	 * @param body login response body
+	 * @return session token
+	 */
+	private static String token(String body) {
+		Matcher m = Pattern.compile("\\{\"token\":\"([^\"]+)\",\"id\":\"[a-z]+\"\\}").matcher(body);
+		assertTrue(body, m.matches());
+		return m.group(1);
+	}
+
+	/**
+	 * Posts a form.
+	 * @param path request path
+	 * @param token session token, or null
+	 * @param form form encoded body
+	 * @return response
+	 * @throws Exception if the request fails
+	 */
+	private HttpResponse<String> post(String path, String token, String form) throws Exception {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path))
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(form));
+		if (token != null) {
+			request.header("Authorization", "Bearer " + token);
+		}
+		return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	/**
+	 * Gets a path.
+	 * @param path request path
+	 * @param token session token, or null
+	 * @return response
+	 * @throws Exception if the request fails
+	 */
+	private HttpResponse<String> get(String path, String token) throws Exception {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path));
+		if (token != null) {
+			request.header("Authorization", "Bearer " + token);
+		}
+		return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+	}
+}
@@ -0,0 +1,147 @@
+package my_package.io;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+import org.junit.Test;
+
+import my_package.courses.Course;
+
+/**
+ * Tests CourseRecordReader.
+ */
+public class CourseRecordReaderTest {
+
+	/** Lines that the Scanner based reader accepted or rejected */
+	private final String[] lines = { "CSC116,3,7", ",CSC116,3,7", ",,CSC116,3,7", "CSC116,,3,7", "CSC116,3,,7",
+			"CSC116,+3,7", "CSC116,03,7", "CSC116,-0,7", "CSC116,+-3,7", "CSC116,-,7", "CSC116,+,7",
+			"CSC116, 3,7", "CSC116,3 ,7", "CSC116,3,7 ", "CSC116,3,7\t", "CSC116,3,7,x", "CSC116,3,7,",
+			" CSC116 ,3,7", "a b,3,7", "CSC116,1_0,7", "CSC116,3,2147483647", "CSC116,3,2147483648",
+			"CSC116,3,-2147483648", "CSC116,3,99999999999999999999", "CSC116,\u0663,7", "", ",", "3,3",
+			"CSC116,3", "CSC116,5,", "CSC116,0,2", "CSC116,-1,3", "CSC116,3,0", "CSC116,3,-1", "CSC116,A,3" };
+
+	/**
+	 * Reads every Course from the stream.
+	 * @param in stream to read
+	 * @return Courses read
+	 */
+	private static List<Course> readAll(Reader in) {
+		List<Course> courses = new ArrayList<Course>();
+		try (CourseRecordReader reader = new CourseRecordReader(in)) {
+			for (Course c = reader.next(); c != null; c = reader.next()) {
+				courses.add(c);
+			}
+		} catch (IOException e) {
+			fail(e.getMessage());
+		}
+		return courses;
+	}
+
+	/**
+	 * Parses a line the way CourseRecordIO did with a Scanner.
+	 * @param line line to parse
+	 * @return Course or null if the line was ignored
+	 */
+	private static Course scannerParse(String line) {
+		Scanner lineScanner = new Scanner(line);
+		try {
+			lineScanner.useDelimiter(",");
+			String name = lineScanner.next();
+			int credits = lineScanner.nextInt();
+			int capacity = lineScanner.nextInt();
+			return new Course(name, credits, capacity);
+		} catch (NoSuchElementException | IllegalArgumentException e) {
+			return null;
+		} finally {
+			lineScanner.close();
+		}
+	}
+
+	/**
+	 * Tests that each line is accepted or rejected as the Scanner based
+	 * reader did.
+	 */
+	@Test
+	public void testSameAsScanner() {
+		for (String line : lines) {
+			Course expected = scannerParse(line);
+			List<Course> courses = readAll(new StringReader(line));
+			if (expected == null) {
+				assertEquals(line, 0, courses.size());
+			} else {
+				assertEquals(line, 1, courses.size());
+				assertEquals(line, expected.getName(), courses.get(0).getName());
+				assertEquals(line, expected.getCredits(), courses.get(0).getCredits());
+				assertEquals(line, expected.getCapacity(), courses.get(0).getCapacity());
+			}
+		}
+	}
+
+	/**
+	 * Tests the line terminators.
+	 */
+	@Test
+	public void testLineTerminators() {
+		List<Course> courses = readAll(new StringReader(
+				"A,1,1\nB,2,2\r\nC,3,3\rD,4,4\u2028E,1,5\r\n\r\nF,2,6\u0085G,3,7\u2029\nH,4,8"));
+		String[] names = { "A", "B", "C", "D", "E", "F", "G", "H" };
+		assertEquals(names.length, courses.size());
+		for (int i = 0; i < names.length; i++) {
+			assertEquals(names[i], courses.get(i).getName());
+			assertEquals(i + 1, courses.get(i).getCapacity());
+		}
+	}
+
+	/**
+	 * Tests lines that span buffer refills, including a \r\n split between
+	 * two reads and a line longer than the initial buffer.
+	 */
+	@Test
+	public void testBufferBoundaries() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			sb.append("CSC").append(i).append(",3,").append(i + 1).append("\r\n");
+		}
+		StringBuilder longName = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			longName.append('x');
+		}
+		sb.append(longName).append(",1,1");
+		String text = sb.toString();
+
+		//Hand out a few characters at a time so lines and \r\n pairs are split
+		Reader trickle = new StringReader(text) {
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				return super.read(cbuf, off, Math.min(len, 7));
+			}
+		};
+		List<Course> courses = readAll(trickle);
+		assertEquals(20001, courses.size());
+		for (int i = 0; i < 20000; i++) {
+			assertEquals("CSC" + i, courses.get(i).getName());
+			assertEquals(i + 1, courses.get(i).getCapacity());
+		}
+		assertEquals(longName.toString(), courses.get(20000).getName());
+	}
+
+	/**
+	 * Tests creating a reader without a stream.
+	 */
+	@Test
+	public void testNullReader() {
+		try {
+			new CourseRecordReader(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+}
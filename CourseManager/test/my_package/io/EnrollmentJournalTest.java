@@ -0,0 +1,203 @@
+package my_package.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import my_package.courses.Course;
+import my_package.users.Student;
+
+/**
+ * Tests EnrollmentJournal.
+ */
+public class EnrollmentJournalTest {
+
+	/** Journal file */
+	private File file;
+
+	/**
+	 * Records the changes handed to it as text.
+	 */
+	private static class Recorder implements EnrollmentJournal.Replayer {
+		/** Changes replayed so far */
+		private final List<String> changes = new ArrayList<String>();
+
+		@Override
+		public void courseCreated(String name, int credits, int capacity) {
+			if (credits < Course.MIN_HOURS) {
+				throw new IllegalArgumentException();
+			}
+			changes.add("course " + name + " " + credits + " " + capacity);
+		}
+
+		@Override
+		public void capacityChanged(String name, int capacity) {
+			changes.add("capacity " + name + " " + capacity);
+		}
+
+		@Override
+		public void enrolled(String id, String name) {
+			changes.add("add " + id + " " + name);
+		}
+
+		@Override
+		public void dropped(String id, String name) {
+			changes.add("drop " + id + " " + name);
+		}
+	}
+
+	/**
+	 * Creates the journal file.
+	 * @throws IOException if the file cannot be created
+	 */
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("journal", ".txt");
+	}
+
+	/**
+	 * Deletes the journal file.
+	 * @throws IOException if the file cannot be deleted
+	 */
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file.toPath());
+	}
+
+	/**
+	 * Replays the journal file.
+	 * @return changes in the journal
+	 * @throws IOException if the journal cannot be read
+	 */
+	private List<String> replay() throws IOException {
+		Recorder recorder = new Recorder();
+		try (EnrollmentJournal journal = new EnrollmentJournal(file.getPath())) {
+			journal.replay(recorder);
+		}
+		return recorder.changes;
+	}
+
+	/**
+	 * Tests that changes are replayed in the order they were appended,
+	 * including after the journal is reopened.
+	 * @throws IOException if the journal cannot be written
+	 */
+	@Test
+	public void testReplay() throws IOException {
+		Course course = new Course("CSC\u00e9216", 3, 10);
+		Student student = new Student("Zahir", "King", "zking", "orci.Donec@ametmassaQuisque.com", "pw", 15);
+		try (EnrollmentJournal journal = new EnrollmentJournal(file.getPath())) {
+			journal.courseCreated(course);
+			journal.enrolled(student, course);
+			assertEquals(2, journal.size());
+		}
+		try (EnrollmentJournal journal = new EnrollmentJournal(file.getPath())) {
+			assertEquals(2, journal.size());
+			course.setCapacity(12);
+			journal.capacityChanged(course);
+			journal.dropped(student, course);
+			journal.enrolled(student, Arrays.asList(course, new Course("CSC116", 3, 10)));
+			journal.enrolled(student, new ArrayList<Course>());
+			assertEquals(6, journal.size());
+		}
+		assertEquals(Arrays.asList("course CSC\u00e9216 3 10", "add zking CSC\u00e9216", "capacity CSC\u00e9216 12",
+				"drop zking CSC\u00e9216", "add zking CSC\u00e9216", "add zking CSC116"), replay());
+	}
+
+	/**
+	 * Tests that lines with format errors are ignored and that a cut off
+	 * last line is removed before changes are appended after it.
+	 * @throws IOException if the journal cannot be written
+	 */
+	@Test
+	public void testBadLines() throws IOException {
+		String lines = "A,zking,CSC216\n" + "\n" + "X,zking,CSC216\n" + "AA,zking,CSC216\n" + "A,zking\n"
+				+ "D,zking,CSC216,\n" + "C,CSC116,three,10\n" + "C,CSC116,0,10\n" + "P,CSC116,\n"
+				+ "P,CSC116,10\n" + "D,zking,CSC2";
+		Files.write(file.toPath(), lines.getBytes(StandardCharsets.UTF_8));
+		assertEquals(Arrays.asList("add zking CSC216", "capacity CSC116 10"), replay());
+		assertEquals(lines.length() - "D,zking,CSC2".length(), file.length());
+
+		//Nothing but a cut off line
+		Files.write(file.toPath(), "D,zking,CSC2".getBytes(StandardCharsets.UTF_8));
+		assertEquals(0, replay().size());
+		assertEquals(0, file.length());
+		Files.write(file.toPath(), lines.getBytes(StandardCharsets.UTF_8));
+
+		try (EnrollmentJournal journal = new EnrollmentJournal(file.getPath())) {
+			journal.dropped(new Student("Zahir", "King", "zking", "orci.Donec@ametmassaQuisque.com", "pw", 15),
+					new Course("CSC216", 3, 10));
+		}
+		assertEquals(Arrays.asList("add zking CSC216", "capacity CSC116 10", "drop zking CSC216"), replay());
+	}
+
+	/**
+	 * Tests that the lines already in the file are counted when the
+	 * journal is reopened, but not a cut off last line, and that an
+	 * emptied journal reopens empty.
+	 * @throws IOException if the journal cannot be written
+	 */
+	@Test
+	public void testReopenSize() throws IOException {
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			lines.append("A,s").append(i).append(",CSC216\n");
+		}
+		lines.append("D,s0,CSC2");
+		Files.write(file.toPath(), lines.toString().getBytes(StandardCharsets.UTF_8));
+		try (EnrollmentJournal journal = new EnrollmentJournal(file.getPath())) {
+			assertEquals(20000, journal.size());
+			journal.dropped(new Student("Zahir", "King", "s0", "orci.Donec@ametmassaQuisque.com", "pw", 15),
+					new Course("CSC216", 3, 10));
+			assertEquals(20001, journal.size());
+		}
+		try (EnrollmentJournal journal = new EnrollmentJournal(file.getPath())) {
+			assertEquals(20001, journal.size());
+			journal.compact(() -> { });
+		}
+		try (EnrollmentJournal journal = new EnrollmentJournal(file.getPath())) {
+			assertEquals(0, journal.size());
+		}
+	}
+
+	/**
+	 * Tests that compact() writes the record files before emptying the
+	 * journal, and leaves the journal alone if they cannot be written.
+	 * @throws IOException if the journal cannot be written
+	 */
+	@Test
+	public void testCompact() throws IOException {
+		Course course = new Course("CSC216", 3, 10);
+		try (EnrollmentJournal journal = new EnrollmentJournal(file.getPath())) {
+			journal.courseCreated(course);
+			try {
+				journal.compact(() -> {
+					throw new IllegalArgumentException("Unable to write");
+				});
+				fail();
+			} catch (IllegalArgumentException e) {
+				assertEquals(1, journal.size());
+			}
+			assertEquals(1, replay().size());
+
+			List<String> saved = new ArrayList<String>();
+			journal.compact(() -> saved.add("saved"));
+			assertEquals(1, saved.size());
+			assertEquals(0, journal.size());
+			assertEquals(0, file.length());
+
+			journal.capacityChanged(course);
+			assertEquals(Arrays.asList("capacity CSC216 10"), replay());
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package my_package.io;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import my_package.courses.Course;
+import my_package.manager.CourseManager;
+import my_package.manager.Session;
+
+/**
+ * Tests the RecordGenerator class.
+ */
+public class RecordGeneratorTest {
+
+	/** Directory for the generated files */
+	private Path dir;
+	/** Generated course records */
+	private Path courseFile;
+	/** Generated student records */
+	private Path studentFile;
+
+	/**
+	 * Creates a directory for the generated files.
+	 * @throws IOException if the directory cannot be created
+	 */
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("generated");
+		courseFile = dir.resolve("course_records.txt");
+		studentFile = dir.resolve("student_records.txt");
+		CourseManager.getInstance().clearData();
+	}
+
+	/**
+	 * Deletes the generated files and clears the CourseManager.
+	 * @throws IOException if a file cannot be deleted
+	 */
+	@After
+	public void tearDown() throws IOException {
+		CourseManager manager = CourseManager.getInstance();
+		manager.clearData();
+		manager.setLazyLoading(false);
+		Files.deleteIfExists(courseFile);
+		Files.deleteIfExists(studentFile);
+		Files.deleteIfExists(dir);
+	}
+
+	/**
+	 * Tests that the generated files load with every enrollment kept and
+	 * that the students can log in, with lazy loading off and on.
+	 * @throws IOException if a file cannot be written
+	 */
+	@Test
+	public void testLoad() throws IOException {
+		RecordGenerator generator = new RecordGenerator(3);
+		generator.setCourseCount(200);
+		generator.setStudentCount(2000);
+		generator.writeCourseRecords(courseFile.toString());
+		long enrollments = generator.writeStudentRecords(studentFile.toString());
+		assertTrue(enrollments > 2000);
+
+		List<String> lines = Files.readAllLines(courseFile);
+		assertEquals(200, lines.size());
+		assertTrue(lines.get(0).startsWith("CSC100-001,"));
+		String id = Files.readAllLines(studentFile, StandardCharsets.ISO_8859_1).get(0).split(",")[2];
+
+		for (boolean lazy : new boolean [] {false, true}) {
+			CourseManager manager = CourseManager.getInstance();
+			manager.clearData();
+			manager.setLazyLoading(lazy);
+			manager.loadCourses(courseFile.toString());
+			manager.loadStudents(studentFile.toString());
+
+			List<Course> catalog = manager.getCourseCatalog();
+			assertEquals(200, catalog.size());
+			long enrolled = 0;
+			boolean full = false;
+			for (Course c : catalog) {
+				assertTrue(c.getCapacity() >= 10 && c.getCapacity() <= 400);
+				enrolled += c.getEnrolledStudents().length;
+				full |= c.getOpenSeats() == 0;
+			}
+			assertEquals(enrollments, enrolled);
+			assertTrue(full);
+
+			Session session = manager.openSession(id, "pw");
+			assertNotNull(session);
+			assertNull(manager.openSession(id, "wrong"));
+			manager.closeSession(session);
+		}
+	}
+
+	/**
+	 * Tests that the same seed writes the same files.
+	 * @throws IOException if a file cannot be written
+	 */
+	@Test
+	public void testSeed() throws IOException {
+		RecordGenerator generator = new RecordGenerator(5);
+		generator.setCourseCount(50);
+		generator.setStudentCount(300);
+		generator.writeStudentRecords(studentFile.toString());
+		byte [] first = Files.readAllBytes(studentFile);
+		generator.writeStudentRecords(studentFile.toString());
+		assertArrayEquals(first, Files.readAllBytes(studentFile));
+
+		RecordGenerator other = new RecordGenerator(6);
+		other.setCourseCount(50);
+		other.setStudentCount(300);
+		other.writeStudentRecords(studentFile.toString());
+		assertFalse(Arrays.equals(first, Files.readAllBytes(studentFile)));
+
+		generator.setStudentCount(0);
+		assertEquals(0, generator.writeStudentRecords(studentFile.toString()));
+		assertEquals(0, Files.size(studentFile));
+	}
+
+	/**
+	 * Tests that a password whose digest would split a record is rejected,
+	 * as are invalid settings.
+	 */
+	@Test
+	public void testSettings() {
+		RecordGenerator generator = new RecordGenerator(1);
+		int bad = -1;
+		for (int i = 0; bad < 0; i++) {
+			try {
+				RecordGenerator.digest("pw" + i);
+			} catch (IllegalArgumentException e) {
+				bad = i;
+			}
+		}
+		try {
+			generator.setPassword("pw" + bad);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Password digest cannot be written in a record", e.getMessage());
+		}
+		try {
+			generator.setFill(1.5);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+		try {
+			generator.setCourseCount(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+	}
+}
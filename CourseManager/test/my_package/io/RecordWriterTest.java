@@ -0,0 +1,140 @@
+package my_package.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests RecordWriter.
+ */
+public class RecordWriterTest {
+
+	/** Directory the files are written in */
+	private Path dir;
+	/** File being replaced */
+	private Path target;
+
+	/**
+	 * Creates an empty directory with a target file.
+	 * @throws IOException if the files cannot be created
+	 */
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("record_writer");
+		target = dir.resolve("records.txt");
+		Files.write(target, "old".getBytes());
+	}
+
+	/**
+	 * Deletes the directory.
+	 * @throws IOException if the files cannot be deleted
+	 */
+	@After
+	public void tearDown() throws IOException {
+		for (File f : dir.toFile().listFiles()) {
+			Files.delete(f.toPath());
+		}
+		Files.delete(dir);
+	}
+
+	/**
+	 * Returns the contents of the target file.
+	 * @return contents
+	 * @throws IOException if the file cannot be read
+	 */
+	private String contents() throws IOException {
+		return new String(Files.readAllBytes(target), Charset.defaultCharset());
+	}
+
+	/**
+	 * Tests writing and committing records.
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void testCommit() throws IOException {
+		try (RecordWriter out = new RecordWriter(target.toString())) {
+			out.write("CSC116").write(',').write(3).write(',').write(0).newLine();
+			out.write(-7).write(',').write(Integer.MAX_VALUE).write(',').write(Integer.MIN_VALUE).newLine();
+			out.commit();
+		}
+		String nl = System.lineSeparator();
+		assertEquals("CSC116,3,0" + nl + "-7,2147483647,-2147483648" + nl, contents());
+		assertEquals(1, dir.toFile().listFiles().length);
+	}
+
+	/**
+	 * Tests that the target is untouched if the writer is not committed.
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void testNoCommit() throws IOException {
+		try (RecordWriter out = new RecordWriter(target.toString())) {
+			out.write("new").newLine();
+		}
+		assertEquals("old", contents());
+		assertEquals(1, dir.toFile().listFiles().length);
+	}
+
+	/**
+	 * Tests records larger than the buffer, including many ints in a row.
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void testLargeRecords() throws IOException {
+		StringBuilder expected = new StringBuilder();
+		StringBuilder longField = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			longField.append((char) ('a' + i % 26));
+		}
+		try (RecordWriter out = new RecordWriter(target.toString())) {
+			for (int i = 0; i < 50000; i++) {
+				out.write(i * 31).write(',');
+				expected.append(i * 31).append(',');
+			}
+			out.write(longField.toString()).newLine();
+			expected.append(longField).append(System.lineSeparator());
+			out.commit();
+		}
+		assertEquals(expected.toString(), contents());
+	}
+
+	/**
+	 * Tests characters outside the Basic Multilingual Plane whose surrogate
+	 * pairs are split between two buffers.  They are encoded the same as
+	 * String.getBytes() encodes them.
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void testSurrogatePairs() throws IOException {
+		StringBuilder text = new StringBuilder("x");
+		for (int i = 0; i < 40000; i++) {
+			text.append("\uD83D\uDE00");
+		}
+		try (RecordWriter out = new RecordWriter(target.toString())) {
+			out.write(text.toString());
+			out.commit();
+		}
+		assertArrayEquals(text.toString().getBytes(Charset.defaultCharset()), Files.readAllBytes(target));
+	}
+
+	/**
+	 * Tests writing a file in a directory that does not exist.
+	 */
+	@Test
+	public void testMissingDirectory() {
+		try {
+			new RecordWriter(dir.resolve("missing").resolve("records.txt").toString());
+			fail();
+		} catch (IOException e) {
+			//expected
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package my_package.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import my_package.courses.Course;
+import my_package.io.SnapshotIO.Snapshot;
+import my_package.manager.CourseManager;
+import my_package.manager.EnrollmentTransaction;
+import my_package.users.Student;
+
+/**
+ * Tests SnapshotIO.
+ */
+public class SnapshotIOTest {
+
+	/** Snapshot file */
+	private File file;
+
+	/**
+	 * Creates the snapshot file.
+	 * @throws IOException if the file cannot be created
+	 */
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("snapshot", ".bin");
+		CourseManager.getInstance().clearData();
+	}
+
+	/**
+	 * Deletes the snapshot file and the loaded data.
+	 * @throws IOException if the file cannot be deleted
+	 */
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file.toPath());
+		CourseManager.getInstance().clearData();
+	}
+
+	/**
+	 * Returns the CourseManager's Courses and rosters as text, with each
+	 * enrolled Student's record.
+	 * @return description of the data
+	 */
+	private static List<String> describe() {
+		List<String> description = new ArrayList<String>();
+		for (Course c : CourseManager.getInstance().listAllCourses()) {
+			description.add(c.toString());
+			for (Student s : c.getEnrolledStudents()) {
+				description.add("  " + s.toString());
+			}
+		}
+		return description;
+	}
+
+	/**
+	 * Tests that a snapshot of the record files loads the same data as the
+	 * record files.
+	 */
+	@Test
+	public void testRoundTrip() {
+		CourseManager manager = CourseManager.getInstance();
+		manager.loadCourses("test-files/course_records.txt");
+		manager.loadStudents("test-files/student_records.txt");
+		List<String> expected = describe();
+		manager.saveSnapshot(file.getPath());
+
+		manager.clearData();
+		manager.loadSnapshot(file.getPath());
+		assertEquals(expected, describe());
+		assertTrue(manager.login("zking", "pw"));
+		assertEquals(2, manager.listUserCourses().length);
+		manager.logout();
+	}
+
+	/**
+	 * Tests that every String reads back exactly, including unpaired
+	 * surrogates, and that shared Strings are stored once.
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void testStrings() throws IOException {
+		Course course = new Course("CSC\u00e9", 4, 2);
+		List<Course> courses = new ArrayList<Course>();
+		courses.add(course);
+		List<Student> students = new ArrayList<Student>();
+		students.add(new Student("a", "b", "id1", "a@b.c", "\uD800\uFFFD\u0000x", 12));
+		students.add(new Student("a", "b", "id2", "a@b.c", "\uD800\uFFFD\u0000x", 12));
+		students.add(new Student("a", "b", "id3", "a@b.c", "pw", 12));
+		for (Student s : students) {
+			EnrollmentTransaction.enroll(s, course);
+		}
+		SnapshotIO.writeSnapshot(file.getPath(), courses, students);
+
+		Snapshot snapshot = SnapshotIO.readSnapshot(file.getPath());
+		assertEquals(1, snapshot.getCourses().size());
+		assertEquals("CSC\u00e9,4,2", snapshot.getCourses().get(0).toString());
+		assertEquals(3, snapshot.getStudents().size());
+		for (int i = 0; i < students.size(); i++) {
+			assertTrue(students.get(i).deepEquals(snapshot.getStudents().get(i)));
+		}
+		assertSame(snapshot.getStudents().get(0).getPassword(), snapshot.getStudents().get(1).getPassword());
+		//Only two seats, so the third Student is not enrolled
+		assertEquals(2, snapshot.getCourses().get(0).getEnrolledStudents().length);
+	}
+
+	/**
+	 * Tests files that are not snapshots, are another version or are
+	 * damaged.
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void testBadSnapshots() throws IOException {
+		List<Course> courses = new ArrayList<Course>();
+		courses.add(new Course("CSC116", 3, 10));
+		List<Student> students = new ArrayList<Student>();
+		students.add(new Student("a", "b", "id1", "a@b.c", "pw", 12));
+		SnapshotIO.writeSnapshot(file.getPath(), courses, students);
+		byte[] good = Files.readAllBytes(file.toPath());
+
+		byte[] badMagic = good.clone();
+		badMagic[0] = 'X';
+		byte[] badVersion = good.clone();
+		ByteBuffer.wrap(badVersion).putInt(4, SnapshotIO.VERSION + 1);
+		byte[] badCount = good.clone();
+		ByteBuffer.wrap(badCount).putInt(8, Integer.MAX_VALUE);
+		byte[] trailing = Arrays.copyOf(good, good.length + 1);
+		byte[][] bad = { badMagic, badVersion, badCount, trailing, Arrays.copyOf(good, good.length - 1),
+				new byte[0] };
+		for (byte[] contents : bad) {
+			Files.write(file.toPath(), contents);
+			try {
+				SnapshotIO.readSnapshot(file.getPath());
+				fail();
+			} catch (IllegalArgumentException e) {
+				//expected
+			}
+		}
+	}
+}
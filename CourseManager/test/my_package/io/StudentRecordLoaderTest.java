@@ -0,0 +1,274 @@
+package my_package.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import my_package.courses.Course;
+import my_package.manager.CourseManager;
+import my_package.users.Student;
+
+/**
+ * Tests StudentRecordLoader by loading the same files with it and with
+ * the Scanner based reader and comparing the results.
+ */
+public class StudentRecordLoaderTest {
+
+	/** Lines to load; course capacities are small so some enrollments fail */
+	private final String[] lines = { "Zahir,King,zking,orci.Donec@ametmassaQuisque.com,pw,15,CSC216,CSC226",
+			",Cassandra,Schwartz,cschwartz,semper@imperdietornare.co.uk,pw,4,CSC116",
+			",,Shannon,Hansen,shansen,convallis.est.vitae@arcu.ca,pw,14,CSC216",
+			"Demetrius,Austin,daustin,Curabitur.egestas.nunc@placeratorcilacus.co.uk,pw,18,CSC116,CSC216,CSC226,",
+			"Raymond,Brennan,rbrennan,litora.torquent@pellentesquemassalobortis.ca,pw,12,CSC116,,CSC216",
+			"Emerald,Frost,efrost,adipiscing@acipsumPhasellus.edu,pw,3,CSC216,CSC999",
+			"Lane,Berg,lberg,sociis@non.org,pw,14", "Lane,Berg,lberg2,sociis@non.org,pw,14,",
+			"Lane,Berg,lberg3,sociis@non.org,pw,14,,", "Lane,Berg,lberg4,sociis@non.org,pw, 14",
+			"Lane,Berg,lberg5,sociis@non.org,pw,+14", "Lane,Berg,lberg6,sociis@non.org,pw,19",
+			"Lane,Berg,lberg7,sociis@non.org,pw,-1", "Lane,,lberg8,sociis@non.org,pw,3",
+			"Lane,Berg,lberg9,socii.s@nonorg,pw,3", "Lane,Berg,lberg10,sociis@non.org,pw",
+			"Griffith,Stone,gstone,porta@magnamalesuadavel.net,p\u00e9w,17,CSC116,CSC216,CSC\u00e9",
+			"Althea,Hicks,ahicks,Phasellus.dapibus@luctusfelis.com,pw,11,CSC116,CSC216,CSC226,CSC379", "", ",",
+			"Dylan,Nolan,dnolan,placerat.Cras.dictum@dictum.net,pw,1,CSC379" };
+
+	/** Line terminators placed after the lines in turn */
+	private final String[] terminators = { "\n", "\r\n", "\r", "\u0085", "\u2028", "\u2029", "\r\r\n" };
+
+	/** Charsets to load the files in */
+	private final Charset[] charsets = { StandardCharsets.US_ASCII, StandardCharsets.ISO_8859_1,
+			StandardCharsets.UTF_8 };
+
+	/** File being loaded */
+	private File file;
+
+	/**
+	 * Creates the file to load.
+	 * @throws IOException if the file cannot be created
+	 */
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("student_records", ".txt");
+	}
+
+	/**
+	 * Deletes the file and the loaded data.
+	 * @throws IOException if the file cannot be deleted
+	 */
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file.toPath());
+		CourseManager.getInstance().clearData();
+	}
+
+	/**
+	 * Replaces the CourseManager's Courses with new, small Courses.
+	 */
+	private static void resetCourses() {
+		CourseManager manager = CourseManager.getInstance();
+		manager.clearData();
+		String[] names = { "CSC116", "CSC216", "CSC226", "CSC230", "CSC379", "CSC\u00e9" };
+		for (String name : names) {
+			manager.addCourse(new Course(name, 3, 2));
+		}
+	}
+
+	/**
+	 * Returns the loaded Students and the CourseManager's rosters as text.
+	 * @param students loaded Students
+	 * @return description of the load
+	 */
+	private static List<String> describe(List<Student> students) {
+		List<String> description = new ArrayList<String>();
+		for (Student s : students) {
+			description.add(s.getFirstName() + "|" + s.getLastName() + "|" + s.getId() + "|" + s.getEmail() + "|"
+					+ s.getPassword() + "|" + s.getMaxCredits() + "|" + s.getCurrentCredits() + "|" + s.toString());
+		}
+		for (Course c : CourseManager.getInstance().listAllCourses()) {
+			StringBuilder roster = new StringBuilder(c.getName()).append(':');
+			for (Student s : c.getEnrolledStudents()) {
+				roster.append(s.getId()).append(' ');
+			}
+			description.add(roster.toString());
+		}
+		return description;
+	}
+
+	/**
+	 * Loads the LazyStudents in reverse order, to show that the order they
+	 * are loaded in does not matter, and returns the Students.
+	 * @param lazyStudents indexed Students, none of them loaded yet
+	 * @return loaded Students in index order
+	 */
+	private static List<Student> loadAll(List<LazyStudent> lazyStudents) {
+		Student[] students = new Student[lazyStudents.size()];
+		for (int i = students.length - 1; i >= 0; i--) {
+			assertFalse(lazyStudents.get(i).isLoaded());
+			students[i] = lazyStudents.get(i).get();
+			assertEquals(lazyStudents.get(i).getId(), students[i].getId());
+			assertSame(students[i], lazyStudents.get(i).get());
+		}
+		return Arrays.asList(students);
+	}
+
+	/**
+	 * Writes the text to the file and checks that the loader reads it as
+	 * the Scanner does, and that indexing it and then loading the indexed
+	 * Students gives the same Students and rosters, with every charset and
+	 * a range of window and chunk sizes.
+	 * @param bytes contents of the file for each charset
+	 * @throws IOException if the file cannot be written
+	 */
+	private void assertSameAsScanner(byte[][] bytes) throws IOException {
+		int[] windows = { 1, 7, 64, StudentRecordLoader.WINDOW_SIZE };
+		int[] chunks = { 1, 5, StudentRecordLoader.CHUNK_SIZE };
+		for (int c = 0; c < charsets.length; c++) {
+			Files.write(file.toPath(), bytes[c]);
+			resetCourses();
+			List<String> expected = describe(StudentRecordIO.scanStudentRecords(file.getPath(), charsets[c]));
+			for (int window : windows) {
+				for (int chunk : chunks) {
+					resetCourses();
+					List<String> actual = describe(StudentRecordLoader.load(file.getPath(), charsets[c], window, chunk));
+					assertEquals(charsets[c] + " window " + window + " chunk " + chunk, expected, actual);
+					resetCourses();
+					actual = describe(loadAll(StudentRecordLoader.index(file.getPath(), charsets[c], window, chunk)));
+					assertEquals(charsets[c] + " index window " + window + " chunk " + chunk, expected, actual);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests lines with format errors, edge cases and every line terminator.
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void testSameAsScanner() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < lines.length; i++) {
+			sb.append(lines[i]).append(terminators[i % terminators.length]);
+		}
+		//Last line has no terminator
+		sb.append(lines[0].replace("zking", "zking2"));
+		byte[][] bytes = new byte[charsets.length][];
+		for (int c = 0; c < charsets.length; c++) {
+			bytes[c] = sb.toString().getBytes(charsets[c]);
+		}
+		assertSameAsScanner(bytes);
+	}
+
+	/**
+	 * Tests the student record files, whose passwords are hashes with
+	 * arbitrary bytes.
+	 * @throws IOException if a file cannot be read
+	 */
+	@Test
+	public void testRecordFiles() throws IOException {
+		String[] files = { "test-files/student_records.txt", "test-files/invalid_student_records.txt",
+				"test-files/expected_full_student_records.txt" };
+		for (String name : files) {
+			byte[] contents = Files.readAllBytes(new File(name).toPath());
+			assertSameAsScanner(new byte[][] { contents, contents, contents });
+		}
+	}
+
+	/**
+	 * Tests arbitrary bytes, including malformed UTF-8 and terminators cut
+	 * off at the end of the file.
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void testArbitraryBytes() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] prefix = "Lane,Berg,x".getBytes(StandardCharsets.US_ASCII);
+		byte[] suffix = ",sociis@non.org,".getBytes(StandardCharsets.US_ASCII);
+		for (int b = 0; b < 256; b++) {
+			out.write(prefix, 0, prefix.length);
+			out.write(b);
+			out.write(0xC2);
+			out.write(b);
+			out.write(0xE2);
+			out.write(0x80);
+			out.write(b);
+			out.write(suffix, 0, suffix.length);
+			out.write(b);
+			out.write(',');
+			out.write('3');
+			out.write('\n');
+		}
+		out.write(0xE2);
+		out.write(0x80);
+		byte[] contents = out.toByteArray();
+		assertSameAsScanner(new byte[][] { contents, contents, contents });
+	}
+
+	/**
+	 * Tests loading a file that does not exist.
+	 */
+	@Test
+	public void testMissingFile() {
+		try {
+			StudentRecordLoader.load("test-files/no_such_file.txt");
+			fail();
+		} catch (FileNotFoundException e) {
+			//expected
+		}
+		try {
+			StudentRecordLoader.index("test-files/no_such_file.txt");
+			fail();
+		} catch (FileNotFoundException e) {
+			//expected
+		}
+	}
+
+	/**
+	 * Tests that indexing fills the rosters without loading any Student,
+	 * that listing a roster loads its Students, and that a record that
+	 * changes before it is loaded is not loaded.
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void testIndex() throws IOException {
+		String records = lines[0] + "\n" + lines[1] + "\n" + lines[5] + "\n" + lines[6] + "\n";
+		Files.write(file.toPath(), records.getBytes(StandardCharsets.US_ASCII));
+		resetCourses();
+		List<LazyStudent> lazyStudents = StudentRecordLoader.index(file.getPath(), StandardCharsets.US_ASCII,
+				StudentRecordLoader.WINDOW_SIZE, StudentRecordLoader.CHUNK_SIZE);
+		//efrost has an unknown course, so is only on the CSC216 roster and is loaded now
+		assertEquals(3, lazyStudents.size());
+		for (LazyStudent s : lazyStudents) {
+			assertFalse(s.isLoaded());
+		}
+		CourseManager manager = CourseManager.getInstance();
+		assertEquals(0, manager.getCourseByName("CSC216").getOpenSeats());
+		assertEquals(1, manager.getCourseByName("CSC116").getOpenSeats());
+
+		Student[] roster = manager.getCourseByName("CSC116").getEnrolledStudents();
+		assertEquals(1, roster.length);
+		assertSame(lazyStudents.get(1).get(), roster[0]);
+		assertTrue(lazyStudents.get(1).isLoaded());
+		assertFalse(lazyStudents.get(0).isLoaded());
+		assertEquals("CSC116", roster[0].getCourses()[0].getName());
+
+		//zking's record changes before it is loaded
+		Files.write(file.toPath(), records.replace("zking", "zkong").getBytes(StandardCharsets.US_ASCII));
+		try {
+			lazyStudents.get(0).get();
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertFalse(lazyStudents.get(0).isLoaded());
+		}
+	}
+}
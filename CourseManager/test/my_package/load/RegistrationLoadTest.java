@@ -0,0 +1,200 @@
+package my_package.load;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import my_package.courses.Course;
+import my_package.io.EnrollmentJournal;
+import my_package.load.RegistrationLoad.Operation;
+import my_package.manager.CourseManager;
+import my_package.users.Student;
+
+/**
+ * Tests the RegistrationLoad class.
+ */
+public class RegistrationLoadTest {
+
+	/** CourseManager under load */
+	private CourseManager manager;
+
+	/**
+	 * Clears the CourseManager.
+	 */
+	@Before
+	public void setUp() {
+		manager = CourseManager.getInstance();
+		manager.clearData();
+	}
+
+	/**
+	 * Clears the CourseManager.
+	 */
+	@After
+	public void tearDown() {
+		manager.clearData();
+	}
+
+	/**
+	 * Tests a run with small hot courses, which fill while many clients
+	 * try to add them.
+	 */
+	@Test
+	public void testRun() {
+		List<String> ids = RegistrationLoad.generate(manager, 20, 200, 7);
+		assertEquals(200, ids.size());
+		assertEquals(20, manager.getCourseCatalog().size());
+		manager.getCourseCatalog().get(3).setCapacity(2);
+
+		RegistrationLoad load = new RegistrationLoad(manager, ids, RegistrationLoad.PASSWORD);
+		load.setClients(4);
+		load.setOperations(500);
+		load.setHotCourses(3, 0.8);
+		load.setMix(10, 20, 50, 20);
+		LoadReport report = load.run();
+
+		assertEquals(report.toString(), 0, report.getViolationCount());
+		assertTrue(report.getViolations().isEmpty());
+		assertEquals(4, report.getClients());
+		assertEquals(2000, report.getOperations());
+		assertEquals(0, report.getFailedLogins());
+		for (Operation op : Operation.values()) {
+			assertTrue(op.toString(), report.getCount(op) > 0);
+			assertTrue(report.getLatency(op).getMax() > 0);
+		}
+		assertTrue(report.getAdded() > 0);
+		assertTrue(report.getDropped() > 0);
+		assertTrue(report.getThroughput() > 0);
+		assertEquals(0, manager.getSessionCount());
+
+		int enrolled = 0;
+		for (Course c : manager.getCourseCatalog()) {
+			enrolled += c.getEnrolledStudents().length;
+		}
+		assertEquals(report.getAdded() - report.getDropped(), enrolled);
+	}
+
+	/**
+	 * Tests that a wrong password is counted as failed logins and that
+	 * the clients then only browse.
+	 */
+	@Test
+	public void testFailedLogins() {
+		List<String> ids = RegistrationLoad.generate(manager, 5, 10, 1);
+		RegistrationLoad load = new RegistrationLoad(manager, ids, "wrong");
+		load.setClients(2);
+		load.setOperations(100);
+		load.setMix(50, 50, 0, 0);
+		LoadReport report = load.run();
+		assertEquals(report.getCount(Operation.LOGIN), report.getFailedLogins());
+		assertEquals(0, report.getCount(Operation.ADD));
+		assertEquals(200, report.getOperations());
+		assertEquals(0, report.getViolationCount());
+	}
+
+	/**
+	 * Tests replaying a journal.  With one client the students are
+	 * replayed in the order they first appear in the journal.
+	 * @throws IOException if the journal cannot be written
+	 */
+	@Test
+	public void testReplay() throws IOException {
+		String password = manager.getCredentialVerifier().hash("pw");
+		Student first = new Student("First", "Student", "s0", "s0@ncsu.edu", password, 18);
+		Student second = new Student("Second", "Student", "s1", "s1@ncsu.edu", password, 18);
+		manager.addCourse(new Course("CSC116", 3, 1));
+		manager.addStudent(first);
+		manager.addStudent(second);
+
+		File file = File.createTempFile("journal", ".txt");
+		try {
+			Course csc116 = new Course("CSC116", 3, 1);
+			Course csc492 = new Course("CSC492", 3, 5);
+			Student nobody = new Student("No", "Body", "nobody", "nobody@ncsu.edu", password, 18);
+			try (EnrollmentJournal journal = new EnrollmentJournal(file.getPath())) {
+				journal.courseCreated(csc492);
+				journal.enrolled(first, csc116);
+				journal.enrolled(second, csc116);
+				journal.dropped(first, csc116);
+				journal.enrolled(second, csc492);
+				journal.enrolled(first, csc492);
+				journal.enrolled(nobody, csc116);
+			}
+
+			RegistrationLoad load = new RegistrationLoad(manager, Arrays.asList("s0", "s1"), "pw");
+			load.setClients(1);
+			LoadReport report = load.replay(file.getPath());
+
+			assertEquals(report.toString(), 0, report.getViolationCount());
+			assertEquals(1, report.getFailedLogins());
+			assertEquals(3, report.getCount(Operation.LOGIN));
+			assertEquals(4, report.getCount(Operation.ADD));
+			assertEquals(1, report.getCount(Operation.DROP));
+			assertEquals(0, report.getCount(Operation.BROWSE));
+			assertEquals(4, report.getAdded());
+			assertEquals(1, report.getDropped());
+			assertNotNull(manager.getCourseByName("CSC492"));
+			assertEquals(Arrays.asList(manager.getCourseByName("CSC492")), first.getCourseView());
+			assertEquals(Arrays.asList(manager.getCourseByName("CSC116"), manager.getCourseByName("CSC492")),
+					second.getCourseView());
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Tests reading the ids from a student records file.
+	 * @throws IOException if the file cannot be read
+	 */
+	@Test
+	public void testReadIds() throws IOException {
+		List<String> ids = RegistrationLoad.readIds("test-files/student_records.txt");
+		assertEquals("zking", ids.get(0));
+		assertEquals("cschwartz", ids.get(1));
+	}
+
+	/**
+	 * Tests that invalid settings are rejected.
+	 */
+	@Test
+	public void testSettings() {
+		RegistrationLoad load = new RegistrationLoad(manager, Arrays.asList("s0"), "pw");
+		try {
+			load.setMix(10, 10, 10, 10);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+		try {
+			load.setHotCourses(1, 1.5);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+		try {
+			load.setClients(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+		try {
+			load.run();
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("No courses", e.getMessage());
+		}
+		try {
+			new RegistrationLoad(manager, Arrays.<String>asList(), "pw");
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+	}
+}
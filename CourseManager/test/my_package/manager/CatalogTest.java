@@ -0,0 +1,221 @@
+package my_package.manager;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import my_package.courses.Course;
+
+/**
+ * Tests the Catalog class.
+ */
+public class CatalogTest {
+
+	/** Catalog for testing */
+	private Catalog<Course> catalog;
+
+	/**
+	 * Creates an empty catalog keyed on the course name.
+	 */
+	@Before
+	public void setUp() {
+		catalog = new Catalog<Course>(Course::getName);
+	}
+
+	/**
+	 * Tests adding items and looking them up by key.
+	 */
+	@Test
+	public void testAddGet() {
+		assertEquals(0, catalog.size());
+		assertNull(catalog.get("CSC116"));
+		assertNull(catalog.get(null));
+
+		Course c1 = new Course("CSC116", 3, 10);
+		Course c2 = new Course("CSC216", 3, 10);
+		assertTrue(catalog.add(c1));
+		assertTrue(catalog.add(c2));
+		assertEquals(2, catalog.size());
+		assertSame(c1, catalog.get("CSC116"));
+		assertSame(c2, catalog.get("CSC216"));
+		assertTrue(catalog.containsKey("CSC116"));
+		assertFalse(catalog.containsKey("CSC226"));
+
+		//Duplicate keys are rejected and the original item is kept
+		assertFalse(catalog.add(new Course("CSC116", 4, 3)));
+		assertEquals(2, catalog.size());
+		assertSame(c1, catalog.get("CSC116"));
+
+		try {
+			catalog.add(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(2, catalog.size());
+		}
+	}
+
+	/**
+	 * Tests that items keep their insertion order.
+	 */
+	@Test
+	public void testOrder() {
+		String [] names = {"CSC316", "CSC116", "CSC226", "CSC216"};
+		for (String name : names) {
+			catalog.add(new Course(name, 3, 10));
+		}
+
+		Course [] courses = catalog.toArray(new Course[0]);
+		assertEquals(names.length, courses.length);
+		for (int i = 0; i < names.length; i++) {
+			assertEquals(names[i], courses[i].getName());
+		}
+
+		int i = 0;
+		for (Course c : catalog.values()) {
+			assertEquals(names[i++], c.getName());
+		}
+	}
+
+	/**
+	 * Tests removing items and clearing the catalog.
+	 */
+	@Test
+	public void testRemoveClear() {
+		Course c1 = new Course("CSC116", 3, 10);
+		catalog.add(c1);
+		catalog.add(new Course("CSC216", 3, 10));
+
+		assertNull(catalog.remove("CSC226"));
+		assertSame(c1, catalog.remove("CSC116"));
+		assertNull(catalog.get("CSC116"));
+		assertEquals(1, catalog.size());
+
+		//A removed key can be added again
+		assertTrue(catalog.add(c1));
+		assertEquals("CSC116", catalog.toArray(new Course[0])[1].getName());
+
+		catalog.clear();
+		assertEquals(0, catalog.size());
+		assertNull(catalog.get("CSC216"));
+	}
+
+	/**
+	 * Tests that a placeholder creates its item once, the first time the
+	 * item is looked up or listed, and keeps its place in the catalog.
+	 */
+	@Test
+	public void testPlaceholder() {
+		AtomicInteger created = new AtomicInteger();
+		catalog.add(new Course("CSC116", 3, 10));
+		assertTrue(catalog.addPlaceholder("CSC216", () -> {
+			created.incrementAndGet();
+			return new Course("CSC216", 3, 10);
+		}));
+		assertFalse(catalog.addPlaceholder("CSC116", () -> new Course("CSC116", 4, 10)));
+		assertFalse(catalog.add(new Course("CSC216", 4, 10)));
+		assertTrue(catalog.containsKey("CSC216"));
+		assertEquals(2, catalog.size());
+		assertEquals(0, created.get());
+
+		Course c = catalog.get("CSC216");
+		assertEquals(3, c.getCredits());
+		assertSame(c, catalog.get("CSC216"));
+		assertSame(c, catalog.values().get(1));
+		assertEquals(1, created.get());
+
+		catalog.addPlaceholder("CSC226", () -> {
+			created.incrementAndGet();
+			return new Course("CSC226", 3, 10);
+		});
+		assertEquals("CSC226", catalog.toArray(new Course[0])[2].getName());
+		assertEquals(2, created.get());
+		assertEquals("CSC226", catalog.remove("CSC226").getName());
+		assertEquals(2, created.get());
+
+		try {
+			catalog.addPlaceholder(null, () -> c);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(2, catalog.size());
+		}
+	}
+
+	/**
+	 * Tests that a snapshot never changes after it is returned and that a
+	 * new one is published by every change.
+	 */
+	@Test
+	public void testSnapshot() {
+		List<Course> empty = catalog.snapshot();
+		assertTrue(empty.isEmpty());
+		Course c1 = new Course("CSC116", 3, 10);
+		catalog.add(c1);
+		List<Course> one = catalog.snapshot();
+		assertSame(one, catalog.snapshot());
+		assertEquals(Arrays.asList(c1), one);
+		assertTrue(empty.isEmpty());
+
+		//Grow past the first slot array
+		for (int i = 0; i < 40; i++) {
+			catalog.add(new Course("CSC" + (200 + i), 3, 10));
+		}
+		List<Course> many = catalog.snapshot();
+		assertEquals(41, many.size());
+		assertEquals(Arrays.asList(c1), one);
+		assertEquals("CSC239", many.get(40).getName());
+
+		catalog.remove("CSC116");
+		assertEquals(41, many.size());
+		assertSame(c1, many.get(0));
+		assertEquals("CSC200", catalog.snapshot().get(0).getName());
+		catalog.add(new Course("CSC999", 3, 10));
+		assertEquals("CSC201", many.get(2).getName());
+		catalog.clear();
+		assertEquals(41, many.size());
+		assertTrue(catalog.snapshot().isEmpty());
+
+		try {
+			many.add(c1);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			assertEquals(41, many.size());
+		}
+		try {
+			many.get(41);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			assertEquals(41, many.size());
+		}
+	}
+
+	/**
+	 * Tests that readers always see a whole prefix of the items in order
+	 * while another thread adds items.
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	@Test
+	public void testConcurrentSnapshot() throws InterruptedException {
+		final int count = 20000;
+		Thread writer = new Thread(() -> {
+			for (int i = 0; i < count; i++) {
+				catalog.add(new Course("C" + i, 3, 10));
+			}
+		});
+		writer.start();
+		int last = 0;
+		while (last < count) {
+			List<Course> snapshot = catalog.snapshot();
+			assertTrue(snapshot.size() >= last);
+			for (int i = 0; i < snapshot.size(); i++) {
+				assertEquals("C" + i, snapshot.get(i).getName());
+			}
+			last = snapshot.size();
+		}
+		writer.join();
+	}
+}
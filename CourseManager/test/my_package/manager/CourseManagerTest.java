@@ -7,9 +7,15 @@ import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -17,6 +23,7 @@ import org.junit.Test;
 import my_package.courses.Course;
 import my_package.manager.CourseManager;
 import my_package.users.Student;
+import my_package.users.User;
 
 /**
  * Tests the CourseManager class.  Because CourseManager
@@ -157,6 +164,12 @@ public class CourseManagerTest {
 		for (int i = 0; i < courses.length; i++) {
 			assertEquals(validCourses[i], courses[i].toString());
 		}
+
+		List<Course> catalog = manager.getCourseCatalog();
+		assertEquals(Arrays.asList(courses), catalog);
+		manager.addCourse(new Course("CSC216", 3, 10));
+		assertEquals(1, catalog.size());
+		assertEquals(2, manager.getCourseCatalog().size());
 	}
 
 	/**
@@ -364,6 +377,138 @@ public class CourseManagerTest {
 		assertEquals("zking", manager.getCurrentUser().getId());
 	}
 
+	/**
+	 * Tests opening, finding and closing Sessions.
+	 */
+	@Test
+	public void testSessions() {
+		manager.loadCourses("test-files/course_records.txt");
+		manager.loadStudents("test-files/student_records.txt");
+		
+		assertNull(manager.openSession("student", "pw"));
+		assertNull(manager.openSession("zking", "pw1"));
+		assertEquals(0, manager.getSessionCount());
+		
+		//Two users may be logged in at the same time
+		Session zking = manager.openSession("zking", "pw");
+		Session gstone = manager.openSession("gstone", "pw");
+		assertNotNull(zking);
+		assertNotNull(gstone);
+		assertNotEquals(zking.getToken(), gstone.getToken());
+		assertEquals("zking", zking.getUser().getId());
+		assertEquals("gstone", gstone.getUser().getId());
+		assertEquals(2, manager.getSessionCount());
+		assertSame(zking, manager.getSession(zking.getToken()));
+		assertNull(manager.getSession("token"));
+		
+		//Sessions don't use the single current user
+		assertNull(manager.getCurrentUser());
+		
+		assertEquals(2, manager.listUserCourses(zking).length);
+		assertTrue(manager.addUserToCourse(zking, manager.getCourseByName("CSC116")));
+		assertEquals(3, manager.listUserCourses(zking).length);
+		assertEquals(4, manager.listUserCourses(gstone).length);
+		assertTrue(manager.removeUserFromCourse(gstone, manager.getCourseByName("CSC116")));
+		assertEquals(3, manager.listUserCourses(gstone).length);
+		assertEquals(5, manager.getCourseByName("CSC116").getEnrolledStudents().length);
+		
+		manager.closeSession(zking);
+		assertNull(manager.getSession(zking.getToken()));
+		assertEquals(1, manager.getSessionCount());
+		try {
+			manager.listUserCourses(zking);
+			fail("IllegalArgumentException should be thrown for a closed session, but it was not");
+		} catch (IllegalArgumentException e) {
+			assertEquals(1, manager.getSessionCount());
+		}
+		try {
+			manager.addUserToCourse(null, manager.getCourseByName("CSC116"));
+			fail("IllegalArgumentException should be thrown for a null session, but it was not");
+		} catch (IllegalArgumentException e) {
+			assertEquals(5, manager.getCourseByName("CSC116").getEnrolledStudents().length);
+		}
+		
+		manager.clearData();
+		assertEquals(0, manager.getSessionCount());
+	}
+
+	/**
+	 * Tests that Sessions used from many threads at once never overfill
+	 * a Course.
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	@Test
+	public void testConcurrentSessions() throws InterruptedException {
+		manager.loadCourses("test-files/course_records.txt");
+		manager.loadStudents("test-files/student_records.txt");
+		
+		//CSC316 has room for one student and no one is enrolled
+		final Course course = manager.getCourseByName("CSC316");
+		final String [] ids = {"zking", "cschwartz", "shansen", "rbrennan", "efrost", "lberg", "gstone", "ahicks"};
+		final AtomicInteger added = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread [] threads = new Thread[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			final String id = ids[i];
+			threads[i] = new Thread(() -> {
+				Session session = manager.openSession(id, "pw");
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				if (manager.addUserToCourse(session, course)) {
+					added.incrementAndGet();
+				}
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread t : threads) {
+			t.join();
+		}
+		
+		assertEquals(ids.length, manager.getSessionCount());
+		assertEquals(1, added.get());
+		assertEquals(1, course.getEnrolledStudents().length);
+	}
+
+	/**
+	 * Tests plugging in a different CredentialVerifier.
+	 */
+	@Test
+	public void testCredentialVerifier() {
+		manager.loadCourses("test-files/course_records.txt");
+		manager.loadStudents("test-files/student_records.txt");
+		
+		CredentialVerifier original = manager.getCredentialVerifier();
+		try {
+			manager.setCredentialVerifier(new CredentialVerifier() {
+				@Override
+				public String hash(String password) {
+					return password;
+				}
+				
+				@Override
+				public boolean verify(User user, String password) {
+					return "secret".equals(password);
+				}
+			});
+			assertNull(manager.openSession("zking", "pw"));
+			assertNotNull(manager.openSession("zking", "secret"));
+			
+			try {
+				manager.setCredentialVerifier(null);
+				fail();
+			} catch (IllegalArgumentException e) {
+				assertNotSame(original, manager.getCredentialVerifier());
+			}
+		} finally {
+			manager.setCredentialVerifier(original);
+		}
+		assertNotNull(manager.openSession("zking", "pw"));
+	}
+
 	/**
 	 * Tests the logout method.
 	 */
@@ -512,6 +657,283 @@ public class CourseManagerTest {
 		} catch (IllegalArgumentException e) {
 			assertNull(manager.getCurrentUser());
 		}
+
+		Session session = manager.openSession("zking", "pw");
+		assertEquals(Arrays.asList(manager.listUserCourses(session)), manager.getUserCourseView(session));
+		try {
+			manager.getUserCourseView(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("User is not logged in.", e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Returns the CourseManager's Courses and their rosters as text.  The
+	 * record files do not keep the order students enrolled in, so each
+	 * roster is sorted by id.
+	 * @return description of the Courses
+	 */
+	private String describeCourses() {
+		StringBuilder sb = new StringBuilder();
+		for (Course c : manager.listAllCourses()) {
+			TreeSet<String> ids = new TreeSet<String>();
+			for (Student s : c.getEnrolledStudents()) {
+				ids.add(s.getId());
+			}
+			sb.append(c).append(':').append(ids).append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Loads the record files with the journal set, as a restart would.
+	 * @param journal journal file
+	 * @param compactionSize number of changes that starts a compaction
+	 */
+	private void reload(File journal, int compactionSize) {
+		manager.clearData();
+		manager.loadCourses("test-files/course_records.txt");
+		manager.setJournalFile(journal.getPath(), compactionSize);
+		manager.loadStudents("test-files/student_records.txt");
+	}
+
+	/**
+	 * Tests that changes are journaled, replayed by loadStudents() and
+	 * compacted into the record files.
+	 * @throws IOException if the journal cannot be read
+	 */
+	@Test
+	public void testJournal() throws IOException {
+		File journal = File.createTempFile("journal", ".txt");
+		try {
+			reload(journal, 100);
+			String loaded = describeCourses();
+
+			Session zking = manager.openSession("zking", "pw");
+			assertTrue(manager.addUserToCourse(zking, manager.getCourseByName("CSC116")));
+			assertTrue(manager.removeUserFromCourse(zking, manager.getCourseByName("CSC216")));
+			//Changes that fail are not journaled
+			assertFalse(manager.removeUserFromCourse(zking, manager.getCourseByName("CSC379")));
+			manager.addCourse(new Course("CSC116", 4, 4));
+			manager.addCourse(new Course("CSC492", 3, 5));
+			manager.setCourseCapacity(manager.getCourseByName("CSC230"), 6);
+			try {
+				manager.setCourseCapacity(manager.getCourseByName("CSC230"), 1);
+				fail();
+			} catch (IllegalArgumentException e) {
+				assertEquals(6, manager.getCourseByName("CSC230").getCapacity());
+			}
+			assertTrue(manager.addUserToCourse(zking, manager.getCourseByName("CSC492")));
+			assertEquals(5, Files.readAllLines(journal.toPath()).size());
+			String changed = describeCourses();
+			assertNotEquals(loaded, changed);
+
+			//The record files are untouched and the journal brings them up to date
+			checkFiles("test-files/expected_full_student_records.txt", "test-files/student_records.txt");
+			reload(journal, 100);
+			assertEquals(changed, describeCourses());
+
+			//A line cut off while it was written is ignored
+			Files.write(journal.toPath(), "A,zking,CSC2".getBytes(), StandardOpenOption.APPEND);
+			reload(journal, 100);
+			assertEquals(changed, describeCourses());
+			zking = manager.openSession("zking", "pw");
+			assertTrue(manager.removeUserFromCourse(zking, manager.getCourseByName("CSC492")));
+			reload(journal, 100);
+			assertNotEquals(changed, describeCourses());
+			assertEquals(0, manager.getCourseByName("CSC492").getEnrolledStudents().length);
+			changed = describeCourses();
+
+			manager.compactJournal();
+			assertEquals(0, journal.length());
+			reload(journal, 100);
+			assertEquals(changed, describeCourses());
+		} finally {
+			manager.clearData();
+			Files.deleteIfExists(journal.toPath());
+		}
+	}
+
+	/**
+	 * Tests that the journal is compacted once it holds enough changes.
+	 * @throws IOException if the journal cannot be read
+	 */
+	@Test
+	public void testJournalCompaction() throws IOException {
+		File journal = File.createTempFile("journal", ".txt");
+		try {
+			reload(journal, 2);
+			Session zking = manager.openSession("zking", "pw");
+			assertTrue(manager.addUserToCourse(zking, manager.getCourseByName("CSC116")));
+			assertEquals(1, Files.readAllLines(journal.toPath()).size());
+			assertTrue(manager.removeUserFromCourse(zking, manager.getCourseByName("CSC216")));
+			assertEquals(0, journal.length());
+			String changed = describeCourses();
+
+			//Reload without the journal
+			manager.clearData();
+			manager.loadCourses("test-files/course_records.txt");
+			manager.loadStudents("test-files/student_records.txt");
+			assertEquals(changed, describeCourses());
+
+			try {
+				manager.compactJournal();
+				fail();
+			} catch (IllegalArgumentException e) {
+				assertEquals("Nothing to compact.", e.getMessage());
+			}
+		} finally {
+			manager.clearData();
+			Files.deleteIfExists(journal.toPath());
+		}
+	}
+
+	/**
+	 * Tests that lazily loaded students give the same rosters, logins and
+	 * saved records as students loaded up front.
+	 * @throws IOException if the journal cannot be read
+	 */
+	@Test
+	public void testLazyLoading() throws IOException {
+		File journal = File.createTempFile("journal", ".txt");
+		try {
+			manager.clearData();
+			manager.loadCourses("test-files/course_records.txt");
+			manager.loadStudents("test-files/student_records.txt");
+			String eager = describeCourses();
+
+			manager.setLazyLoading(true);
+			assertTrue(manager.isLazyLoading());
+			manager.clearData();
+			manager.loadCourses("test-files/course_records.txt");
+			manager.loadStudents("test-files/student_records.txt");
+			assertEquals(eager, describeCourses());
+			Session zking = manager.openSession("zking", "pw");
+			assertEquals("zking", zking.getUser().getId());
+			manager.closeSession(zking);
+			assertNull(manager.openSession("zking", "wrong"));
+
+			//The journal is replayed over the placeholders
+			reload(journal, 100);
+			zking = manager.openSession("zking", "pw");
+			assertTrue(manager.addUserToCourse(zking, manager.getCourseByName("CSC116")));
+			String changed = describeCourses();
+			reload(journal, 100);
+			assertEquals(changed, describeCourses());
+
+			//Saving loads every student first
+			manager.clearData();
+			manager.loadCourses("test-files/course_records.txt");
+			manager.loadStudents("test-files/student_records.txt");
+			manager.saveStudents();
+			checkFiles("test-files/expected_full_student_records.txt", "test-files/student_records.txt");
+		} finally {
+			manager.setLazyLoading(false);
+			manager.clearData();
+			Files.deleteIfExists(journal.toPath());
+		}
+	}
+
+	/**
+	 * Tests enrolling many students in many courses in one batch, and
+	 * that the batch is journaled.
+	 * @throws IOException if the journal cannot be read
+	 */
+	@Test
+	public void testAddStudentsToCourses() throws IOException {
+		File journal = File.createTempFile("journal", ".txt");
+		try {
+			reload(journal, 100);
+			Course [] batch = {manager.getCourseByName("CSC316"), manager.getCourseByName("CSC246"),
+					manager.getCourseByName("CSC216"), manager.getCourseByName("CSC999"),
+					manager.getCourseByName("CSC116")};
+			EnrollmentResult [][] results = manager.addStudentsToCourses(
+					new String[] {"lberg", "zking", "nobody", "efrost"}, batch);
+			assertEquals(4, results.length);
+			assertArrayEquals(new EnrollmentResult[] {EnrollmentResult.ENROLLED, EnrollmentResult.COURSE_FULL,
+					EnrollmentResult.ENROLLED, EnrollmentResult.NO_SUCH_COURSE, EnrollmentResult.ENROLLED},
+					results[0]);
+			assertArrayEquals(new EnrollmentResult[] {EnrollmentResult.COURSE_FULL, EnrollmentResult.COURSE_FULL,
+					EnrollmentResult.ALREADY_ENROLLED, EnrollmentResult.NO_SUCH_COURSE, EnrollmentResult.ENROLLED},
+					results[1]);
+			for (EnrollmentResult r : results[2]) {
+				assertEquals(EnrollmentResult.NO_SUCH_STUDENT, r);
+			}
+			assertArrayEquals(new EnrollmentResult[] {EnrollmentResult.OVER_CREDIT_LIMIT,
+					EnrollmentResult.OVER_CREDIT_LIMIT, EnrollmentResult.ALREADY_ENROLLED,
+					EnrollmentResult.NO_SUCH_COURSE, EnrollmentResult.OVER_CREDIT_LIMIT}, results[3]);
+			assertEquals(0, manager.getCourseByName("CSC116").getOpenSeats());
+			Session lberg = manager.openSession("lberg", "pw");
+			assertEquals(3, manager.listUserCourses(lberg).length);
+
+			//The enrollments are journaled and replayed
+			assertEquals(4, Files.readAllLines(journal.toPath()).size());
+			String changed = describeCourses();
+			reload(journal, 100);
+			assertEquals(changed, describeCourses());
+
+			assertArrayEquals(new EnrollmentResult[] {EnrollmentResult.ALREADY_ENROLLED},
+					manager.addStudentToCourses("lberg", manager.getCourseByName("CSC316")));
+			try {
+				manager.addStudentsToCourses(null, batch);
+				fail();
+			} catch (IllegalArgumentException e) {
+				assertEquals(changed, describeCourses());
+			}
+		} finally {
+			manager.clearData();
+			Files.deleteIfExists(journal.toPath());
+		}
+	}
+
+	/**
+	 * Tests that waitlisted students are enrolled as seats open and that
+	 * their enrollments are journaled.
+	 * @throws IOException if the journal cannot be read
+	 */
+	@Test
+	public void testWaitlist() throws IOException {
+		File journal = File.createTempFile("journal", ".txt");
+		try {
+			reload(journal, 100);
+			Course csc246 = manager.getCourseByName("CSC246");
+			Session lberg = manager.openSession("lberg", "pw");
+			Session zking = manager.openSession("zking", "pw");
+			assertFalse(manager.addUserToCourse(lberg, csc246));
+			assertTrue(manager.addUserToWaitlist(lberg, csc246));
+			assertFalse(manager.addUserToWaitlist(lberg, csc246));
+			assertTrue(manager.addUserToWaitlist(zking, csc246));
+			assertTrue(manager.removeUserFromWaitlist(zking, csc246));
+			assertFalse(manager.removeUserFromWaitlist(zking, csc246));
+			assertEquals(0, manager.listUserCourses(lberg).length);
+
+			Session daustin = manager.openSession("daustin", "pw");
+			assertTrue(manager.removeUserFromCourse(daustin, csc246));
+			assertArrayEquals(new Course[] {csc246}, manager.listUserCourses(lberg));
+			assertEquals(0, csc246.getWaitlistSize());
+
+			//A course with an open seat enrolls the student right away
+			Course csc316 = manager.getCourseByName("CSC316");
+			assertTrue(manager.addUserToWaitlist(zking, csc316));
+			assertEquals(3, manager.listUserCourses(zking).length);
+
+			assertEquals(3, Files.readAllLines(journal.toPath()).size());
+			String changed = describeCourses();
+			reload(journal, 100);
+			assertEquals(changed, describeCourses());
+
+			try {
+				manager.addUserToWaitlist(null, csc246);
+				fail();
+			} catch (IllegalArgumentException e) {
+				assertEquals("User is not logged in.", e.getMessage());
+			}
+		} finally {
+			manager.clearData();
+			Files.deleteIfExists(journal.toPath());
+		}
 	}
 
 }
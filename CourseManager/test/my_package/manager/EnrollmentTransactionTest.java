@@ -0,0 +1,389 @@
+package my_package.manager;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.Test;
+
+import my_package.courses.Course;
+import my_package.io.EnrollmentJournal;
+import my_package.users.Student;
+import my_package.users.User;
+
+/**
+ * Tests the EnrollmentTransaction class.
+ */
+public class EnrollmentTransactionTest {
+
+	/**
+	 * Tests enrolling and dropping a single Student.
+	 */
+	@Test
+	public void testEnrollDrop() {
+		Student s = new Student("first", "last", "flast", "first_last@ncsu.edu", "pw", 6);
+		Course c1 = new Course("CSC116", 3, 1);
+		Course c2 = new Course("CSC216", 4, 10);
+		Course c3 = new Course("CSC226", 3, 10);
+
+		assertTrue(EnrollmentTransaction.enroll(s, c1));
+		assertEquals(1, c1.getEnrolledStudents().length);
+		assertEquals(1, s.getCourses().length);
+
+		//Already enrolled
+		assertFalse(EnrollmentTransaction.enroll(s, c1));
+		assertEquals(1, c1.getEnrolledStudents().length);
+		assertEquals(1, s.getCourses().length);
+
+		//Too many credits; neither side changes
+		assertFalse(EnrollmentTransaction.enroll(s, c2));
+		assertEquals(0, c2.getEnrolledStudents().length);
+		assertEquals(1, s.getCourses().length);
+
+		//Full course; neither side changes
+		Student s2 = new Student("first", "last", "flast2", "first_last@ncsu.edu", "pw");
+		assertFalse(EnrollmentTransaction.enroll(s2, c1));
+		assertEquals(1, c1.getEnrolledStudents().length);
+		assertEquals(0, s2.getCourses().length);
+
+		assertTrue(EnrollmentTransaction.enroll(s, c3));
+		assertEquals(6, s.getCurrentCredits());
+
+		assertFalse(EnrollmentTransaction.drop(s, c2));
+		assertTrue(EnrollmentTransaction.drop(s, c1));
+		assertEquals(0, c1.getEnrolledStudents().length);
+		assertEquals(1, s.getCourses().length);
+		assertTrue(EnrollmentTransaction.enroll(s2, c1));
+
+		try {
+			EnrollmentTransaction.enroll(s, null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(1, s.getCourses().length);
+		}
+	}
+
+	/**
+	 * Tests enrolling a Student in a batch of Courses.
+	 * @throws IOException not thrown without a journal
+	 */
+	@Test
+	public void testEnrollAll() throws IOException {
+		Student s = new Student("first", "last", "flast", "first_last@ncsu.edu", "pw", 9);
+		Course c1 = new Course("CSC116", 3, 1);
+		Course c2 = new Course("CSC216", 4, 10);
+		Course c3 = new Course("CSC226", 3, 10);
+		Course c4 = new Course("CSC230", 3, 10);
+		assertTrue(EnrollmentTransaction.enroll(s, c3));
+		Student other = new Student("first", "last", "other", "first_last@ncsu.edu", "pw");
+		assertTrue(EnrollmentTransaction.enroll(other, c1));
+
+		EnrollmentResult [] results = EnrollmentTransaction.enrollAll(s,
+				new Course[] {c1, c2, c3, null, c2, c4}, null);
+		assertArrayEquals(new EnrollmentResult[] {EnrollmentResult.COURSE_FULL, EnrollmentResult.ENROLLED,
+				EnrollmentResult.ALREADY_ENROLLED, EnrollmentResult.NO_SUCH_COURSE,
+				EnrollmentResult.ALREADY_ENROLLED, EnrollmentResult.OVER_CREDIT_LIMIT}, results);
+		assertArrayEquals(new Course[] {c3, c2}, s.getCourses());
+		assertEquals(7, s.getCurrentCredits());
+		assertEquals(1, c2.getEnrolledStudents().length);
+		assertEquals(0, c4.getEnrolledStudents().length);
+		assertEquals(0, EnrollmentTransaction.enrollAll(s, new Course[0], null).length);
+
+		try {
+			EnrollmentTransaction.enrollAll(null, new Course[] {c4}, null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(0, c4.getEnrolledStudents().length);
+		}
+	}
+
+	/**
+	 * Tests that a change whose journal line cannot be written is undone,
+	 * leaving the seats, the roster, the schedule and the waitlist as they
+	 * were.
+	 * @throws IOException if the journal cannot be created
+	 */
+	@Test
+	public void testJournalFailure() throws IOException {
+		File file = File.createTempFile("journal", ".txt");
+		try {
+			EnrollmentJournal journal = new EnrollmentJournal(file.getPath());
+			journal.close();
+			Course c1 = new Course("CSC116", 3, 1);
+			Course c2 = new Course("CSC216", 3, 10);
+			Student s1 = new Student("first", "last", "s1", "first_last@ncsu.edu", "pw");
+			Student s2 = new Student("first", "last", "s2", "first_last@ncsu.edu", "pw");
+
+			try {
+				EnrollmentTransaction.enroll(s1, c1, journal);
+				fail();
+			} catch (IOException e) {
+				assertNotNull(e);
+			}
+			assertEquals(1, c1.getOpenSeats());
+			assertEquals(0, c1.getEnrolledStudents().length);
+			assertEquals(0, s1.getCourses().length);
+			assertEquals(0, s1.getCurrentCredits());
+
+			try {
+				EnrollmentTransaction.enrollAll(s1, new Course[] {c1, c2}, journal);
+				fail();
+			} catch (IOException e) {
+				assertNotNull(e);
+			}
+			assertEquals(1, c1.getOpenSeats());
+			assertEquals(10, c2.getOpenSeats());
+			assertEquals(0, c2.getEnrolledStudents().length);
+			assertEquals(0, s1.getCourses().length);
+
+			assertTrue(EnrollmentTransaction.enroll(s1, c1));
+			assertTrue(c1.waitlist(s2));
+			try {
+				EnrollmentTransaction.drop(s1, c1, journal);
+				fail();
+			} catch (IOException e) {
+				assertNotNull(e);
+			}
+			assertEquals(0, c1.getOpenSeats());
+			assertArrayEquals(new Student[] {s1}, c1.getEnrolledStudents());
+			assertArrayEquals(new Course[] {c1}, s1.getCourses());
+			assertArrayEquals(new Student[] {s2}, c1.getWaitlist());
+
+			try {
+				EnrollmentTransaction.setCapacity(c1, 2, journal);
+				fail();
+			} catch (IOException e) {
+				assertNotNull(e);
+			}
+			assertEquals(1, c1.getCapacity());
+			assertEquals(0, s2.getCourses().length);
+			assertArrayEquals(new Student[] {s2}, c1.getWaitlist());
+
+			//A promotion into an open seat is undone the same way
+			assertTrue(c1.drop(s1, false));
+			assertTrue(s1.removeCourse(c1));
+			assertEquals(1, c1.getOpenSeats());
+			try {
+				EnrollmentTransaction.promote(c1, journal);
+				fail();
+			} catch (IOException e) {
+				assertNotNull(e);
+			}
+			assertEquals(1, c1.getOpenSeats());
+			assertEquals(0, c1.getEnrolledStudents().length);
+			assertEquals(0, s2.getCourses().length);
+			assertArrayEquals(new Student[] {s2}, c1.getWaitlist());
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Tests that a compaction started after a change but before it is
+	 * journaled waits until the change is journaled or undone, so the
+	 * record files never keep a change whose line the journal lost or that
+	 * was reported as failed.
+	 * @throws IOException if the journal cannot be written
+	 * @throws InterruptedException if interrupted
+	 */
+	@Test
+	public void testCompactDuringChange() throws IOException, InterruptedException {
+		File file = File.createTempFile("journal", ".txt");
+		Course c = new Course("CSC116", 3, 10);
+		Student s = new Student("first", "last", "s1", "first_last@ncsu.edu", "pw");
+		try (CompactingJournal journal = new CompactingJournal(file.getPath(), s, c)) {
+			assertTrue(EnrollmentTransaction.enroll(s, c));
+			assertTrue(EnrollmentTransaction.drop(s, c, journal));
+			journal.compaction.join();
+			assertFalse(journal.saved);
+			assertEquals(0, journal.size());
+
+			journal.fail = true;
+			try {
+				EnrollmentTransaction.enroll(s, c, journal);
+				fail();
+			} catch (IOException e) {
+				assertNotNull(e);
+			}
+			journal.compaction.join();
+			assertFalse(journal.saved);
+			assertEquals(0, s.getCourses().length);
+			assertEquals(0, c.getEnrolledStudents().length);
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * A journal that starts a compaction on another thread as each
+	 * enrollment or drop is appended, and gives it time to run before the
+	 * append returns.  The compaction records whether the Student was
+	 * enrolled in the Course when the record files were written.
+	 */
+	private static class CompactingJournal extends EnrollmentJournal {
+		/** Student being changed */
+		private final Student student;
+		/** Course being changed */
+		private final Course course;
+		/** True to fail each enrollment after starting the compaction */
+		private boolean fail;
+		/** Last compaction started */
+		private Thread compaction;
+		/** True if the Student was enrolled when the last compaction saved */
+		private volatile boolean saved;
+
+		/**
+		 * Opens the journal.
+		 * @param fileName journal file
+		 * @param student Student being changed
+		 * @param course Course being changed
+		 * @throws IOException if the file cannot be opened
+		 */
+		CompactingJournal(String fileName, Student student, Course course) throws IOException {
+			super(fileName);
+			this.student = student;
+			this.course = course;
+		}
+
+		/**
+		 * Starts a compaction and waits a while for it to finish.
+		 * @throws IOException if interrupted
+		 */
+		private void compactNow() throws IOException {
+			compaction = new Thread(() -> {
+				try {
+					compact(() -> saved = student.getCourseView().contains(course));
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			compaction.start();
+			try {
+				compaction.join(200);
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see my_package.io.EnrollmentJournal#enrolled(my_package.users.User, my_package.courses.Course)
+		 */
+		@Override
+		public void enrolled(User user, Course c) throws IOException {
+			if (!fail) {
+				super.enrolled(user, c);
+			}
+			compactNow();
+			if (fail) {
+				throw new IOException("Journal cannot be written");
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see my_package.io.EnrollmentJournal#dropped(my_package.users.User, my_package.courses.Course)
+		 */
+		@Override
+		public void dropped(User user, Course c) throws IOException {
+			super.dropped(user, c);
+			compactNow();
+		}
+	}
+
+	/**
+	 * Tests that dropping and raising the capacity promote waitlisted
+	 * Students on both sides.
+	 * @throws IOException not thrown without a journal
+	 */
+	@Test
+	public void testPromote() throws IOException {
+		Course c = new Course("CSC116", 3, 1);
+		Student s1 = new Student("first", "last", "s1", "first_last@ncsu.edu", "pw");
+		Student s2 = new Student("first", "last", "s2", "first_last@ncsu.edu", "pw");
+		Student s3 = new Student("first", "last", "s3", "first_last@ncsu.edu", "pw");
+		assertTrue(EnrollmentTransaction.enroll(s1, c));
+		assertFalse(EnrollmentTransaction.enroll(s2, c));
+		assertTrue(c.waitlist(s2));
+		assertTrue(c.waitlist(s3));
+		assertEquals(0, EnrollmentTransaction.promote(c, null));
+
+		assertTrue(EnrollmentTransaction.drop(s1, c));
+		assertEquals(0, s1.getCourses().length);
+		assertArrayEquals(new Course[] {c}, s2.getCourses());
+		assertArrayEquals(new Student[] {s2}, c.getEnrolledStudents());
+
+		EnrollmentTransaction.setCapacity(c, 3, null);
+		assertArrayEquals(new Course[] {c}, s3.getCourses());
+		assertArrayEquals(new Student[] {s2, s3}, c.getEnrolledStudents());
+		assertEquals(0, c.getWaitlistSize());
+		assertEquals(1, c.getOpenSeats());
+	}
+
+	/**
+	 * Tests that Students and Courses stay consistent when many threads
+	 * enroll and drop at the same time.
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	@Test
+	public void testConcurrentEnrollDrop() throws InterruptedException {
+		final Course [] courses = new Course[6];
+		for (int i = 0; i < courses.length; i++) {
+			courses[i] = new Course("CSC" + (100 + i), 3, 4);
+		}
+		final Student [] students = new Student[24];
+		for (int i = 0; i < students.length; i++) {
+			students[i] = new Student("first", "last", "s" + i, "first_last@ncsu.edu", "pw", 9);
+		}
+
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread [] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < 5000; i++) {
+					Student s = students[random.nextInt(students.length)];
+					Course c = courses[random.nextInt(courses.length)];
+					if (!EnrollmentTransaction.enroll(s, c)) {
+						EnrollmentTransaction.drop(s, c);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		start.countDown();
+		for (Thread t : threads) {
+			t.join();
+		}
+
+		//Every roster entry has a matching course on the Student and 
+		//every Student course has a matching roster entry
+		int rosterTotal = 0;
+		for (Course c : courses) {
+			Student [] roster = c.getEnrolledStudents();
+			assertTrue(roster.length <= c.getCapacity());
+			rosterTotal += roster.length;
+			for (Student s : roster) {
+				assertTrue(Arrays.asList(s.getCourses()).contains(c));
+			}
+		}
+		int courseTotal = 0;
+		for (Student s : students) {
+			assertTrue(s.getCurrentCredits() <= s.getMaxCredits());
+			for (Course c : s.getCourses()) {
+				List<Student> roster = Arrays.asList(c.getEnrolledStudents());
+				assertTrue(roster.contains(s));
+				courseTotal++;
+			}
+		}
+		assertEquals(rosterTotal, courseTotal);
+	}
+}
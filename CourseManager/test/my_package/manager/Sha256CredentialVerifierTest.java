@@ -0,0 +1,115 @@
+package my_package.manager;
+
+import static org.junit.Assert.*;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import my_package.users.Student;
+import my_package.users.User;
+
+/**
+ * Tests the Sha256CredentialVerifier class.
+ */
+public class Sha256CredentialVerifierTest {
+
+	/** Verifier for testing */
+	private Sha256CredentialVerifier verifier = new Sha256CredentialVerifier();
+
+	/**
+	 * Hashes the password the way the student record files were created.
+	 * @param password plaintext password
+	 * @return hashed password
+	 */
+	private String legacyHash(String password) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(password.getBytes());
+			return new String(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			fail("Unable to create hash");
+			return null;
+		}
+	}
+
+	/**
+	 * Tests that hash() matches the format of the student record files.
+	 */
+	@Test
+	public void testHash() {
+		assertEquals(legacyHash("pw"), verifier.hash("pw"));
+		assertEquals(legacyHash("password"), verifier.hash("password"));
+		assertEquals(legacyHash(""), verifier.hash(""));
+		try {
+			verifier.hash(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(legacyHash("pw"), verifier.hash("pw"));
+		}
+	}
+
+	/**
+	 * Tests verify() with correct and incorrect passwords.
+	 */
+	@Test
+	public void testVerify() {
+		User u = new Student("first", "last", "flast", "first_last@ncsu.edu", legacyHash("pw"));
+		assertTrue(verifier.verify(u, "pw"));
+		assertFalse(verifier.verify(u, "pw1"));
+		assertFalse(verifier.verify(u, "PW"));
+		assertFalse(verifier.verify(u, ""));
+		assertFalse(verifier.verify(u, null));
+		assertFalse(verifier.verify(null, "pw"));
+
+		//A long password needs a bigger encoding buffer
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			sb.append("pass\u00e9word");
+		}
+		String longPassword = sb.toString();
+		u.setPassword(legacyHash(longPassword));
+		assertTrue(verifier.verify(u, longPassword));
+		assertFalse(verifier.verify(u, longPassword + "x"));
+	}
+
+	/**
+	 * Tests that verify() agrees with comparing legacy hash Strings for 
+	 * many random passwords.
+	 */
+	@Test
+	public void testVerifyMatchesLegacy() {
+		Random random = new Random(216);
+		User u = new Student("first", "last", "flast", "first_last@ncsu.edu", "pw");
+		for (int i = 0; i < 2000; i++) {
+			char [] chars = new char[1 + random.nextInt(20)];
+			for (int j = 0; j < chars.length; j++) {
+				chars[j] = (char) (' ' + random.nextInt(300));
+			}
+			String password = new String(chars);
+			String stored = legacyHash(password);
+			u.setPassword(stored);
+			assertTrue(verifier.verify(u, password));
+			assertEquals(stored, verifier.hash(password));
+
+			String other = password + (char) ('a' + random.nextInt(26));
+			assertEquals(stored.equals(legacyHash(other)), verifier.verify(u, other));
+		}
+	}
+
+	/**
+	 * Tests the constant time comparison.
+	 */
+	@Test
+	public void testIsEqual() {
+		char [] chars = {'a', 'b', 'c', 'd'};
+		assertTrue(Sha256CredentialVerifier.isEqual(chars, 3, "abc"));
+		assertFalse(Sha256CredentialVerifier.isEqual(chars, 3, "abd"));
+		assertFalse(Sha256CredentialVerifier.isEqual(chars, 3, "ab"));
+		assertFalse(Sha256CredentialVerifier.isEqual(chars, 3, "abcd"));
+		assertTrue(Sha256CredentialVerifier.isEqual(chars, 4, "abcd"));
+		assertTrue(Sha256CredentialVerifier.isEqual(chars, 0, ""));
+	}
+}
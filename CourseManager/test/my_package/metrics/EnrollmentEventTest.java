@@ -0,0 +1,88 @@
+package my_package.metrics;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import my_package.courses.Course;
+import my_package.manager.EnrollmentTransaction;
+import my_package.users.Student;
+
+/**
+ * Tests that enrollments and drops are recorded as EnrollmentEvents.
+ */
+public class EnrollmentEventTest {
+
+	/**
+	 * Tests the events and outcomes of enrolling, dropping and promoting.
+	 * @throws IOException if the recording cannot be read
+	 */
+	@Test
+	public void testEvents() throws IOException {
+		Course c = new Course("CSC216", 3, 1);
+		Student s1 = new Student("Zahir", "King", "zking", "orci.Donec@ametmassaQuisque.com", "pw", 15);
+		Student s2 = new Student("Lane", "Berg", "lberg", "sociis@non.org", "pw", 15);
+		Student s3 = new Student("Emerald", "Frost", "efrost", "adipiscing@acipsumPhasellus.ca", "pw", 2);
+
+		List<RecordedEvent> events;
+		try (Recording recording = new Recording()) {
+			recording.enable("my_package.Enrollment").withThreshold(Duration.ZERO);
+			recording.start();
+			assertTrue(EnrollmentTransaction.enroll(s1, c));
+			assertFalse(EnrollmentTransaction.enroll(s1, c));
+			assertFalse(EnrollmentTransaction.enroll(s2, c));
+			assertFalse(EnrollmentTransaction.enroll(s3, c));
+			assertTrue(c.waitlist(s2));
+			assertTrue(EnrollmentTransaction.drop(s1, c));
+			assertFalse(EnrollmentTransaction.drop(s1, c));
+			recording.stop();
+			events = read(recording);
+		}
+
+		String [][] expected = {
+			{"enroll", "zking", "ENROLLED"},
+			{"enroll", "zking", "ALREADY_ENROLLED"},
+			{"enroll", "lberg", "COURSE_FULL"},
+			{"enroll", "efrost", "OVER_CREDIT_LIMIT"},
+			{"drop", "zking", "DROPPED"},
+			{"promote", "lberg", "ENROLLED"},
+			{"drop", "zking", "NOT_ENROLLED"},
+		};
+		assertEquals(expected.length, events.size());
+		for (int i = 0; i < expected.length; i++) {
+			RecordedEvent e = events.get(i);
+			assertEquals(expected[i][0], e.getString("action"));
+			assertEquals(expected[i][1], e.getString("student"));
+			assertEquals("CSC216", e.getString("course"));
+			assertEquals(expected[i][2], e.getString("outcome"));
+		}
+	}
+
+	/**
+	 * Returns the recorded EnrollmentEvents in the order they started.
+	 * @param recording stopped recording
+	 * @return recorded events
+	 * @throws IOException if the recording cannot be read
+	 */
+	private static List<RecordedEvent> read(Recording recording) throws IOException {
+		Path file = Files.createTempFile("enrollment", ".jfr");
+		try {
+			recording.dump(file);
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			events.removeIf(e -> !e.getEventType().getName().equals("my_package.Enrollment"));
+			events.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+			return events;
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package my_package.metrics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the LatencyHistogram class.
+ */
+public class LatencyHistogramTest {
+
+	/** Histogram for testing */
+	private LatencyHistogram histogram;
+
+	/**
+	 * Creates an empty histogram.
+	 */
+	@Before
+	public void setUp() {
+		histogram = new LatencyHistogram();
+	}
+
+	/**
+	 * Tests that every time falls in a bucket that holds it, and that the
+	 * buckets are in order and cover every time.
+	 */
+	@Test
+	public void testBuckets() {
+		for (int i = 0; i < 16; i++) {
+			assertEquals(i, LatencyHistogram.bucket(i));
+			assertEquals(i, LatencyHistogram.lowestIn(i));
+		}
+		for (int b = 1; b < LatencyHistogram.BUCKETS; b++) {
+			long lowest = LatencyHistogram.lowestIn(b);
+			assertTrue(lowest > LatencyHistogram.lowestIn(b - 1));
+			assertEquals(b, LatencyHistogram.bucket(lowest));
+			assertEquals(b - 1, LatencyHistogram.bucket(lowest - 1));
+		}
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+
+		//A bucket is no wider than an eighth of its smallest time
+		for (int b = 16; b < LatencyHistogram.BUCKETS - 1; b++) {
+			long lowest = LatencyHistogram.lowestIn(b);
+			assertTrue(LatencyHistogram.lowestIn(b + 1) - lowest <= lowest / 8);
+		}
+	}
+
+	/**
+	 * Tests the count, mean, maximum and percentiles.
+	 */
+	@Test
+	public void testRecord() {
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMean(), 0);
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getP99());
+
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000L);
+		}
+		histogram.record(-5);
+		assertEquals(1001, histogram.getCount());
+		assertEquals(1000000, histogram.getMax());
+		assertEquals(500500000.0 / 1001, histogram.getMean(), 0.001);
+
+		assertEquals(0, histogram.percentile(0.05));
+		assertWithin(500000, histogram.getP50());
+		assertWithin(900000, histogram.getP90());
+		assertWithin(990000, histogram.getP99());
+		assertEquals(1000000, histogram.getP999());
+		assertEquals(1000000, histogram.percentile(100));
+
+		try {
+			histogram.percentile(101);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(1001, histogram.getCount());
+		}
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getP50());
+	}
+
+	/**
+	 * Tests that recordSince() records only when given a start time.
+	 */
+	@Test
+	public void testRecordSince() {
+		histogram.recordSince(0);
+		assertEquals(0, histogram.getCount());
+		histogram.recordSince(System.nanoTime());
+		assertEquals(1, histogram.getCount());
+	}
+
+	/**
+	 * Asserts that a percentile is at or above the exact value and no more
+	 * than an eighth above it.
+	 * @param expected exact percentile
+	 * @param actual percentile from the histogram
+	 */
+	private static void assertWithin(long expected, long actual) {
+		assertTrue(actual + " < " + expected, actual >= expected);
+		assertTrue(actual + " > " + expected, actual <= expected + expected / 8);
+	}
+}
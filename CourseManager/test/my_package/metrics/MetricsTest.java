@@ -0,0 +1,107 @@
+package my_package.metrics;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the Metrics and Counter classes.
+ */
+public class MetricsTest {
+
+	/**
+	 * Disables Metrics again.
+	 */
+	@After
+	public void tearDown() {
+		Metrics.setEnabled(false);
+	}
+
+	/**
+	 * Tests that nothing is recorded while Metrics are disabled.
+	 */
+	@Test
+	public void testDisabled() {
+		Metrics.setEnabled(false);
+		Counter counter = Metrics.counter("MetricsTest", "disabled");
+		LatencyHistogram histogram = Metrics.histogram("MetricsTest", "disabledTime");
+		assertEquals(0, Metrics.start());
+
+		counter.increment();
+		counter.add(5);
+		histogram.recordSince(Metrics.start());
+		assertEquals(0, counter.getCount());
+		assertEquals(0, histogram.getCount());
+
+		Metrics.setEnabled(true);
+		counter.increment();
+		counter.add(5);
+		histogram.recordSince(Metrics.start());
+		assertEquals(6, counter.getCount());
+		assertEquals(1, histogram.getCount());
+
+		Metrics.reset();
+		assertEquals(0, counter.getCount());
+		assertEquals(0, histogram.getCount());
+	}
+
+	/**
+	 * Tests that a metric is created once for each name.
+	 */
+	@Test
+	public void testNames() {
+		Counter counter = Metrics.counter("MetricsTest", "named");
+		assertSame(counter, Metrics.counter("MetricsTest", "named"));
+		assertNotSame(counter, Metrics.counter("MetricsTest", "other"));
+
+		try {
+			Metrics.histogram("MetricsTest", "named");
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertSame(counter, Metrics.counter("MetricsTest", "named"));
+		}
+		try {
+			Metrics.counter(null, "named");
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertSame(counter, Metrics.counter("MetricsTest", "named"));
+		}
+	}
+
+	/**
+	 * Tests that enabling Metrics registers the metrics as MBeans, both
+	 * those created before and those created after.
+	 * @throws Exception if the MBeans cannot be read
+	 */
+	@Test
+	public void testMBeans() throws Exception {
+		Counter before = Metrics.counter("MetricsTest", "before");
+		Metrics.setEnabled(true);
+		Counter after = Metrics.counter("MetricsTest", "after");
+		LatencyHistogram histogram = Metrics.histogram("MetricsTest", "time");
+		before.add(2);
+		after.add(3);
+		histogram.record(100);
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		assertEquals(2L, server.getAttribute(new ObjectName("my_package:type=MetricsTest,name=before"), "Count"));
+		assertEquals(3L, server.getAttribute(new ObjectName("my_package:type=MetricsTest,name=after"), "Count"));
+		ObjectName time = new ObjectName("my_package:type=MetricsTest,name=time");
+		assertEquals(1L, server.getAttribute(time, "Count"));
+		assertEquals(100L, server.getAttribute(time, "Max"));
+		assertEquals(100L, server.getAttribute(time, "P99"));
+
+		server.invoke(time, "reset", null, null);
+		assertEquals(0, histogram.getCount());
+
+		//The instrumented classes register under their own names
+		Class.forName("my_package.courses.Course");
+		assertTrue(server.isRegistered(new ObjectName("my_package:type=Course,name=enrollFull")));
+	}
+}
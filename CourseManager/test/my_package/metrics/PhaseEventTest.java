@@ -0,0 +1,90 @@
+package my_package.metrics;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import my_package.manager.CourseManager;
+
+/**
+ * Tests that loading and saving the record files is recorded as
+ * PhaseEvents.
+ */
+public class PhaseEventTest {
+
+	/**
+	 * Clears the CourseManager.
+	 */
+	@After
+	public void tearDown() {
+		CourseManager.getInstance().clearData();
+	}
+
+	/**
+	 * Tests the phases of loading and saving copies of the record files.
+	 * @throws IOException if the files or the recording cannot be read
+	 */
+	@Test
+	public void testPhases() throws IOException {
+		Path dir = Files.createTempDirectory("phases");
+		Path courseFile = dir.resolve("course_records.txt");
+		Path studentFile = dir.resolve("student_records.txt");
+		Files.copy(Paths.get("test-files", "expected_full_course_records.txt"), courseFile);
+		Files.copy(Paths.get("test-files", "expected_full_student_records.txt"), studentFile);
+		int courses = Files.readAllLines(courseFile).size();
+
+		CourseManager manager = CourseManager.getInstance();
+		manager.clearData();
+		List<String> phases = new ArrayList<String>();
+		Path file = dir.resolve("phases.jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("my_package.Phase").withThreshold(Duration.ZERO);
+			recording.start();
+			manager.loadCourses(courseFile.toString());
+			manager.loadStudents(studentFile.toString());
+			manager.saveCourses();
+			manager.saveStudents();
+			recording.stop();
+
+			recording.dump(file);
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			events.removeIf(e -> !e.getEventType().getName().equals("my_package.Phase"));
+			events.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+			for (RecordedEvent e : events) {
+				phases.add(e.getString("operation") + "." + e.getString("phase"));
+				assertTrue(e.getLong("records") > 0);
+				if (e.getString("operation").endsWith("Courses")) {
+					assertEquals(courseFile.toString(), e.getString("file"));
+					assertEquals(courses, e.getLong("records"));
+				} else {
+					assertEquals(studentFile.toString(), e.getString("file"));
+				}
+			}
+		} finally {
+			Files.deleteIfExists(file);
+			Files.delete(courseFile);
+			Files.delete(studentFile);
+			Files.delete(dir);
+		}
+
+		String [] expected = {
+			"loadCourses.readCourseRecords", "loadCourses.addCourses",
+			"loadStudents.readStudentRecords", "loadStudents.addStudents",
+			"saveCourses.copyCourses", "saveCourses.writeCourseRecords",
+			"saveStudents.copyStudents", "saveStudents.writeStudentRecords",
+		};
+		assertArrayEquals(expected, phases.toArray());
+	}
+}
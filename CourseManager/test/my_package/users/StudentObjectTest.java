@@ -7,6 +7,8 @@ import java.security.NoSuchAlgorithmException;
 
 import org.junit.Test;
 
+import my_package.courses.Course;
+
 public class StudentObjectTest {
 
 	/** Test user's first name. */
@@ -51,17 +53,39 @@ public class StudentObjectTest {
 		User u5 = new Student(firstName, lastName, id + "1", email, hashPW);
 		User u6 = new Student(firstName, lastName, id, email + "1", hashPW);
 		
+		//Users with the same id are equal
 		assertTrue(u1.equals(u2));
-		assertFalse(u1.equals(u3));
-		assertFalse(u1.equals(u4));
+		assertTrue(u1.equals(u3));
+		assertTrue(u1.equals(u4));
 		assertFalse(u1.equals(u5));
-		assertFalse(u1.equals(u6));
+		assertTrue(u1.equals(u6));
 		
 		assertEquals(u1.hashCode(), u2.hashCode());
-		assertNotEquals(u1.hashCode(), u3.hashCode());
-		assertNotEquals(u1.hashCode(), u4.hashCode());
+		assertEquals(u1.hashCode(), u3.hashCode());
+		assertEquals(u1.hashCode(), u4.hashCode());
 		assertNotEquals(u1.hashCode(), u5.hashCode());
-		assertNotEquals(u1.hashCode(), u6.hashCode());
+		assertEquals(u1.hashCode(), u6.hashCode());
+		
+		//deepEquals() compares every field
+		assertTrue(u1.deepEquals(u2));
+		assertFalse(u1.deepEquals(u3));
+		assertFalse(u1.deepEquals(u4));
+		assertFalse(u1.deepEquals(u5));
+		assertFalse(u1.deepEquals(u6));
+		assertFalse(u1.deepEquals(null));
+		
+		//Enrolling doesn't change equals() or hashCode()
+		int hashCode = u2.hashCode();
+		u2.addCourse(new Course("CSC216", 3, 10));
+		assertTrue(u1.equals(u2));
+		assertEquals(hashCode, u2.hashCode());
+		assertFalse(u1.deepEquals(u2));
+		u1.addCourse(new Course("CSC216", 3, 10));
+		assertTrue(u1.deepEquals(u2));
+		
+		User u7 = new Student(firstName, lastName, id, email, hashPW, 12);
+		assertTrue(u7.equals(new Student(firstName, lastName, id, email, hashPW)));
+		assertFalse(u7.deepEquals(new Student(firstName, lastName, id, email, hashPW)));
 	}
 	
 	/**
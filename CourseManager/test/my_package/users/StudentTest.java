@@ -4,6 +4,8 @@ import static org.junit.Assert.*;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -102,6 +104,32 @@ public class StudentTest {
 		assertEquals(0, s1.getCurrentCredits());
 	}
 	
+	/**
+	 * Tests that the course view is read-only and is replaced, not
+	 * changed, when courses are added and removed.
+	 */
+	@Test
+	public void testCourseView() {
+		assertTrue(s.getCourseView().isEmpty());
+		s.addCourse(c1);
+		List<Course> view = s.getCourseView();
+		assertSame(view, s.getCourseView());
+		assertEquals(Arrays.asList(c1), view);
+		try {
+			view.add(c2);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			assertEquals(1, view.size());
+		}
+
+		s.addCourse(c2);
+		assertEquals(Arrays.asList(c1), view);
+		assertEquals(Arrays.asList(c1, c2), s.getCourseView());
+		s.removeCourse(c1);
+		assertEquals(Arrays.asList(c2), s.getCourseView());
+		compareCourses(s.getCourses(), s.getCourseView().toArray(new Course[0]));
+	}
+
 	/**
 	 * Tests adding a course to a student.
 	 */
@@ -254,6 +282,41 @@ public class StudentTest {
 		}
 	}
 	
+	/**
+	 * Tests that the current credits follow changes to a course's credits.
+	 */
+	@Test
+	public void testCourseCreditsChange() {
+		s.addCourse(c1);
+		s.addCourse(c2);
+		assertEquals(6, s.getCurrentCredits());
+		
+		c1.setCredits(4);
+		assertEquals(7, s.getCurrentCredits());
+		
+		//Removing a course subtracts its current credits
+		assertTrue(s.removeCourse(c1));
+		assertEquals(3, s.getCurrentCredits());
+		
+		c2.setCredits(1);
+		assertTrue(s.addCourse(c1));
+		assertEquals(5, s.getCurrentCredits());
+		
+		//Removing with an equal course subtracts the enrolled course's credits
+		assertTrue(s.removeCourse(new Course("CSC116", 3, 10)));
+		assertEquals(1, s.getCurrentCredits());
+		
+		//The new credits are used when checking the maximum
+		s.setMaxCredits(5);
+		assertTrue(s.canAddCourse(c1));
+		c1.setCredits(Course.MAX_HOURS);
+		assertTrue(s.canAddCourse(c1));
+		c2.setCredits(2);
+		assertFalse(s.canAddCourse(c1));
+		assertFalse(s.addCourse(c1));
+		assertEquals(2, s.getCurrentCredits());
+	}
+
 	/**
 	 * Tests equals() and hashCode() methods.
 	 */
@@ -266,17 +329,39 @@ public class StudentTest {
 		User u5 = new Student(firstName, lastName, id + "1", email, hashPW);
 		User u6 = new Student(firstName, lastName, id, email + "1", hashPW);
 		
+		//Users with the same id are equal
 		assertTrue(u1.equals(u2));
-		assertFalse(u1.equals(u3));
-		assertFalse(u1.equals(u4));
+		assertTrue(u1.equals(u3));
+		assertTrue(u1.equals(u4));
 		assertFalse(u1.equals(u5));
-		assertFalse(u1.equals(u6));
+		assertTrue(u1.equals(u6));
 		
 		assertEquals(u1.hashCode(), u2.hashCode());
-		assertNotEquals(u1.hashCode(), u3.hashCode());
-		assertNotEquals(u1.hashCode(), u4.hashCode());
+		assertEquals(u1.hashCode(), u3.hashCode());
+		assertEquals(u1.hashCode(), u4.hashCode());
 		assertNotEquals(u1.hashCode(), u5.hashCode());
-		assertNotEquals(u1.hashCode(), u6.hashCode());
+		assertEquals(u1.hashCode(), u6.hashCode());
+		
+		//deepEquals() compares every field
+		assertTrue(u1.deepEquals(u2));
+		assertFalse(u1.deepEquals(u3));
+		assertFalse(u1.deepEquals(u4));
+		assertFalse(u1.deepEquals(u5));
+		assertFalse(u1.deepEquals(u6));
+		assertFalse(u1.deepEquals(null));
+		
+		//Enrolling doesn't change equals() or hashCode()
+		int hashCode = u2.hashCode();
+		u2.addCourse(new Course("CSC216", 3, 10));
+		assertTrue(u1.equals(u2));
+		assertEquals(hashCode, u2.hashCode());
+		assertFalse(u1.deepEquals(u2));
+		u1.addCourse(new Course("CSC216", 3, 10));
+		assertTrue(u1.deepEquals(u2));
+		
+		User u7 = new Student(firstName, lastName, id, email, hashPW, 12);
+		assertTrue(u7.equals(new Student(firstName, lastName, id, email, hashPW)));
+		assertFalse(u7.deepEquals(new Student(firstName, lastName, id, email, hashPW)));
 	}
 	
 	/**